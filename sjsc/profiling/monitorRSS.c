@@ -32,11 +32,12 @@ int main(int argc, char *const argv[]) {
     struct rusage my_rusage, child_rusage;
     struct tms my_tms;
     long maxRSS;
-    int i;
+    int i, status;
 
     if (argc < 2 || strcmp(argv[1], "-h") == 0 || strcmp(argv[1], "--help") == 0) {
         printf("use: monitorRSS <cmd> [<cmd args>]\n");
         printf("out: <max rss (bytes)>\t<user time (seconds)>\t<system time (seconds)>\n");
+        printf("exit status: that of <cmd>, or 128 + the signal that killed it\n");
         return 1;
     }
 
@@ -56,7 +57,7 @@ int main(int argc, char *const argv[]) {
     }
 
     // When the child terminates, get its peak RSS use.
-    if (waitpid(pid, NULL, 0) < 0) {
+    if (waitpid(pid, &status, 0) < 0) {
         printf("error: waitpid() failed\n");
         return -1;
     }
@@ -88,5 +89,5 @@ int main(int argc, char *const argv[]) {
           , (long int)child_rusage.ru_stime.tv_sec
           , (long int)child_rusage.ru_stime.tv_usec);
 
-    return 0;
+    return WIFEXITED(status) ? WEXITSTATUS(status) : 128 + WTERMSIG(status);
 }
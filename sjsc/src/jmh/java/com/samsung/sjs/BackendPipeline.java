@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.mozilla.javascript.ast.AstNode;
+import org.mozilla.javascript.ast.AstRoot;
+
+import com.samsung.sjs.backend.ConstantInliningPass;
+import com.samsung.sjs.backend.FieldAccessOptimizer;
+import com.samsung.sjs.backend.IRCBackend;
+import com.samsung.sjs.backend.IRClosureConversionPass;
+import com.samsung.sjs.backend.IREnvironmentLayoutPass;
+import com.samsung.sjs.backend.IRFieldCollector;
+import com.samsung.sjs.backend.IRVTablePass;
+import com.samsung.sjs.backend.IntrinsicsInliningPass;
+import com.samsung.sjs.backend.PhysicalLayout;
+import com.samsung.sjs.backend.PhysicalLayoutConstraintGathering;
+import com.samsung.sjs.backend.RhinoToIR;
+import com.samsung.sjs.backend.SwitchDesugaringPass;
+import com.samsung.sjs.backend.ThreeAddressConversion;
+import com.samsung.sjs.backend.asts.c.CompilationUnit;
+import com.samsung.sjs.backend.asts.ir.Script;
+import com.samsung.sjs.constraintgenerator.ConstraintGenerator;
+import com.samsung.sjs.constraintsolver.SolverException;
+import com.samsung.sjs.constraintsolver.TypeAssignment;
+import com.samsung.sjs.theorysolver.FixingSetFinder;
+import com.samsung.sjs.theorysolver.SJSTypeTheory;
+import com.samsung.sjs.theorysolver.TheorySolver;
+import com.samsung.sjs.typeconstraints.ITypeConstraint;
+import com.samsung.sjs.types.Type;
+
+/**
+ * The backend of {@link Compiler#compile(CompilerOptions)} one stage at a time, for the backend
+ * benchmarks: a {@link Program} is type checked once, and each run of the pipeline translates it
+ * afresh, since the passes update the IR in place.  The stages must be called in order, as in
+ * the compiler (non-debug, native, with field optimizations).
+ */
+public final class BackendPipeline {
+
+    /**
+     * A type checked script and what its translation needs.
+     */
+    public static final class Program {
+        final CompilerOptions opts;
+        final JSEnvironment env;
+        final FFILinkage ffi;
+        final ModuleSystem modsys;
+        final AstRoot sourcetree;
+        final Map<AstNode,Type> types;
+
+        /**
+         * Type check script, which will be translated to the C file output.
+         */
+        public Program(Path script, Path output) {
+            opts = new CompilerOptions(CompilerOptions.Platform.Native, script.toAbsolutePath().toString(), false,
+                                       output.toAbsolutePath().toString(), true, "clang", "emcc",
+                                       output.toAbsolutePath().toString().replaceFirst(".c$", ""), ".", false,
+                                       true, false, false, null, false, false, false, null, false, 3);
+            try {
+                env = opts.getRuntimeEnvironment();
+                Compiler.includeDeclarations(env, opts);
+                ffi = Compiler.loadLinkage(opts);
+                modsys = new ModuleSystem(opts);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sourcetree = BenchmarkInputs.parse(BenchmarkInputs.read(script));
+            SJSTypeTheory theory = new SJSTypeTheory(env, modsys, sourcetree);
+            List<ITypeConstraint> constraints = theory.getConstraints();
+            ConstraintGenerator g = theory.hackyGenerator();
+            List<Integer> hard = new ArrayList<>(), soft = new ArrayList<>();
+            for (int i = 0; i < constraints.size(); ++i) {
+                (g.hasExplanation(constraints.get(i)) ? soft : hard).add(i);
+            }
+            Pair<TypeAssignment, Collection<Integer>> result =
+                TheorySolver.solve(theory, FixingSetFinder.getStrategy(null), hard, soft);
+            if (!result.getRight().isEmpty()) {
+                throw new SolverException(script+" has "+result.getRight().size()+" type errors");
+            }
+            types = result.getLeft().nodeTypes();
+        }
+    }
+
+    private final Program p;
+
+    private Script ir;
+    private IRFieldCollector.FieldMapping m;
+    private IREnvironmentLayoutPass envlayout;
+    private PhysicalLayout layout;
+    private IRVTablePass irvt;
+    private CompilationUnit unit;
+
+    public BackendPipeline(Program p) {
+        this.p = p;
+        Compiler.resetCompilationState();
+    }
+
+    public Script toIR() {
+        ir = new RhinoToIR(p.opts, p.sourcetree, p.types).convert();
+        return ir;
+    }
+
+    public IRFieldCollector.FieldMapping collectFields() {
+        IRFieldCollector fc = new IRFieldCollector(p.env, p.modsys);
+        ir.accept(fc);
+        m = fc.getResults();
+        return m;
+    }
+
+    /**
+     * Constant inlining, repeated until nothing changes.
+     *
+     * @return the number of rounds
+     */
+    public int inlineConstants() {
+        int rounds = 0;
+        boolean again = true;
+        while (again) {
+            rounds++;
+            ConstantInliningPass cip = new ConstantInliningPass(p.opts, ir);
+            ir = cip.visitScript(ir);
+            again = cip.didSomething();
+        }
+        return rounds;
+    }
+
+    public void layoutEnvironments() {
+        envlayout = new IREnvironmentLayoutPass(ir, p.opts.debug());
+        ir.accept(envlayout);
+    }
+
+    public Script desugarSwitches() {
+        ir = new SwitchDesugaringPass(p.opts, ir).convert();
+        return ir;
+    }
+
+    public Script inlineIntrinsics() {
+        ir = new IntrinsicsInliningPass(ir, p.opts, p.ffi).convert();
+        return ir;
+    }
+
+    public Script convertClosures() {
+        ir = new IRClosureConversionPass(ir, envlayout.getMainCaptures(), p.opts.debug(), "main").convert();
+        return ir;
+    }
+
+    public Script threeAddress() {
+        ir = new ThreeAddressConversion(ir).visitScript(ir);
+        return ir;
+    }
+
+    public PhysicalLayout gatherLayoutConstraints() {
+        PhysicalLayoutConstraintGathering plcg = new PhysicalLayoutConstraintGathering(p.opts, m, p.ffi);
+        ir.accept(plcg);
+        layout = plcg.getLayout();
+        return layout;
+    }
+
+    public IRVTablePass vtables() {
+        irvt = new IRVTablePass(p.opts, m, p.ffi, layout);
+        ir.accept(irvt);
+        return irvt;
+    }
+
+    public Script optimizeFieldAccesses() {
+        ir = (Script) new FieldAccessOptimizer(ir, p.opts, m, irvt.getVtablesByFieldMap()).visitScript(ir);
+        return ir;
+    }
+
+    public CompilationUnit toC() {
+        unit = new IRCBackend(ir, p.opts, m, p.ffi, p.env, p.modsys, layout).compile();
+        return unit;
+    }
+
+    public void writeToDisk() throws IOException {
+        unit.writeToDisk(p.opts.getOutputCName());
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.mozilla.javascript.Parser;
+import org.mozilla.javascript.ast.AstRoot;
+
+import com.samsung.sjs.constraintsolver.SolverException;
+
+/**
+ * Inputs for the JMH benchmarks: test scripts and the global environment.
+ *
+ * <p>A benchmark's <code>script</code> parameter names a script relative to the test inputs
+ * (<code>src/test/resources/testinput</code>, or the <code>sjs.testinput</code> system property),
+ * such as <code>octane-hacks/richards.js</code>, or a directory ending in <code>/</code>, such as
+ * <code>constraints/</code>, for all of the scripts in it.  Other scripts can be given on the
+ * command line with <code>-p script=...</code>.
+ */
+public final class BenchmarkInputs {
+
+    private BenchmarkInputs() {}
+
+    private static Path root() {
+        return Paths.get(System.getProperty("sjs.testinput", "src/test/resources/testinput"));
+    }
+
+    /**
+     * The scripts named by a <code>script</code> parameter, in a fixed order.
+     */
+    public static List<Path> scripts(String param) {
+        Path p = root().resolve(param);
+        if (!param.endsWith("/")) {
+            if (!Files.isRegularFile(p)) {
+                throw new IllegalArgumentException("No such script: "+p.toAbsolutePath());
+            }
+            List<Path> one = new ArrayList<>();
+            one.add(p);
+            return one;
+        }
+        try (Stream<Path> files = Files.list(p)) {
+            return files.filter(f -> f.toString().endsWith(".js")).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The sources of the scripts named by a <code>script</code> parameter, without the ones the
+     * compiler crashes on when running <code>probe</code> (what the benchmark measures) on them.
+     * Ill-typed scripts are kept; type errors are part of the work of inference.
+     */
+    public static List<String> sources(String param, Consumer<String> probe) {
+        List<String> sources = new ArrayList<>();
+        for (Path p : scripts(param)) {
+            String source = read(p);
+            try {
+                probe.accept(source);
+            } catch (SolverException e) {
+                // ill-typed
+            } catch (RuntimeException e) {
+                System.err.println("Skipping "+p+": "+e);
+                continue;
+            }
+            sources.add(source);
+        }
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("No usable scripts for "+param);
+        }
+        return sources;
+    }
+
+    public static String read(Path script) {
+        try {
+            return new String(Files.readAllBytes(script), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static AstRoot parse(String source) {
+        return new Parser().parse(source, "", 1);
+    }
+
+    /**
+     * A fresh copy of the bundled global environment, as the compiler loads it.  Inference
+     * updates types in place, so every solver run needs its own.
+     */
+    public static JSEnvironment environment() {
+        JSEnvironment env = new JSEnvironment();
+        EnvironmentSnapshot snapshot = EnvironmentSnapshot.bundled();
+        if (snapshot != null) {
+            snapshot.includeInto(env);
+        } else {
+            InputStream decls = Compiler.class.getResourceAsStream("/environment.json");
+            assert (decls != null);
+            env.includeFile(decls);
+        }
+        return env;
+    }
+
+}
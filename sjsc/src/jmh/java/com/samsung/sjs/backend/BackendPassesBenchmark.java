@@ -0,0 +1,199 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.backend;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.samsung.sjs.BackendPipeline;
+import com.samsung.sjs.BenchmarkInputs;
+import com.samsung.sjs.backend.asts.c.CompilationUnit;
+import com.samsung.sjs.backend.asts.ir.Script;
+
+/**
+ * Each stage of the backend on its own, from the Rhino AST to the C file on disk, for type
+ * checked scripts (the largest ones in <code>testinput</code> by default).
+ *
+ * <p>Each benchmark has its own state, which runs the stages before the measured one in the setup
+ * of every invocation.  For allocation rates as well as time, run with the GC profiler:
+ * <code>gradle jmh -PjmhArgs="['BackendPassesBenchmark', '-prof', 'gc']"</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BackendPassesBenchmark {
+
+    @State(Scope.Thread)
+    public static class BeforeRhinoToIR {
+        @Param({ "octane-hacks/crypto.js", "endtoend/annex_headless.js", "octane-hacks/raytracer.js", "octane-hacks/richards.js" })
+        public String script;
+
+        private Path dir;
+        private BackendPipeline.Program program;
+
+        BackendPipeline pipeline;
+
+        @Setup(Level.Trial)
+        public void check() throws IOException {
+            List<Path> scripts = BenchmarkInputs.scripts(script);
+            if (scripts.size() != 1) {
+                throw new IllegalArgumentException("Expected a single script, not "+script);
+            }
+            dir = Files.createTempDirectory("sjs-backend-bench");
+            program = new BackendPipeline.Program(scripts.get(0), dir.resolve("out.c"));
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            FileUtils.deleteDirectory(dir.toFile());
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare() {
+            pipeline = new BackendPipeline(program);
+            before(pipeline);
+        }
+
+        /**
+         * Run the stages before the measured one.
+         */
+        void before(BackendPipeline p) {
+        }
+    }
+
+    public static class BeforeConstantInlining extends BeforeRhinoToIR {
+        @Override
+        void before(BackendPipeline p) {
+            super.before(p);
+            p.toIR();
+            p.collectFields();
+        }
+    }
+
+    public static class BeforeClosureConversion extends BeforeConstantInlining {
+        @Override
+        void before(BackendPipeline p) {
+            super.before(p);
+            p.inlineConstants();
+            p.layoutEnvironments();
+            p.desugarSwitches();
+            p.inlineIntrinsics();
+        }
+    }
+
+    public static class BeforeThreeAddressConversion extends BeforeClosureConversion {
+        @Override
+        void before(BackendPipeline p) {
+            super.before(p);
+            p.convertClosures();
+        }
+    }
+
+    public static class BeforeVTables extends BeforeThreeAddressConversion {
+        @Override
+        void before(BackendPipeline p) {
+            super.before(p);
+            p.threeAddress();
+            p.gatherLayoutConstraints();
+        }
+    }
+
+    public static class BeforeFieldAccessOptimizer extends BeforeVTables {
+        @Override
+        void before(BackendPipeline p) {
+            super.before(p);
+            p.vtables();
+        }
+    }
+
+    public static class BeforeCBackend extends BeforeFieldAccessOptimizer {
+        @Override
+        void before(BackendPipeline p) {
+            super.before(p);
+            p.optimizeFieldAccesses();
+        }
+    }
+
+    public static class BeforeWrite extends BeforeCBackend {
+        @Override
+        void before(BackendPipeline p) {
+            super.before(p);
+            p.toC();
+        }
+    }
+
+    @Benchmark
+    public Script rhinoToIR(BeforeRhinoToIR s) {
+        return s.pipeline.toIR();
+    }
+
+    /** All rounds, until nothing changes */
+    @Benchmark
+    public int constantInlining(BeforeConstantInlining s) {
+        return s.pipeline.inlineConstants();
+    }
+
+    @Benchmark
+    public Script closureConversion(BeforeClosureConversion s) {
+        return s.pipeline.convertClosures();
+    }
+
+    @Benchmark
+    public Script threeAddressConversion(BeforeThreeAddressConversion s) {
+        return s.pipeline.threeAddress();
+    }
+
+    @Benchmark
+    public IRVTablePass vtables(BeforeVTables s) {
+        return s.pipeline.vtables();
+    }
+
+    @Benchmark
+    public Script fieldAccessOptimizer(BeforeFieldAccessOptimizer s) {
+        return s.pipeline.optimizeFieldAccesses();
+    }
+
+    @Benchmark
+    public CompilationUnit cBackend(BeforeCBackend s) {
+        return s.pipeline.toC();
+    }
+
+    @Benchmark
+    public void writeToDisk(BeforeWrite s) throws IOException {
+        s.pipeline.writeToDisk();
+    }
+
+}
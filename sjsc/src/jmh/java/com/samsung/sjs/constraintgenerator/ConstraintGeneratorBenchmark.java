@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.constraintgenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mozilla.javascript.ast.AstRoot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.samsung.sjs.BenchmarkInputs;
+import com.samsung.sjs.JSEnvironment;
+import com.samsung.sjs.constraintsolver.SolverException;
+
+/**
+ * {@link ConstraintGenerator#generateConstraints(AstRoot)} on parsed scripts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ConstraintGeneratorBenchmark {
+
+    @Param({ "constraints/", "endtoend/", "octane-hacks/", "octane-hacks/raytracer.js", "endtoend/annex_headless.js" })
+    public String script;
+
+    private List<String> sources;
+
+    private List<AstRoot> asts;
+    private List<JSEnvironment> envs;
+
+    @Setup(Level.Trial)
+    public void load() {
+        sources = BenchmarkInputs.sources(script, source ->
+            new ConstraintGenerator(new ConstraintFactory(), BenchmarkInputs.environment(), null)
+                .generateConstraints(BenchmarkInputs.parse(source)));
+    }
+
+    /**
+     * The generator records types in the environment and annotates the AST, so every run starts
+     * from fresh ones.
+     */
+    @Setup(Level.Invocation)
+    public void prepare() {
+        asts = new ArrayList<>();
+        envs = new ArrayList<>();
+        for (String source : sources) {
+            asts.add(BenchmarkInputs.parse(source));
+            envs.add(BenchmarkInputs.environment());
+        }
+    }
+
+    @Benchmark
+    public void generateConstraints(Blackhole bh) {
+        for (int i = 0; i < asts.size(); i++) {
+            ConstraintGenerator generator = new ConstraintGenerator(new ConstraintFactory(), envs.get(i), null);
+            try {
+                generator.generateConstraints(asts.get(i));
+                bh.consume(generator.getTypeConstraints());
+            } catch (SolverException e) {
+                // some of the constraint tests are ill-typed on purpose
+                bh.consume(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.constraintsolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.samsung.sjs.BenchmarkInputs;
+import com.samsung.sjs.constraintgenerator.ConstraintFactory;
+import com.samsung.sjs.constraintgenerator.ConstraintGenerator;
+
+/**
+ * {@link DirectionalConstraintSolver#solve()} on the constraints of scripts, with the solver
+ * options of <code>--Xcollapse-equalities</code>, <code>--Xscc-worklist</code> and
+ * <code>--solver-threads</code> as parameters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DirectionalSolverBenchmark {
+
+    @Param({ "constraints/", "endtoend/", "octane-hacks/", "octane-hacks/raytracer.js", "endtoend/annex_headless.js" })
+    public String script;
+
+    @Param({ "false" })
+    public boolean collapseEqualities;
+
+    @Param({ "false" })
+    public boolean sccScheduling;
+
+    @Param({ "1" })
+    public int solverThreads;
+
+    private List<String> sources;
+
+    private List<DirectionalConstraintSolver> solvers;
+
+    @Setup(Level.Trial)
+    public void load() {
+        sources = BenchmarkInputs.sources(script, source -> solver(source).solve());
+    }
+
+    private DirectionalConstraintSolver solver(String source) {
+        ConstraintFactory factory = new ConstraintFactory();
+        ConstraintGenerator generator = new ConstraintGenerator(factory, BenchmarkInputs.environment(), null);
+        generator.generateConstraints(BenchmarkInputs.parse(source));
+        DirectionalConstraintSolver solver = new DirectionalConstraintSolver(generator.getTypeConstraints(), factory, generator);
+        solver.setCollapseEqualities(collapseEqualities);
+        solver.setSCCScheduling(sccScheduling);
+        solver.setSolverThreads(solverThreads);
+        return solver;
+    }
+
+    /**
+     * Solving updates the types of the environment and the constraints in place, so every run
+     * starts from freshly generated constraints.
+     */
+    @Setup(Level.Invocation)
+    public void prepare() {
+        solvers = new ArrayList<>();
+        for (String source : sources) {
+            try {
+                solvers.add(solver(source));
+            } catch (SolverException e) {
+                // ill-typed before solving
+            }
+        }
+    }
+
+    @Benchmark
+    public void solve(Blackhole bh) {
+        for (DirectionalConstraintSolver solver : solvers) {
+            try {
+                bh.consume(solver.solve());
+            } catch (SolverException e) {
+                // some of the constraint tests are ill-typed on purpose
+                bh.consume(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.theorysolver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.samsung.sjs.BenchmarkInputs;
+import com.samsung.sjs.constraintgenerator.ConstraintGenerator;
+import com.samsung.sjs.constraintsolver.SolverException;
+import com.samsung.sjs.constraintsolver.TypeAssignment;
+import com.samsung.sjs.typeconstraints.ITypeConstraint;
+
+/**
+ * {@link TheorySolver#solve} with each {@link FixingSetFinder} strategy, followed by
+ * {@link TheorySolver#minimizeFixingSet} for the strategies whose fixing sets are not minimal,
+ * as the compiler does.  Only ill-typed scripts have a nonempty fixing set, so the strategies
+ * differ mostly on those (such as the ones in <code>constraints/</code>).
+ *
+ * <p>Operations take seconds, hence the fewer iterations.  All of <code>endtoend/</code> is not
+ * among the defaults: a few of its scripts (such as <code>Layout.js</code>) are ill-typed, and
+ * the fixing set search for them takes many minutes with the <code>sat</code> strategy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TheorySolverBenchmark {
+
+    @Param({ "constraints/", "octane-hacks/", "octane-hacks/raytracer.js", "endtoend/annex_headless.js" })
+    public String script;
+
+    @Param({ "sat", "maxsat", "incmaxsat", "greedy" })
+    public String strategy;
+
+    private List<String> sources;
+
+    private static final class Problem {
+        final SJSTypeTheory theory;
+        final List<Integer> hard = new ArrayList<>();
+        final List<Integer> soft = new ArrayList<>();
+
+        Problem(SJSTypeTheory theory) {
+            this.theory = theory;
+            List<ITypeConstraint> constraints = theory.getConstraints();
+            ConstraintGenerator g = theory.hackyGenerator();
+            for (int i = 0; i < constraints.size(); ++i) {
+                (g.hasExplanation(constraints.get(i)) ? soft : hard).add(i);
+            }
+        }
+    }
+
+    private List<Problem> problems;
+
+    @Setup(Level.Trial)
+    public void load() {
+        sources = BenchmarkInputs.sources(script, source -> solve(new Problem(problem(source))));
+    }
+
+    /**
+     * A fresh theory, environment and AST for every run, since solving updates types in place.
+     */
+    @Setup(Level.Invocation)
+    public void prepare() {
+        problems = new ArrayList<>();
+        for (String source : sources) {
+            try {
+                problems.add(new Problem(problem(source)));
+            } catch (SolverException e) {
+                // no constraints to solve
+            }
+        }
+    }
+
+    private static SJSTypeTheory problem(String source) {
+        return new SJSTypeTheory(BenchmarkInputs.environment(), null, BenchmarkInputs.parse(source));
+    }
+
+    private Pair<TypeAssignment, Collection<Integer>> solve(Problem p) {
+        FixingSetFinder<Integer> finder = FixingSetFinder.getStrategy(strategy);
+        Pair<TypeAssignment, Collection<Integer>> result = TheorySolver.solve(p.theory, finder, p.hard, p.soft);
+        if (!finder.isOptimal() && !result.getRight().isEmpty()) {
+            result = TheorySolver.minimizeFixingSet(p.theory, p.hard, p.soft, result.getLeft(), result.getRight());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void solve(Blackhole bh) {
+        for (Problem p : problems) {
+            bh.consume(solve(p));
+        }
+    }
+
+}
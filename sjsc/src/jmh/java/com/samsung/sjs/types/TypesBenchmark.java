@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.types;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.samsung.sjs.BenchmarkInputs;
+import com.samsung.sjs.constraintgenerator.ConstraintFactory;
+import com.samsung.sjs.constraintgenerator.ConstraintGenerator;
+import com.samsung.sjs.constraintsolver.DirectionalConstraintSolver;
+
+/**
+ * {@link Types#isEqual(Type, Type)} and {@link Types#isSubtype(Type, Type)} on every pair of the
+ * distinct types inferred for a script (at most {@link #MAX_TYPES} of them).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TypesBenchmark {
+
+    static final int MAX_TYPES = 256;
+
+    @Param({ "octane-hacks/raytracer.js", "octane-hacks/richards.js", "endtoend/annex_headless.js" })
+    public String script;
+
+    private Type[] types;
+
+    @Setup(Level.Trial)
+    public void solve() {
+        Set<Type> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Type> ordered = new ArrayList<>();
+        BenchmarkInputs.sources(script, source -> {
+            ConstraintFactory factory = new ConstraintFactory();
+            ConstraintGenerator generator = new ConstraintGenerator(factory, BenchmarkInputs.environment(), null);
+            generator.generateConstraints(BenchmarkInputs.parse(source));
+            for (Type t : new DirectionalConstraintSolver(generator.getTypeConstraints(), factory, generator).solve().nodeTypes().values()) {
+                if (ordered.size() < MAX_TYPES && distinct.add(t)) {
+                    ordered.add(t);
+                }
+            }
+        });
+        if (ordered.isEmpty()) {
+            throw new IllegalStateException("No types inferred for "+script);
+        }
+        types = ordered.toArray(new Type[0]);
+    }
+
+    @Benchmark
+    public int isEqual() {
+        int n = 0;
+        for (Type a : types) {
+            for (Type b : types) {
+                if (Types.isEqual(a, b)) {
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    @Benchmark
+    public int isSubtype() {
+        int n = 0;
+        for (Type a : types) {
+            for (Type b : types) {
+                if (Types.isSubtype(a, b)) {
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+}
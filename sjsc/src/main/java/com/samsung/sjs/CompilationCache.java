@@ -0,0 +1,356 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of compilation results (<code>--cache-dir</code>), addressed by a hash of
+ * everything the result depends on.
+ *
+ * <p>There are two kinds of entries:
+ *
+ * <ul>
+ * <li>generated sources, keyed by the input program, the extra declaration and linkage files,
+ * the options that affect type inference and code generation, and the compiler itself.  An
+ * entry records the module declaration files that were read along the way, with their hashes,
+ * and is only used if they are unchanged.  Type check only runs get entries without sources,
+ * which just record that the program type checked.</li>
+ * <li>C compiler outputs, keyed by the C compiler command line, the contents of every file it
+ * names, including the generated C, and the headers in every directory it names with -I.</li>
+ * </ul>
+ *
+ * Only successful compilations are cached.  Entries are written to a temporary directory and
+ * renamed into place, so several compilers can share a cache directory.
+ */
+final class CompilationCache {
+
+    private static final String FORMAT = "sjsc-cache-1";
+
+    private static final String C_FILE = "out.c";
+    private static final String H_FILE = "out.h";
+    private static final String DEPENDENCIES = "dependencies";
+    private static final String OUTPUT = "output";
+
+    private final Path dir;
+
+    CompilationCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Whether the results of a compilation with these options can be cached; debugging output
+     * is not replayed, so compilations that produce it are always run.
+     */
+    static boolean applies(CompilerOptions opts) {
+        return opts.cacheDirectory() != null && !opts.debug()
+            && !opts.shouldDumpConstraints() && !opts.shouldDumpConstraintSolution();
+    }
+
+    /**
+     * The key for the generated sources of a compilation.
+     */
+    static String sourceKey(CompilerOptions opts, boolean typecheckonly, boolean checkTypes) throws IOException {
+        Hasher h = new Hasher();
+        h.add(FORMAT);
+        h.add(compilerFingerprint());
+        h.add("typecheck-only=" + typecheckonly + " validate=" + checkTypes);
+        h.add(opts.getTargetPlatform() + " " + opts.getMMScheme() + " fields=" + opts.fieldOptimizations()
+              + " encode=" + opts.encodeVals() + " m32=" + opts.m32() + " guest=" + opts.isGuestRuntime()
+              + " interop=" + opts.interopEnabled() + " boot-interop=" + opts.shouldStartInInterop()
+              + " efl=" + opts.eflEnabled() + " oldExpl=" + opts.oldExplanations()
+              + " strategy=" + opts.explanationStrategy() + " collapse=" + opts.collapseEqualities()
+              + " scc=" + opts.sccScheduling() + " solver-threads=" + opts.solverThreads()
+              + " physical-layout=" + opts.physicalLayout() + " compressed-vtables=" + opts.compressedVTables()
+              + " inline-caches=" + opts.inlineCaches() + " inline-cache-stats=" + opts.inlineCacheStats()
+              + " instrument=" + opts.instrument());
+        if (opts.profileUse() != null) {
+            h.add("profile-use");
+            h.addFile(opts.profileUse());
+        }
+        Path input = Paths.get(opts.getInputFileName()).toAbsolutePath().normalize();
+        // modules are looked up next to the input
+        h.add(String.valueOf(input.getParent()));
+        h.addFile(input);
+        for (Path p : opts.getExtraDeclarationFiles()) {
+            h.add(p.toString());
+            h.addFile(p);
+        }
+        for (Path p : opts.getExtraLinkageFiles()) {
+            h.add(p.toString());
+            h.addFile(p);
+        }
+        return h.digest();
+    }
+
+    /**
+     * The key for the output of a C compiler command.  Apart from the output file itself, every
+     * argument that names a file stands for its contents too, and every include directory for
+     * the headers in it.
+     */
+    static String commandKey(String[] args) throws IOException {
+        Hasher h = new Hasher();
+        h.add(FORMAT);
+        for (int i = 0; i < args.length; i++) {
+            h.add(args[i]);
+            if (args[i].equals("-o")) {
+                h.add(args[++i]);
+            } else if (args[i].equals("-I") && i + 1 < args.length) {
+                h.add(args[++i]);
+                h.addTree(Paths.get(args[i]), CompilationCache::isHeader);
+            } else if (args[i].startsWith("-I")) {
+                h.addTree(Paths.get(args[i].substring(2)), CompilationCache::isHeader);
+            } else if (Files.isRegularFile(Paths.get(args[i]))) {
+                h.addFile(Paths.get(args[i]));
+            }
+        }
+        return h.digest();
+    }
+
+    private static boolean isHeader(Path p) {
+        String name = p.getFileName().toString();
+        return name.endsWith(".h") || name.endsWith(".hh") || name.endsWith(".hpp");
+    }
+
+    /**
+     * Restore the generated sources for a key, if they are cached and the module declarations
+     * they were generated from are unchanged.
+     *
+     * @return whether the compilation can be skipped
+     */
+    boolean restoreSources(String key, CompilerOptions opts, boolean typecheckonly) throws IOException {
+        Path entry = dir.resolve(key);
+        if (!Files.isDirectory(entry)) {
+            return false;
+        }
+        for (String line : Files.readAllLines(entry.resolve(DEPENDENCIES), StandardCharsets.UTF_8)) {
+            int space = line.indexOf(' ');
+            Path dep = Paths.get(line.substring(space + 1));
+            if (!Files.isRegularFile(dep) || !hashFile(dep).equals(line.substring(0, space))) {
+                return false;
+            }
+        }
+        if (!typecheckonly) {
+            String c = opts.getOutputCName();
+            Files.copy(entry.resolve(C_FILE), Paths.get(c), StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(entry.resolve(H_FILE), Paths.get(c.substring(0, c.lastIndexOf(".")) + ".h"),
+                       StandardCopyOption.REPLACE_EXISTING);
+        }
+        return true;
+    }
+
+    /**
+     * Record a successful compilation.
+     *
+     * @param dependencies the module declaration (and source) files read by the compilation
+     */
+    void storeSources(String key, CompilerOptions opts, boolean typecheckonly, Collection<File> dependencies) throws IOException {
+        Path tmp = newEntry();
+        List<String> lines = new ArrayList<>();
+        for (File f : dependencies) {
+            Path dep = f.toPath().toAbsolutePath().normalize();
+            lines.add(hashFile(dep) + " " + dep);
+        }
+        Files.write(tmp.resolve(DEPENDENCIES), lines, StandardCharsets.UTF_8);
+        if (!typecheckonly) {
+            String c = opts.getOutputCName();
+            Files.copy(Paths.get(c), tmp.resolve(C_FILE));
+            Files.copy(Paths.get(c.substring(0, c.lastIndexOf(".")) + ".h"), tmp.resolve(H_FILE));
+        }
+        publish(tmp, key);
+    }
+
+    /**
+     * Restore the output of a C compiler command, if it is cached.
+     */
+    boolean restoreOutput(String key, Path output) throws IOException {
+        Path cached = dir.resolve(key).resolve(OUTPUT);
+        if (!Files.isRegularFile(cached)) {
+            return false;
+        }
+        Files.copy(cached, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        return true;
+    }
+
+    void storeOutput(String key, Path output) throws IOException {
+        Path tmp = newEntry();
+        Files.copy(output, tmp.resolve(OUTPUT), StandardCopyOption.COPY_ATTRIBUTES);
+        publish(tmp, key);
+    }
+
+    private Path newEntry() throws IOException {
+        Files.createDirectories(dir);
+        return Files.createTempDirectory(dir, ".tmp");
+    }
+
+    private void publish(Path tmp, String key) throws IOException {
+        try {
+            Files.move(tmp, dir.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException | AtomicMoveNotSupportedException e) {
+            // someone else stored the same result first (or we cannot publish atomically)
+            deleteRecursively(tmp);
+        }
+    }
+
+    private static void deleteRecursively(Path p) throws IOException {
+        try (Stream<Path> files = Files.walk(p)) {
+            for (Path f : files.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList())) {
+                Files.delete(f);
+            }
+        }
+    }
+
+    private static String compilerFingerprint = null;
+
+    /** resources the compiler reads, which may live apart from its classes */
+    private static final String[] RESOURCES = { "/environment.json", "/operators.json", "/linkage.json",
+                                                EnvironmentSnapshot.RESOURCE, "/backend/runtime.h" };
+
+    /**
+     * A hash of the compiler's jar (or class directory), and of the directories its bundled
+     * declarations, snapshot and runtime come from if they are elsewhere (as when run from a
+     * build tree), so that entries from other versions of the compiler are never used.
+     */
+    private static synchronized String compilerFingerprint() throws IOException {
+        if (compilerFingerprint == null) {
+            Hasher h = new Hasher();
+            Set<Path> locations = new LinkedHashSet<>();
+            try {
+                CodeSource src = Compiler.class.getProtectionDomain().getCodeSource();
+                if (src != null) {
+                    locations.add(Paths.get(src.getLocation().toURI()));
+                }
+                for (String resource : RESOURCES) {
+                    URL url = Compiler.class.getResource(resource);
+                    if (url != null) {
+                        locations.add(resourceRoot(url, resource));
+                    }
+                }
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+            for (Path location : locations) {
+                h.add(location.getFileName() == null ? "" : location.getFileName().toString());
+                if (Files.isRegularFile(location)) {
+                    h.addFile(location);
+                } else {
+                    h.addTree(location, f -> true);
+                }
+            }
+            compilerFingerprint = h.digest();
+        }
+        return compilerFingerprint;
+    }
+
+    /**
+     * The jar or directory on the classpath that the resource at url was found in.
+     */
+    private static Path resourceRoot(URL url, String resource) throws IOException, URISyntaxException {
+        if (url.getProtocol().equals("jar")) {
+            return Paths.get(((JarURLConnection) url.openConnection()).getJarFileURL().toURI());
+        }
+        Path root = Paths.get(url.toURI());
+        for (int i = Paths.get(resource.substring(1)).getNameCount(); i > 0; i--) {
+            root = root.getParent();
+        }
+        return root;
+    }
+
+    private static String hashFile(Path p) throws IOException {
+        Hasher h = new Hasher();
+        h.addFile(p);
+        return h.digest();
+    }
+
+    /**
+     * SHA-256 over a sequence of strings and file contents
+     */
+    static final class Hasher {
+        private final MessageDigest md;
+
+        Hasher() {
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        void add(String s) {
+            md.update(s.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+        }
+
+        void addFile(Path p) throws IOException {
+            byte[] buf = new byte[1 << 16];
+            try (InputStream in = Files.newInputStream(p)) {
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    md.update(buf, 0, n);
+                }
+            }
+            md.update((byte) 0);
+        }
+
+        /**
+         * The names and contents of the files under dir that match filter, if it is a directory.
+         */
+        void addTree(Path dir, Predicate<Path> filter) throws IOException {
+            if (!Files.isDirectory(dir)) {
+                return;
+            }
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path f : files.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList())) {
+                    add(dir.relativize(f).toString());
+                    addFile(f);
+                }
+            }
+        }
+
+        String digest() {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+    }
+
+}
@@ -19,7 +19,9 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.file.FileSystems;
@@ -29,6 +31,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,6 +45,10 @@ import com.samsung.sjs.theorysolver.Sat4J;
 import com.samsung.sjs.theorysolver.SatSolver;
 import com.samsung.sjs.theorysolver.TheorySolver;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
 import org.apache.commons.cli.BasicParser;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -58,6 +65,8 @@ import org.mozilla.javascript.ast.AstRoot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.samsung.sjs.backend.AccessProfile;
+import com.samsung.sjs.backend.CBackend;
 import com.samsung.sjs.backend.ConstantInliningPass;
 import com.samsung.sjs.backend.FieldAccessOptimizer;
 import com.samsung.sjs.backend.IRCBackend;
@@ -66,14 +75,17 @@ import com.samsung.sjs.backend.IREnvironmentLayoutPass;
 import com.samsung.sjs.backend.IRFieldCollector;
 import com.samsung.sjs.backend.IRVTablePass;
 import com.samsung.sjs.backend.IntrinsicsInliningPass;
+import com.samsung.sjs.backend.PhysicalLayout;
 import com.samsung.sjs.backend.PhysicalLayoutConstraintGathering;
 import com.samsung.sjs.backend.RhinoToIR;
 import com.samsung.sjs.backend.RhinoTypeValidator;
 import com.samsung.sjs.backend.SwitchDesugaringPass;
 import com.samsung.sjs.backend.ThreeAddressConversion;
 import com.samsung.sjs.backend.asts.c.CompilationUnit;
+import com.samsung.sjs.backend.asts.ir.IRNode;
 import com.samsung.sjs.constraintgenerator.ConstraintFactory;
 import com.samsung.sjs.constraintgenerator.ConstraintGenerator;
+import com.samsung.sjs.constraintsolver.Cause;
 import com.samsung.sjs.constraintsolver.DirectionalConstraintSolver;
 import com.samsung.sjs.constraintsolver.SolverException;
 import com.samsung.sjs.typeconstraints.ITypeConstraint;
@@ -91,9 +103,31 @@ public class Compiler extends ExternalRhinoVisitor
 
     private static Logger logger = LoggerFactory.getLogger(Compiler.class);
 
-    @SuppressWarnings("static-access")
     public static void main( String[] args )
         throws IOException, SolverException, InterruptedException
+    {
+        int ret;
+        int daemon = Arrays.asList(args).indexOf("--daemon");
+        if (daemon >= 0) {
+            // options before --daemon apply to every request, those after it to the daemon
+            ret = CompilerDaemon.serve(Arrays.copyOfRange(args, 0, daemon),
+                                       Arrays.copyOfRange(args, daemon + 1, args.length));
+        } else {
+            ret = run(args);
+        }
+        if (ret != 0) {
+            System.exit(ret);
+        }
+    }
+
+    /**
+     * Compile according to a command line, as the sjsc command does.
+     *
+     * @return the exit status
+     */
+    @SuppressWarnings("static-access")
+    static int run( String[] args )
+        throws IOException, InterruptedException
     {
         boolean debug = false;
         boolean use_gc = true;
@@ -116,6 +150,20 @@ public class Compiler extends ExternalRhinoVisitor
         boolean boot_interop = false;
         boolean oldExpl = false;
         String explanationStrategy = null;
+        int minimizeThreads = 1;
+        boolean collapseEqualities = false;
+        boolean sccScheduling = false;
+        boolean physicalLayout = false;
+        boolean compressedVTables = false;
+        boolean inlineCaches = false;
+        boolean inlineCacheStats = false;
+        boolean instrument = false;
+        String profileUse = null;
+        int solverThreads = 1;
+        String cacheDir = null;
+        boolean timePasses = false;
+        String statsFile = null;
+        String runtimeLibDir = null;
         boolean efl = false;
 
         Options options = new Options();
@@ -227,14 +275,92 @@ public class Compiler extends ExternalRhinoVisitor
                                         .hasArg()
                                         .create() );
 
+        options.addOption( OptionBuilder.withLongOpt("minimize-threads")
+                                        .withDescription("Number of threads used to minimize error explanations from non-optimal strategies (default: 1)")
+                                        .hasArg()
+                                        .withArgName("n")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("solver-threads")
+                                        .withDescription("Number of threads used to solve independent groups of type constraints (default: 1)")
+                                        .hasArg()
+                                        .withArgName("n")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("cache-dir")
+                                        .withDescription("Reuse generated C and executables from earlier compilations of the same inputs, kept in this directory")
+                                        .hasArg()
+                                        .withArgName("dir")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("runtime-lib-dir")
+                                        .withDescription("Link against the runtime library prebuilt for this configuration in this directory, building it first if needed")
+                                        .hasArg()
+                                        .withArgName("dir")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("time-passes")
+                                        .withDescription("Print the wall time, allocation and sizes of each compiler phase to stderr")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("stats-json")
+                                        .withDescription("Write the wall time, allocation and sizes of each compiler phase to this file as JSON")
+                                        .hasArg()
+                                        .withArgName("file")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("Xcollapse-equalities")
+                                        .withDescription("Merge type variables equated by constraints before solving (experimental)")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("Xscc-worklist")
+                                        .withDescription("Solve type constraints one strongly connected component at a time (experimental)")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("Xphysical-layout")
+                                        .withDescription("Reorder object properties so each is at the same offset in as many layouts as possible (experimental)")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("Xcompressed-vtables")
+                                        .withDescription("Pack object maps into one row-displaced table (experimental)")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("Xinline-caches")
+                                        .withDescription("Cache the last map and slot at each field access the compiler can't resolve (experimental)")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("Xinline-cache-stats")
+                                        .withDescription("Like --Xinline-caches, also printing each cache's hits and misses on exit")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("instrument")
+                                        .withDescription("Count executions of each allocation and field access site, appending them to "
+                                                         + "$SJS_PROFILE (default sjs.profile) on exit, for --profile-use")
+                                        .create() );
+
+        options.addOption( OptionBuilder.withLongOpt("profile-use")
+                                        .withDescription("Favor the field accesses an instrumented build counted most (in object layouts, with --Xphysical-layout)")
+                                        .hasArg()
+                                        .withArgName("file")
+                                        .create() );
+
         options.addOption( OptionBuilder.withLongOpt("efl")
                                         .withDescription("Set up efl environment in main()")
                                         .create() );
 
+        options.addOption( OptionBuilder.withLongOpt("daemon")
+                                        .withDescription("Keep running, reading the rest of a command line per line from stdin, or from local "
+                                                         + "connections with --port n following --daemon; paths are relative to the daemon's working directory")
+                                        .create() );
+
         try {
             CommandLineParser parser = new BasicParser();
             CommandLine cmd = parser.parse(options, args);
 
+            if (cmd.hasOption("daemon")) {
+                throw new ParseException("--daemon is not allowed in a daemon request");
+            }
+
             String[] newargs = cmd.getArgs();
             if (newargs.length != 1) {
                 throw new ParseException("Invalid number of arguments");
@@ -313,6 +439,65 @@ public class Compiler extends ExternalRhinoVisitor
             if (cmd.hasOption("explanation-strategy")) {
                 explanationStrategy = cmd.getOptionValue("explanation-strategy");
             }
+            if (cmd.hasOption("minimize-threads")) {
+                String n = cmd.getOptionValue("minimize-threads");
+                try {
+                    minimizeThreads = Integer.parseInt(n);
+                } catch (NumberFormatException e) {
+                    throw new ParseException("Invalid thread count: "+n);
+                }
+                if (minimizeThreads < 1) {
+                    throw new ParseException("Invalid thread count: "+n);
+                }
+            }
+            if (cmd.hasOption("solver-threads")) {
+                String n = cmd.getOptionValue("solver-threads");
+                try {
+                    solverThreads = Integer.parseInt(n);
+                } catch (NumberFormatException e) {
+                    throw new ParseException("Invalid thread count: "+n);
+                }
+                if (solverThreads < 1) {
+                    throw new ParseException("Invalid thread count: "+n);
+                }
+            }
+            if (cmd.hasOption("cache-dir")) {
+                cacheDir = cmd.getOptionValue("cache-dir");
+            }
+            if (cmd.hasOption("runtime-lib-dir")) {
+                runtimeLibDir = cmd.getOptionValue("runtime-lib-dir");
+            }
+            if (cmd.hasOption("time-passes")) {
+                timePasses = true;
+            }
+            if (cmd.hasOption("stats-json")) {
+                statsFile = cmd.getOptionValue("stats-json");
+            }
+            if (cmd.hasOption("Xcollapse-equalities")) {
+                collapseEqualities = true;
+            }
+            if (cmd.hasOption("Xscc-worklist")) {
+                sccScheduling = true;
+            }
+            if (cmd.hasOption("Xphysical-layout")) {
+                physicalLayout = true;
+            }
+            if (cmd.hasOption("Xcompressed-vtables")) {
+                compressedVTables = true;
+            }
+            if (cmd.hasOption("Xinline-caches")) {
+                inlineCaches = true;
+            }
+            if (cmd.hasOption("Xinline-cache-stats")) {
+                inlineCaches = true;
+                inlineCacheStats = true;
+            }
+            if (cmd.hasOption("instrument")) {
+                instrument = true;
+            }
+            if (cmd.hasOption("profile-use")) {
+                profileUse = cmd.getOptionValue("profile-use");
+            }
             String output = cmd.getOptionValue("o");
             if (output == null) {
                 output = sourcefile.replaceFirst(".js$", ".c");
@@ -399,6 +584,28 @@ public class Compiler extends ExternalRhinoVisitor
                 opts.startInInteropMode();
             }
             opts.setExternalDeps(ext_path);
+            opts.setMinimizeThreads(minimizeThreads);
+            opts.setCollapseEqualities(collapseEqualities);
+            opts.setSCCScheduling(sccScheduling);
+            opts.setPhysicalLayout(physicalLayout);
+            opts.setCompressedVTables(compressedVTables);
+            opts.setInlineCaches(inlineCaches);
+            opts.setInlineCacheStats(inlineCacheStats);
+            opts.setInstrument(instrument);
+            if (profileUse != null) {
+                opts.setProfileUse(Paths.get(profileUse));
+            }
+            opts.setSolverThreads(solverThreads);
+            if (cacheDir != null) {
+                opts.setCacheDirectory(Paths.get(cacheDir));
+            }
+            if (runtimeLibDir != null) {
+                opts.setRuntimeLibraryDirectory(Paths.get(runtimeLibDir));
+            }
+            opts.setTimePasses(timePasses);
+            if (statsFile != null) {
+                opts.setStatisticsFile(Paths.get(statsFile));
+            }
             if (decls != null) {
                 for (String s : decls) {
                     Path fname = FileSystems.getDefault().getPath(s);
@@ -420,11 +627,17 @@ public class Compiler extends ExternalRhinoVisitor
             e.printStackTrace();
             HelpFormatter formatter = new HelpFormatter();
             formatter.printHelp("sjsc", options);
+            return 1;
         }
 
         if (opts != null) {
             // This typechecks, and depending on flags, also generates C
-            compile(opts, typecheckonly, validate); // don't worry about type validation on command line for now
+            try {
+                compile(opts, typecheckonly, validate); // don't worry about type validation on command line for now
+            } catch (SolverException e) {
+                // already reported
+                return 1;
+            }
             if (!typecheckonly && !stop_at_c) {
                 int ret = 0;
                 // Kept around for debugging 32-bit...
@@ -442,10 +655,11 @@ public class Compiler extends ExternalRhinoVisitor
                 }
                 // If clang failed, propagate the failure outwards
                 if (ret != 0) {
-                    System.exit(ret);
+                    return ret;
                 }
             }
         }
+        return 0;
     }
 
     /**
@@ -458,51 +672,178 @@ public class Compiler extends ExternalRhinoVisitor
         compile(opts, false, true);
     }
 
-    public static void compile(CompilerOptions opts, boolean typecheckonly, boolean checkTypes) throws IOException, SolverException {
+    /**
+     * The bundled declarations (when there is no {@link EnvironmentSnapshot}) and linkage, parsed
+     * once per JVM.  The types themselves are built afresh for every compilation, since
+     * inference updates them in place.
+     */
+    private static JsonArray stdlibDecls = null;
+    private static JsonObject stdlibLinkage = null;
 
-        Path p = Paths.get(opts.getInputFileName());
-        AstRoot sourcetree = null;
-        Map<AstNode,Type> types;
+    private static synchronized JsonArray stdlibDeclarations() {
+        if (stdlibDecls == null) {
+            // This may be the most hideous line of code I've ever written
+            InputStream jsenv = Compiler.class.getClass().getResourceAsStream("/environment.json");
+            assert (jsenv != null);
+            stdlibDecls = new JsonParser().parse(new InputStreamReader(jsenv)).getAsJsonArray();
+        }
+        return stdlibDecls;
+    }
 
-        JSEnvironment env = opts.getRuntimeEnvironment();
+    private static synchronized JsonObject stdlibLinkage() {
+        if (stdlibLinkage == null) {
+            InputStream linkage = Compiler.class.getClass().getResourceAsStream("/linkage.json");
+            assert (linkage != null);
+            stdlibLinkage = new JsonParser().parse(new InputStreamReader(linkage)).getAsJsonObject();
+        }
+        return stdlibLinkage;
+    }
+
+    static void includeDeclarations(JSEnvironment env, CompilerOptions opts) throws IOException {
         switch (opts.getTargetPlatform()) {
             case Web:
                 // Fall-through
             case Native:
-                // This may be the most hideous line of code I've ever written
-                InputStream jsenv = Compiler.class.getClass().getResourceAsStream("/environment.json");
-                assert (jsenv != null);
-                env.includeFile(jsenv);
+                EnvironmentSnapshot snapshot = EnvironmentSnapshot.bundled();
+                if (snapshot != null) {
+                    snapshot.includeInto(env);
+                } else {
+                    env.includeDecls(stdlibDeclarations());
+                }
         }
         for (Path fname : opts.getExtraDeclarationFiles()) {
             env.includeFile(fname);
         }
+    }
 
-        ModuleSystem modsys = new ModuleSystem(opts);
-
-        assert (opts.useConstraints());
-
+    /**
+     * The C linkage of the declarations: the bundled one, plus the extra linkage files.
+     */
+    static FFILinkage loadLinkage(CompilerOptions opts) throws IOException {
         FFILinkage ffi = new FFILinkage();
-        InputStream stdlib_linkage = Compiler.class.getClass().getResourceAsStream("/linkage.json");
-        ffi.includeFile(stdlib_linkage);
+        EnvironmentSnapshot snapshot = EnvironmentSnapshot.bundled();
+        if (snapshot != null) {
+            snapshot.includeLinkageInto(ffi);
+        } else {
+            ffi.includeLinkage(stdlibLinkage());
+        }
         for (Path fname : opts.getExtraLinkageFiles()) {
             ffi.includeFile(fname);
         }
+        return ffi;
+    }
+
+    /**
+     * A fresh environment with the same declarations as the one used for compilation.
+     */
+    private static JSEnvironment loadEnvironment(CompilerOptions opts) {
+        JSEnvironment env = new JSEnvironment();
+        try {
+            includeDeclarations(env, opts);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return env;
+    }
+
+    /**
+     * Reset the static counters and tables of the backend, so that the output for a program does
+     * not depend on what was compiled before it in the same JVM.
+     */
+    static void resetCompilationState() {
+        com.samsung.sjs.backend.asts.ir.IRNode.resetIds();
+        com.samsung.sjs.backend.asts.ir.Call.resetCallsiteNumbers();
+        com.samsung.sjs.backend.asts.ir.IRManipulator.resetFreshVars();
+        ThreeAddressConversion.resetTemps();
+        CBackend.resetStaticState();
+    }
+
+    /**
+     * Type check and (unless typecheckonly is set) generate C for the input file.
+     *
+     * @throws SolverException if the program has type errors, after they have been reported
+     */
+    public static void compile(CompilerOptions opts, boolean typecheckonly, boolean checkTypes) throws IOException, SolverException {
+
+        resetCompilationState();
+
+        CompilerStatistics stats = new CompilerStatistics(opts.timePasses() || opts.statisticsFile() != null,
+                                                          opts.getInputFileName());
+        try {
+            CompilationCache cache = null;
+            String key = null;
+            if (CompilationCache.applies(opts)) {
+                stats.begin("cache lookup");
+                cache = new CompilationCache(opts.cacheDirectory());
+                key = CompilationCache.sourceKey(opts, typecheckonly, checkTypes);
+                if (cache.restoreSources(key, opts, typecheckonly)) {
+                    System.err.println("Reusing cached compilation of "+opts.getInputFileName());
+                    return;
+                }
+            }
+
+            ModuleSystem modsys = new ModuleSystem(opts);
+            compile(opts, modsys, stats, typecheckonly, checkTypes);
+            if (cache != null) {
+                stats.begin("cache store");
+                cache.storeSources(key, opts, typecheckonly, modsys.getDependencies());
+            }
+        } finally {
+            stats.end();
+            if (opts.timePasses()) {
+                stats.print(System.err);
+            }
+            if (opts.statisticsFile() != null) {
+                stats.writeJson(opts.statisticsFile());
+            }
+        }
+    }
+
+    private static void compile(CompilerOptions opts, ModuleSystem modsys, CompilerStatistics stats,
+                                boolean typecheckonly, boolean checkTypes) throws IOException, SolverException {
+
+        Path p = Paths.get(opts.getInputFileName());
+        AstRoot sourcetree = null;
+        Map<AstNode,Type> types;
+
+        stats.begin("environment");
+        JSEnvironment env = opts.getRuntimeEnvironment();
+        includeDeclarations(env, opts);
+
+        assert (opts.useConstraints());
+
+        FFILinkage ffi = loadLinkage(opts);
 
+        stats.count("globals", env.size());
+
+        stats.begin("parse");
         String script = IOUtils.toString(p.toUri(), Charset.defaultCharset());
         org.mozilla.javascript.Parser parser = new org.mozilla.javascript.Parser();
         sourcetree = parser.parse(script, "", 1);
+        if (stats.enabled()) {
+            int[] nodes = { 0 };
+            sourcetree.visit(n -> { nodes[0]++; return true; });
+            stats.count("ast_nodes", nodes[0]);
+        }
+
+        stats.begin("ConstraintGenerator");
         ConstraintFactory factory = new ConstraintFactory();
         ConstraintGenerator generator = new ConstraintGenerator(factory, env, modsys);
         generator.generateConstraints(sourcetree);
         Set<ITypeConstraint> constraints = generator.getTypeConstraints();
+        stats.count("constraints", constraints.size());
         if (opts.shouldDumpConstraints()) {
             System.err.println("Constraints:");
             System.err.println(generator.stringRepresentationWithTermLineNumbers(constraints));
         }
+        stats.begin("solver");
+        long causes = Cause.recorded();
         if (!opts.oldExplanations()) {
             SatSolver satSolver = new Sat4J();
             SJSTypeTheory theorySolver = new SJSTypeTheory(env, modsys, sourcetree);
+            theorySolver.setCollapseEqualities(opts.collapseEqualities());
+            theorySolver.setSCCScheduling(opts.sccScheduling());
+            theorySolver.setSolverThreads(opts.solverThreads());
             List<ITypeConstraint> initConstraints = theorySolver.getConstraints();
             ConstraintGenerator g = theorySolver.hackyGenerator();
             List<Integer> hardConstraints = new ArrayList<>(initConstraints.size());
@@ -517,19 +858,36 @@ public class Compiler extends ExternalRhinoVisitor
                 theorySolver, finder,
                 hardConstraints, softConstraints);
             if (!finder.isOptimal() && !result.getRight().isEmpty()) {
-                result = TheorySolver.minimizeFixingSet(theorySolver, hardConstraints, softConstraints, result.getLeft(), result.getRight());
+                if (opts.minimizeThreads() > 1) {
+                    // every worker needs its own theory, with its own environment and
+                    // AST, since solving updates types in place
+                    result = TheorySolver.minimizeFixingSetParallel(theorySolver,
+                        () -> {
+                            SJSTypeTheory t = new SJSTypeTheory(loadEnvironment(opts), new ModuleSystem(opts),
+                                                                new org.mozilla.javascript.Parser().parse(script, "", 1));
+                            t.setCollapseEqualities(opts.collapseEqualities());
+                            t.setSCCScheduling(opts.sccScheduling());
+                            t.setSolverThreads(opts.solverThreads());
+                            return t;
+                        },
+                        hardConstraints, softConstraints, result.getLeft(), result.getRight(),
+                        opts.minimizeThreads());
+                } else {
+                    result = TheorySolver.minimizeFixingSet(theorySolver, hardConstraints, softConstraints, result.getLeft(), result.getRight());
+                }
             }
             if (!result.getRight().isEmpty()) {
                 System.out.println("Found " + result.getRight().size() + " type errors");
                 g = theorySolver.hackyGenerator();
+                Set<Integer> broken = new HashSet<>(result.getRight());
                 int i = 0;
                 for (ITypeConstraint c : theorySolver.hackyConstraintAccess()) {
-                    if (result.getRight().contains(i++)) {
+                    if (broken.contains(i++)) {
                         System.out.println();
                         g.explainFailure(c, result.getLeft()).prettyprint(System.out);
                     }
                 }
-                System.exit(1);
+                throw new SolverException("Found " + result.getRight().size() + " type errors");
             }
             types = result.getLeft().nodeTypes();
             if (opts.shouldDumpConstraintSolution()) {
@@ -538,6 +896,9 @@ public class Compiler extends ExternalRhinoVisitor
             }
         } else {
             DirectionalConstraintSolver solver = new DirectionalConstraintSolver(constraints, factory, generator);
+            solver.setCollapseEqualities(opts.collapseEqualities());
+            solver.setSCCScheduling(opts.sccScheduling());
+            solver.setSolverThreads(opts.solverThreads());
             TypeAssignment solution = null;
             try {
                 solution = solver.solve();
@@ -545,7 +906,7 @@ public class Compiler extends ExternalRhinoVisitor
                 System.out.println("type inference failed");
                 String explanation = e.explanation();
                 System.out.println(explanation);
-                System.exit(1);
+                throw e;
             }
             if (opts.shouldDumpConstraintSolution()) {
                 System.err.println("Solved Constraints:");
@@ -553,20 +914,26 @@ public class Compiler extends ExternalRhinoVisitor
             }
             types = solution.nodeTypes();
         }
+        stats.count("typed_nodes", types.size());
+        stats.count("causes", Cause.recorded() - causes);
 
         if (typecheckonly) {
             return;
         }
 
         if (checkTypes) {
+            stats.begin("RhinoTypeValidator");
             new RhinoTypeValidator(sourcetree, types).check();
         }
 
         // Translate Rhino IR to SJS IR.
+        stats.begin("RhinoToIR");
         RhinoToIR rti = new RhinoToIR(opts, sourcetree, types);
         com.samsung.sjs.backend.asts.ir.Script ir = rti.convert();
+        stats.count("ir_nodes_created", IRNode.created());
 
         // Collect the set of explicit property / slot names
+        stats.begin("IRFieldCollector");
         IRFieldCollector fc = new IRFieldCollector(env, modsys);
         ir.accept(fc);
         IRFieldCollector.FieldMapping m = fc.getResults();
@@ -581,7 +948,11 @@ public class Compiler extends ExternalRhinoVisitor
             System.err.println("**********************************************");
             System.err.println(ir.toSource(0));
         }
+        stats.begin("ConstantInliningPass");
+        long irNodes = IRNode.created();
+        int rounds = 0;
         while (iterate_constant_inlining) {
+            rounds++;
             ConstantInliningPass cip = new ConstantInliningPass(opts, ir);
             ir = cip.visitScript(ir);
             // Replacing may make more things constant (vars aren't const) so repeat
@@ -594,8 +965,13 @@ public class Compiler extends ExternalRhinoVisitor
             }
         }
 
+        stats.count("rounds", rounds);
+        irNodes = countIRNodes(stats, irNodes);
+
+        stats.begin("IREnvironmentLayoutPass");
         IREnvironmentLayoutPass envlayout = new IREnvironmentLayoutPass(ir, opts.debug());
         ir.accept(envlayout);
+        irNodes = countIRNodes(stats, irNodes);
         if (opts.debug()) {
             System.err.println("**********************************************");
             System.err.println("* IR Env Layout Result:                      *");
@@ -603,11 +979,15 @@ public class Compiler extends ExternalRhinoVisitor
             System.err.println(ir.toSource(0));
         }
 
+        stats.begin("SwitchDesugaringPass");
         SwitchDesugaringPass sdp = new SwitchDesugaringPass(opts, ir);
         com.samsung.sjs.backend.asts.ir.Script post_switch_desugar = sdp.convert();
+        irNodes = countIRNodes(stats, irNodes);
 
+        stats.begin("IntrinsicsInliningPass");
         IntrinsicsInliningPass iip = new IntrinsicsInliningPass(post_switch_desugar, opts, ffi);
         com.samsung.sjs.backend.asts.ir.Script post_intrinsics = iip.convert();
+        irNodes = countIRNodes(stats, irNodes);
         if (opts.debug()) {
             System.err.println("**********************************************");
             System.err.println("* IR Intrinsics Inlining Result:              *");
@@ -615,8 +995,10 @@ public class Compiler extends ExternalRhinoVisitor
             System.err.println(post_intrinsics.toSource(0));
         }
 
+        stats.begin("IRClosureConversionPass");
         IRClosureConversionPass ccp = new IRClosureConversionPass(post_intrinsics, envlayout.getMainCaptures(), opts.debug(), opts.isGuestRuntime() ? "__sjs_main" : "main");
         com.samsung.sjs.backend.asts.ir.Script post_cc = ccp.convert();
+        irNodes = countIRNodes(stats, irNodes);
         if (opts.debug()) {
             System.err.println("**********************************************");
             System.err.println("* IR Closure Conversion Result:              *");
@@ -624,7 +1006,9 @@ public class Compiler extends ExternalRhinoVisitor
             System.err.println(post_cc.toSource(0));
         }
 
+        stats.begin("ThreeAddressConversion");
         post_cc = new ThreeAddressConversion(post_cc).visitScript(post_cc);
+        irNodes = countIRNodes(stats, irNodes);
         if (logger.isDebugEnabled()) {
           System.err.println("**********************************************");
           System.err.println("* Three-Address Conversion Result:           *");
@@ -633,16 +1017,43 @@ public class Compiler extends ExternalRhinoVisitor
         }
 
         // Gather constraints for optimizing object layouts
+        stats.begin("PhysicalLayoutConstraintGathering");
         PhysicalLayoutConstraintGathering plcg = new PhysicalLayoutConstraintGathering(opts, m, ffi);
+        AccessProfile profile = opts.profileUse() != null ? AccessProfile.read(opts.profileUse()) : null;
+        if (profile != null) {
+            plcg.setProfile(profile);
+        }
         post_cc.accept(plcg);
-        // TODO: Eventually feed this to the IRVTablePass as a source of layout information
+        if (profile != null) {
+            stats.count("profiled_sites", plcg.profiledSites());
+            stats.count("stale_profile_sites", plcg.staleProfileSites());
+        }
+        if (plcg.staleProfileSites() > 0) {
+            System.err.println("WARNING: "+plcg.staleProfileSites()+" of "+plcg.profiledSites()+" sites differ from the profile "
+                               +opts.profileUse()+"; it was likely recorded from another version of the program");
+        }
+        // Aligning properties across layouts mostly helps the field access optimizations, and a
+        // profile also puts the hot ones first.  Without --Xphysical-layout, maps stay sequential
+        // (a profile then only informs the field access optimizations)
+        PhysicalLayout layout = opts.physicalLayout() ? plcg.getLayout() : PhysicalLayout.sequential(m);
 
         // Decorate SJS IR with vtables.
-        IRVTablePass irvt = new IRVTablePass(opts, m, ffi);
+        stats.begin("IRVTablePass");
+        IRVTablePass irvt = new IRVTablePass(opts, m, ffi, layout);
         post_cc.accept(irvt);
+        irNodes = countIRNodes(stats, irNodes);
         if (opts.fieldOptimizations()) {
             System.err.println("WARNING: Running experimental field access optimizations!");
-            post_cc = (com.samsung.sjs.backend.asts.ir.Script)(new FieldAccessOptimizer(post_cc, opts, m, irvt.getVtablesByFieldMap()).visitScript(post_cc));
+            stats.begin("FieldAccessOptimizer");
+            FieldAccessOptimizer fao = new FieldAccessOptimizer(post_cc, opts, m, irvt.getVtablesByFieldMap());
+            if (profile != null) {
+                fao.setProfile(profile);
+            }
+            post_cc = (com.samsung.sjs.backend.asts.ir.Script)fao.visitScript(post_cc);
+            irNodes = countIRNodes(stats, irNodes);
+            if (opts.debug() && fao.profiledCoverage() >= 0) {
+                System.err.printf("Resolved %.1f%% of profiled field accesses statically%n", 100 * fao.profiledCoverage());
+            }
             if (opts.debug()) {
                 System.err.println("**********************************************");
                 System.err.println("* Field Access Optimization Result:          *");
@@ -651,7 +1062,8 @@ public class Compiler extends ExternalRhinoVisitor
             }
         }
 
-        IRCBackend ir2c = new IRCBackend(post_cc, opts, m, ffi, env, modsys);
+        stats.begin("IRCBackend");
+        IRCBackend ir2c = new IRCBackend(post_cc, opts, m, ffi, env, modsys, layout);
         CompilationUnit c_via_ir = ir2c.compile();
         if (opts.debug()) {
             System.err.println("**********************************************");
@@ -662,7 +1074,20 @@ public class Compiler extends ExternalRhinoVisitor
             }
         }
 
+        stats.begin("write C");
         c_via_ir.writeToDisk(opts.getOutputCName());
+        stats.count("c_bytes", new File(opts.getOutputCName()).length());
+    }
+
+    /**
+     * Record how many IR nodes the current phase created.
+     *
+     * @return the number of IR nodes created so far
+     */
+    private static long countIRNodes(CompilerStatistics stats, long before) {
+        long now = IRNode.created();
+        stats.count("ir_nodes_created", now - before);
+        return now;
     }
 
     public static Process quiet_exec(String... args) throws IOException {
@@ -781,6 +1206,9 @@ public class Compiler extends ExternalRhinoVisitor
 	}
     }
     public static Process runClang(CompilerOptions opts, String[] extra_objs, String[] extra) throws IOException {
+        return exec(opts.ccomp_spew(), clangArgs(opts, extra_objs, extra));
+    }
+    static String[] clangArgs(CompilerOptions opts, String[] extra_objs, String[] extra) throws IOException {
         String cwd = new java.io.File(".").getCanonicalPath();
         System.err.println("Running clang from: "+cwd);
         File cfile = new File(opts.getOutputCName());
@@ -794,39 +1222,29 @@ public class Compiler extends ExternalRhinoVisitor
                                 // END MACOS
                                 "-lstdc++",
                                 "-ferror-limit=100",
-                                "-I", cwd,
-                                "-I", getCIncludeDirectory(opts),
-                                "-I", opts.getExternalDeps()+"/gc/native/include",
-                                "-ftrapv", //"-ftrapv-handler=__overflow_trap",
-                                "-Werror=implicit-int",
-                                "-Werror=return-type",
-                                "-Werror=implicit-function-declaration",
-                                "-Werror=string-plus-int",
-                                "-Wno-attributes",
-                                "-Wno-unused-value",
-                                "-Wno-parentheses-equality",
-                                "-Wno-int-conversion",
-                                "-D__SJS__",
-                                opts.getMMScheme() == CompilerOptions.MMScheme.GC ? "-DUSE_GC" : "-DLEAK_MEMORY",
-                                "-o", opts.execname(),
-                                cfile.getAbsolutePath(),
-                                getRuntimeCFile(opts),
-                                getGlobalsCFile(opts),
-                                getArrayCFile(opts),
-                                getHashingCFile(opts),
-                                getTagtestCFile(opts),
-                                getMapCFile(opts),
-                                getDateCFile(opts),
-                                getFFICFile(opts),
-                                getMathCFile(opts),
-                                getInteropCFile(opts) };
+                                "-I", cwd };
+        String[] output_args = { "-o", opts.execname(),
+                                 cfile.getAbsolutePath() };
+        String[] runtime;
+        if (opts.runtimeLibraryDirectory() != null) {
+            boolean m32 = opts.m32() || Arrays.asList(extra).contains("-m32");
+            runtime = new String[] { RuntimeLibrary.ensure(opts, m32).toString() };
+        } else {
+            runtime = RuntimeLibrary.sources(opts);
+        }
         // Make relative paths absolute
+        String[] objs = new String[extra_objs.length];
         for (int i = 0; i < extra_objs.length; i++) {
-            extra_objs[i] = cwd + "/" + extra_objs[i];
+            objs[i] = cwd + "/" + extra_objs[i];
         }
-        return exec(opts.ccomp_spew(), ArrayUtils.addAll(fixed_args,
-                                        ArrayUtils.addAll(extra_objs,
-                                            ArrayUtils.addAll(getPlatformCompilerArgs(opts), extra))));
+        // The linker only pulls the archive members referenced so far, so the runtime goes after
+        // everything that may call into it
+        return ArrayUtils.addAll(fixed_args,
+                                 ArrayUtils.addAll(RuntimeLibrary.clangFlags(opts),
+                                     ArrayUtils.addAll(output_args,
+                                         ArrayUtils.addAll(objs,
+                                             ArrayUtils.addAll(runtime,
+                                                 ArrayUtils.addAll(getPlatformCompilerArgs(opts), extra))))));
     }
 
     // Require emcc already in the environment
@@ -834,6 +1252,9 @@ public class Compiler extends ExternalRhinoVisitor
         return runEmcc(opts, new String[0], new String[0]);
     }
     public static Process runEmcc(CompilerOptions opts, String[] extra_objs, String[] extra) throws IOException {
+        return exec(opts.ccomp_spew(), emccArgs(opts, extra_objs, extra));
+    }
+    static String[] emccArgs(CompilerOptions opts, String[] extra_objs, String[] extra) {
         File cfile = new File(opts.getOutputCName());
         String browser_lib_path = opts.getRuntimeSourcePath() == null ?
                                     opts.baseDirectory()+"/src/main/resources/backend/browser" :
@@ -863,16 +1284,39 @@ public class Compiler extends ExternalRhinoVisitor
                                 getDateCFile(opts),
                                 getFFICFile(opts),
                                 getMathCFile(opts) };
-        return exec(opts.ccomp_spew(), ArrayUtils.addAll(fixed_args,
-                                        ArrayUtils.addAll(extra_objs,
-                                            ArrayUtils.addAll(getPlatformCompilerArgs(opts), extra))));
+        if (opts.compressedVTables()) {
+            fixed_args = ArrayUtils.add(fixed_args, "-DSJS_COMPRESSED_VTABLES");
+        }
+        return ArrayUtils.addAll(fixed_args,
+                                 ArrayUtils.addAll(extra_objs,
+                                     ArrayUtils.addAll(getPlatformCompilerArgs(opts), extra)));
     }
 
     public static int clang_compile(CompilerOptions opts, String[] objs, String[] extra) throws IOException, InterruptedException {
-        return manage_c_compiler(runClang(opts, objs, extra), opts);
+        return cached_c_compile(opts, clangArgs(opts, objs, extra), Paths.get(opts.execname()));
     }
     public static int emcc_compile(CompilerOptions opts, String[] objs, String[] extra) throws IOException, InterruptedException {
-        return manage_c_compiler(runEmcc(opts, objs, extra), opts);
+        return cached_c_compile(opts, emccArgs(opts, objs, extra), Paths.get(opts.execname()+".js"));
+    }
+    /**
+     * Run a C compiler command producing the given output, unless the cache already has its
+     * result.
+     */
+    private static int cached_c_compile(CompilerOptions opts, String[] args, Path output) throws IOException, InterruptedException {
+        if (!CompilationCache.applies(opts)) {
+            return manage_c_compiler(exec(opts.ccomp_spew(), args), opts);
+        }
+        CompilationCache cache = new CompilationCache(opts.cacheDirectory());
+        String key = CompilationCache.commandKey(args);
+        if (cache.restoreOutput(key, output)) {
+            System.err.println("Reusing cached "+output);
+            return 0;
+        }
+        int ret = manage_c_compiler(exec(opts.ccomp_spew(), args), opts);
+        if (ret == 0) {
+            cache.storeOutput(key, output);
+        }
+        return ret;
     }
     public static int manage_c_compiler(Process clang, CompilerOptions opts) throws IOException, InterruptedException {
         clang.waitFor();
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.ArrayUtils;
+
+/**
+ * Server mode of the compiler (<code>sjsc --daemon</code>), which saves the JVM startup, the
+ * parsing of the bundled declarations and the JIT warm-up on every compilation after the first.
+ *
+ * <p>Requests are read one per line, either from stdin or, with <code>--port n</code>, from
+ * connections to that port on the loopback interface.  A request holds the arguments of one
+ * <code>sjsc</code> invocation, separated by spaces, with double quotes around arguments that
+ * contain spaces; the arguments given before <code>--daemon</code> are added to every request.
+ * The compiler output for the request is followed by a line
+ * <code>sjsc-daemon: exit &lt;status&gt;</code>.  The request <code>quit</code>, or the end of
+ * stdin, stops the daemon.
+ *
+ * <p>Requests are handled one at a time, since the backend keeps some state in static fields
+ * which {@link Compiler#compile(CompilerOptions, boolean, boolean)} resets for each program.
+ */
+final class CompilerDaemon {
+
+    static final String STATUS_PREFIX = "sjsc-daemon: exit ";
+
+    static final String QUIT = "quit";
+
+    private CompilerDaemon() {
+    }
+
+    /**
+     * @param common arguments to put in front of every request (those before <code>--daemon</code>)
+     * @param args the daemon's own arguments (those after <code>--daemon</code>)
+     * @return the exit status of the daemon
+     */
+    @SuppressWarnings("static-access")
+    static int serve(String[] common, String[] args) throws IOException {
+        Options options = new Options();
+        options.addOption( OptionBuilder.withLongOpt("port")
+                                        .withDescription("Listen on this local port instead of reading stdin (0 picks a free port)")
+                                        .hasArg()
+                                        .withArgName("n")
+                                        .create() );
+        int port = -1;
+        try {
+            CommandLine cmd = new BasicParser().parse(options, args);
+            if (cmd.getArgs().length != 0) {
+                throw new ParseException("Invalid number of arguments");
+            }
+            if (cmd.hasOption("port")) {
+                String n = cmd.getOptionValue("port");
+                try {
+                    port = Integer.parseInt(n);
+                } catch (NumberFormatException e) {
+                    throw new ParseException("Invalid port: "+n);
+                }
+                if (port < 0 || port > 65535) {
+                    throw new ParseException("Invalid port: "+n);
+                }
+            }
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("sjsc --daemon", options);
+            return 1;
+        }
+
+        if (port < 0) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in, Charset.defaultCharset()));
+            serve(common, in, System.out);
+        } else {
+            try (ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+                System.err.println("sjsc-daemon: listening on port " + server.getLocalPort());
+                boolean quit = false;
+                while (!quit) {
+                    try (Socket client = server.accept()) {
+                        BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), Charset.defaultCharset()));
+                        PrintStream out = new PrintStream(client.getOutputStream(), true);
+                        quit = serve(common, in, out);
+                    } catch (IOException e) {
+                        System.err.println("sjsc-daemon: lost connection: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Handle requests until the end of the input or a <code>quit</code> request.  While a
+     * request is handled, System.out and System.err go to <code>out</code>.
+     *
+     * @return true if the daemon was asked to quit
+     */
+    static boolean serve(String[] common, BufferedReader in, PrintStream out) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.equals(QUIT)) {
+                return true;
+            }
+            int status = handle(ArrayUtils.addAll(common, splitArguments(line)), out);
+            out.println(STATUS_PREFIX + status);
+            out.flush();
+        }
+        return false;
+    }
+
+    private static int handle(String[] args, PrintStream out) {
+        PrintStream stdout = System.out, stderr = System.err;
+        System.setOut(out);
+        System.setErr(out);
+        try {
+            return Compiler.run(args);
+        } catch (Exception | AssertionError e) {
+            // report the failure, but keep serving; the next compilation starts from scratch
+            e.printStackTrace();
+            return 1;
+        } finally {
+            System.out.flush();
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+    }
+
+    /**
+     * Split a request into arguments at whitespace outside of double quotes.
+     */
+    static String[] splitArguments(String line) {
+        List<String> args = new ArrayList<>();
+        StringBuilder arg = null;
+        boolean quoted = false;
+        for (char c : line.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+                if (arg == null) {
+                    arg = new StringBuilder();
+                }
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (arg != null) {
+                    args.add(arg.toString());
+                    arg = null;
+                }
+            } else {
+                if (arg == null) {
+                    arg = new StringBuilder();
+                }
+                arg.append(c);
+            }
+        }
+        if (arg != null) {
+            args.add(arg.toString());
+        }
+        return args.toArray(new String[args.size()]);
+    }
+
+}
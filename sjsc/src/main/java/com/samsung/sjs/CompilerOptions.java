@@ -50,6 +50,20 @@ public final class CompilerOptions {
     private boolean interop;
     private final boolean oldExpl;
     private final String explanationStrategy;
+    private int minimizeThreads = 1;
+    private boolean collapseEqualities;
+    private boolean sccScheduling;
+    private boolean physicalLayout;
+    private boolean compressedVTables;
+    private boolean inlineCaches;
+    private boolean inlineCacheStats;
+    private boolean instrument;
+    private Path profileUse;
+    private int solverThreads = 1;
+    private Path cacheDir;
+    private boolean timePasses;
+    private Path statsFile;
+    private Path runtimeLibDir;
     private boolean efl;
     private boolean start_in_interop;
     private final int coptlevel;
@@ -162,6 +176,62 @@ public final class CompilerOptions {
     public boolean oldExplanations() { return oldExpl; }
     public String explanationStrategy() { return explanationStrategy; }
 
+    /** Worker threads used to minimize fixing sets from non-optimal explanation strategies */
+    public void setMinimizeThreads(int n) { minimizeThreads = n; }
+    public int minimizeThreads() { return minimizeThreads; }
+
+    /** Merge type variables equated by constraints before running the type constraint solver */
+    public void setCollapseEqualities(boolean b) { collapseEqualities = b; }
+    public boolean collapseEqualities() { return collapseEqualities; }
+
+    /** Run the type constraint solver's worklist in strongly-connected-component order */
+    public void setSCCScheduling(boolean b) { sccScheduling = b; }
+    public boolean sccScheduling() { return sccScheduling; }
+
+    /** Lay out object maps by the solved physical layout instead of in default property order */
+    public void setPhysicalLayout(boolean b) { physicalLayout = b; }
+    public boolean physicalLayout() { return physicalLayout; }
+
+    /** Pack object maps into one row-displaced table instead of one array per layout */
+    public void setCompressedVTables(boolean b) { compressedVTables = b; }
+    public boolean compressedVTables() { return compressedVTables; }
+
+    /** Give each field access with an unpredicted offset a monomorphic inline cache */
+    public void setInlineCaches(boolean b) { inlineCaches = b; }
+    public boolean inlineCaches() { return inlineCaches; }
+
+    /** Count inline cache hits and misses per site, reporting them on exit */
+    public void setInlineCacheStats(boolean b) { inlineCacheStats = b; }
+    public boolean inlineCacheStats() { return inlineCacheStats; }
+
+    /** Count executions of each allocation and field access site, appending them to a profile on exit */
+    public void setInstrument(boolean b) { instrument = b; }
+    public boolean instrument() { return instrument; }
+
+    /** Profile from an instrumented build to lay out objects by, or null */
+    public void setProfileUse(Path p) { profileUse = p; }
+    public Path profileUse() { return profileUse; }
+
+    /** Threads used to solve independent groups of type constraints */
+    public void setSolverThreads(int n) { solverThreads = n; }
+    public int solverThreads() { return solverThreads; }
+
+    /** Directory for cached compilation results, or null to always compile from scratch */
+    public void setCacheDirectory(Path dir) { cacheDir = dir; }
+    public Path cacheDirectory() { return cacheDir; }
+
+    /** Print the time and allocation of each compiler phase to stderr */
+    public void setTimePasses(boolean b) { timePasses = b; }
+    public boolean timePasses() { return timePasses; }
+
+    /** File to write per-phase statistics to as JSON, or null */
+    public void setStatisticsFile(Path file) { statsFile = file; }
+    public Path statisticsFile() { return statsFile; }
+
+    /** Directory of prebuilt runtime libraries to link native programs against, or null to compile the runtime sources */
+    public void setRuntimeLibraryDirectory(Path dir) { runtimeLibDir = dir; }
+    public Path runtimeLibraryDirectory() { return runtimeLibDir; }
+
     public boolean eflEnabled() { return efl; }
 
     public String COptimizationFlag() {
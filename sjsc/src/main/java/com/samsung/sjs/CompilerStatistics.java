@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Wall time, allocation and size counts for each phase of a compilation, for
+ * <code>--time-passes</code> and <code>--stats-json</code>.
+ *
+ * <p>Phases run one after another on the compiling thread: {@link #begin(String)} ends the
+ * current phase, if any, and starts the next one.  Allocation is measured for the compiling
+ * thread only, so it does not include what solver worker threads allocate.  When statistics are
+ * disabled, every method does nothing.
+ */
+public final class CompilerStatistics {
+
+    /** Format of the JSON report; bump when fields change meaning */
+    public static final int VERSION = 1;
+
+    static final class Phase {
+        final String name;
+        long wallNanos;
+        long allocatedBytes = -1;
+        final Map<String, Long> counts = new LinkedHashMap<>();
+
+        Phase(String name) {
+            this.name = name;
+        }
+    }
+
+    private final boolean enabled;
+    private final String input;
+    private final List<Phase> phases = new ArrayList<>();
+
+    private Phase current;
+    private long start;
+    private long startAllocated;
+
+    CompilerStatistics(boolean enabled, String input) {
+        this.enabled = enabled;
+        this.input = input;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Start timing the next phase, ending the current one.
+     */
+    public void begin(String phase) {
+        if (!enabled) {
+            return;
+        }
+        end();
+        current = new Phase(phase);
+        phases.add(current);
+        startAllocated = allocatedBytes();
+        start = System.nanoTime();
+    }
+
+    /**
+     * End the current phase, if any.
+     */
+    public void end() {
+        if (!enabled || current == null) {
+            return;
+        }
+        current.wallNanos = System.nanoTime() - start;
+        long allocated = allocatedBytes();
+        if (allocated >= 0 && startAllocated >= 0) {
+            current.allocatedBytes = allocated - startAllocated;
+        }
+        current = null;
+    }
+
+    /**
+     * Record a size for the most recently started phase, such as the number of constraints it
+     * produced.
+     */
+    public void count(String what, long n) {
+        if (!enabled || phases.isEmpty()) {
+            return;
+        }
+        phases.get(phases.size() - 1).counts.put(what, n);
+    }
+
+    List<Phase> phases() {
+        return phases;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean b = (com.sun.management.ThreadMXBean) bean;
+            if (b.isThreadAllocatedMemorySupported() && b.isThreadAllocatedMemoryEnabled()) {
+                return b.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Print a table of the phases, for people.
+     */
+    public void print(PrintStream out) {
+        long totalNanos = 0, totalBytes = 0;
+        out.println(String.format("%-36s %10s %12s  %s", "phase", "wall ms", "alloc KB", "counts"));
+        for (Phase p : phases) {
+            totalNanos += p.wallNanos;
+            totalBytes += Math.max(p.allocatedBytes, 0);
+            StringBuilder counts = new StringBuilder();
+            for (Map.Entry<String, Long> e : p.counts.entrySet()) {
+                counts.append(counts.length() == 0 ? "" : ", ").append(e.getKey()).append('=').append(e.getValue());
+            }
+            out.println(String.format("%-36s %10.1f %12d  %s", p.name, p.wallNanos / 1e6, p.allocatedBytes / 1024, counts));
+        }
+        out.println(String.format("%-36s %10.1f %12d", "total", totalNanos / 1e6, totalBytes / 1024));
+    }
+
+    /**
+     * The phases as JSON, for tools.  Allocation is -1 where the JVM cannot measure it.
+     */
+    public JsonObject toJson() {
+        JsonObject result = new JsonObject();
+        result.addProperty("version", VERSION);
+        result.addProperty("input", input);
+        JsonArray list = new JsonArray();
+        for (Phase p : phases) {
+            JsonObject phase = new JsonObject();
+            phase.addProperty("name", p.name);
+            phase.addProperty("wall_ns", p.wallNanos);
+            phase.addProperty("allocated_bytes", p.allocatedBytes);
+            JsonObject counts = new JsonObject();
+            for (Map.Entry<String, Long> e : p.counts.entrySet()) {
+                counts.addProperty(e.getKey(), e.getValue());
+            }
+            phase.add("counts", counts);
+            list.add(phase);
+        }
+        result.add("phases", list);
+        return result;
+    }
+
+    public void writeJson(Path file) throws IOException {
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(toJson(), w);
+            w.write('\n');
+        }
+    }
+
+}
@@ -0,0 +1,582 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.samsung.sjs.constraintsolver.OperatorModel;
+import com.samsung.sjs.types.ConstructorType;
+import com.samsung.sjs.types.IntersectionType;
+import com.samsung.sjs.types.NamedObjectType;
+import com.samsung.sjs.types.ObjectType;
+import com.samsung.sjs.types.Property;
+import com.samsung.sjs.types.Type;
+import com.samsung.sjs.types.TypeVariable;
+import com.samsung.sjs.types.Types;
+
+/**
+ * A binary form of the bundled environment.json, operators.json and linkage.json, written at
+ * build time (see the environmentSnapshot task in build.gradle) and shipped as
+ * /environment.snapshot.
+ *
+ * <p>Loading it takes a single read of the resource and a walk over a byte buffer, instead of
+ * JSON parsing.  The snapshot holds declarations rather than types: inference updates types in
+ * place, so {@link #includeInto(JSEnvironment)} builds fresh ones for every compilation, just as
+ * {@link JSEnvironment#parseType(JsonObject)} would.
+ *
+ * <p>The snapshot records checksums of the JSON files it was made from.  They are not checked at
+ * startup, which would mean reading the JSON anyway: the build rewrites the snapshot whenever
+ * the files change, and EnvironmentSnapshotTest checks {@link #isCurrent()}.  Extra declaration
+ * files (<code>--extra-decls</code>) are always read as JSON.
+ *
+ * <p>Layout: magic, version, the checksums of the three files, a string table (count, then
+ * length-prefixed UTF-8), then the declarations, the operator cases, the linkage globals and the
+ * linkage indirections, each as a count followed by the entries.  Strings are written as indices
+ * into the table.
+ */
+public final class EnvironmentSnapshot {
+
+    public static final String RESOURCE = "/environment.snapshot";
+
+    /** the files a snapshot is made from, in the order of their checksums */
+    private static final String[] SOURCES = { "/environment.json", "/operators.json", "/linkage.json" };
+
+    private static final int HEADER_SIZE = 8 + 8 * SOURCES.length;
+
+    private static final int MAGIC = 0x534a5345; // "SJSE"
+    private static final int VERSION = 1;
+
+    // declarations
+    private static final byte BINDING = 0;
+    private static final byte INTRINSIC = 1;
+
+    // type families
+    private static final byte STRING = 0;
+    private static final byte INT = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte VOID = 3;
+    private static final byte BOOL = 4;
+    private static final byte ARRAY = 5;
+    private static final byte MAP = 6;
+    private static final byte CONSTRUCTOR = 7;
+    private static final byte FUNCTION = 8;
+    private static final byte METHOD = 9;
+    private static final byte OBJECT = 10;
+    private static final byte INTERSECTION = 11;
+    private static final byte TYPEVARIABLE = 12;
+    private static final byte NAME = 13;
+
+    // operator cases
+    private static final byte UNARY = 0;
+    private static final byte INFIX = 1;
+
+    private final ByteBuffer data;
+    private final String[] strings;
+    /** start of the declarations, the operator cases and the linkage */
+    private final int declsStart;
+    private final int operatorsStart;
+    private final int linkageStart;
+
+    private EnvironmentSnapshot(ByteBuffer data) {
+        this.data = data;
+        if (data.getInt() != MAGIC || data.getInt() != VERSION) {
+            throw new IllegalArgumentException("not an environment snapshot");
+        }
+        data.position(HEADER_SIZE); // skip the checksums, see isCurrent()
+        strings = new String[data.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            int len = data.getInt();
+            strings[i] = new String(data.array(), data.arrayOffset() + data.position(), len, StandardCharsets.UTF_8);
+            data.position(data.position() + len);
+        }
+        declsStart = data.position();
+        int ndecls = data.getInt();
+        for (int i = 0; i < ndecls; i++) {
+            skipDecl(data);
+        }
+        operatorsStart = data.position();
+        int ncases = data.getInt();
+        for (int i = 0; i < ncases; i++) {
+            int size = data.get() == UNARY ? 13 : 16;
+            data.position(data.position() + size);
+        }
+        linkageStart = data.position();
+    }
+
+    private static boolean loaded = false;
+    private static EnvironmentSnapshot bundled = null;
+
+    /**
+     * The snapshot shipped with the compiler, or null if there is none or it cannot be read.
+     */
+    public static synchronized EnvironmentSnapshot bundled() {
+        if (!loaded) {
+            loaded = true;
+            try (InputStream in = EnvironmentSnapshot.class.getResourceAsStream(RESOURCE)) {
+                if (in != null) {
+                    bundled = new EnvironmentSnapshot(ByteBuffer.wrap(IOUtils.toByteArray(in)));
+                }
+            } catch (IOException | RuntimeException e) {
+                // fall back to the JSON files
+                bundled = null;
+            }
+        }
+        return bundled;
+    }
+
+    /**
+     * A snapshot as written by {@link #write(byte[], byte[], byte[], OutputStream)}, without
+     * checking whether it is up to date.
+     */
+    static EnvironmentSnapshot read(byte[] bytes) {
+        return new EnvironmentSnapshot(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Whether this snapshot was made from the environment.json, operators.json and linkage.json
+     * on the classpath.  This reads all three, so it is for the build to check, not startup.
+     */
+    boolean isCurrent() throws IOException {
+        for (int i = 0; i < SOURCES.length; i++) {
+            if (data.getLong(8 + 8 * i) != checksum(SOURCES[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long checksum(String resource) throws IOException {
+        try (InputStream in = EnvironmentSnapshot.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                return -1;
+            }
+            return crc(IOUtils.toByteArray(in));
+        }
+    }
+
+    /**
+     * Add the bundled declarations to an environment, as
+     * {@link JSEnvironment#includeDecls(JsonArray)} would for environment.json.
+     */
+    public void includeInto(JSEnvironment env) {
+        ByteBuffer in = reader(declsStart);
+        int ndecls = in.getInt();
+        for (int i = 0; i < ndecls; i++) {
+            String name = strings[in.getInt()];
+            if (in.get() == INTRINSIC) {
+                env.addIntrinsic(name, readProps(in, env));
+            } else {
+                Type t = readType(in, env);
+                env.put(name, t);
+                if (t instanceof ConstructorType) {
+                    env.namedTypes.put(name, (ObjectType)((ConstructorType)t).returnType());
+                }
+            }
+        }
+    }
+
+    /**
+     * Replay the bundled operator cases, in the order of operators.json.
+     */
+    public void readOperatorCases(OperatorModel.CaseSink sink) {
+        ByteBuffer in = reader(operatorsStart);
+        int ncases = in.getInt();
+        for (int i = 0; i < ncases; i++) {
+            byte kind = in.get();
+            String op = strings[in.getInt()];
+            if (kind == UNARY) {
+                String operand = strings[in.getInt()];
+                String result = strings[in.getInt()];
+                sink.unary(op, operand, result, in.get() != 0);
+            } else {
+                String left = strings[in.getInt()];
+                String right = strings[in.getInt()];
+                sink.infix(op, left, right, strings[in.getInt()]);
+            }
+        }
+    }
+
+    /**
+     * Add the bundled linkage, as {@link FFILinkage#includeLinkage(JsonObject)} would for
+     * linkage.json.
+     */
+    public void includeLinkageInto(FFILinkage ffi) {
+        ByteBuffer in = reader(linkageStart);
+        int nglobals = in.getInt();
+        for (int i = 0; i < nglobals; i++) {
+            String name = strings[in.getInt()];
+            boolean boxed = in.get() != 0;
+            boolean untyped = in.get() != 0;
+            int rewrite = in.getInt();
+            ffi.addEntry(name, boxed, untyped, rewrite >= 0 ? strings[rewrite] : null);
+        }
+        int ntables = in.getInt();
+        for (int i = 0; i < ntables; i++) {
+            String name = strings[in.getInt()];
+            int nfields = in.getInt();
+            List<String> fields = new LinkedList<>();
+            for (int j = 0; j < nfields; j++) {
+                fields.add(strings[in.getInt()]);
+            }
+            ffi.addTable(name, fields);
+        }
+    }
+
+    /** an independent cursor, so that several threads can read the snapshot at once */
+    private ByteBuffer reader(int position) {
+        ByteBuffer in = data.duplicate();
+        in.position(position);
+        return in;
+    }
+
+    private List<Property> readProps(ByteBuffer in, JSEnvironment env) {
+        int n = in.getInt();
+        List<Property> props = new LinkedList<Property>();
+        for (int i = 0; i < n; i++) {
+            String name = strings[in.getInt()];
+            props.add(Types.mkProperty(name, readType(in, env)));
+        }
+        return props;
+    }
+
+    private Type readType(ByteBuffer in, JSEnvironment env) {
+        byte family = in.get();
+        switch (family) {
+            case STRING: return Types.mkString();
+            case INT: return Types.mkInt();
+            case DOUBLE: return Types.mkFloat();
+            case VOID: return Types.mkVoid();
+            case BOOL: return Types.mkBool();
+            case ARRAY: return Types.mkArray(readType(in, env));
+            case MAP: return Types.mkMap(readType(in, env));
+            case CONSTRUCTOR:
+            case FUNCTION:
+            case METHOD:
+                final Type ret = readType(in, env);
+                final List<String> names = new LinkedList<String>();
+                final List<Type> types = new LinkedList<Type>();
+                int nargs = in.getInt();
+                for (int i = 0; i < nargs; i++) {
+                    names.add(strings[in.getInt()]);
+                    types.add(readType(in, env));
+                }
+                if (family == FUNCTION) {
+                    return Types.mkFunc(ret, types, names);
+                } else if (family == CONSTRUCTOR) {
+                    return Types.mkCtor(types, names, ret, null);
+                } else {
+                    return Types.mkMethod(Types.mkAny(), ret, names, types);
+                }
+            case OBJECT:
+                int typename = in.getInt();
+                ObjectType o = Types.mkObject(readProps(in, env));
+                if (typename >= 0) {
+                    env.namedTypes.put(strings[typename], o);
+                }
+                return o;
+            case INTERSECTION:
+                int nmems = in.getInt();
+                List<Type> mems = new LinkedList<>();
+                for (int i = 0; i < nmems; i++) {
+                    mems.add(readType(in, env));
+                }
+                return new IntersectionType(mems);
+            case TYPEVARIABLE:
+                return new TypeVariable(in.getInt());
+            case NAME:
+                return new NamedObjectType(strings[in.getInt()], env);
+            default:
+                throw new IllegalArgumentException("bad type family in snapshot: " + family);
+        }
+    }
+
+    private static void skipDecl(ByteBuffer in) {
+        in.getInt();
+        if (in.get() == INTRINSIC) {
+            skipProps(in);
+        } else {
+            skipType(in);
+        }
+    }
+
+    private static void skipProps(ByteBuffer in) {
+        int n = in.getInt();
+        for (int i = 0; i < n; i++) {
+            in.getInt();
+            skipType(in);
+        }
+    }
+
+    private static void skipType(ByteBuffer in) {
+        byte family = in.get();
+        switch (family) {
+            case ARRAY:
+            case MAP:
+                skipType(in);
+                break;
+            case CONSTRUCTOR:
+            case FUNCTION:
+            case METHOD:
+                skipType(in);
+                int nargs = in.getInt();
+                for (int i = 0; i < nargs; i++) {
+                    in.getInt();
+                    skipType(in);
+                }
+                break;
+            case OBJECT:
+                in.getInt();
+                skipProps(in);
+                break;
+            case INTERSECTION:
+                int nmems = in.getInt();
+                for (int i = 0; i < nmems; i++) {
+                    skipType(in);
+                }
+                break;
+            case TYPEVARIABLE:
+            case NAME:
+                in.getInt();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Build a snapshot from the contents of environment.json, operators.json and linkage.json.
+     */
+    public static void write(byte[] environmentJson, byte[] operatorsJson, byte[] linkageJson, OutputStream out) throws IOException {
+        SnapshotWriter w = new SnapshotWriter();
+        JsonArray decls = new JsonParser().parse(new String(environmentJson, StandardCharsets.UTF_8)).getAsJsonArray();
+        w.out.writeInt(decls.size());
+        for (JsonElement d : decls) {
+            w.writeDecl(d.getAsJsonObject());
+        }
+        ByteArrayOutputStream caseBytes = new ByteArrayOutputStream();
+        DataOutputStream cases = new DataOutputStream(caseBytes);
+        int[] ncases = { 0 };
+        OperatorModel.readCases(new StringReader(new String(operatorsJson, StandardCharsets.UTF_8)), new OperatorModel.CaseSink() {
+            @Override
+            public void unary(String operatorName, String operandType, String resultType, boolean isPrefix) {
+                try {
+                    cases.writeByte(UNARY);
+                    cases.writeInt(w.string(operatorName));
+                    cases.writeInt(w.string(operandType));
+                    cases.writeInt(w.string(resultType));
+                    cases.writeByte(isPrefix ? 1 : 0);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                ncases[0]++;
+            }
+            @Override
+            public void infix(String operatorName, String leftType, String rightType, String resultType) {
+                try {
+                    cases.writeByte(INFIX);
+                    cases.writeInt(w.string(operatorName));
+                    cases.writeInt(w.string(leftType));
+                    cases.writeInt(w.string(rightType));
+                    cases.writeInt(w.string(resultType));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                ncases[0]++;
+            }
+        });
+        w.out.writeInt(ncases[0]);
+        cases.flush();
+        caseBytes.writeTo(w.out);
+
+        JsonObject linkage = new JsonParser().parse(new String(linkageJson, StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonArray globals = linkage.getAsJsonArray("globals");
+        w.out.writeInt(globals.size());
+        for (JsonElement e : globals) {
+            JsonObject decl = e.getAsJsonObject();
+            w.out.writeInt(w.string(decl.getAsJsonPrimitive("name").getAsString()));
+            w.out.writeByte(decl.getAsJsonPrimitive("boxed").getAsBoolean() ? 1 : 0);
+            w.out.writeByte(decl.has("untyped") && decl.getAsJsonPrimitive("untyped").getAsBoolean() ? 1 : 0);
+            w.out.writeInt(decl.has("rewrite") ? w.string(decl.getAsJsonPrimitive("rewrite").getAsString()) : -1);
+        }
+        JsonArray tables = linkage.getAsJsonArray("indirections");
+        w.out.writeInt(tables.size());
+        for (JsonElement e : tables) {
+            JsonObject table = e.getAsJsonObject();
+            w.out.writeInt(w.string(table.getAsJsonPrimitive("name").getAsString()));
+            JsonArray fields = table.getAsJsonArray("fields");
+            w.out.writeInt(fields.size());
+            for (JsonElement f : fields) {
+                w.out.writeInt(w.string(f.getAsJsonPrimitive().getAsString()));
+            }
+        }
+        w.out.flush();
+
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.writeLong(crc(environmentJson));
+        header.writeLong(crc(operatorsJson));
+        header.writeLong(crc(linkageJson));
+        header.writeInt(w.strings.size());
+        for (String str : w.strings.keySet()) {
+            byte[] utf8 = str.getBytes(StandardCharsets.UTF_8);
+            header.writeInt(utf8.length);
+            header.write(utf8);
+        }
+        w.bytes.writeTo(header);
+        header.flush();
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    /**
+     * the body of a snapshot under construction, mirroring {@link JSEnvironment#parseDecl(JsonObject)}
+     */
+    private static final class SnapshotWriter {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        int string(String s) {
+            return strings.computeIfAbsent(s, k -> strings.size());
+        }
+
+        void writeDecl(JsonObject decl) throws IOException {
+            out.writeInt(string(decl.getAsJsonPrimitive("name").getAsString()));
+            if (decl.getAsJsonPrimitive("intrinsic") != null) {
+                out.writeByte(INTRINSIC);
+                writeProps(decl.getAsJsonObject("type").getAsJsonArray("operators"));
+            } else {
+                out.writeByte(BINDING);
+                writeType(decl.getAsJsonObject("type"));
+            }
+        }
+
+        void writeProps(JsonArray props) throws IOException {
+            out.writeInt(props.size());
+            for (JsonElement e : props) {
+                JsonObject p = e.getAsJsonObject();
+                out.writeInt(string(p.getAsJsonPrimitive("name").getAsString()));
+                writeType(p.getAsJsonObject("type"));
+            }
+        }
+
+        void writeType(JsonObject ty) throws IOException {
+            String typefamily = ty.getAsJsonPrimitive("typefamily").getAsString();
+            switch (typefamily) {
+                case "string": out.writeByte(STRING); break;
+                case "int": out.writeByte(INT); break;
+                case "double": out.writeByte(DOUBLE); break;
+                case "void": out.writeByte(VOID); break;
+                case "bool": out.writeByte(BOOL); break;
+                case "array":
+                    out.writeByte(ARRAY);
+                    writeType(ty.getAsJsonObject("elemtype"));
+                    break;
+                case "map":
+                    out.writeByte(MAP);
+                    writeType(ty.getAsJsonObject("elemtype"));
+                    break;
+                case "constructor":
+                case "function":
+                case "method":
+                    out.writeByte(typefamily.equals("constructor") ? CONSTRUCTOR
+                                  : typefamily.equals("function") ? FUNCTION : METHOD);
+                    writeType(ty.getAsJsonObject("return"));
+                    JsonArray args = ty.getAsJsonArray("args");
+                    out.writeInt(args.size());
+                    for (JsonElement e : args) {
+                        JsonObject eo = e.getAsJsonObject();
+                        out.writeInt(string(eo.getAsJsonPrimitive("name").getAsString()));
+                        writeType(eo.getAsJsonObject("type"));
+                    }
+                    break;
+                case "object":
+                    out.writeByte(OBJECT);
+                    out.writeInt(ty.has("typename") ? string(ty.getAsJsonPrimitive("typename").getAsString()) : -1);
+                    writeProps(ty.getAsJsonArray("members"));
+                    break;
+                case "intersection":
+                    out.writeByte(INTERSECTION);
+                    JsonArray mems = ty.getAsJsonArray("members");
+                    out.writeInt(mems.size());
+                    for (JsonElement e : mems) {
+                        writeType(e.getAsJsonObject());
+                    }
+                    break;
+                case "typevariable":
+                    out.writeByte(TYPEVARIABLE);
+                    out.writeInt(ty.getAsJsonPrimitive("id").getAsInt());
+                    break;
+                case "name":
+                    out.writeByte(NAME);
+                    out.writeInt(string(ty.getAsJsonPrimitive("name").getAsString()));
+                    break;
+                default:
+                    throw new IllegalArgumentException(typefamily);
+            }
+        }
+    }
+
+    /**
+     * Build step: write the snapshot of the environment.json, operators.json and linkage.json on
+     * the classpath to the given file.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: EnvironmentSnapshot <output file>");
+            System.exit(1);
+        }
+        byte[][] sources = new byte[SOURCES.length][];
+        for (int i = 0; i < SOURCES.length; i++) {
+            sources[i] = IOUtils.toByteArray(EnvironmentSnapshot.class.getResourceAsStream(SOURCES[i]));
+        }
+        Path out = Paths.get(args[0]);
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        try (OutputStream o = Files.newOutputStream(out)) {
+            write(sources[0], sources[1], sources[2], o);
+        }
+    }
+
+}
@@ -37,10 +37,13 @@ public final class FFILinkage extends HashMap<String,FFILinkage.LinkEntry> {
         public final String name;
         public final boolean boxed;
         public final boolean untyped_import;
-        public LinkEntry(String n, boolean box, boolean untyped) {
+        // The name the declaration asks to be rewritten into; not acted on (see addEntry)
+        public final String rewrite;
+        public LinkEntry(String n, boolean box, boolean untyped, String rw) {
             name = n;
             boxed = box;
             untyped_import = untyped;
+            rewrite = rw;
         }
     }
 
@@ -75,11 +78,16 @@ public final class FFILinkage extends HashMap<String,FFILinkage.LinkEntry> {
     public void parseDecl(JsonObject decl) {
         String name = decl.getAsJsonPrimitive("name").getAsString();
         boolean boxed = decl.getAsJsonPrimitive("boxed").getAsBoolean();
-        if (decl.has("rewrite")) {
-            System.err.println("Ignoring rewrite of top-level ["+name+"] into: "+decl.getAsJsonPrimitive("rewrite").getAsString());
-        }
+        String rewrite = decl.has("rewrite") ? decl.getAsJsonPrimitive("rewrite").getAsString() : null;
         boolean untyped = decl.has("untyped") && decl.getAsJsonPrimitive("untyped").getAsBoolean();
-        LinkEntry l = new LinkEntry(name, boxed, untyped);
+        addEntry(name, boxed, untyped, rewrite);
+    }
+
+    void addEntry(String name, boolean boxed, boolean untyped, String rewrite) {
+        if (rewrite != null) {
+            System.err.println("Ignoring rewrite of top-level ["+name+"] into: "+rewrite);
+        }
+        LinkEntry l = new LinkEntry(name, boxed, untyped, rewrite);
         put(name, l);
     }
 
@@ -90,7 +98,11 @@ public final class FFILinkage extends HashMap<String,FFILinkage.LinkEntry> {
         for (JsonElement fname : arr) {
             l.add(fname.getAsJsonPrimitive().getAsString());
         }
-        tables_to_generate.put(name, l);
+        addTable(name, l);
+    }
+
+    void addTable(String name, List<String> fields) {
+        tables_to_generate.put(name, fields);
     }
 
     public Set<Map.Entry<String,List<String>>> getTablesToGenerate() {
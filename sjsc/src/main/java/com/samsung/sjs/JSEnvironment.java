@@ -57,15 +57,19 @@ public final class JSEnvironment extends HashMap<String,Type> {
 
     public void includeFile(InputStream is) {
         JsonParser p = new JsonParser();
-        JsonArray decls = p.parse(new InputStreamReader(is)).getAsJsonArray();
-        for (JsonElement d : decls) {
-            parseDecl(d.getAsJsonObject());
-        }
+        includeDecls(p.parse(new InputStreamReader(is)).getAsJsonArray());
     }
 
     public void includeFile(Path filename) throws IOException {
         JsonParser p = new JsonParser();
-        JsonArray decls = p.parse(Files.newBufferedReader(filename)).getAsJsonArray();
+        includeDecls(p.parse(Files.newBufferedReader(filename)).getAsJsonArray());
+    }
+
+    /**
+     * Add the declarations from an already-parsed descriptor file.  The JSON is only read, so the
+     * same array can be included into any number of environments.
+     */
+    public void includeDecls(JsonArray decls) {
         for (JsonElement d : decls) {
             parseDecl(d.getAsJsonObject());
         }
@@ -95,6 +99,10 @@ public final class JSEnvironment extends HashMap<String,Type> {
             JsonObject eo = e.getAsJsonObject();
             props.add(parseProp(eo));
         }
+        addIntrinsic(name, props);
+    }
+
+    void addIntrinsic(String name, List<Property> props) {
         assert (intrinsics.get(name) == null);
         intrinsics.put(name, props);
         // TODO: Verify it's an expected intrinsic
@@ -47,6 +47,7 @@ public class ModuleSystem {
     private LinkedList<String> static_js_modules;
     private LinkedList<String> modnames;
     private Map<String,Type> modtypes;
+    private LinkedList<File> dependencies;
 
     private final static String TYPE_ANNO_SUFFIX = ".json";
     private final static String GENERATED_TYPE_ANNO_SUFFIX = ".gentypes";
@@ -58,10 +59,17 @@ public class ModuleSystem {
         this.static_js_modules = new LinkedList<>();
         this.modnames = new LinkedList<>();
         this.modtypes = new HashMap<>();
+        this.dependencies = new LinkedList<>();
     }
 
     public Map<String,Type> moduleTypes() { return modtypes; }
 
+    /**
+     * The files the loaded modules' types were read from: manual declarations, and the sources
+     * and generated declarations of SJS modules.
+     */
+    public Collection<File> getDependencies() { return dependencies; }
+
     public Type loadModule(String basepath) {
         // Interpret 'basepath' relative to the location of the source file for now
         File src = new File(opts.getInputFileName());
@@ -117,6 +125,8 @@ public class ModuleSystem {
             }
         }
         // We've either compiled the module or found up-to-date previously-generated annotations
+        dependencies.add(source);
+        dependencies.add(gen_annos);
         return gen_annos;
     }
 
@@ -129,6 +139,7 @@ public class ModuleSystem {
         File manual_annos = locateFile(basepath+TYPE_ANNO_SUFFIX);
         if (manual_annos != null) {
             dynamic_js_modules.add(basepath);
+            dependencies.add(manual_annos);
             return new FileInputStream(manual_annos);
         }
         // No manual annotations found, need to look for typed SJS code
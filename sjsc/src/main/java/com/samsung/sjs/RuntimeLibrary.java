@@ -0,0 +1,215 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+/**
+ * The C runtime as a static library, <code>libsjsrt.a</code>, built once per configuration
+ * (<code>--runtime-lib-dir</code>) instead of compiling the runtime sources into every program.
+ *
+ * <p>A configuration is the C compiler, its flags (optimization level, GC or leaking memory,
+ * <code>-m32</code>) and the contents of the runtime sources and headers.  Each gets its own
+ * subdirectory, so a changed runtime source is recompiled the next time a program is linked.
+ * Libraries are built in a temporary directory and renamed into place, so concurrent compilers
+ * can share a library directory.
+ *
+ * <p>Only native (clang) builds use the library; the browser build compiles the runtime with
+ * emcc as before.
+ */
+public final class RuntimeLibrary {
+
+    public static final String NAME = "libsjsrt.a";
+
+    private RuntimeLibrary() {}
+
+    /**
+     * The runtime sources, in the order they are passed to the C compiler.
+     */
+    public static String[] sources(CompilerOptions opts) {
+        return new LinkedHashSet<>(Arrays.asList(Compiler.getRuntimeCFile(opts),
+                                                 Compiler.getGlobalsCFile(opts),
+                                                 Compiler.getArrayCFile(opts),
+                                                 Compiler.getHashingCFile(opts),
+                                                 Compiler.getTagtestCFile(opts),
+                                                 Compiler.getMapCFile(opts),
+                                                 Compiler.getDateCFile(opts),
+                                                 Compiler.getFFICFile(opts),
+                                                 Compiler.getMathCFile(opts),
+                                                 Compiler.getInteropCFile(opts))).toArray(new String[0]);
+    }
+
+    /**
+     * Include paths, warnings and definitions shared by generated code and the runtime.
+     */
+    public static String[] clangFlags(CompilerOptions opts) {
+        String[] flags = { "-I", Compiler.getCIncludeDirectory(opts),
+                              "-I", opts.getExternalDeps()+"/gc/native/include",
+                              "-ftrapv", //"-ftrapv-handler=__overflow_trap",
+                              "-Werror=implicit-int",
+                              "-Werror=return-type",
+                              "-Werror=implicit-function-declaration",
+                              "-Werror=string-plus-int",
+                              "-Wno-attributes",
+                              "-Wno-unused-value",
+                              "-Wno-parentheses-equality",
+                              "-Wno-int-conversion",
+                              "-D__SJS__",
+                              opts.getMMScheme() == CompilerOptions.MMScheme.GC ? "-DUSE_GC" : "-DLEAK_MEMORY" };
+        return opts.compressedVTables() ? ArrayUtils.add(flags, "-DSJS_COMPRESSED_VTABLES") : flags;
+    }
+
+    private static String[] objectArgs(CompilerOptions opts, boolean m32) {
+        String[] args = { opts.clangPath(), "-c", "-g", opts.COptimizationFlag(), "-ferror-limit=100" };
+        args = ArrayUtils.addAll(args, clangFlags(opts));
+        return m32 ? ArrayUtils.add(args, "-m32") : args;
+    }
+
+    /**
+     * The directory for this configuration's library.
+     */
+    static Path configurationDirectory(CompilerOptions opts, boolean m32) throws IOException {
+        CompilationCache.Hasher h = new CompilationCache.Hasher();
+        for (String arg : objectArgs(opts, m32)) {
+            h.add(arg);
+        }
+        // the sources live next to the headers they include
+        Path include = Paths.get(Compiler.getCIncludeDirectory(opts));
+        h.addTree(include, f -> true);
+        for (String src : sources(opts)) {
+            if (!Paths.get(src).startsWith(include)) {
+                h.add(src);
+                h.addFile(Paths.get(src));
+            }
+        }
+        String name = (m32 ? "m32" : "host") + "-"
+                      + (opts.getMMScheme() == CompilerOptions.MMScheme.GC ? "gc" : "leak")
+                      + opts.COptimizationFlag() + "-" + h.digest().substring(0, 16);
+        return opts.runtimeLibraryDirectory().toAbsolutePath().resolve(name);
+    }
+
+    /**
+     * The library for this configuration, built first if it does not exist yet.
+     */
+    public static Path ensure(CompilerOptions opts, boolean m32) throws IOException {
+        Path dir = configurationDirectory(opts, m32);
+        Path lib = dir.resolve(NAME);
+        if (Files.isRegularFile(lib)) {
+            return lib;
+        }
+        System.err.println("Building runtime library "+lib);
+        Files.createDirectories(dir.getParent());
+        Path tmp = Files.createTempDirectory(dir.getParent(), ".tmp");
+        try {
+            // compile the sources in parallel, then archive them
+            String[] srcs = sources(opts);
+            List<Process> compiles = new ArrayList<>();
+            String[] objs = new String[srcs.length];
+            for (int i = 0; i < srcs.length; i++) {
+                String base = new File(srcs[i]).getName();
+                objs[i] = tmp.resolve(i + "-" + base.substring(0, base.lastIndexOf('.')) + ".o").toString();
+                compiles.add(Compiler.exec(opts.ccomp_spew(),
+                                           ArrayUtils.addAll(objectArgs(opts, m32), srcs[i], "-o", objs[i])));
+            }
+            int failed = 0;
+            for (Process p : compiles) {
+                if (Compiler.manage_c_compiler(p, opts) != 0) {
+                    failed++;
+                }
+            }
+            if (failed > 0) {
+                throw new IOException("Failed to compile "+failed+" runtime source(s) for "+lib);
+            }
+            Path archive = tmp.resolve(NAME);
+            if (Compiler.manage_c_compiler(Compiler.exec(opts.ccomp_spew(),
+                                                         ArrayUtils.addAll(new String[] { "ar", "rcs", archive.toString() }, objs)),
+                                           opts) != 0) {
+                throw new IOException("Failed to archive "+lib);
+            }
+            for (String o : objs) {
+                Files.delete(Paths.get(o));
+            }
+            try {
+                Files.move(tmp, dir, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException | AtomicMoveNotSupportedException e) {
+                // built concurrently by someone else
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted building "+lib);
+        } finally {
+            if (Files.exists(tmp)) {
+                try (Stream<Path> files = Files.walk(tmp)) {
+                    for (Path f : files.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList())) {
+                        Files.delete(f);
+                    }
+                }
+            }
+        }
+        return lib;
+    }
+
+    /**
+     * Build step: prebuild the library for the default configuration of the sjsc command (GC,
+     * <code>-O3</code>), or the one given by the flags.
+     *
+     * <p>Usage: <code>RuntimeLibrary &lt;dir&gt; [-O0|-O1|-O2|-O3] [--leak] [--m32]</code>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: RuntimeLibrary <dir> [-O0|-O1|-O2|-O3] [--leak] [--m32]");
+            System.exit(1);
+        }
+        int copt = 3;
+        boolean gc = true, m32 = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].matches("-O[0-3]")) {
+                copt = args[i].charAt(2) - '0';
+            } else if (args[i].equals("--leak")) {
+                gc = false;
+            } else if (args[i].equals("--m32")) {
+                m32 = true;
+            } else {
+                System.err.println("Unknown option: "+args[i]);
+                System.exit(1);
+            }
+        }
+        String cwd = new File(".").getCanonicalPath();
+        CompilerOptions opts = new CompilerOptions(CompilerOptions.Platform.Native, null, false, null, gc,
+                                                   "clang", "emcc", cwd+"/a.out", cwd, true, true, false, false,
+                                                   null, false, m32, false, null, false, copt);
+        opts.setRuntimeLibraryDirectory(Paths.get(args[0]));
+        System.out.println(ensure(opts, m32));
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Execution counts of the object allocation and field access sites of a program, as recorded by
+ * a build with --instrument and read back with --profile-use.
+ *
+ * <p>A profile is a text file with one site per line: its kind ({@link #ALLOC}, {@link #READ} or
+ * {@link #WRITE}), the id of its IR node, its name, and its count, separated by tabs.  The name of
+ * an access is its field; that of an allocation, the properties of the object allocated, in
+ * default order, separated by commas.  Lines starting with # are comments.  The runtime appends to
+ * the profile on every run, so a site may appear several times; its counts add up.
+ *
+ * <p>Node ids only match between builds of the same program with the same compiler, so counts are
+ * also aggregated by field, which is all ranking properties needs; {@link #matches} tells whether
+ * a site still is what the profile recorded.
+ */
+package com.samsung.sjs.backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class AccessProfile {
+
+    public static final String ALLOC = "alloc";
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+
+    private final Map<Long,String> names = new HashMap<>();
+    private final Map<Long,Long> by_site = new HashMap<>();
+    private final Map<String,Long> by_field = new HashMap<>();
+
+    /** The description of a site the runtime writes ahead of its count */
+    public static String site(String kind, long id, String name) {
+        return kind+"\t"+id+"\t"+name;
+    }
+
+    /** The name of an allocation site, for the properties of the object in default order */
+    public static String layoutName(List<String> props) {
+        return String.join(",", props);
+    }
+
+    public static AccessProfile read(Path file) throws IOException {
+        AccessProfile p = new AccessProfile();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineno = 0;
+            while ((line = in.readLine()) != null) {
+                lineno++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] cols = line.split("\t", -1);
+                try {
+                    if (cols.length != 4) {
+                        throw new NumberFormatException();
+                    }
+                    p.add(cols[0], Long.parseLong(cols[1]), cols[2], Long.parseLong(cols[3]));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file+":"+lineno+": malformed profile entry: "+line);
+                }
+            }
+        }
+        return p;
+    }
+
+    void add(String kind, long id, String name, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("negative count");
+        }
+        switch (kind) {
+            case ALLOC:
+                break;
+            case READ:
+            case WRITE:
+                by_field.merge(name, count, Long::sum);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown site kind: "+kind);
+        }
+        names.put(id, name);
+        by_site.merge(id, count, Long::sum);
+    }
+
+    /** The times the site with this node id ran, or 0 */
+    public long siteCount(long id) {
+        return by_site.getOrDefault(id, 0L);
+    }
+
+    /** Whether the profile has no site with this node id, or one with the same name */
+    public boolean matches(long id, String name) {
+        String recorded = names.get(id);
+        return recorded == null || recorded.equals(name);
+    }
+
+    /** The reads and writes of field f, at all sites */
+    public long fieldCount(String f) {
+        return by_field.getOrDefault(f, 0L);
+    }
+}
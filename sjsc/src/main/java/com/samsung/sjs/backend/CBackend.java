@@ -39,6 +39,17 @@ public abstract class CBackend extends IRVisitor<CNode> {
     // memoization of indirection maps.
     protected static Map<Integer,Set<Pair<int[],Integer>>> vtables_by_hash = new HashMap<Integer,Set<Pair<int[],Integer>>>();
     protected static int next_vtable_id = 0;
+
+    /**
+     * Forget the string constants and vtables of earlier compilations, which would otherwise be
+     * emitted again (with shifted ids) by the next one in the same JVM.
+     */
+    public static void resetStaticState() {
+        str_const_cnt = 0;
+        string_literal_decls = null;
+        vtables_by_hash.clear();
+        next_vtable_id = 0;
+    }
     /**
      * Returns a new ID for a new vtable, or the id of an existing
      * vtable if argument vt is identical to a previous vtable array.
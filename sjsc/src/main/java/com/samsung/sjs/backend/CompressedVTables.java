@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Row displacement packing of the object maps of a program into one table, for
+ * --Xcompressed-vtables.
+ *
+ * <p>Each map (an array from property id to slot, mostly -1) gets a distinct base offset such
+ * that the ids it has land on entries no other map uses; a map is then represented by a pointer
+ * to its base in the shared table.  A second row of the same length records, for each entry, the
+ * id it was placed for, so the runtime can tell an id the map has from one that lands on another
+ * map's entry (see vtable_lookup in runtime.h).  Since bases are distinct, an entry can only be
+ * checked as id f from base b if it was placed for f by the map at b.
+ *
+ * <p>The table is padded so that every base plus every property id is in bounds.
+ */
+package com.samsung.sjs.backend;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+public final class CompressedVTables {
+
+    private final int[] bases;
+    private final int length;
+    private final int[] entries;
+    private final int[] checks;
+
+    /**
+     * Packs maps, each as long as the number of property ids, width.
+     */
+    public CompressedVTables(int[][] maps, int width) {
+        bases = new int[maps.length];
+        List<Integer> order = new ArrayList<>();
+        int[][] present = new int[maps.length][];
+        for (int i = 0; i < maps.length; i++) {
+            assert (maps[i].length == width);
+            present[i] = presentIds(maps[i]);
+            order.add(i);
+        }
+        // Densest maps first, which are the hardest to fit; stable, so the layout is deterministic
+        order.sort(Comparator.comparingInt((Integer i) -> -present[i].length));
+
+        BitSet occupied = new BitSet();
+        BitSet used_bases = new BitSet();
+        int max_base = 0;
+        for (int i : order) {
+            int[] ids = present[i];
+            int base = 0;
+            while (true) {
+                if (ids.length > 0) {
+                    // skip straight to the next base where the first id fits
+                    base = occupied.nextClearBit(base + ids[0]) - ids[0];
+                }
+                if (!used_bases.get(base) && fits(occupied, ids, base)) {
+                    break;
+                }
+                base++;
+            }
+            used_bases.set(base);
+            for (int id : ids) {
+                occupied.set(base + id);
+            }
+            bases[i] = base;
+            max_base = Math.max(max_base, base);
+        }
+
+        length = maps.length == 0 ? width : max_base + width;
+        entries = new int[length];
+        checks = new int[length];
+        java.util.Arrays.fill(entries, -1);
+        java.util.Arrays.fill(checks, -1);
+        for (int i = 0; i < maps.length; i++) {
+            for (int id : present[i]) {
+                entries[bases[i] + id] = maps[i][id];
+                checks[bases[i] + id] = id;
+            }
+        }
+    }
+
+    private static int[] presentIds(int[] map) {
+        int n = 0;
+        for (int slot : map) {
+            if (slot != -1) {
+                n++;
+            }
+        }
+        int[] ids = new int[n];
+        n = 0;
+        for (int id = 0; id < map.length; id++) {
+            if (map[id] != -1) {
+                ids[n++] = id;
+            }
+        }
+        return ids;
+    }
+
+    private static boolean fits(BitSet occupied, int[] ids, int base) {
+        for (int id : ids) {
+            if (occupied.get(base + id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The offset of map i in the table */
+    public int base(int i) {
+        return bases[i];
+    }
+
+    /** The number of entries, which the check row follows */
+    public int length() {
+        return length;
+    }
+
+    /** Entries: the slot for each (base + id) a map placed, else -1 */
+    public int[] entries() {
+        return entries;
+    }
+
+    /** The check row: the id each entry was placed for, else -1 */
+    public int[] checks() {
+        return checks;
+    }
+
+    /**
+     * The slot for property id in map i, or -1 if it has none, as vtable_lookup finds it.
+     */
+    public int lookup(int i, int id) {
+        int e = bases[i] + id;
+        return checks[e] == id ? entries[e] : -1;
+    }
+}
@@ -84,10 +84,22 @@ import static com.samsung.sjs.types.Types.*;
 public final class FieldAccessOptimizer extends IRTransformer {
 
     private CompilerOptions opts;
+    private boolean debug;
     private IRFieldCollector.FieldMapping field_codes;
     // This needs to be computed by RhinoToIR, which generates the vtables themselves
     private Map<String, Set<int[]> > vtables_with_field;
 
+    // In unique_offsets, for fields whose vtables disagree on the offset
+    private static final int AMBIGUOUS = -2;
+    // For each field in some vtable, the offset all vtables with it agree on, else AMBIGUOUS
+    private Map<String, Integer> unique_offsets;
+    // The offset (or -1) of each ambiguous field for each receiver property set it was accessed at
+    private Map<String, Map<Set<String>, Integer>> disambiguated;
+    // With --profile-use, the profile, and the executions of the sites resolved and not
+    private AccessProfile profile;
+    private long resolved_executions;
+    private long unresolved_executions;
+
     public FieldAccessOptimizer(Script s,
                        CompilerOptions opts,
                        IRFieldCollector.FieldMapping field_offsets,
@@ -96,6 +108,53 @@ public final class FieldAccessOptimizer extends IRTransformer {
         this.field_codes = field_offsets;
         this.vtables_with_field = vtables_by_field;
         this.opts = opts;
+        this.debug = opts.debug();
+        this.unique_offsets = new HashMap<>();
+        this.disambiguated = new HashMap<>();
+        for (Map.Entry<String, Set<int[]>> e : vtables_by_field.entrySet()) {
+            int f = field_codes.indexOf(e.getKey());
+            int offset = -1;
+            for (int[] vt : e.getValue()) {
+                if (offset == -1) {
+                    offset = vt[f];
+                } else if (offset != vt[f]) {
+                    offset = AMBIGUOUS;
+                    break;
+                }
+            }
+            // null is an okay return value; we could in principle compile code accessing a type for
+            // which we don't have an allocation
+            if (offset != -1) {
+                unique_offsets.put(e.getKey(), offset);
+            }
+        }
+    }
+
+    public void setProfile(AccessProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * With a profile, the share of profiled field access executions at sites this pass resolved,
+     * else -1.
+     */
+    public double profiledCoverage() {
+        long total = resolved_executions + unresolved_executions;
+        return profile == null || total == 0 ? -1 : (double)resolved_executions / total;
+    }
+
+    // Tally a site against the profile, and describe how hot it was
+    private String tally(IRNode node, String field, boolean resolved) {
+        if (profile == null || !profile.matches(node.getId(), field)) {
+            return "";
+        }
+        long n = profile.siteCount(node.getId());
+        if (resolved) {
+            resolved_executions += n;
+        } else {
+            unresolved_executions += n;
+        }
+        return " ("+n+" executions)";
     }
 
     @Override
@@ -103,83 +162,69 @@ public final class FieldAccessOptimizer extends IRTransformer {
         throw new IllegalArgumentException("FieldAccessOptimizer should not see already-optimized field accesses!");
     }
 
-    private int predict_box_ptr_offset(ObjectType t, String f) {
-        // TODO: At least partially memoize these results.  If f only occurs in one vtable, then we
-        // should cache it instead of recomputing.  If it occurs in multiple, then we should at
-        // least cache that fact.
-        Set<int[]> vtables_with_f = vtables_with_field.get(f);
-        // null is an okay return value; we could in principle compile code accessing a type for
-        // which we don't have an allocation
-        if (vtables_with_f == null || vtables_with_f.size() < 1) {
-            System.err.println("Found 0 vtables with field "+f);
+    int predict_box_ptr_offset(ObjectType t, String f) {
+        Integer offset = unique_offsets.get(f);
+        if (offset == null) {
+            if (debug) {
+                System.err.println("Found 0 vtables with field "+f);
+            }
             return -1;
         }
-        boolean found = false;
-        boolean multiple = false;
-        int ptr_offset = 0;
-        for (int[] vt : vtables_with_f) {
-            if (found) {
-                if (ptr_offset != vt[field_codes.indexOf(f)]) {
-                    System.err.println("Found (at least) offsets for ["+f+"] at "+ptr_offset+" and "+vt[field_codes.indexOf(f)]);
-                    //return -1; // multiple offsets for field f
-                    multiple = true;
-                }
-            } else {
-                found = true;
-                ptr_offset = vt[field_codes.indexOf(f)];
-            }
+        if (offset != AMBIGUOUS) {
+            return offset;
         }
         // We found multiple vtables with the field we're trying to optimize
-        if (multiple) {
+        Map<Set<String>, Integer> by_receiver = disambiguated.get(f);
+        if (by_receiver == null) {
+            by_receiver = new HashMap<>();
+            disambiguated.put(f, by_receiver);
+        }
+        Set<String> props = new HashSet<>(t.propertyNames());
+        offset = by_receiver.get(props);
+        if (offset == null) {
+            offset = disambiguate(props, f);
+            by_receiver.put(props, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * The offset of f in the vtables that have every property of the receiver, if they agree;
+     * the receiver can't have any other vtable.
+     */
+    private int disambiguate(Set<String> props, String f) {
+        if (debug) {
             System.err.println("Trying to disambiguate offsets based on co-occurrence of fields with ["+f+"]...");
-            Set<int[]> candidates = new HashSet<>();
-            Set<int[]> removals = new HashSet<>();
-            // candidates will (initially) hold all vtables containing f
-            candidates.addAll(vtables_with_f);
-            // For each property in the object type we have for the receiver, remove any candidate vtables
-            // missing that property
-            for (String curprop : t.propertyNames()) {
-                if (curprop.equals(f))
-                    continue;
-                int curprop_code = field_codes.indexOf(curprop);
-                for (int[] vt : candidates) {
-                    if (vt[curprop_code] == -1) {
-                        System.err.println("-- Removing candidate with property ["+f+"] but no property ["+curprop+"]");
-                        removals.add(vt);
-                    } else {
-                        System.err.println("== Candidate has property ["+f+"] AND ["+curprop+"]");
-                    }
-                }
-                candidates.removeAll(removals);
-                removals.clear();
-                if (candidates.size() == 1)
-                    break;
+        }
+        int f_code = field_codes.indexOf(f);
+        int[] prop_codes = new int[props.size()];
+        int nprops = 0;
+        for (String curprop : props) {
+            if (!curprop.equals(f)) {
+                prop_codes[nprops++] = field_codes.indexOf(curprop);
             }
-            // If we've narrowed it down to one, then we win!
-            if (candidates.size() == 1) {
-                System.err.println("SUCCESS! Minimized candidate offsets for ["+f+"]");
-                for (int[] vt : candidates) {
-                    return vt[field_codes.indexOf(f)];
-                }
-            } else {
-                // iterate through the remaining candidates hoping that with fewer vtables in play,
-                // it's more likely the vtables we haven't ruled out agree on the physicall field
-                // offset
-                found = false;
-                multiple = false;
-                for (int[] vt : candidates) {
-                    if (found) {
-                        if (ptr_offset != vt[field_codes.indexOf(f)]) {
-                            System.err.println("FAILED: Found (at least) offsets for ["+f+"] at "+ptr_offset+" and "+vt[field_codes.indexOf(f)]);
-                            return -1; // multiple offsets for field f
-                        }
-                    } else {
-                        found = true;
-                        ptr_offset = vt[field_codes.indexOf(f)];
-                    }
+        }
+        int ptr_offset = -1;
+        for (int[] vt : vtables_with_field.get(f)) {
+            boolean candidate = true;
+            for (int i = 0; i < nprops && candidate; i++) {
+                candidate = vt[prop_codes[i]] != -1;
+            }
+            if (!candidate) {
+                continue;
+            }
+            if (ptr_offset == -1) {
+                ptr_offset = vt[f_code];
+            } else if (ptr_offset != vt[f_code]) {
+                if (debug) {
+                    System.err.println("FAILED: Found (at least) offsets for ["+f+"] at "+ptr_offset+" and "+vt[f_code]);
                 }
+                return -1; // multiple offsets for field f
             }
-
+        }
+        if (debug) {
+            System.err.println(ptr_offset == -1 ? "FAILED: No vtable with ["+f+"] has all receiver properties"
+                                                : "SUCCESS! Minimized candidate offsets for ["+f+"]");
         }
         return ptr_offset;
     }
@@ -191,15 +236,19 @@ public final class FieldAccessOptimizer extends IRTransformer {
         }
         ObjectType t = (ObjectType)node.getObject().getType();
         int box_ptr_offset = predict_box_ptr_offset(t, node.getField());
+        String executions = tally(node, node.getField(), box_ptr_offset != -1);
         if (box_ptr_offset != -1) {
             PredictedFieldRead n = mkPredictedFieldRead(node.getObject(), node.getField(), box_ptr_offset);
             n.setType(node.getType());
+            n.inheritId(node);
             if (t.hasOwnProperty(node.getField())) {
                 n.setDirect();
             }
             return n;
         } else {
-            System.err.println("Field access opt failed: "+node.toSource(0));
+            if (debug) {
+                System.err.println("Field access opt failed"+executions+": "+node.toSource(0));
+            }
             return super.visitFieldRead(node);
         }
     }
@@ -211,14 +260,18 @@ public final class FieldAccessOptimizer extends IRTransformer {
         }
         ObjectType t = (ObjectType)node.getObject().getType();
         int box_ptr_offset = predict_box_ptr_offset(t, node.getField());
+        String executions = tally(node, node.getField(), box_ptr_offset != -1);
         if (box_ptr_offset != -1) {
             IRNode n = mkPredictedFieldAssignment(node.getObject(), node.getField(), box_ptr_offset,
                                                   node.getOperator(),
                                                   node.getValue().accept(this).asExpression());
             n.setType(node.getType());
+            n.inheritId(node);
             return n;
         } else {
-            System.err.println("Field write opt failed: "+node.toSource(0));
+            if (debug) {
+                System.err.println("Field write opt failed"+executions+": "+node.toSource(0));
+            }
             return super.visitFieldAssignment(node);
         }
     }
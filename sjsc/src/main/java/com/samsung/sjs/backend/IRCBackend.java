@@ -51,6 +51,10 @@ public final class IRCBackend extends CBackend {
     // TODO: Eventually generalize to Map<String,Type> to handle float shifting
     private Set<String> live_tmp_vars;
     private ModuleSystem modsys;
+    // With --Xinline-caches, a description of each field access site with a cache, by cache index
+    private List<String> field_cache_sites;
+    // With --instrument, the profile description of each counted site, by counter index
+    private List<String> profile_sites;
 
     private CompilerOptions options;
 
@@ -61,7 +65,20 @@ public final class IRCBackend extends CBackend {
                     FFILinkage ffi,
                     JSEnvironment env,
                     ModuleSystem modsys) {
-        super(new TypeTagSerializer(m));
+        this(r, opts, m, ffi, env, modsys, PhysicalLayout.sequential(m));
+    }
+
+    /**
+     * @param layout the layout the {@link IRVTablePass} used, which the type tags must agree with
+     */
+    public IRCBackend(Script r,
+                    CompilerOptions opts,
+                    IRFieldCollector.FieldMapping m,
+                    FFILinkage ffi,
+                    JSEnvironment env,
+                    ModuleSystem modsys,
+                    PhysicalLayout layout) {
+        super(new TypeTagSerializer(m, layout));
         program = r;
         this.debug = opts.debug();
         this.options = opts;
@@ -72,6 +89,8 @@ public final class IRCBackend extends CBackend {
         this.ffi = ffi;
         this.toplevel = env;
         live_tmp_vars = new HashSet<>();
+        field_cache_sites = new ArrayList<>();
+        profile_sites = new ArrayList<>();
         slowgen = new SlowPathGenerator(tts, m);
         this.modsys = modsys;
     }
@@ -104,6 +123,129 @@ public final class IRCBackend extends CBackend {
         return vd;
     }
 
+    /**
+     * Emit the vtables of this compilation packed into one array, ___vtables, by row
+     * displacement (see {@link CompressedVTables}): the entries, then the check row, with each
+     * __vtable_id_N defined as a pointer to its base.  Tables exported to the runtime by name
+     * stay separate arrays.
+     */
+    private void generateCompressedVTables(com.samsung.sjs.backend.asts.c.CompoundStatement vtables) {
+        int[][] maps = new int[next_vtable_id][];
+        for (Set<Pair<int[],Integer>> bucket : vtables_by_hash.values()) {
+            for (Pair<int[],Integer> vt_and_id : bucket) {
+                maps[vt_and_id.getValue()] = vt_and_id.getKey();
+            }
+        }
+        CompressedVTables packed = new CompressedVTables(maps, field_codes.size());
+        CArrayLiteral arr = new CArrayLiteral();
+        for (int x : packed.entries()) {
+            arr.addElement(new com.samsung.sjs.backend.asts.c.IntLiteral(x));
+        }
+        for (int x : packed.checks()) {
+            arr.addElement(new com.samsung.sjs.backend.asts.c.IntLiteral(x));
+        }
+        com.samsung.sjs.backend.asts.c.VariableDeclaration vd =
+            new com.samsung.sjs.backend.asts.c.VariableDeclaration(false, new CInteger());
+        vd.addVariable(new Variable("___vtables[]"), arr);
+        vtables.addStatement(vd);
+        vtables.addStatement(new com.samsung.sjs.backend.asts.c.ExpressionStatement(
+                    new InlineCCode("const int ___vtables_length = "+packed.length())));
+        for (int i = 0; i < maps.length; i++) {
+            vtables.addStatement(new DefineDirective("__vtable_id_"+i+"\t(___vtables + "+packed.base(i)+")"));
+        }
+        if (debug) {
+            int dense = maps.length * field_codes.size();
+            System.err.println("Packed "+maps.length+" vtables of "+field_codes.size()+" entries ("+dense
+                               +" ints) into "+(2 * packed.length())+" ints");
+        }
+    }
+
+    /**
+     * With --Xinline-caches, a new inline cache for an access to field at an unpredicted offset,
+     * as a field_cache_t*; otherwise null.
+     */
+    private String newFieldCache(String field) {
+        if (!options.inlineCaches()) {
+            return null;
+        }
+        String fn = functions.isEmpty() ? "<toplevel>" : functions.peek().getName();
+        field_cache_sites.add(field+" in "+fn);
+        return "&___field_caches["+(field_cache_sites.size() - 1)+"]";
+    }
+
+    /**
+     * Emit the inline caches of this compilation, zeroed, and with --Xinline-cache-stats, a
+     * destructor reporting each site's hits and misses.
+     */
+    private void generateFieldCaches(com.samsung.sjs.backend.asts.c.CompoundStatement caches) {
+        int n = field_cache_sites.size();
+        if (n == 0) {
+            return;
+        }
+        caches.addStatement(new com.samsung.sjs.backend.asts.c.ExpressionStatement(
+                    new InlineCCode("field_cache_t ___field_caches["+n+"]")));
+        if (options.inlineCacheStats()) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("const char* ___field_cache_sites[] = {");
+            for (int i = 0; i < n; i++) {
+                sb.append("\n\t\"").append(field_cache_sites.get(i)).append("\"");
+                if (i != n - 1) {
+                    sb.append(",");
+                }
+            }
+            sb.append("\n}");
+            caches.addStatement(new com.samsung.sjs.backend.asts.c.ExpressionStatement(new InlineCCode(sb.toString())));
+            caches.addStatement(new com.samsung.sjs.backend.asts.c.ExpressionStatement(new InlineCCode(
+                    "__attribute__((destructor)) static void ___report_field_caches(void) {\n"
+                    +"\treport_field_caches(___field_caches, ___field_cache_sites, "+n+");\n}")));
+        }
+        if (debug) {
+            System.err.println("Generated "+n+" inline caches");
+        }
+    }
+
+    /**
+     * With --instrument, e preceded by the increment of a new counter for the site node, of the
+     * given kind and name (see {@link AccessProfile}); otherwise e.
+     */
+    private com.samsung.sjs.backend.asts.c.Expression countSite(String kind, IRNode node, String name,
+                                                                 com.samsung.sjs.backend.asts.c.Expression e) {
+        if (!options.instrument()) {
+            return e;
+        }
+        profile_sites.add(AccessProfile.site(kind, node.getId(), name));
+        return new BinaryInfixExpression(new InlineCCode("___site_counts["+(profile_sites.size() - 1)+"]++"), ",", e);
+    }
+
+    /**
+     * Emit the site counters of this compilation, and a destructor appending them to the profile
+     * (see dump_site_counts in runtime.h).
+     */
+    private void generateSiteCounts(com.samsung.sjs.backend.asts.c.CompoundStatement counters) {
+        int n = profile_sites.size();
+        if (n == 0) {
+            return;
+        }
+        counters.addStatement(new com.samsung.sjs.backend.asts.c.ExpressionStatement(
+                    new InlineCCode("uint64_t ___site_counts["+n+"]")));
+        StringBuilder sb = new StringBuilder();
+        sb.append("const char* ___profile_sites[] = {");
+        for (int i = 0; i < n; i++) {
+            sb.append("\n\t\"").append(profile_sites.get(i).replace("\t", "\\t")).append("\"");
+            if (i != n - 1) {
+                sb.append(",");
+            }
+        }
+        sb.append("\n}");
+        counters.addStatement(new com.samsung.sjs.backend.asts.c.ExpressionStatement(new InlineCCode(sb.toString())));
+        counters.addStatement(new com.samsung.sjs.backend.asts.c.ExpressionStatement(new InlineCCode(
+                "__attribute__((destructor)) static void ___dump_site_counts(void) {\n"
+                +"\tdump_site_counts(___profile_sites, ___site_counts, "+n+");\n}")));
+        if (debug) {
+            System.err.println("Instrumented "+n+" allocation and field access sites");
+        }
+    }
+
     public static void exportPropertyOffsets(CompilationUnit ccode, IRFieldCollector.FieldMapping m) {
         String[] names_by_id = new String[m.size()];
         for (Map.Entry<String,Integer> kv : m) {
@@ -125,6 +267,12 @@ public final class IRCBackend extends CBackend {
 
     public CompilationUnit compile() {
         CompilationUnit ccode = new CompilationUnit();
+        if (options.inlineCacheStats()) {
+            ccode.addStatement(new DefineDirective("SJS_IC_PROFILE"));
+        }
+        if (options.instrument()) {
+            ccode.addStatement(new DefineDirective("SJS_PROFILE_INSTRUMENT"));
+        }
         ccode.addStatement(new IncludeDirective("runtime.h"));
         ccode.addStatement(new IncludeDirective("ffi.h"));
         ccode.addStatement(new IncludeDirective("globals.h"));
@@ -150,6 +298,12 @@ public final class IRCBackend extends CBackend {
         com.samsung.sjs.backend.asts.c.CompoundStatement vtables =
             new com.samsung.sjs.backend.asts.c.CompoundStatement();
         ccode.addStatement(vtables);
+        com.samsung.sjs.backend.asts.c.CompoundStatement caches =
+            new com.samsung.sjs.backend.asts.c.CompoundStatement();
+        ccode.addStatement(caches);
+        com.samsung.sjs.backend.asts.c.CompoundStatement counters =
+            new com.samsung.sjs.backend.asts.c.CompoundStatement();
+        ccode.addStatement(counters);
 
         ccode.addStatement(new IncludeDirective("array.h"));
         BackPatchDeclarations bpd = new BackPatchDeclarations();
@@ -213,23 +367,30 @@ public final class IRCBackend extends CBackend {
         ccode.exportString("} // extern C");
         ccode.exportString("#endif // __cplusplus");
 
-        for (Map.Entry<Integer,Set<Pair<int[],Integer>>> entry : vtables_by_hash.entrySet()) {
-            for (Pair<int[],Integer> vt_and_id : entry.getValue()) {
-                int[] vt = vt_and_id.getKey();
-                int i = vt_and_id.getValue();
-                CArrayLiteral arr = new CArrayLiteral();
-                for (int x = 0; x < vt.length; x++) {
-                    arr.addElement(new com.samsung.sjs.backend.asts.c.IntLiteral(vt[x]));
+        if (options.compressedVTables()) {
+            generateCompressedVTables(vtables);
+        } else {
+            for (Map.Entry<Integer,Set<Pair<int[],Integer>>> entry : vtables_by_hash.entrySet()) {
+                for (Pair<int[],Integer> vt_and_id : entry.getValue()) {
+                    int[] vt = vt_and_id.getKey();
+                    int i = vt_and_id.getValue();
+                    CArrayLiteral arr = new CArrayLiteral();
+                    for (int x = 0; x < vt.length; x++) {
+                        arr.addElement(new com.samsung.sjs.backend.asts.c.IntLiteral(vt[x]));
+                    }
+                    // TODO: Refactor so we're not doing this hideous "int <name>[n] = " gen here
+                    com.samsung.sjs.backend.asts.c.VariableDeclaration vd =
+                        //new com.samsung.sjs.backend.asts.c.VariableDeclaration(false, new VTablePseudoType());
+                        new com.samsung.sjs.backend.asts.c.VariableDeclaration(false, new CInteger());
+                    vd.addVariable(new Variable("__vtable_id_"+i+"[]"), arr);
+                    vtables.addStatement(vd);
                 }
-                // TODO: Refactor so we're not doing this hideous "int <name>[n] = " gen here
-                com.samsung.sjs.backend.asts.c.VariableDeclaration vd =
-                    //new com.samsung.sjs.backend.asts.c.VariableDeclaration(false, new VTablePseudoType());
-                    new com.samsung.sjs.backend.asts.c.VariableDeclaration(false, new CInteger());
-                vd.addVariable(new Variable("__vtable_id_"+i+"[]"), arr);
-                vtables.addStatement(vd);
             }
         }
 
+        generateFieldCaches(caches);
+        generateSiteCounts(counters);
+
         for (String s : tts.getForwardDecls()) {
             strlits.addExpressionStatement(new InlineCCode(s));
         }
@@ -667,12 +828,16 @@ public final class IRCBackend extends CBackend {
         // TODO: return value shifting for floats in interop
         if (left instanceof FieldRead) {
             FieldRead fr = (FieldRead)left;
+            String cache = newFieldCache(fr.getField());
             com.samsung.sjs.backend.asts.c.FunctionCall f =
-                new com.samsung.sjs.backend.asts.c.FunctionCall("FIELD_READ_WRITABLE");
+                new com.samsung.sjs.backend.asts.c.FunctionCall(cache != null ? "CACHED_FIELD_READ_WRITABLE" : "FIELD_READ_WRITABLE");
             com.samsung.sjs.backend.asts.c.Expression obj = fr.getObject().accept(this).asExpression().inType(fr.getObject().getType());
             f.addActualArgument(new CastExpression(new ObjectPseudoType(), obj));
             f.addActualArgument(new com.samsung.sjs.backend.asts.c.IntLiteral(
                     field_codes.indexOf(fr.getField())));
+            if (cache != null) {
+                f.addActualArgument(new InlineCCode(cache));
+            }
             Type rhs_type = null;
             if (left.getType() instanceof FloatType && right.getType() instanceof IntegerType) {
                 rhs_type = Types.mkFloat();
@@ -768,7 +933,8 @@ public final class IRCBackend extends CBackend {
         }
         FieldRead fr = new FieldRead(node.getObject(), node.getField());
         fr.setType(((ObjectType)node.getObject().getType()).findMemberType(node.getField()));
-        return visitAssignment(fr, node.getOperator(), node.getValue()).asValue(fr.getType());
+        return countSite(AccessProfile.WRITE, node, node.getField(),
+                         visitAssignment(fr, node.getOperator(), node.getValue()).asValue(fr.getType()));
     }
     @Override
     public com.samsung.sjs.backend.asts.c.Expression visitPredictedFieldAssignment(PredictedFieldAssignment node) {
@@ -822,7 +988,8 @@ public final class IRCBackend extends CBackend {
         //    return new com.samsung.sjs.backend.asts.c.Assignment(lhs, op, val);
         //}
         // TODO: Inline this behavior as well?  Or a general field-write specific variant
-        return visitAssignment(fr, node.getOperator(), node.getValue());
+        return countSite(AccessProfile.WRITE, node, node.getField(),
+                         visitAssignment(fr, node.getOperator(), node.getValue()));
     }
 
     @Override
@@ -1057,7 +1224,18 @@ public final class IRCBackend extends CBackend {
             ctor_call.addActualArgument(intfloat_coercion ? coerceIntToFloat(carg) : carg);
             argnum++;
         }
-        return new com.samsung.sjs.backend.asts.c.BinaryInfixExpression(asgn, ",", ctor_call);
+        return countSite(AccessProfile.ALLOC, node, AccessProfile.layoutName(PhysicalLayout.defaultOrder(ty)),
+                         new com.samsung.sjs.backend.asts.c.BinaryInfixExpression(asgn, ",", ctor_call));
+    }
+
+    @Override
+    public CNode visitAllocObjectLiteral(AllocObjectLiteral node) {
+        List<String> names = new ArrayList<>();
+        for (AllocObjectLiteral.TypedSlot slot : node) {
+            names.add(slot.name);
+        }
+        return countSite(AccessProfile.ALLOC, node, AccessProfile.layoutName(names),
+                         super.visitAllocObjectLiteral(node).asExpression());
     }
 
     @Override
@@ -1267,6 +1445,7 @@ public final class IRCBackend extends CBackend {
         // Then, generate a cast expression casting the field read to the correct type
         MemberRead mr = new MemberRead(o, c_slot_type, slot, field_codes.indexOf(slot));
         mr.setDoNotCast();
+        mr.setCache(newFieldCache(slot));
         com.samsung.sjs.backend.asts.c.Expression method_lookup = mr.inType(slot_type);
 
         // And call the method lookup
@@ -1351,14 +1530,19 @@ public final class IRCBackend extends CBackend {
                 new com.samsung.sjs.backend.asts.c.FunctionCall(intrinsic);
             intr.addActualArgument(f); // relies on FIELD_READ_WRITABLE being an lval
             // these macros don't return value_ts
-            return new ValueCoercion(fr.getType(), intr, false); // TODO: float shifting in interop
+            return countSite(AccessProfile.WRITE, fr, fr.getField(),
+                             new ValueCoercion(fr.getType(), intr, false)); // TODO: float shifting in interop
         } else if (mut && node.getExpression() instanceof FieldRead) {
             FieldRead fr = (FieldRead)node.getExpression();
+            String cache = newFieldCache(fr.getField());
             com.samsung.sjs.backend.asts.c.FunctionCall f =
-                new com.samsung.sjs.backend.asts.c.FunctionCall("FIELD_READ_WRITABLE");
+                new com.samsung.sjs.backend.asts.c.FunctionCall(cache != null ? "CACHED_FIELD_READ_WRITABLE" : "FIELD_READ_WRITABLE");
             com.samsung.sjs.backend.asts.c.Expression oexpr = fr.getObject().accept(this).asExpression().inType(fr.getObject().getType());
             f.addActualArgument(new CastExpression(new ObjectPseudoType(), oexpr));
             f.addActualArgument(new InlineCCode(field_codes.indexOf(fr.getField())+" /* "+fr.getField()+" */"));
+            if (cache != null) {
+                f.addActualArgument(new InlineCCode(cache));
+            }
             String op = node.getOp();
             String intrinsic = "UNARY_"+(node.isPostfix() ? "POST" : "PRE")+(op.equals("++") ? "_INC" : "_DEC");
             if (node.getExpression().getType() instanceof FloatType) {
@@ -1368,7 +1552,8 @@ public final class IRCBackend extends CBackend {
                 new com.samsung.sjs.backend.asts.c.FunctionCall(intrinsic);
             intr.addActualArgument(f); // relies on FIELD_READ_WRITABLE being an lval
             // these macros don't return value_ts
-            return new ValueCoercion(fr.getType(), intr, false); // TODO: float shifting in interop
+            return countSite(AccessProfile.WRITE, fr, fr.getField(),
+                             new ValueCoercion(fr.getType(), intr, false)); // TODO: float shifting in interop
         } else if (mut && (node.getExpression().isVar() || (node.getExpression() instanceof ArrayIndex && ((ArrayIndex)node.getExpression()).getArray().getType() instanceof EnvironmentType))) {
             String op = node.getOp();
             String intrinsic = "UNARY_"+(node.isPostfix() ? "POST" : "PRE")+(op.equals("++") ? "_INC" : "_DEC");
@@ -1434,7 +1619,8 @@ public final class IRCBackend extends CBackend {
         if (((ObjectType)node.getObject().getType()).getProperty(field).isRW()) {
             mr.setWritable();
         }
-        return mr;
+        mr.setCache(newFieldCache(field));
+        return countSite(AccessProfile.READ, node, field, mr);
     }
 
     @Override
@@ -1452,7 +1638,7 @@ public final class IRCBackend extends CBackend {
             mr.setDirect();
         }
         mr.setDoNotCast();
-        return mr;
+        return countSite(AccessProfile.READ, node, field, mr);
     }
 
     @Override
@@ -43,10 +43,21 @@ public class IRVTablePass extends VoidIRVisitor {
     private IRFieldCollector.FieldMapping field_codes;
     private Map<String, Set<int[]>> vtables_by_field = new HashMap<>();
     private Set<PropertyContainer> visited;
+    private PhysicalLayout layout;
 
     public IRVTablePass(CompilerOptions opts, IRFieldCollector.FieldMapping field_codes, FFILinkage ffi) {
+        this(opts, field_codes, ffi, PhysicalLayout.sequential(field_codes));
+    }
+
+    /**
+     * Generate maps according to layout, e.g., as solved by
+     * {@link PhysicalLayoutConstraintGathering#getLayout()}.  The FFI maps are fixed regardless.
+     */
+    public IRVTablePass(CompilerOptions opts, IRFieldCollector.FieldMapping field_codes, FFILinkage ffi,
+                        PhysicalLayout layout) {
         this.debug = opts.debug();
         this.field_codes = field_codes;
+        this.layout = layout;
         // populate native vtables:
         for (Map.Entry<String,List<String>> table_req : ffi.getTablesToGenerate()) {
             generateIndirectionMap(table_req.getValue());
@@ -89,22 +100,14 @@ public class IRVTablePass extends VoidIRVisitor {
     }
 
     protected int[] generateIndirectionMap(AllocObjectLiteral node) {
-        int[] map = new int[field_codes.size()];
-        java.util.Arrays.fill(map, -1);
-        int nextoffset = 0;
+        List<String> names = new ArrayList<>();
         for (AllocObjectLiteral.TypedSlot slot : node) {
-            String name = slot.name;
-            map[field_codes.indexOf(name)] = nextoffset++;
-            if (vtables_by_field.containsKey(name)) {
-                logger.debug("Adding vtable for {}", name);
-                Set<int[]> vts = vtables_by_field.get(name);
-                vts.add(map);
-            } else {
-                logger.debug("Adding vtable for {}", name);
-                Set<int[]> vts = new HashSet<>();
-                vts.add(map);
-                vtables_by_field.put(name, vts);
-            }
+            names.add(slot.name);
+        }
+        int[] map = layout.map(names, 0);
+        for (String name : names) {
+            logger.debug("Adding vtable for {}", name);
+            addVTable(name, map);
         }
         if (debug) {
             System.err.print(">>> For object literal ["+node.toSource(0)+"], object map: ");
@@ -129,64 +132,24 @@ public class IRVTablePass extends VoidIRVisitor {
             }
             // TODO(cns): how do FFI field names get collected?
             vt[field_codes.indexOf(prop)] = physical_index++;
-            if (vtables_by_field.containsKey(prop)) {
-                Set<int[]> vts = vtables_by_field.get(prop);
-                vts.add(vt);
-            } else {
-                Set<int[]> vts = new HashSet<>();
-                vts.add(vt);
-                vtables_by_field.put(prop, vts);
-            }
+            addVTable(prop, vt);
         }
         return vt;
     }
 
     protected int[] generateIndirectionMap(PropertyContainer ty) {
         logger.debug("Generating indirection map for: {}", ty);
-        int[] map = new int[field_codes.size()];
-        java.util.Arrays.fill(map, -1);
-        int nextoffset = 0;
-        Stack<PropertyContainer> st = new Stack<>();
-        // Push all levels of the prototype heirarchy onto the stack, with the top of the heirarchy
-        // on top of the stack.  Then add all properties in order, which (tends to) put inherited
-        // properties earlier in the object.
+        // The default order puts the runtime-assumed C++ interop fields first, then inherited
+        // properties before own ones, which (tends to) put inherited properties earlier in the
+        // object; the layout may then move properties to their preferred offsets.
         // TODO: If we only use the inherited but not-overridden properties here, we'll often screw
         // up the all-F-at-same-offset optimization for overridden properties
         // TODO: If this logic changes for ObjectTypes (i.e., will produce a different property
-        // order), also update the unfortunately-duplicated logic in
-        // TypeTagSerializer.memoizeObject.
-        List<Property> props = null;
-        if (ty instanceof ObjectType) {
-            ObjectType tyo = (ObjectType)ty;
-            props = new ArrayList<>(tyo.inheritedProperties());
-            for (Property p : tyo.ownProperties()) {
-                props.add(p);
-            }
-        } else {
-            props = ty.properties();
-        }
-        // Fix runtime-assumed offsets --- this is a matter of correctness, not optimization
-        if (ty.hasProperty("_____cpp_receiver")) {
-            map[field_codes.indexOf("_____cpp_receiver")] = nextoffset++;
-        }
-        if (ty.hasProperty("_____gen_cpp_proxy")) {
-            map[field_codes.indexOf("_____gen_cpp_proxy")] = nextoffset++;
-        }
-        for (Property prop : props) {
-            int off = field_codes.indexOf(prop.getName());
-            // If a property is inherited, or already fixed, we only want to keep the first offset chosen
-            if (map[off] == -1) {
-                logger.debug("Placing property [{}] at offset: {}", prop.getName(), nextoffset);
-                map[off] = nextoffset++;
-                if (vtables_by_field.containsKey(prop.getName())) {
-                    Set<int[]> vts = vtables_by_field.get(prop.getName());
-                    vts.add(map);
-                } else {
-                    Set<int[]> vts = new HashSet<>();
-                    vts.add(map);
-                    vtables_by_field.put(prop.getName(), vts);
-                }
-            }
+        // order), also check TypeTagSerializer.memoizeObject, which orders tags by this map.
+        int[] map = layout.map(ty);
+        for (String name : PhysicalLayout.defaultOrder(ty)) {
+            logger.debug("Placing property [{}] at offset: {}", name, map[field_codes.indexOf(name)]);
+            addVTable(name, map);
         }
         if (debug) {
             System.err.print(">>> For object type ["+ty.toString()+"], object map: ");
@@ -198,6 +161,15 @@ public class IRVTablePass extends VoidIRVisitor {
         return map;
     }
 
+    private void addVTable(String name, int[] map) {
+        Set<int[]> vts = vtables_by_field.get(name);
+        if (vts == null) {
+            vts = new HashSet<>();
+            vtables_by_field.put(name, vts);
+        }
+        vts.add(map);
+    }
+
     @Override
     public Void visitAllocObjectLiteral(AllocObjectLiteral node) {
         node.setVTable(generateIndirectionMap(node));
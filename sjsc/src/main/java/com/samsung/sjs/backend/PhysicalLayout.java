@@ -0,0 +1,173 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * The physical slot of each property in each object map the compiler generates.
+ *
+ * <p>An object with n distinct properties always occupies slots [0, n); a layout only chooses the
+ * permutation.  Each property may have a preferred slot, chosen globally by
+ * {@link PhysicalLayoutConstraintGathering} so that a property lands at the same offset in every
+ * map containing it, which is what {@link FieldAccessOptimizer} needs to resolve an access
+ * statically.  A property is placed at its preferred slot whenever that slot exists and is still
+ * free, and otherwise takes the first free slot, in the map's default order or, given a ranking
+ * of the properties (e.g., by profiled accesses), hottest first.
+ *
+ * <p>This is shared by {@link IRVTablePass}, which generates the maps, and the type tags, whose
+ * property order dynamic-to-typed coercion uses as the physical order; the two must agree.
+ */
+package com.samsung.sjs.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.samsung.sjs.types.ObjectType;
+import com.samsung.sjs.types.Property;
+import com.samsung.sjs.types.PropertyContainer;
+
+public final class PhysicalLayout {
+
+    private final IRFieldCollector.FieldMapping field_codes;
+    private final int[] preferred;
+    private final int[] rank;
+
+    /**
+     * @param preferred the preferred slot of each property, by field code, or -1 for none
+     */
+    public PhysicalLayout(IRFieldCollector.FieldMapping field_codes, int[] preferred) {
+        this(field_codes, preferred, new int[field_codes.size()]);
+    }
+
+    /**
+     * @param rank the order, by field code, in which properties without their preferred slot take
+     *             the free ones; ties keep default order
+     */
+    public PhysicalLayout(IRFieldCollector.FieldMapping field_codes, int[] preferred, int[] rank) {
+        assert (preferred.length == field_codes.size());
+        assert (rank.length == field_codes.size());
+        this.field_codes = field_codes;
+        this.preferred = preferred;
+        this.rank = rank;
+    }
+
+    /** Every property in the order the map lists it, as without layout optimization */
+    public static PhysicalLayout sequential(IRFieldCollector.FieldMapping field_codes) {
+        int[] none = new int[field_codes.size()];
+        Arrays.fill(none, -1);
+        return new PhysicalLayout(field_codes, none);
+    }
+
+    /** The preferred slot of property f, or -1 */
+    public int preferredOffset(String f) {
+        return preferred[field_codes.indexOf(f)];
+    }
+
+    /**
+     * The properties of an object type in their default order: the runtime-assumed C++ interop
+     * fields first, then inherited properties before own ones, which (tends to) put inherited
+     * properties earlier in the object.
+     */
+    public static List<String> defaultOrder(PropertyContainer ty) {
+        List<String> order = new ArrayList<>();
+        for (String fixed : runtimeFixed(ty)) {
+            order.add(fixed);
+        }
+        List<Property> props = null;
+        if (ty instanceof ObjectType) {
+            ObjectType tyo = (ObjectType)ty;
+            props = new ArrayList<>(tyo.inheritedProperties());
+            props.addAll(tyo.ownProperties());
+        } else {
+            props = ty.properties();
+        }
+        for (Property p : props) {
+            // If a property is inherited, or already fixed, we only want to keep the first offset chosen
+            if (!order.contains(p.getName())) {
+                order.add(p.getName());
+            }
+        }
+        return order;
+    }
+
+    /**
+     * The fields of ty whose offsets the runtime assumes, in order; this is a matter of
+     * correctness, not optimization.
+     */
+    public static List<String> runtimeFixed(PropertyContainer ty) {
+        List<String> fixed = new ArrayList<>();
+        if (ty.hasProperty("_____cpp_receiver")) {
+            fixed.add("_____cpp_receiver");
+        }
+        if (ty.hasProperty("_____gen_cpp_proxy")) {
+            fixed.add("_____gen_cpp_proxy");
+        }
+        return fixed;
+    }
+
+    /**
+     * The slot of each of props, which are distinct and in default order.  The first nfixed keep
+     * their position.
+     */
+    public int[] offsets(List<String> props, int nfixed) {
+        int n = props.size();
+        int[] offsets = new int[n];
+        Arrays.fill(offsets, -1);
+        boolean[] taken = new boolean[n];
+        for (int i = 0; i < nfixed; i++) {
+            offsets[i] = i;
+            taken[i] = true;
+        }
+        for (int i = nfixed; i < n; i++) {
+            int p = preferred[field_codes.indexOf(props.get(i))];
+            if (p >= 0 && p < n && !taken[p]) {
+                offsets[i] = p;
+                taken[p] = true;
+            }
+        }
+        List<Integer> rest = new ArrayList<>();
+        for (int i = nfixed; i < n; i++) {
+            rest.add(i);
+        }
+        rest.sort(Comparator.comparingInt((Integer i) -> rank[field_codes.indexOf(props.get(i))]));
+        int next = 0;
+        for (int i : rest) {
+            if (offsets[i] == -1) {
+                while (taken[next]) {
+                    next++;
+                }
+                offsets[i] = next;
+                taken[next] = true;
+            }
+        }
+        return offsets;
+    }
+
+    /** The object map (from field code to slot, else -1) for props; see {@link #offsets} */
+    public int[] map(List<String> props, int nfixed) {
+        int[] map = new int[field_codes.size()];
+        Arrays.fill(map, -1);
+        int[] offsets = offsets(props, nfixed);
+        for (int i = 0; i < offsets.length; i++) {
+            map[field_codes.indexOf(props.get(i))] = offsets[i];
+        }
+        return map;
+    }
+
+    /** The object map for an object type */
+    public int[] map(PropertyContainer ty) {
+        return map(defaultOrder(ty), runtimeFixed(ty).size());
+    }
+}
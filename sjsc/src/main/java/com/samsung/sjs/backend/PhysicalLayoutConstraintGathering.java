@@ -17,6 +17,17 @@
  * A pass to collect data on the sets of vtables that should be generated, so a global optimization
  * problem can be solved to optimize the applicability of the field access optimizations.
  *
+ * <p>Every object map the {@link IRVTablePass} will generate is a constraint: two properties that
+ * co-occur in a map can't share an offset, and a property's offset must exist in the smallest map
+ * containing it.  The FFI maps and the runtime-assumed C++ interop fields fix some offsets
+ * outright.  {@link #getLayout()} picks a preferred offset for as many properties as it can,
+ * greedily, the fixed ones first and then the most accessed, so that each lands at the same
+ * offset in every map containing it; see {@link PhysicalLayout}.
+ *
+ * <p>With a profile (--profile-use), properties are ranked by their executed accesses instead of
+ * their static ones, and then by the objects allocated with them, so the hot ones are aligned
+ * first and, where they can't be, take the lowest free slots.
+ *
  * @author colin.gordon
  */
 package com.samsung.sjs.backend;
@@ -37,56 +48,265 @@ public class PhysicalLayoutConstraintGathering extends VoidIRVisitor {
     private static Logger logger = LoggerFactory.getLogger(PhysicalLayoutConstraintGathering.class);
 
     private IRFieldCollector.FieldMapping field_codes;
-    // For now, we can start by just trying to optimize based on picking a random set of fields to
-    // give up on aligning.  Down the road, we can also accumulate different weighting statistics to
-    // choose to e.g., try really hard to optimizes accesses to 'foo' because that's 30% of all
-    // property accesses in the source, or based on profiling information...
     private int[][] cooccurrence_table;
+    // Static accesses to each property, and with a profile, executed accesses and objects allocated
+    private int[] accesses;
+    private AccessProfile profile;
+    private long[] executions;
+    private long[] allocations;
+    // Ids of the profiled sites visited (function bodies may be visited more than once), and of
+    // those the profile gives another name
+    private Set<Long> profiled_sites;
+    private Set<Long> stale_sites;
+    // Number of compiler-generated maps with each property, and the size of the smallest (0 if none)
+    private int[] occurrences;
+    private int[] min_size;
+    // Offsets dictated by the FFI or runtime, else -1; a property fixed at different offsets in
+    // different maps can't be aligned
+    private int[] fixed_offset;
+    private boolean[] inconsistently_fixed;
     private FFILinkage ffi;
 
+    private PhysicalLayout layout;
+
     public PhysicalLayoutConstraintGathering(CompilerOptions opts, IRFieldCollector.FieldMapping field_codes, FFILinkage ffi) {
         this.field_codes = field_codes;
 
-        cooccurrence_table = new int[field_codes.size()][field_codes.size()];
+        int n = field_codes.size();
+        cooccurrence_table = new int[n][n];
+        accesses = new int[n];
+        executions = new long[n];
+        allocations = new long[n];
+        profiled_sites = new HashSet<>();
+        stale_sites = new HashSet<>();
+        occurrences = new int[n];
+        min_size = new int[n];
+        fixed_offset = new int[n];
+        Arrays.fill(fixed_offset, -1);
+        inconsistently_fixed = new boolean[n];
 
         // The FFI interface defines some vtables that may *not* be modified by the compiler.  It
         // dictates the physical offsets of some properties in some objects that aren't under
         // control of the compiler, and must be accounted for in a solution.
         this.ffi = ffi;
+        for (Map.Entry<String,List<String>> table_req : ffi.getTablesToGenerate()) {
+            List<String> props = table_req.getValue();
+            for (int i = 0; i < props.size(); i++) {
+                fix(props.get(i), i);
+            }
+        }
     }
 
-    protected void processObject(ObjectType t) {
-        // Note that we have the luxury of assuming the writable properties are *exactly* the
-        // properties physically present on the object, though that won't matter until we stop doing
-        // copy-down inheritance...
-        
-        List<Property> props = t.properties();
-        for (Property p1 : props) {
-            for (Property p2 : props) {
-                if (!p1.getName().equals(p2.getName())) {
-                    int off1 = field_codes.indexOf(p1.getName());
-                    int off2 = field_codes.indexOf(p2.getName());
-                    cooccurrence_table[off1][off2]++;
-                    cooccurrence_table[off2][off1]++;
+    /**
+     * Weight properties by the counts of an instrumented run, before gathering.
+     */
+    public void setProfile(AccessProfile profile) {
+        this.profile = profile;
+        for (int f = 0; f < field_codes.size(); f++) {
+            executions[f] = profile.fieldCount(field_codes.nameOf(f));
+        }
+    }
+
+    /** The profiled sites seen whose node id the profile records under a different name */
+    public int staleProfileSites() {
+        return stale_sites.size();
+    }
+
+    /** The sites seen that a profile could have counts for */
+    public int profiledSites() {
+        return profiled_sites.size();
+    }
+
+    private void checkSite(IRNode node, String name) {
+        if (profile != null) {
+            profiled_sites.add(node.getId());
+            if (!profile.matches(node.getId(), name)) {
+                stale_sites.add(node.getId());
+            }
+        }
+    }
+
+    private void fix(String prop, int offset) {
+        int code = field_codes.indexOf(prop);
+        if (fixed_offset[code] == -1) {
+            fixed_offset[code] = offset;
+        } else if (fixed_offset[code] != offset) {
+            inconsistently_fixed[code] = true;
+        }
+    }
+
+    /**
+     * Record a map the vtable pass will generate, for the distinct props in default order, the
+     * first nfixed of which keep their offsets.
+     */
+    protected void processLayout(List<String> props, int nfixed) {
+        processLayout(props, nfixed, 0);
+    }
+
+    /** As {@link #processLayout(List,int)}, for a map that profiled allocations used */
+    protected void processLayout(List<String> props, int nfixed, long allocated) {
+        layout = null;
+        for (String p1 : props) {
+            int off1 = field_codes.indexOf(p1);
+            occurrences[off1]++;
+            allocations[off1] += allocated;
+            if (min_size[off1] == 0 || props.size() < min_size[off1]) {
+                min_size[off1] = props.size();
+            }
+            for (String p2 : props) {
+                if (!p1.equals(p2)) {
+                    cooccurrence_table[off1][field_codes.indexOf(p2)]++;
                 }
             }
         }
+        for (int i = 0; i < nfixed; i++) {
+            fix(props.get(i), i);
+        }
+    }
+
+    protected void processObject(PropertyContainer t) {
+        // Note that we have the luxury of assuming the writable properties are *exactly* the
+        // properties physically present on the object, though that won't matter until we stop doing
+        // copy-down inheritance...
+        processLayout(PhysicalLayout.defaultOrder(t), PhysicalLayout.runtimeFixed(t).size());
     }
 
     @Override
     public Void visitAllocObjectLiteral(AllocObjectLiteral node) {
-        processObject((ObjectType)node.getType());
+        List<String> names = new ArrayList<>();
+        for (AllocObjectLiteral.TypedSlot slot : node) {
+            names.add(slot.name);
+        }
+        processLayout(names, 0, allocations(node, names));
         return super.visitAllocObjectLiteral(node);
     }
 
     @Override
     public Void visitAllocNewObject(AllocNewObject node) {
-        processObject((ObjectType)node.getType());
+        PropertyContainer t = (PropertyContainer)node.getType();
+        List<String> names = PhysicalLayout.defaultOrder(t);
+        processLayout(names, PhysicalLayout.runtimeFixed(t).size(), allocations(node, names));
         return super.visitAllocNewObject(node);
     }
 
+    private long allocations(IRNode node, List<String> names) {
+        if (profile == null) {
+            return 0;
+        }
+        String name = AccessProfile.layoutName(names);
+        checkSite(node, name);
+        return profile.matches(node.getId(), name) ? profile.siteCount(node.getId()) : 0;
+    }
+
+    @Override
+    public Void visitAllocClosure(AllocClosure node) {
+        if (node.getType().isConstructor()) {
+            ConstructorType ctor = ((ConstructorType)node.getType());
+            if (ctor.getPrototype() != null) {
+                processObject((PropertyContainer)ctor.getPrototype());
+            }
+        }
+        return super.visitAllocClosure(node);
+    }
+
+    @Override
+    public Void visitUntyped(UntypedAccess node) {
+        if (node.getType().isObject()) {
+            processObject((ObjectType)node.getType());
+        }
+        return super.visitUntyped(node);
+    }
+
+    @Override
+    public Void visitFieldRead(FieldRead node) {
+        if (node.getObject().getType().isObject()) {
+            accesses[field_codes.indexOf(node.getField())]++;
+            checkSite(node, node.getField());
+        }
+        return super.visitFieldRead(node);
+    }
+
+    @Override
+    public Void visitFieldAssignment(FieldAssignment node) {
+        if (node.getObject().getType().isObject()) {
+            accesses[field_codes.indexOf(node.getField())]++;
+            checkSite(node, node.getField());
+        }
+        return super.visitFieldAssignment(node);
+    }
+
+    /**
+     * The layout solving the constraints gathered so far, computed on first call.
+     */
+    public PhysicalLayout getLayout() {
+        if (layout == null) {
+            layout = solve();
+        }
+        return layout;
+    }
+
     public int[] getVTable(ObjectType t) {
-        // TODO: compute and cache results on first call
-        throw new UnsupportedOperationException();
+        return getLayout().map(t);
+    }
+
+    private PhysicalLayout solve() {
+        int n = field_codes.size();
+        int[] preferred = new int[n];
+        Arrays.fill(preferred, -1);
+        List<Integer> order = new ArrayList<>();
+        for (int f = 0; f < n; f++) {
+            if (min_size[f] > 0 && !inconsistently_fixed[f]) {
+                order.add(f);
+            }
+        }
+        // Fixed properties have no choice, so they go first, then the most accessed.  The sort is
+        // stable, so the solution is deterministic.  Without a profile, the dynamic counts are all 0.
+        order.sort(Comparator.comparing((Integer f) -> fixed_offset[f] == -1)
+                             .thenComparing((Integer f) -> -executions[f])
+                             .thenComparing((Integer f) -> -allocations[f])
+                             .thenComparing((Integer f) -> -accesses[f])
+                             .thenComparing((Integer f) -> -occurrences[f]));
+
+        // The properties preferring each offset so far, which must pairwise never co-occur.  Each
+        // takes the highest offset it can, leaving the low ones to properties confined to small
+        // maps: e.g., an object's own fields go after the methods it shares with its prototype.
+        List<List<Integer>> at_offset = new ArrayList<>();
+        int aligned = 0;
+        for (int f : order) {
+            int lo = fixed_offset[f] == -1 ? 0 : fixed_offset[f];
+            int hi = fixed_offset[f] == -1 ? min_size[f] : Math.min(fixed_offset[f] + 1, min_size[f]);
+            for (int off = hi - 1; off >= lo; off--) {
+                while (at_offset.size() <= off) {
+                    at_offset.add(new ArrayList<>());
+                }
+                if (compatible(f, at_offset.get(off))) {
+                    preferred[f] = off;
+                    at_offset.get(off).add(f);
+                    aligned++;
+                    break;
+                }
+            }
+            logger.debug("Preferred offset of [{}] ({} accesses, {} executed): {}", field_codes.nameOf(f), accesses[f], executions[f], preferred[f]);
+        }
+        logger.debug("Aligned {} of {} properties in object maps", aligned, order.size());
+        if (profile == null) {
+            return new PhysicalLayout(field_codes, preferred);
+        }
+        // Properties the solver couldn't align still go hottest first
+        int[] rank = new int[n];
+        Arrays.fill(rank, order.size());
+        for (int i = 0; i < order.size(); i++) {
+            rank[order.get(i)] = i;
+        }
+        return new PhysicalLayout(field_codes, preferred, rank);
+    }
+
+    private boolean compatible(int f, List<Integer> others) {
+        for (int g : others) {
+            if (cooccurrence_table[f][g] > 0) {
+                return false;
+            }
+        }
+        return true;
     }
 }
@@ -53,7 +53,14 @@ public class ThreeAddressConversion extends IRTransformer {
 
     private Block currentBlock;
 
-    private static int temp = 2349;
+    private static final int FIRST_TEMP = 2349;
+
+    private static int temp = FIRST_TEMP;
+
+    /** Restart the numbering of temporaries, for a new compilation */
+    public static void resetTemps() {
+        temp = FIRST_TEMP;
+    }
 
     private Var mkFreshTmp(Type t) {
         // TODO: This is subtly inappropriate for the interop mode, because this emits the
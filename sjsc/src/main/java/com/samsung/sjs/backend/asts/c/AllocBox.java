@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import com.samsung.sjs.backend.asts.c.types.CType;
 public class AllocBox extends Expression {
     Expression initialValue;
@@ -28,7 +29,9 @@ public class AllocBox extends Expression {
         cellType = t;
     }
     @Override
-    public String toSource(int x) {
-        return "MKBOX("+initialValue.toSource(0)+")";
+    public void emit(int x, Appendable out) throws IOException {
+        out.append("MKBOX(");
+        initialValue.emit(0, out);
+        out.append(")");
     }
 }
@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 
 public class ArrayIndexing extends Expression {
     protected Expression e;
@@ -28,7 +29,9 @@ public class ArrayIndexing extends Expression {
         this.offset = offset;
     }
     @Override
-    public String toSource(int x) {
-        return "("+e.toSource(0)+"["+offset+"])";
+    public void emit(int x, Appendable out) throws IOException {
+        out.append("(");
+        e.emit(0, out);
+        out.append("[").append(Integer.toString(offset)).append("])");
     }
 }
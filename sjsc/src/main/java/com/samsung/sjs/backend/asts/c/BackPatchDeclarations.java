@@ -21,6 +21,7 @@
  */
 
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import java.util.LinkedList;
 public class BackPatchDeclarations extends Statement {
     private LinkedList<FunctionPreDeclaration> decls;
@@ -35,15 +36,13 @@ public class BackPatchDeclarations extends Statement {
         decls.add(new FunctionPreDeclaration(d));
     }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
+    public void emit(int x, Appendable out) throws IOException {
         if (typedefs != null) {
-            sb.append(typedefs);
+            out.append(typedefs);
         }
         for (FunctionPreDeclaration pd : decls) {
-            indent(x,sb);
-            sb.append(pd.toSource(0));
+            indent(x,out);
+            pd.emit(0, out);
         }
-        return sb.toString();
     }
 }
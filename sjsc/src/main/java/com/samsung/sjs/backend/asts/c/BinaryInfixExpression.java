@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import com.samsung.sjs.types.*;
 public class BinaryInfixExpression extends Expression {
     protected Expression lval, rval;
@@ -31,7 +32,13 @@ public class BinaryInfixExpression extends Expression {
     public Expression getLeft() { return lval; }
     public Expression getRight() { return rval; }
     @Override
-    public String toSource(int x) { return "("+lval.toSource(0)+" "+op+" "+rval.toSource(0)+")"; }
+    public void emit(int x, Appendable out) throws IOException {
+        out.append("(");
+        lval.emit(0, out);
+        out.append(" ").append(op).append(" ");
+        rval.emit(0, out);
+        out.append(")");
+    }
     @Override
     public Expression asValue(Type t) {
         if (op.equals("=")) {
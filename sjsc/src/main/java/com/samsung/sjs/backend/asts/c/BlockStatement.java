@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 public class BlockStatement extends Statement {
@@ -34,15 +35,16 @@ public class BlockStatement extends Statement {
     }
     public List<Statement> getStatements() { return body; }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        indent(x,sb);
-        sb.append("{\n");
+    public void emit(int x, Appendable out) throws IOException {
+        indent(x,out);
+        out.append("{\n");
+        emitBody(x+1, out);
+        indent(x,out);
+        out.append("}\n");
+    }
+    protected final void emitBody(int x, Appendable out) throws IOException {
         for (Statement s : body) {
-            sb.append(s.toSource(x+1));
+            s.emit(x, out);
         }
-        indent(x,sb);
-        sb.append("}\n");
-        return sb.toString();
     }
 }
@@ -17,6 +17,7 @@
  * Representation of a C array literal
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import java.util.*;
 
 public class CArrayLiteral extends Expression {
@@ -28,14 +29,12 @@ public class CArrayLiteral extends Expression {
         elts.add(e);
     }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("{ ");
+    public void emit(int x, Appendable out) throws IOException {
+        out.append("{ ");
         for (int i = 0; i < elts.size(); i++) {
-            sb.append(elts.get(i).toSource(0));
-            if (i+1 < elts.size()) sb.append(", ");
+            elts.get(i).emit(0, out);
+            if (i+1 < elts.size()) out.append(", ");
         }
-        sb.append(" }");
-        return sb.toString();
+        out.append(" }");
     }
 }
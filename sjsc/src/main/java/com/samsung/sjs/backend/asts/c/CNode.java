@@ -19,6 +19,8 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 // The subclasses we need are:
 // toplevel:
@@ -52,12 +54,53 @@ package com.samsung.sjs.backend.asts.c;
 //      integer type?
 
 public abstract class CNode {
-    public abstract String toSource(int indentLevel);
+    // Whether a node class overrides emit(), so the defaults below don't call each other forever
+    private static final ClassValue<Boolean> EMITS = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> c) {
+            try {
+                return c.getMethod("emit", int.class, Appendable.class).getDeclaringClass() != CNode.class;
+            } catch (NoSuchMethodException e) {
+                throw new AssertionError(e);
+            }
+        }
+    };
+
+    /**
+     * The C source for this node.  Subclasses must override either this or
+     * {@link #emit(int, Appendable)}; nodes with children should do the latter, so large programs
+     * are not built up as strings.
+     *
+     * @throws IllegalStateException if the node's class overrides neither
+     */
+    public String toSource(int indentLevel) {
+        if (!EMITS.get(getClass())) {
+            throw new IllegalStateException(getClass().getName()+" overrides neither toSource nor emit");
+        }
+        StringBuilder sb = new StringBuilder();
+        try {
+            emit(indentLevel, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+    /**
+     * Append the C source for this node to out, the same text as {@link #toSource(int)}.
+     */
+    public void emit(int indentLevel, Appendable out) throws IOException {
+        out.append(toSource(indentLevel));
+    }
     protected final void indent(int n, StringBuilder b) {
         for(int i = 0; i < n; i++) {
             b.append("  ");
         }
     }
+    protected final void indent(int n, Appendable out) throws IOException {
+        for(int i = 0; i < n; i++) {
+            out.append("  ");
+        }
+    }
     public boolean isExpression() { return false; }
     public Expression asExpression() { throw new UnsupportedOperationException(); }
     public boolean isStatement() { return false; }
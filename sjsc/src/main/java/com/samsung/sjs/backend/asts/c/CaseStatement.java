@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 
 import java.util.*;
 
@@ -34,18 +35,18 @@ public class CaseStatement extends Statement {
     public List<Statement> getStatements() { return statements; }
 
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        indent(x, sb);
+    public void emit(int x, Appendable out) throws IOException {
+        indent(x, out);
         if (val != null) {
-            sb.append("case "+val.toSource(0)+":\n");
+            out.append("case ");
+            val.emit(0, out);
+            out.append(":\n");
         } else {
-            sb.append("default:\n");
+            out.append("default:\n");
         }
         for (Statement s : statements) {
-            sb.append(s.toSource(x+2));
+            s.emit(x+2, out);
         }
-        return sb.toString();
     }
 }
 
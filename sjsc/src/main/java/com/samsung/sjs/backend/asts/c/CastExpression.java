@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 
 import com.samsung.sjs.backend.asts.c.types.CType;
 import com.samsung.sjs.types.Type;
@@ -33,15 +34,13 @@ public class CastExpression extends Expression {
     }
     public Expression getBaseExpression() { return expr; }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        indent(x,sb);
-        sb.append("((");
-        sb.append(type.toSource());
-        sb.append(")");
-        sb.append(expr.toSource(0));
-        sb.append(")");
-        return sb.toString();
+    public void emit(int x, Appendable out) throws IOException {
+        indent(x,out);
+        out.append("((");
+        out.append(type.toSource());
+        out.append(")");
+        expr.emit(0, out);
+        out.append(")");
     }
     @Override
     public Expression inType(Type t) {
@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import com.samsung.sjs.backend.*;
 import com.samsung.sjs.backend.asts.c.types.*;
 
@@ -29,16 +30,15 @@ public class ClosureCall extends FunctionCall {
         clos_type = ty;
     }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("PIVOT_INVOKE_CLOSURE(");
-        sb.append(((ClosurePseudoType)clos_type).getFunType().toSource());
-        sb.append(", ");
-        sb.append(func.toSource(0));
+    public void emit(int x, Appendable out) throws IOException {
+        out.append("PIVOT_INVOKE_CLOSURE(");
+        out.append(((ClosurePseudoType)clos_type).getFunType().toSource());
+        out.append(", ");
+        func.emit(0, out);
         for (Expression e : args) {
-            sb.append(", "+e.toSource(0));
+            out.append(", ");
+            e.emit(0, out);
         }
-        sb.append(")");
-        return sb.toString();
+        out.append(")");
     }
 }
@@ -21,6 +21,11 @@
 package com.samsung.sjs.backend.asts.c;
 import java.util.*;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 public class CompilationUnit implements Iterable<Statement> {
     private List<Statement> toplevels;
     private List<Statement> header;
@@ -43,21 +48,24 @@ public class CompilationUnit implements Iterable<Statement> {
         }
 
         // Write main .c file
-        FileWriter fw = new FileWriter(filename);
-        for (Statement s : toplevels) {
-            fw.write(s.toSource(0));
-        }
-        fw.flush();
-        fw.close();
+        writeStatements(toplevels, filename);
 
         // Write export header
         String headerf = filename.substring(0, filename.lastIndexOf("."))+".h";
-        fw = new FileWriter(headerf);
-        for (Statement s : header) {
-            fw.write(s.toSource(0));
+        writeStatements(header, headerf);
+    }
+
+    /**
+     * Stream statements to a file, without building their source as strings first.
+     */
+    private static void writeStatements(List<Statement> statements, String filename) throws IOException {
+        FileChannel ch = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                                          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try (Writer w = new BufferedWriter(Channels.newWriter(ch, Charset.defaultCharset().newEncoder(), -1), 1 << 16)) {
+            for (Statement s : statements) {
+                s.emit(0, w);
+            }
         }
-        fw.flush();
-        fw.close();
     }
 
 
@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 
 import java.util.*;
 
@@ -34,11 +35,10 @@ public class CompoundStatement extends Statement {
         body.add(new ExpressionStatement(e));
     }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
+    public void emit(int x, Appendable out) throws IOException {
         for (Statement s : body) {
-            sb.append(s.toSource(x)+"\n");
+            s.emit(x, out);
+            out.append("\n");
         }
-        return sb.toString();
     }
 }
@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import com.samsung.sjs.types.*;
 public class ConditionalExpression extends Expression {
     private Expression test, left, right;
@@ -42,8 +43,14 @@ public class ConditionalExpression extends Expression {
         return right;
     }
     @Override
-    public String toSource(int x) { 
-        return "( "+test.toSource(0)+" ? "+left.toSource(0)+" : "+right.toSource(0)+" )"; 
+    public void emit(int x, Appendable out) throws IOException {
+        out.append("( ");
+        test.emit(0, out);
+        out.append(" ? ");
+        left.emit(0, out);
+        out.append(" : ");
+        right.emit(0, out);
+        out.append(" )");
     }
     @Override
     public Expression asValue(Type t) {
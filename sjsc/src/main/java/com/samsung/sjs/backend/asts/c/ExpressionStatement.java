@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 public class ExpressionStatement extends Statement {
     private String post_label;
     private String dirty_label;
@@ -33,25 +34,29 @@ public class ExpressionStatement extends Statement {
         dirty_label = s;
     }
     @Override
-    public String toSource(int x) {
-        if (e == null) { return ";"; }
-        StringBuilder sb = new StringBuilder();
-        indent(x,sb);
-        String src = e.toSource(0);
-        sb.append(src);
-        if (src.charAt(0) == '#' || src.equals("extern \"C\" {")) {
-            // preprocessor directive
-            sb.append("\n");
+    public void emit(int x, Appendable out) throws IOException {
+        if (e == null) { out.append(";"); return; }
+        indent(x,out);
+        if (e instanceof InlineCCode || e instanceof Variable) {
+            // only these can spell out a preprocessor directive
+            String src = e.toSource(0);
+            out.append(src);
+            if (src.charAt(0) == '#' || src.equals("extern \"C\" {")) {
+                // preprocessor directive
+                out.append("\n");
+            } else {
+                out.append(";\n");
+            }
         } else {
-            sb.append(";\n");
+            e.emit(0, out);
+            out.append(";\n");
         }
         if (post_label != null) {
-            sb.append(post_label+": EMPTY_STATEMENT;\n");
+            out.append(post_label).append(": EMPTY_STATEMENT;\n");
         }
         if (dirty_label != null) {
-            indent(x,sb);
-            sb.append("if (__dirty) { goto "+dirty_label+"; }\n");
+            indent(x,out);
+            out.append("if (__dirty) { goto ").append(dirty_label).append("; }\n");
         }
-        return sb.toString();
     }
 }
@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import com.samsung.sjs.backend.asts.c.types.*;
 import com.samsung.sjs.types.*;
 
@@ -28,8 +29,10 @@ public class FloatUnshift extends Expression {
         subject = e;
     }
     @Override
-    public String toSource(int x) {
-        return "(unshift_double("+subject.toSource(0)+"))";
+    public void emit(int x, Appendable out) throws IOException {
+        out.append("(unshift_double(");
+        subject.emit(0, out);
+        out.append("))");
     }
     @Override
     public Expression inType(Type t) {
@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 public class ForLoop extends BlockStatement {
     private Expression inc, test;
     private CNode init;
@@ -31,23 +32,19 @@ public class ForLoop extends BlockStatement {
         this.test = test;
     }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        indent(x,sb);
-        sb.append("for (");
-        if (init != null) sb.append(init.toSource(0));
+    public void emit(int x, Appendable out) throws IOException {
+        indent(x,out);
+        out.append("for (");
+        if (init != null) init.emit(0, out);
         if (init == null || init.isExpression()) {
-            sb.append("; "); // otherwise it's a statement, with its own ;
+            out.append("; "); // otherwise it's a statement, with its own ;
         }
-        if (test != null) sb.append(test.toSource(0));
-        sb.append("; ");
-        if (inc != null) sb.append(inc.toSource(0));
-        sb.append(") {\n");
-        for (Statement s : body) {
-            sb.append(s.toSource(x+1));
-        }
-        indent(x,sb);
-        sb.append("}\n");
-        return sb.toString();
+        if (test != null) test.emit(0, out);
+        out.append("; ");
+        if (inc != null) inc.emit(0, out);
+        out.append(") {\n");
+        emitBody(x+1, out);
+        indent(x,out);
+        out.append("}\n");
     }
 }
@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import com.samsung.sjs.types.*;
 import java.util.ArrayList;
 public class FunctionCall extends Expression {
@@ -42,16 +43,14 @@ public class FunctionCall extends Expression {
         args.add(e);
     }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(func.toSource(0));
-        sb.append("(");
+    public void emit(int x, Appendable out) throws IOException {
+        func.emit(0, out);
+        out.append("(");
         for (int i = 0, n = args.size(); i < n; i++) {
-            sb.append(args.get(i).toSource(0));
-            if (i+1 < n) sb.append(", ");
+            args.get(i).emit(0, out);
+            if (i+1 < n) out.append(", ");
         }
-        sb.append(")");
-        return sb.toString();
+        out.append(")");
     }
     @Override
     public Expression asValue(Type t) {
@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import com.samsung.sjs.backend.asts.c.types.CType;
 import com.samsung.sjs.backend.asts.c.types.CVoid;
 import java.util.ArrayList;
@@ -51,16 +52,15 @@ public class FunctionDeclaration extends Statement {
         body.addStatement(s);
     }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        indent(x,sb);
-        sb.append(returnType.toSource()+" "+name+"(");
+    public void emit(int x, Appendable out) throws IOException {
+        indent(x,out);
+        out.append(returnType.toSource()).append(" ").append(name).append("(");
         for(int i = 0, n=nargs(); i < n; i++) {
-            sb.append(getArgType(i).toSource()+" "+getArgName(i));
-            if (i+1 < n) sb.append(", ");
+            out.append(getArgType(i).toSource()).append(" ").append(getArgName(i));
+            if (i+1 < n) out.append(", ");
         }
-        sb.append(")\n");
-        sb.append(body.toSource(x)+"\n");
-        return sb.toString();
+        out.append(")\n");
+        body.emit(x, out);
+        out.append("\n");
     }
 }
@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 public class IfStatement extends Statement {
     private Expression test;
     private Statement tbranch, ebranch;
@@ -28,17 +29,17 @@ public class IfStatement extends Statement {
         ebranch = falsecase;
     }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        indent(x,sb);
-        sb.append("if ("+test.toSource(0)+")\n");
-        sb.append(tbranch.toSource(x+1));
+    public void emit(int x, Appendable out) throws IOException {
+        indent(x,out);
+        out.append("if (");
+        test.emit(0, out);
+        out.append(")\n");
+        tbranch.emit(x+1, out);
         if (ebranch != null) {
-            indent(x,sb);
-            sb.append("else\n");
-            sb.append(ebranch.toSource(x+1));
+            indent(x,out);
+            out.append("else\n");
+            ebranch.emit(x+1, out);
         }
-        return sb.toString();
     }
 
 }
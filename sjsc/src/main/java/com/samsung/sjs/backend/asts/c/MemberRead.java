@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import com.samsung.sjs.backend.*;
 import com.samsung.sjs.types.*;
 import com.samsung.sjs.backend.asts.c.types.*;
@@ -30,6 +31,7 @@ public class MemberRead extends Expression {
     private int offset;
     private boolean docast;
     private boolean is_writable;
+    private String cache;
     public MemberRead(Expression t, CType ty, String s, int o) {
         target = t;
         slot_type = ty;
@@ -43,15 +45,26 @@ public class MemberRead extends Expression {
     // When this AST node is (ab)used as an lval, C doesn't permit the cast
     public void setDoNotCast() { docast = false; }
     public void setWritable() { is_writable = true; }
+    // Look up the slot through the given field_cache_t* instead of the map
+    public void setCache(String c) { cache = c; }
     @Override
-    public String toSource(int x) {
+    public void emit(int x, Appendable out) throws IOException {
         String access = is_writable ? "FIELD_READ_WRITABLE" : "FIELD_READ";
+        if (cache != null) {
+            access = "CACHED_"+access;
+        }
         if (docast) {
-            return "(("+(slot_type).toSource()+")"+
-                   access+"("+target.toSource(0)+", "+offset+" /* "+slotname+" */))";
+            out.append("((").append((slot_type).toSource()).append(")");
         } else {
-            return "("+access+"("+target.toSource(0)+", "+offset+" /* "+slotname+" */))";
+            out.append("(");
+        }
+        out.append(access).append("(");
+        target.emit(0, out);
+        out.append(", ").append(Integer.toString(offset)).append(" /* ").append(slotname).append(" */");
+        if (cache != null) {
+            out.append(", ").append(cache);
         }
+        out.append("))");
     }
     @Override
     public Expression asValue(Type t) {
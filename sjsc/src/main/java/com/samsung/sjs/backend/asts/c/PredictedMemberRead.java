@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import com.samsung.sjs.backend.*;
 import com.samsung.sjs.types.*;
 import com.samsung.sjs.backend.asts.c.types.*;
@@ -49,18 +50,14 @@ public class PredictedMemberRead extends Expression {
     // When this AST node is (ab)used as an lval, C doesn't permit the cast
     public void setDoNotCast() { docast = false; }
     @Override
-    public String toSource(int x) {
-        String base = null;
-        if (isdirect) {
-            base = "(INLINE_BOX_ACCESS("+target.toSource(0)+", "+ptr_off+" /* "+slotname+","+offset+" */))";
-        } else {
-            base = "(FIELD_ACCESS("+target.toSource(0)+", "+ptr_off+" /* "+slotname+","+offset+" */))";
-        }
+    public void emit(int x, Appendable out) throws IOException {
         if (docast) {
-            return "(("+(slot_type).toSource()+")"+base;
-        } else {
-            return base;
+            out.append("((").append((slot_type).toSource()).append(")");
         }
+        out.append(isdirect ? "(INLINE_BOX_ACCESS(" : "(FIELD_ACCESS(");
+        target.emit(0, out);
+        out.append(", ").append(Integer.toString(ptr_off)).append(" /* ").append(slotname).append(",")
+           .append(Integer.toString(offset)).append(" */))");
     }
     @Override
     public Expression asValue(Type t) {
@@ -19,18 +19,20 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 public class ReturnStatement extends Statement {
     private Expression val;
     public ReturnStatement(Expression v) { val = v; }
     public ReturnStatement() { val = null; }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        indent(x,sb);
-        if (val == null)
-            sb.append("return;\n");
-        else
-            sb.append("return "+val.toSource(0)+";\n");
-        return sb.toString();
+    public void emit(int x, Appendable out) throws IOException {
+        indent(x,out);
+        if (val == null) {
+            out.append("return;\n");
+        } else {
+            out.append("return ");
+            val.emit(0, out);
+            out.append(";\n");
+        }
     }
 }
@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 
 import java.util.*;
 
@@ -35,17 +36,17 @@ public class SwitchStatement extends Statement {
     public List<CaseStatement> getCaseStatements() { return cases; }
 
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        indent(x, sb);
-        sb.append("switch ("+discriminee.toSource(0)+") {\n");
+    public void emit(int x, Appendable out) throws IOException {
+        indent(x, out);
+        out.append("switch (");
+        discriminee.emit(0, out);
+        out.append(") {\n");
         for (CaseStatement c : cases) {
-            sb.append(c.toSource(x+2));
+            c.emit(x+2, out);
         }
-        sb.append("\n");
-        indent(x, sb);
-        sb.append("}");
-        return sb.toString();
+        out.append("\n");
+        indent(x, out);
+        out.append("}");
     }
 }
 
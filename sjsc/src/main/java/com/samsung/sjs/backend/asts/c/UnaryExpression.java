@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 public class UnaryExpression extends Expression {
     protected Expression exp;
     protected String op;
@@ -31,11 +32,15 @@ public class UnaryExpression extends Expression {
     public Expression getExpression() { return exp; }
     public boolean isPostfix() { return postfix; }
     @Override
-    public String toSource(int x) { 
+    public void emit(int x, Appendable out) throws IOException {
+        out.append("(");
         if (postfix) {
-            return "("+exp.toSource(0)+op+")";
+            exp.emit(0, out);
+            out.append(op);
         } else {
-            return "("+op+exp.toSource(0)+")";
+            out.append(op);
+            exp.emit(0, out);
         }
+        out.append(")");
     }
 }
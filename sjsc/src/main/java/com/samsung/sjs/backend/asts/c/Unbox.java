@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import com.samsung.sjs.types.*;
 public class Unbox extends Expression {
     Expression target;
@@ -30,8 +31,10 @@ public class Unbox extends Expression {
         return target;
     }
     @Override
-    public String toSource(int x) {
-        return "UNBOX("+target.toSource(0)+")";
+    public void emit(int x, Appendable out) throws IOException {
+        out.append("UNBOX(");
+        target.emit(0, out);
+        out.append(")");
     }
     @Override
     public Expression asValue(Type t) {
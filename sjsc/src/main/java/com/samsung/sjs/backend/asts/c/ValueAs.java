@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 
 import com.samsung.sjs.types.*;
 
@@ -59,18 +60,23 @@ public class ValueAs extends Expression {
             return "ptr";
         }
     }
-    public String toSource(int x) {
+    @Override
+    public void emit(int x, Appendable out) throws IOException {
         //String field = value_field_of(type);
         //return "("+val.toSource(0)+"."+field+")";
         if (type.rep() == RepresentationSort.UNREPRESENTABLE) {
             System.err.println("??? have unrepresentable expression ["+val.toSource(0)+"] of type "+type);
         }
-        String res = "("+getCoercion(type.rep(), encode)+"("+val.toSource(0)+"))";
         // TODO: Casts for other types: closures, etc.
         if (type.isMap()) {
-            return "((map_t*)"+res+")";
+            out.append("((map_t*)");
+        }
+        out.append("(").append(getCoercion(type.rep(), encode)).append("(");
+        val.emit(0, out);
+        out.append("))");
+        if (type.isMap()) {
+            out.append(")");
         }
-        return res;
     }
 
     public Expression expr() { return this.val; }
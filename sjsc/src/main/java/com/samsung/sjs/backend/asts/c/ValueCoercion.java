@@ -17,6 +17,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import com.samsung.sjs.types.*;
 import com.samsung.sjs.backend.asts.c.types.*;
 
@@ -39,19 +40,22 @@ public class ValueCoercion extends Expression {
     }
     public Expression getSubject() { return subject; }
     @Override
-    public String toSource(int x) {
+    public void emit(int x, Appendable out) throws IOException {
         if (name != null) {
-            return "("+name+"("+subject.toSource(0)+"))";
+            out.append("(").append(name).append("(");
         } else {
             if (srcTy == null) {
                 System.err.println("ASERASFGASDFASFAS DFASDF "+subject.toSource(0));
             }
             if (srcTy.isAny()) {
                 assert (subject instanceof NullLiteral);
-                return "(object_as_val(NULL))";
+                out.append("(object_as_val(NULL))");
+                return;
             }
-            return "("+getCoercion(srcTy.rep(), encode)+"("+subject.toSource(0)+"))";
+            out.append("(").append(getCoercion(srcTy.rep(), encode)).append("(");
         }
+        subject.emit(0, out);
+        out.append("))");
     }
     @Override
     public Expression asValue(Type t) {
@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 import com.samsung.sjs.backend.asts.c.types.*;
 import java.util.ArrayList;
 public class VariableDeclaration extends Statement {
@@ -40,15 +41,15 @@ public class VariableDeclaration extends Statement {
         initializers.add(init);
     }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        indent(x,sb);
-        sb.append(ty.toSource()+" ");
+    public void emit(int x, Appendable out) throws IOException {
+        indent(x,out);
+        out.append(ty.toSource()).append(" ");
         for (int i = 0, n = names.size(); i < n; i++) {
-            sb.append(names.get(i).toSource(0)+" = "+initializers.get(i).toSource(0));
-            if (i+1 < n) sb.append(", ");
+            names.get(i).emit(0, out);
+            out.append(" = ");
+            initializers.get(i).emit(0, out);
+            if (i+1 < n) out.append(", ");
         }
-        if (!loopInit) sb.append(";\n");
-        return sb.toString();
+        if (!loopInit) out.append(";\n");
     }
 }
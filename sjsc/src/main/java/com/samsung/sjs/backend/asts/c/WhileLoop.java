@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 public class WhileLoop extends BlockStatement {
     private Expression test;
     public WhileLoop(Expression test) {
@@ -26,15 +27,13 @@ public class WhileLoop extends BlockStatement {
         this.test = test;
     }
     @Override
-    public String toSource(int x) {
-        StringBuilder sb = new StringBuilder();
-        indent(x,sb);
-        sb.append("while("+test.toSource(0)+") {\n");
-        for (Statement s : body) {
-            sb.append(s.toSource(x+1));
-        }
-        indent(x,sb);
-        sb.append("}\n");
-        return sb.toString();
+    public void emit(int x, Appendable out) throws IOException {
+        indent(x,out);
+        out.append("while(");
+        test.emit(0, out);
+        out.append(") {\n");
+        emitBody(x+1, out);
+        indent(x,out);
+        out.append("}\n");
     }
 }
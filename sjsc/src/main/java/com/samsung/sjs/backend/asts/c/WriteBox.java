@@ -19,6 +19,7 @@
  * @author colin.gordon
  */
 package com.samsung.sjs.backend.asts.c;
+import java.io.IOException;
 public class WriteBox extends Expression {
     Expression target, val;
     public WriteBox(Expression e, Expression v) {
@@ -26,7 +27,11 @@ public class WriteBox extends Expression {
         val = v;
     }
     @Override
-    public String toSource(int x) {
-        return "WRITEBOX("+target.toSource(0)+", "+val.toSource(0)+")";
+    public void emit(int x, Appendable out) throws IOException {
+        out.append("WRITEBOX(");
+        target.emit(0, out);
+        out.append(", ");
+        val.emit(0, out);
+        out.append(")");
     }
 }
@@ -37,6 +37,8 @@ public abstract class Call extends Expression {
         this.callno = ncalls++;
     }
     public int callsiteNumber() { return callno; }
+    /** Restart the numbering of call sites, for a new compilation */
+    public static void resetCallsiteNumbers() { ncalls = 0; }
     public void addArgument(Expression e) {
         args.add(e);
     }
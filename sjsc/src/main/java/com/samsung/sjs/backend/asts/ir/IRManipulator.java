@@ -91,6 +91,11 @@ public class IRManipulator {
 
     private static long varCounter = 0;
 
+    /** Restart the numbering of fresh variables, for a new compilation */
+    public static void resetFreshVars() {
+        varCounter = 0;
+    }
+
     public static Var freshVar(Scope s, String prefix, Type t) { 
         Var x = new Var("___var"+prefix+varCounter++);
         while (s.isBound(x)) {
@@ -37,6 +37,15 @@ public abstract class IRNode {
     }
     public final long getId() { return node_id; }
 
+    /** Take the id of the node this one copies or rewrites, so profiles keyed by id still apply */
+    public final void inheritId(IRNode original) { node_id = original.node_id; }
+
+    /** Restart the numbering of nodes, for a new compilation */
+    public static void resetIds() { nextid = 0; }
+
+    /** The number of nodes created since the numbering was last restarted */
+    public static long created() { return nextid; }
+
     public abstract String toSource(int indentation);
 
     public abstract <R> R accept(IRVisitor<R> v);
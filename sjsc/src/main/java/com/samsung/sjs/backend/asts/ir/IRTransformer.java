@@ -82,6 +82,8 @@ public class IRTransformer extends IRVisitor<IRNode> {
         }
         aol.setVTable(node.getVTable());
         aol.setType(node.getType());
+        // Allocation and field access sites keep their ids, which profiles refer to
+        aol.inheritId(node);
         return aol;
     }
     @Override public IRNode visitAllocMapLiteral(AllocMapLiteral node) {
@@ -125,6 +127,7 @@ public class IRTransformer extends IRVisitor<IRNode> {
                                                node.getOperator(),
                                                node.getValue().accept(this).asExpression());
         fa.setType(node.getType());
+        fa.inheritId(node);
         return fa;
     }
     @Override public IRNode visitFieldAssignment(FieldAssignment node) {
@@ -133,6 +136,7 @@ public class IRTransformer extends IRVisitor<IRNode> {
                                                node.getOperator(),
                                                node.getValue().accept(this).asExpression());
         fa.setType(node.getType());
+        fa.inheritId(node);
         return fa;
     }
     @Override public Block visitBlock(Block node) {
@@ -180,12 +184,14 @@ public class IRTransformer extends IRVisitor<IRNode> {
             fr.setDirect();
         }
         fr.setType(node.getType());
+        fr.inheritId(node);
         return fr;
     }
     @Override public IRNode visitFieldRead(FieldRead node) {
         FieldRead fr = mkFieldRead(node.getObject().accept(this).asExpression(),
                                    node.getField());
         fr.setType(node.getType());
+        fr.inheritId(node);
         return fr;
     }
     @Override public IRNode visitArrayIndex(ArrayIndex node) {
@@ -288,6 +294,7 @@ public class IRTransformer extends IRVisitor<IRNode> {
         }
         alloc.setType(node.getType());
         alloc.setVTable(node.getVTable());
+        alloc.inheritId(node);
         return alloc;
     }
 
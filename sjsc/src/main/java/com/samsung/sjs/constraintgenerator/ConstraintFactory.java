@@ -16,6 +16,8 @@
 package com.samsung.sjs.constraintgenerator;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +42,7 @@ import com.samsung.sjs.typeconstraints.FunctionCallTerm;
 import com.samsung.sjs.typeconstraints.FunctionParamTerm;
 import com.samsung.sjs.typeconstraints.FunctionReturnTerm;
 import com.samsung.sjs.typeconstraints.FunctionTerm;
+import com.samsung.sjs.typeconstraints.ITypeConstraint;
 import com.samsung.sjs.typeconstraints.ITypeTerm;
 import com.samsung.sjs.typeconstraints.IndexedTerm;
 import com.samsung.sjs.typeconstraints.KeyTerm;
@@ -67,6 +70,7 @@ import com.samsung.sjs.types.ObjectType;
 import com.samsung.sjs.types.PrimitiveType;
 import com.samsung.sjs.types.TopReferenceType;
 import com.samsung.sjs.types.Type;
+import com.samsung.sjs.types.TypeSnapshot;
 import com.samsung.sjs.types.TypeVar;
 import com.samsung.sjs.types.VoidType;
 
@@ -335,7 +339,7 @@ public class ConstraintFactory {
     /**
      * Find or create a term  representing a specific type.
      */
-    public TypeConstantTerm findOrCreateTypeTerm(Type type){
+    public synchronized TypeConstantTerm findOrCreateTypeTerm(Type type){
         if (!typeTerms.containsKey(type)){
             typeTerms.put(type, new TypeConstantTerm(type));
         }
@@ -343,7 +347,7 @@ public class ConstraintFactory {
     }
 
 
-    public TypeVariableTerm findOrCreateTypeVariableTerm(TypeVar tyVar) {
+    public synchronized TypeVariableTerm findOrCreateTypeVariableTerm(TypeVar tyVar) {
         return findOrCreate(typeVarTerms, tyVar, TypeVariableTerm::new);
     }
 
@@ -377,7 +381,7 @@ public class ConstraintFactory {
         return freshTypeVar("X");
     }
 
-    public TypeVar freshTypeVar(String base) {
+    public synchronized TypeVar freshTypeVar(String base) {
         int id = gensym++;
         return new TypeVar(base + id);
     }
@@ -422,6 +426,135 @@ public class ConstraintFactory {
 
 
 
+    /**
+     * Take a snapshot of this factory, of the types of all terms it has created or that
+     * appear in the given constraints, and of all types reachable from them. Solving the
+     * constraints mutates all of these in place; {@link Snapshot#restore()} undoes that,
+     * so the same constraints can be solved again without regenerating them from source.
+     */
+    public Snapshot snapshot(Collection<ITypeConstraint> constraints) {
+        return new Snapshot(constraints);
+    }
+
+    public final class Snapshot {
+
+        private final ConstraintFactory saved = new ConstraintFactory();
+        private final Map<ITypeTerm,Type> termTypes = new IdentityHashMap<>();
+        private final TypeSnapshot types = new TypeSnapshot();
+
+        private Snapshot(Collection<ITypeConstraint> constraints) {
+            saved.copyStateFrom(ConstraintFactory.this);
+            List<ITypeTerm> terms = new ArrayList<>();
+            for (ITypeConstraint c : constraints) {
+                terms.add(c.getLeft());
+                terms.add(c.getRight());
+            }
+            for (Map<?,?> map : saved.termMaps()) {
+                collectTerms(map, terms);
+            }
+            for (ITypeTerm term : terms) {
+                Type type = term.getType();
+                if (term.hasOwnType()) {
+                    termTypes.put(term, type);
+                }
+                types.record(type);
+            }
+        }
+
+        /**
+         * Put the factory, the terms and their types back into the state they had when
+         * the snapshot was taken. Terms created since then are forgotten.
+         */
+        public void restore() {
+            copyStateFrom(saved);
+            termTypes.forEach(ITypeTerm::setType);
+            types.restore();
+        }
+
+    }
+
+    private static void collectTerms(Map<?,?> map, List<ITypeTerm> out) {
+        for (Map.Entry<?,?> e : map.entrySet()) {
+            if (e.getKey() instanceof ITypeTerm) {
+                out.add((ITypeTerm) e.getKey());
+            }
+            if (e.getValue() instanceof ITypeTerm) {
+                out.add((ITypeTerm) e.getValue());
+            } else if (e.getValue() instanceof Map) {
+                collectTerms((Map<?,?>) e.getValue(), out);
+            }
+        }
+    }
+
+    private List<Map<?,?>> termMaps() {
+        List<Map<?,?>> maps = new ArrayList<>();
+        maps.add(nameTerms);
+        maps.add(globalVarTerms);
+        maps.add(functionTerms);
+        maps.add(functionParamTerms);
+        maps.add(functionReturnTerms);
+        maps.add(methodReceiverTerms);
+        maps.add(expressionTerms);
+        maps.add(functionCallTerms);
+        maps.add(thisTerms);
+        maps.add(objectLiteralTerms);
+        maps.add(mapLiteralTerms);
+        maps.add(arrayLiteralTerms);
+        maps.add(indexedTerms);
+        maps.add(keyTerms);
+        maps.add(propertyAccessTerms);
+        maps.add(operatorTerms);
+        maps.add(unaryOperatorTerms);
+        maps.add(typeTerms);
+        maps.add(typeVarTerms);
+        maps.add(protoTerms);
+        maps.add(protoParentTerms);
+        return maps;
+    }
+
+    private void copyStateFrom(ConstraintFactory other) {
+        nameTerms = copy(other.nameTerms);
+        globalVarTerms = copy(other.globalVarTerms);
+        functionTerms = copy(other.functionTerms);
+        functionParamTerms = copy(other.functionParamTerms);
+        functionReturnTerms = copy(other.functionReturnTerms);
+        methodReceiverTerms = copy(other.methodReceiverTerms);
+        expressionTerms = copy(other.expressionTerms);
+        functionCallTerms = copy(other.functionCallTerms);
+        thisTerms = copy(other.thisTerms);
+        objectLiteralTerms = copy(other.objectLiteralTerms);
+        mapLiteralTerms = copy(other.mapLiteralTerms);
+        arrayLiteralTerms = copy(other.arrayLiteralTerms);
+        indexedTerms = copy(other.indexedTerms);
+        keyTerms = copy(other.keyTerms);
+        propertyAccessTerms = copy(other.propertyAccessTerms);
+        operatorTerms = copy(other.operatorTerms);
+        unaryOperatorTerms = copy(other.unaryOperatorTerms);
+        typeTerms = copy(other.typeTerms);
+        typeVarTerms = copy(other.typeVarTerms);
+        protoTerms = copy(other.protoTerms);
+        protoParentTerms = copy(other.protoParentTerms);
+        typeEqualityConstraints = copy(other.typeEqualityConstraints);
+        subTypeConstraints = copy(other.subTypeConstraints);
+        concreteConstraints = copy(other.concreteConstraints);
+        arityConstraints = copy(other.arityConstraints);
+        gensym = other.gensym;
+    }
+
+    /**
+     * Copy a (possibly nested) map; nested maps are copied as well, since the
+     * findOrCreateXXX() methods add to them.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K,V> Map<K,V> copy(Map<K,V> map) {
+        Map<K,V> result = new LinkedHashMap<K,V>();
+        for (Map.Entry<K,V> e : map.entrySet()) {
+            V v = e.getValue();
+            result.put(e.getKey(), v instanceof Map ? (V) copy((Map<?,?>) v) : v);
+        }
+        return result;
+    }
+
     // maps used to implement the various findOrCreateXXX() methods
 
     private Map<Name, NameDeclarationTerm> nameTerms = new LinkedHashMap<Name, NameDeclarationTerm>();
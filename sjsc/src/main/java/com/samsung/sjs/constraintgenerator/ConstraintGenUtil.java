@@ -524,9 +524,9 @@ public class ConstraintGenUtil {
 	}
 
 	public static final Type OBJECT_TYPE = new ObjectType();
-	public static final Type ARRAY_TYPE = new ArrayType(new AnyType());
-    public static final Type MAP_TYPE = new MapType(new AnyType());
-	public static final Type FUNCTION_TYPE = new FunctionType(new ArrayList<Type>(), new ArrayList<String>(), new AnyType());
+	public static final Type ARRAY_TYPE = new ArrayType(AnyType.SINGLETON);
+    public static final Type MAP_TYPE = new MapType(AnyType.SINGLETON);
+	public static final Type FUNCTION_TYPE = new FunctionType(new ArrayList<Type>(), new ArrayList<String>(), AnyType.SINGLETON);
 
 	/**
 	 * Determines if a type is parameterized by checking if it refers to any TypeVariables.
@@ -279,7 +279,7 @@ public class ConstraintVisitor implements NodeVisitor {
                 ConstructorType cType = (ConstructorType) funTerm.getType();
                 ObjectType protoType = new ObjectType(writtenPrototypeProps
                         .stream()
-                        .map(s -> new Property(s, new AnyType(), false))
+                        .map(s -> new Property(s, AnyType.SINGLETON, false))
                         .collect(Collectors.toList()));
                 cType.setPrototype(protoType);
             }
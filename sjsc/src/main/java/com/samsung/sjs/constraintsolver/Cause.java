@@ -18,9 +18,7 @@ package com.samsung.sjs.constraintsolver;
 import com.samsung.sjs.typeconstraints.ITypeConstraint;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Set;
 
@@ -32,6 +30,11 @@ import java.util.Set;
  * <p>A cause is either a trivial truth ({@link #noReason()}), as a direct
  * result of a constraint ({@link #src(ITypeConstraint)}), or by derivation
  * using other facts ({@link #derived(Cause...)}).
+ *
+ * <p>Causes live in a {@link CauseGraph}, which shares derived causes that
+ * follow from the same set of other causes. A derived cause may therefore
+ * be represented by one of its predecessors, or by an equivalent cause
+ * built earlier.
  */
 public interface Cause {
 
@@ -65,23 +68,7 @@ public interface Cause {
      */
     static Cause src(ITypeConstraint srcConstraint) {
         Objects.requireNonNull(srcConstraint);
-        return new Cause() {
-            @Override
-            public <T extends Collection<ITypeConstraint>> T gatherCore(T target, Set<Cause> seen) {
-                target.add(srcConstraint);
-                return target;
-            }
-
-            @Override
-            public ITypeConstraint asSingleton() {
-                return srcConstraint;
-            }
-
-            @Override
-            public Cause[] predecessors() {
-                return new Cause[0];
-            }
-        };
+        return CauseGraph.current().src(srcConstraint);
     }
 
     /**
@@ -90,29 +77,14 @@ public interface Cause {
      */
     static Cause derived(Cause... causes) {
         for (Cause c : causes) Objects.requireNonNull(c);
-        return new Cause() {
-            @Override
-            public <T extends Collection<ITypeConstraint>> T gatherCore(T target, Set<Cause> seen) {
-                if (seen.contains(this)) {
-                    return target;
-                }
-                seen.add(this);
-                for (Cause c : causes) {
-                    c.gatherCore(target, seen);
-                }
-                return target;
-            }
-
-            @Override
-            public ITypeConstraint asSingleton() {
-                return null;
-            }
+        return CauseGraph.current().derived(causes);
+    }
 
-            @Override
-            public Cause[] predecessors() {
-                return causes;
-            }
-        };
+    /**
+     * @return the number of causes recorded so far, across all threads
+     */
+    static long recorded() {
+        return CauseGraph.causesAdded();
     }
 
     /**
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.constraintsolver;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.samsung.sjs.typeconstraints.ITypeConstraint;
+
+/**
+ * The store behind {@link Cause#src(ITypeConstraint)} and
+ * {@link Cause#derived(Cause...)}: a DAG whose nodes are numbered densely,
+ * with the predecessors of each node kept as a sorted array of node numbers.
+ *
+ * <p>Derived nodes are interned by their set of predecessors, so the
+ * solver's habit of re-deriving the reason for a variable every time the
+ * variable is updated does not grow the graph when nothing new is learned.
+ * {@link Cause#core()} is a walk over node numbers with a {@link BitSet}.
+ *
+ * <p>Each thread adds to its own current graph, which
+ * {@link DirectionalConstraintSolver} replaces with a fresh one for every
+ * solve. A graph is only ever modified by one thread at a time. Causes
+ * from some other graph can still be used as predecessors; they are
+ * recorded as opaque leaves, once per graph, so that derived nodes over
+ * them are interned like any others.
+ */
+final class CauseGraph {
+
+    private static final ThreadLocal<CauseGraph> CURRENT = new ThreadLocal<CauseGraph>() {
+        @Override
+        protected CauseGraph initialValue() {
+            return new CauseGraph();
+        }
+    };
+
+    private static final int[] NO_PREDECESSORS = new int[0];
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final LongAdder causesAdded = new LongAdder();
+
+    /**
+     * Start a fresh graph for the causes created by this thread from now on.
+     * Causes created earlier stay valid.
+     */
+    static void begin() {
+        CURRENT.set(new CauseGraph());
+    }
+
+    /**
+     * Make this thread add its causes to the given graph from now on. The
+     * graph must not be in use by any other thread at the same time.
+     */
+    static void resume(CauseGraph graph) {
+        CURRENT.set(graph);
+    }
+
+    static CauseGraph current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * The number of causes added to all graphs so far, for statistics. The
+     * leaves standing for causes from other graphs are not new causes, and
+     * are not counted.
+     */
+    static long causesAdded() {
+        return causesAdded.sum();
+    }
+
+    /** per node: the node itself, or the imported cause for a foreign leaf */
+    private Cause[] nodes = new Cause[INITIAL_CAPACITY];
+
+    /** per node: the constraint of a source node, otherwise null */
+    private ITypeConstraint[] constraints = new ITypeConstraint[INITIAL_CAPACITY];
+
+    /** per node: the sorted numbers of its predecessors */
+    private int[][] predecessors = new int[INITIAL_CAPACITY][];
+
+    private int size = 0;
+
+    private final Map<PredecessorSet, Node> derivedNodes = new HashMap<>();
+
+    /** the node numbers of the foreign leaves, by the cause they stand for */
+    private final Map<Cause, Integer> foreignNodes = new IdentityHashMap<>();
+
+    Cause src(ITypeConstraint c) {
+        Node node = new Node(this, size);
+        add(node, c, NO_PREDECESSORS);
+        return node;
+    }
+
+    Cause derived(Cause... causes) {
+        int[] ids = new int[causes.length];
+        int n = 0;
+        for (Cause c : causes) {
+            if (c == Cause.NO_REASON) {
+                continue;
+            }
+            ids[n++] = idOf(c);
+        }
+        if (n == 0) {
+            return Cause.NO_REASON;
+        }
+        Arrays.sort(ids, 0, n);
+        int m = 1;
+        for (int i = 1; i < n; i++) {
+            if (ids[i] != ids[m - 1]) {
+                ids[m++] = ids[i];
+            }
+        }
+        if (m == 1) {
+            return nodes[ids[0]];
+        }
+        if (m == 2) {
+            // the common case derived(reasonSoFar, cause): nothing new if
+            // one of the two was already derived using the other
+            if (Arrays.binarySearch(predecessors[ids[0]], ids[1]) >= 0) {
+                return nodes[ids[0]];
+            }
+            if (Arrays.binarySearch(predecessors[ids[1]], ids[0]) >= 0) {
+                return nodes[ids[1]];
+            }
+        }
+        PredecessorSet key = new PredecessorSet(m == ids.length ? ids : Arrays.copyOf(ids, m));
+        Node node = derivedNodes.get(key);
+        if (node == null) {
+            node = new Node(this, size);
+            add(node, null, key.ids);
+            derivedNodes.put(key, node);
+        }
+        return node;
+    }
+
+    private int idOf(Cause c) {
+        if (c instanceof Node && ((Node) c).graph == this) {
+            return ((Node) c).id;
+        }
+        Integer known = foreignNodes.get(c);
+        if (known != null) {
+            return known;
+        }
+        int id = size;
+        add(c, null, NO_PREDECESSORS);
+        foreignNodes.put(c, id);
+        return id;
+    }
+
+    private void add(Cause node, ITypeConstraint c, int[] preds) {
+        if (size == nodes.length) {
+            int capacity = size * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            constraints = Arrays.copyOf(constraints, capacity);
+            predecessors = Arrays.copyOf(predecessors, capacity);
+        }
+        nodes[size] = node;
+        constraints[size] = c;
+        predecessors[size] = preds;
+        ++size;
+        if (node instanceof Node && ((Node) node).graph == this) {
+            causesAdded.increment();
+        }
+    }
+
+    private boolean isForeign(int id) {
+        return !(nodes[id] instanceof Node) || ((Node) nodes[id]).id != id;
+    }
+
+    private <T extends Collection<ITypeConstraint>> T gatherCore(int root, T target, Set<Cause> seen) {
+        BitSet visited = new BitSet(size);
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = root;
+        visited.set(root);
+        while (top > 0) {
+            int id = stack[--top];
+            if (constraints[id] != null) {
+                target.add(constraints[id]);
+            } else if (isForeign(id)) {
+                nodes[id].gatherCore(target, seen);
+            }
+            for (int p : predecessors[id]) {
+                if (!visited.get(p)) {
+                    visited.set(p);
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = p;
+                }
+            }
+        }
+        return target;
+    }
+
+    /**
+     * a cause in this graph
+     */
+    static final class Node implements Cause {
+
+        private final CauseGraph graph;
+
+        private final int id;
+
+        private Node(CauseGraph graph, int id) {
+            this.graph = graph;
+            this.id = id;
+        }
+
+        @Override
+        public Set<ITypeConstraint> core() {
+            return graph.gatherCore(id, new LinkedHashSet<>(), new LinkedHashSet<>());
+        }
+
+        @Override
+        public <T extends Collection<ITypeConstraint>> T gatherCore(T target, Set<Cause> seen) {
+            return graph.gatherCore(id, target, seen);
+        }
+
+        @Override
+        public ITypeConstraint asSingleton() {
+            return graph.constraints[id];
+        }
+
+        @Override
+        public Cause[] predecessors() {
+            int[] preds = graph.predecessors[id];
+            Cause[] result = new Cause[preds.length];
+            for (int i = 0; i < preds.length; i++) {
+                result[i] = graph.nodes[preds[i]];
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * hash key for interning derived nodes
+     */
+    private static final class PredecessorSet {
+
+        private final int[] ids;
+
+        private final int hash;
+
+        PredecessorSet(int[] ids) {
+            this.ids = ids;
+            this.hash = Arrays.hashCode(ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof PredecessorSet && Arrays.equals(ids, ((PredecessorSet) obj).ids);
+        }
+
+    }
+
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.constraintsolver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.samsung.sjs.constraintgenerator.ConstraintFactory;
+import com.samsung.sjs.typeconstraints.FunctionCallTerm;
+import com.samsung.sjs.typeconstraints.FunctionParamTerm;
+import com.samsung.sjs.typeconstraints.FunctionReturnTerm;
+import com.samsung.sjs.typeconstraints.FunctionTerm;
+import com.samsung.sjs.typeconstraints.ITypeConstraint;
+import com.samsung.sjs.typeconstraints.ITypeTerm;
+import com.samsung.sjs.typeconstraints.IndexedTerm;
+import com.samsung.sjs.typeconstraints.KeyTerm;
+import com.samsung.sjs.typeconstraints.MROMRWConstraint;
+import com.samsung.sjs.typeconstraints.MethodReceiverTerm;
+import com.samsung.sjs.typeconstraints.OperatorTerm;
+import com.samsung.sjs.typeconstraints.PropertyAccessTerm;
+import com.samsung.sjs.typeconstraints.ProtoParentTerm;
+import com.samsung.sjs.typeconstraints.ProtoTerm;
+import com.samsung.sjs.typeconstraints.TypeConstantTerm;
+import com.samsung.sjs.typeconstraints.UnaryOperatorTerm;
+import com.samsung.sjs.typeconstraints.UpperBoundConstraint;
+import com.samsung.sjs.types.CodeType;
+import com.samsung.sjs.types.ConstructorType;
+import com.samsung.sjs.types.IndexableType;
+import com.samsung.sjs.types.IntersectionType;
+import com.samsung.sjs.types.ObjectType;
+import com.samsung.sjs.types.ObjectUnionType;
+import com.samsung.sjs.types.PrimitiveType;
+import com.samsung.sjs.types.Property;
+import com.samsung.sjs.types.PropertyContainer;
+import com.samsung.sjs.types.Type;
+import com.samsung.sjs.types.TypeVar;
+import com.samsung.sjs.types.UnattachedMethodType;
+
+/**
+ * Splits a set of (augmented) constraints into groups that can be solved
+ * independently of each other.
+ *
+ * <p>Two constraints end up in the same component if they are connected
+ * through a chain of shared terms. Since the solver updates types in place,
+ * and its operators reach from a term into its subterms and from a type
+ * into the terms of its type variables, a term is also connected to
+ *
+ * <ul>
+ * <li>the terms it is built from (the base of a property access, the
+ * function of a parameter or return term, ...);</li>
+ * <li>the type variable terms for the type variables in its type;</li>
+ * <li>every other term whose type shares a structured type object with
+ * its own.</li>
+ * </ul>
+ *
+ * Primitive types are singletons that are never updated, so terms for
+ * constants such as <code>integer</code> do not connect anything.
+ */
+final class ConstraintComponents {
+
+    /**
+     * one group of constraints, in their original order
+     */
+    static final class Component {
+        final Set<ITypeConstraint> constraints = new LinkedHashSet<>();
+        final Set<MROMRWConstraint> mroMRWConstraints = new LinkedHashSet<>();
+        /** terms the solver must know about even if no constraint mentions them */
+        final Set<ITypeTerm> extraTerms = new LinkedHashSet<>();
+    }
+
+    private final ConstraintFactory factory;
+
+    /** union-find over terms and structured types, by identity */
+    private final Map<Object, Object> parent = new IdentityHashMap<>();
+
+    private ConstraintComponents(ConstraintFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @return the components, ordered by their first constraint
+     */
+    static List<Component> partition(Collection<ITypeConstraint> constraints,
+            Collection<MROMRWConstraint> mroMRWConstraints, Collection<ITypeTerm> extraTerms,
+            ConstraintFactory factory) {
+        ConstraintComponents cc = new ConstraintComponents(factory);
+        for (ITypeConstraint c : constraints) {
+            cc.union(cc.addTerm(c.getLeft()), cc.addTerm(c.getRight()));
+        }
+        for (MROMRWConstraint c : mroMRWConstraints) {
+            UpperBoundConstraint ubc = (UpperBoundConstraint) c;
+            cc.union(cc.addTerm(ubc.getPossibleMethodTerm()), cc.addTerm(ubc.getContainingObjectTerm()));
+        }
+        for (ITypeTerm t : extraTerms) {
+            cc.addTerm(t);
+        }
+
+        Map<Object, Component> byRoot = new IdentityHashMap<>();
+        List<Component> result = new ArrayList<>();
+        for (ITypeConstraint c : constraints) {
+            cc.componentOf(cc.anchor(c.getLeft(), c.getRight()), byRoot, result).constraints.add(c);
+        }
+        for (MROMRWConstraint c : mroMRWConstraints) {
+            UpperBoundConstraint ubc = (UpperBoundConstraint) c;
+            cc.componentOf(cc.anchor(ubc.getPossibleMethodTerm(), ubc.getContainingObjectTerm()), byRoot, result)
+                    .mroMRWConstraints.add(c);
+        }
+        for (ITypeTerm t : extraTerms) {
+            cc.componentOf(t, byRoot, result).extraTerms.add(t);
+        }
+        return result;
+    }
+
+    private Component componentOf(Object x, Map<Object, Component> byRoot, List<Component> result) {
+        Object root = find(x);
+        Component comp = byRoot.get(root);
+        if (comp == null) {
+            comp = new Component();
+            byRoot.put(root, comp);
+            result.add(comp);
+        }
+        return comp;
+    }
+
+    /**
+     * the side of a constraint that identifies its component; constraints
+     * between two constants form a component of their own
+     */
+    private Object anchor(ITypeTerm left, ITypeTerm right) {
+        if (parent.containsKey(left)) {
+            return left;
+        } else if (parent.containsKey(right)) {
+            return right;
+        }
+        return left;
+    }
+
+    /**
+     * Add a term and everything it is connected to.
+     * @return the term, or null if it connects nothing
+     */
+    private Object addTerm(ITypeTerm t) {
+        if (t instanceof TypeConstantTerm && !isStructured(t.getType())) {
+            return null;
+        }
+        if (parent.containsKey(t)) {
+            return t;
+        }
+        parent.put(t, t);
+        for (ITypeTerm sub : subterms(t)) {
+            union(t, addTerm(sub));
+        }
+        union(t, addType(t.getType()));
+        return t;
+    }
+
+    /**
+     * Add a type and everything reachable from it.
+     * @return the type or type variable term to connect to, or null if the
+     * type connects nothing
+     */
+    private Object addType(Type t) {
+        if (t instanceof TypeVar) {
+            return addTerm(factory.findOrCreateTypeVariableTerm((TypeVar) t));
+        }
+        if (!isStructured(t)) {
+            return null;
+        }
+        if (parent.containsKey(t)) {
+            return t;
+        }
+        parent.put(t, t);
+        for (Type component : components(t)) {
+            union(t, addType(component));
+        }
+        return t;
+    }
+
+    private static boolean isStructured(Type t) {
+        return t != null && !(t instanceof PrimitiveType)
+                && (t instanceof PropertyContainer || t instanceof CodeType
+                        || t instanceof IndexableType || t instanceof IntersectionType
+                        || t instanceof ObjectUnionType);
+    }
+
+    private static Collection<ITypeTerm> subterms(ITypeTerm t) {
+        if (t instanceof PropertyAccessTerm) {
+            return Collections.singleton(((PropertyAccessTerm) t).getBase());
+        } else if (t instanceof IndexedTerm) {
+            return Collections.singleton(((IndexedTerm) t).getBase());
+        } else if (t instanceof KeyTerm) {
+            return Collections.singleton(((KeyTerm) t).getBase());
+        } else if (t instanceof FunctionParamTerm) {
+            return Collections.singleton(((FunctionParamTerm) t).getFunctionTerm());
+        } else if (t instanceof FunctionReturnTerm) {
+            return Collections.singleton(((FunctionReturnTerm) t).getFunctionTerm());
+        } else if (t instanceof MethodReceiverTerm) {
+            return Collections.singleton(((MethodReceiverTerm) t).getFunctionTerm());
+        } else if (t instanceof ProtoTerm) {
+            return Collections.singleton(((ProtoTerm) t).getTerm());
+        } else if (t instanceof ProtoParentTerm) {
+            return Collections.singleton(((ProtoParentTerm) t).getTerm());
+        } else if (t instanceof FunctionCallTerm) {
+            return Collections.singleton(((FunctionCallTerm) t).getTarget());
+        } else if (t instanceof OperatorTerm) {
+            OperatorTerm ot = (OperatorTerm) t;
+            List<ITypeTerm> result = new ArrayList<>(2);
+            result.add(ot.getLeft());
+            result.add(ot.getRight());
+            return result;
+        } else if (t instanceof UnaryOperatorTerm) {
+            return Collections.singleton(((UnaryOperatorTerm) t).getOperand());
+        } else if (t instanceof FunctionTerm) {
+            FunctionTerm ft = (FunctionTerm) t;
+            List<ITypeTerm> result = new ArrayList<>();
+            if (ft.getParamVariables() != null) {
+                result.addAll(ft.getParamVariables());
+            }
+            if (ft.getReturnVariable() != null) {
+                result.add(ft.getReturnVariable());
+            }
+            return result;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * the types a structured type is directly made of
+     */
+    private static List<Type> components(Type t) {
+        List<Type> result = new ArrayList<>();
+        if (t instanceof PropertyContainer) {
+            // for named types, this goes through to the resolved type
+            for (Property p : ((PropertyContainer) t).properties()) {
+                result.add(p.getType());
+            }
+        }
+        if (t instanceof ObjectType) {
+            result.add(((ObjectType) t).getPrototypeParent());
+        }
+        if (t instanceof CodeType) {
+            result.addAll(((CodeType) t).paramTypes());
+            result.add(((CodeType) t).returnType());
+        }
+        if (t instanceof ConstructorType) {
+            result.add(((ConstructorType) t).getPrototype());
+        }
+        if (t instanceof UnattachedMethodType) {
+            result.add(((UnattachedMethodType) t).receiverType());
+        }
+        if (t instanceof IndexableType) {
+            result.add(((IndexableType) t).keyType());
+            result.add(((IndexableType) t).elemType());
+        }
+        if (t instanceof IntersectionType) {
+            result.addAll(((IntersectionType) t).getTypes());
+        }
+        if (t instanceof ObjectUnionType) {
+            result.addAll(((ObjectUnionType) t).getObjTypes());
+        }
+        return result;
+    }
+
+    private Object find(Object x) {
+        Object root = x;
+        for (Object p = parent.get(root); p != null && p != root; p = parent.get(root)) {
+            root = p;
+        }
+        // path compression
+        while (x != root) {
+            Object next = parent.get(x);
+            if (next == null) {
+                break;
+            }
+            parent.put(x, root);
+            x = next;
+        }
+        return root;
+    }
+
+    private void union(Object x, Object y) {
+        if (x == null || y == null) {
+            return;
+        }
+        Object rx = find(x);
+        Object ry = find(y);
+        if (rx != ry) {
+            parent.put(ry, rx);
+        }
+    }
+
+}
@@ -22,6 +22,9 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 import org.mozilla.javascript.ast.AstNode;
@@ -102,6 +105,18 @@ public class DirectionalConstraintSolver {
     private Cause currentCause;
     public final Map<ITypeConstraint, Cause> causesByConstraint = new LinkedHashMap<>();
 
+    private boolean collapseEqualities = false;
+
+    private boolean sccScheduling = false;
+
+    private int threads = 1;
+
+    /**
+     * function terms that augmentation gave bounds to, with the reason;
+     * only recorded when solving in parallel
+     */
+    private final Map<ITypeTerm, Cause> augmentedTerms = new LinkedHashMap<>();
+
     private static Logger logger = LoggerFactory.getLogger(DirectionalConstraintSolver.class);
 
     public DirectionalConstraintSolver(Set<ITypeConstraint> constraints, ConstraintFactory factory, ConstraintGenerator generator) {
@@ -109,11 +124,56 @@ public class DirectionalConstraintSolver {
         this.factory = factory;
         this.sourceMapping = HashMapFactory.make(generator.getSourceMapping());
         this.termMapping = HashMapFactory.make(generator.getTermMapping());
+        CauseGraph.begin();
         this.fixedpointSolver = new TypeConstraintFixedPointSolver(constraints, causesByConstraint, mroMRWConstraints, factory, sourceMapping);
     }
 
+    /**
+     * Merge terms that are equated with type variables before solving,
+     * instead of keeping separate bounds for them. This changes the order in
+     * which the solver visits constraints, and with it the inferred types or
+     * the reported error for some programs.
+     * @see TypeConstraintFixedPointSolver#setCollapseEqualities(boolean)
+     */
+    public void setCollapseEqualities(boolean collapseEqualities) {
+        this.collapseEqualities = collapseEqualities;
+        fixedpointSolver.setCollapseEqualities(collapseEqualities);
+    }
+
+    /**
+     * Process the worklist in topological order of the strongly connected
+     * components of the solver's dependency graph. Like
+     * {@link #setCollapseEqualities(boolean)}, this can change the inferred
+     * types or the reported error.
+     * @see SCCWorklistOrder
+     */
+    public void setSCCScheduling(boolean sccScheduling) {
+        this.sccScheduling = sccScheduling;
+        fixedpointSolver.setSCCScheduling(sccScheduling);
+    }
+
+    /**
+     * Solve groups of constraints that share no terms or types on up to
+     * <code>threads</code> threads, each with a solver of its own. Each
+     * solver visits its constraints in a different order than the single
+     * sequential one would, which can change the inferred types or the
+     * reported error.
+     * @see ConstraintComponents
+     */
+    public void setSolverThreads(int threads) {
+        this.threads = threads;
+    }
+
     public TypeAssignment solve() {
         augmentConstraints();
+        if (threads > 1) {
+            List<ConstraintComponents.Component> components = ConstraintComponents.partition(
+                    constraints, mroMRWConstraints, augmentedTerms.keySet(), factory);
+            logger.debug("{} independent constraint components", components.size());
+            if (components.size() > 1) {
+                return solveInParallel(components);
+            }
+        }
         try {
             return fixedpointSolver.solve();
         } catch (CancelException e) {
@@ -121,6 +181,70 @@ public class DirectionalConstraintSolver {
         }
     }
 
+    private TypeAssignment solveInParallel(List<ConstraintComponents.Component> components) {
+        List<TypeConstraintFixedPointSolver> solvers = new ArrayList<>(components.size());
+        // each solver records its causes in a graph of its own, whichever
+        // thread runs it; only the constraints' causes are shared
+        List<CauseGraph> graphs = new ArrayList<>(components.size());
+        for (ConstraintComponents.Component component : components) {
+            TypeConstraintFixedPointSolver solver = new TypeConstraintFixedPointSolver(component.constraints,
+                    causesByConstraint, component.mroMRWConstraints, factory, sourceMapping);
+            solver.setCollapseEqualities(collapseEqualities);
+            solver.setSCCScheduling(sccScheduling);
+            for (ITypeTerm t : component.extraTerms) {
+                solver.initBounds(t, augmentedTerms.get(t));
+            }
+            solvers.add(solver);
+            graphs.add(new CauseGraph());
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // run the solvers one phase at a time, and report the failure of
+            // the lowest-numbered component in the earliest failing phase.
+            // The sequential solver runs the phases in the same order, but
+            // within a phase it interleaves the components, so when several
+            // fail in the same phase it may report a different one.
+            for (TypeConstraintFixedPointSolver.Phase phase : TypeConstraintFixedPointSolver.Phase.values()) {
+                List<Future<?>> results = new ArrayList<>(solvers.size());
+                for (int i = 0; i < solvers.size(); i++) {
+                    TypeConstraintFixedPointSolver solver = solvers.get(i);
+                    CauseGraph graph = graphs.get(i);
+                    results.add(pool.submit(() -> {
+                        CauseGraph.resume(graph);
+                        solver.solve(phase);
+                        return null;
+                    }));
+                }
+                Throwable failure = null;
+                for (Future<?> result : results) {
+                    try {
+                        result.get();
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = e.getCause();
+                        }
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                } else if (failure instanceof Error) {
+                    throw (Error) failure;
+                } else if (failure != null) {
+                    throw new RuntimeException(failure);
+                }
+            }
+            List<TypeAssignment> parts = new ArrayList<>(solvers.size());
+            for (TypeConstraintFixedPointSolver solver : solvers) {
+                parts.add(solver.solution());
+            }
+            return TypeAssignment.merge(parts);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     /**
      * Augment the initial constraints. This should move into the previous passes
      *
@@ -569,6 +693,9 @@ public class DirectionalConstraintSolver {
             // this call ensures that we have an entry for the function
             // the final type mapping.  see endtoend test iife.js
             fixedpointSolver.initBounds(functionTerm, currentCause);
+            if (threads > 1) {
+                augmentedTerms.putIfAbsent(functionTerm, currentCause);
+            }
             List<Type> paramTypes = null;
             Type returnType = null;
             Type type = functionTerm.getType();
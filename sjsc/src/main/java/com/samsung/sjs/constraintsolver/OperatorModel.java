@@ -31,6 +31,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.ibm.wala.util.collections.HashMapFactory;
+import com.samsung.sjs.EnvironmentSnapshot;
 import com.samsung.sjs.constraintgenerator.ConstraintGenUtil;
 import com.samsung.sjs.types.ArrayType;
 import com.samsung.sjs.types.BooleanType;
@@ -45,7 +46,8 @@ import com.samsung.sjs.types.Types;
 /**
  * This class provides a model for the types of expressions involving built-in unary and
  * binary operators such as "+" and "~". The class reads the model from the "operators.json"
- * file in src/main/resources and stores it into two maps. These maps can be consulted through
+ * file in src/main/resources (or from the {@link EnvironmentSnapshot} built from it) and stores
+ * it into two maps. These maps can be consulted through
  * the getTypeOfUnaryExpression() and getTypeOfInfixExpression() methods.
  *
  * @author ftip
@@ -96,10 +98,58 @@ public class OperatorModel {
 
     }
 
+    /**
+     * receives the cases of the model, in the order in which operators.json lists them; types
+     * are given by their names in operators.json
+     */
+    public interface CaseSink {
+        void unary(String operatorName, String operandType, String resultType, boolean isPrefix);
+        void infix(String operatorName, String leftType, String rightType, String resultType);
+    }
+
+    /**
+     * The case tables, built once per JVM.  They are never modified after loading, and their
+     * types are the shared constants from {@link #toType(String)}, so all models can share them.
+     */
+    private static Map<String,List<InfixOpTypeCase>> sharedInfixOperatorMap = null;
+    private static Map<String,List<UnOpTypeCase>> sharedUnaryOperatorMap = null;
+
     public OperatorModel() {
-        Reader reader = new InputStreamReader(
-                OperatorModel.class.getResourceAsStream("/operators.json"));
+        synchronized (OperatorModel.class) {
+            if (sharedInfixOperatorMap == null) {
+                Map<String,List<InfixOpTypeCase>> infix = HashMapFactory.make();
+                Map<String,List<UnOpTypeCase>> unary = HashMapFactory.make();
+                CaseSink sink = new CaseSink() {
+                    @Override
+                    public void unary(String operatorName, String operandType, String resultType, boolean isPrefix) {
+                        unary.computeIfAbsent(operatorName, k -> new ArrayList<UnOpTypeCase>())
+                            .add(new UnOpTypeCase(toType(operandType), toType(resultType), isPrefix));
+                    }
+                    @Override
+                    public void infix(String operatorName, String leftType, String rightType, String resultType) {
+                        infix.computeIfAbsent(operatorName, k -> new ArrayList<InfixOpTypeCase>())
+                            .add(new InfixOpTypeCase(toType(leftType), toType(rightType), toType(resultType)));
+                    }
+                };
+                EnvironmentSnapshot snapshot = EnvironmentSnapshot.bundled();
+                if (snapshot != null) {
+                    snapshot.readOperatorCases(sink);
+                } else {
+                    readCases(new InputStreamReader(
+                            OperatorModel.class.getResourceAsStream("/operators.json")), sink);
+                }
+                sharedInfixOperatorMap = infix;
+                sharedUnaryOperatorMap = unary;
+            }
+            infixOperatorMap = sharedInfixOperatorMap;
+            unaryOperatorMap = sharedUnaryOperatorMap;
+        }
+    }
 
+    /**
+     * Read the cases from a file in the format of operators.json.
+     */
+    public static void readCases(Reader reader, CaseSink sink) {
         JsonParser parser = new JsonParser();
         JsonElement element = parser.parse(reader);
         if (element.isJsonArray()) {
@@ -137,16 +187,7 @@ public class OperatorModel {
                                                     "unrecognized value for prefix status of unary operator: "
                                                             + prefix);
                                         }
-                                        if (!unaryOperatorMap
-                                                .containsKey(operatorName)) {
-                                            unaryOperatorMap
-                                                    .put(operatorName,
-                                                            new ArrayList<UnOpTypeCase>());
-                                        }
-                                        List<UnOpTypeCase> cases = unaryOperatorMap
-                                                .get(operatorName);
-                                        cases.add(new UnOpTypeCase(toType(op),
-                                                toType(result), isPrefix));
+                                        sink.unary(operatorName, op, result, isPrefix);
                                     } else {
                                         String left = object.get("left")
                                                 .getAsString();
@@ -154,17 +195,7 @@ public class OperatorModel {
                                                 .getAsString();
                                         String result = object.get("result")
                                                 .getAsString();
-                                        if (!infixOperatorMap
-                                                .containsKey(operatorName)) {
-                                            infixOperatorMap
-                                                    .put(operatorName,
-                                                            new ArrayList<InfixOpTypeCase>());
-                                        }
-                                        List<InfixOpTypeCase> cases = infixOperatorMap
-                                                .get(operatorName);
-                                        cases.add(new InfixOpTypeCase(
-                                                toType(left), toType(right),
-                                                toType(result)));
+                                        sink.infix(operatorName, left, right, result);
                                     }
                                 }
                             }
@@ -182,7 +213,7 @@ public class OperatorModel {
 	/**
 	 * convert from String to Type
 	 */
-	private Type toType(String typeName){
+	private static Type toType(String typeName){
 		switch (typeName){
 		case "int":
 			return IntegerType.make();
@@ -303,6 +334,6 @@ public class OperatorModel {
 		}
 	}
 
-	private Map<String,List<InfixOpTypeCase>> infixOperatorMap = HashMapFactory.make();
-	private Map<String,List<UnOpTypeCase>> unaryOperatorMap = HashMapFactory.make();
+	private final Map<String,List<InfixOpTypeCase>> infixOperatorMap;
+	private final Map<String,List<UnOpTypeCase>> unaryOperatorMap;
 }
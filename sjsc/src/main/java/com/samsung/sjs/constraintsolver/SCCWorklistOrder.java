@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.constraintsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import com.ibm.wala.fixedpoint.impl.NullaryStatement;
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.fixpoint.IFixedPointSystem;
+import com.ibm.wala.fixpoint.IVariable;
+import com.ibm.wala.fixpoint.UnaryStatement;
+
+/**
+ * Worklist order based on the strongly connected components of the
+ * dependency graph between solver variables (u -&gt; v if some statement
+ * reads u and defines v).
+ *
+ * <p>WALA's worklist always hands out the statement whose left-hand side has
+ * the smallest order number. Numbering every variable with the topological
+ * position of its component therefore makes the solver iterate each
+ * component to a local fixed point before it moves on to anything
+ * downstream of it, instead of revisiting the same statements each time
+ * something upstream changes.
+ */
+final class SCCWorklistOrder {
+
+    private SCCWorklistOrder() {
+    }
+
+    /**
+     * Set the order number of every variable in the system to the
+     * topological position of its strongly connected component.
+     *
+     * @return the number of components
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends IVariable<?>> int assignOrderNumbers(IFixedPointSystem<T> system) {
+        // WALA's getVariables() trips over the statements in the graph, so
+        // collect the variables from the statements instead
+        List<T> mentioned = new ArrayList<>();
+        for (Iterator<?> it = system.getStatements(); it.hasNext(); ) {
+            AbstractStatement<?, ?> stmt = (AbstractStatement<?, ?>) it.next();
+            if (stmt.getLHS() != null) {
+                mentioned.add((T) stmt.getLHS());
+            }
+            if (stmt instanceof UnaryStatement) {
+                mentioned.add((T) ((UnaryStatement<?>) stmt).getRightHandSide());
+            } else if (!(stmt instanceof NullaryStatement)) {
+                for (IVariable<?> rhs : stmt.getRHS()) {
+                    mentioned.add((T) rhs);
+                }
+            }
+        }
+        int maxId = -1;
+        for (T v : mentioned) {
+            maxId = Math.max(maxId, v.getGraphNodeId());
+        }
+        boolean[] seen = new boolean[maxId + 1];
+        List<T> vars = new ArrayList<>();
+        for (T v : mentioned) {
+            if (!seen[v.getGraphNodeId()]) {
+                seen[v.getGraphNodeId()] = true;
+                vars.add(v);
+            }
+        }
+
+        // Tarjan's algorithm, with an explicit stack since the graphs are deep.
+        // Variables are identified by their graph node ids to avoid hashing them.
+        int[] index = new int[maxId + 1];
+        int[] lowlink = new int[maxId + 1];
+        int[] component = new int[maxId + 1];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[maxId + 1];
+        List<T> sccStack = new ArrayList<>();
+        List<T> dfsStack = new ArrayList<>();
+        List<Iterator<T>> succStack = new ArrayList<>();
+        int nextIndex = 0;
+        int nComponents = 0;
+
+        for (T root : vars) {
+            if (index[root.getGraphNodeId()] >= 0) {
+                continue;
+            }
+            dfsStack.add(root);
+            succStack.add(successors(system, root));
+            index[root.getGraphNodeId()] = lowlink[root.getGraphNodeId()] = nextIndex++;
+            sccStack.add(root);
+            onStack[root.getGraphNodeId()] = true;
+
+            while (!dfsStack.isEmpty()) {
+                int top = dfsStack.size() - 1;
+                int v = dfsStack.get(top).getGraphNodeId();
+                Iterator<T> succs = succStack.get(top);
+                if (succs.hasNext()) {
+                    T w = succs.next();
+                    int wid = w.getGraphNodeId();
+                    if (index[wid] < 0) {
+                        index[wid] = lowlink[wid] = nextIndex++;
+                        sccStack.add(w);
+                        onStack[wid] = true;
+                        dfsStack.add(w);
+                        succStack.add(successors(system, w));
+                    } else if (onStack[wid]) {
+                        lowlink[v] = Math.min(lowlink[v], index[wid]);
+                    }
+                    continue;
+                }
+                dfsStack.remove(top);
+                succStack.remove(top);
+                if (top > 0) {
+                    int parent = dfsStack.get(top - 1).getGraphNodeId();
+                    lowlink[parent] = Math.min(lowlink[parent], lowlink[v]);
+                }
+                if (lowlink[v] == index[v]) {
+                    T w;
+                    do {
+                        w = sccStack.remove(sccStack.size() - 1);
+                        onStack[w.getGraphNodeId()] = false;
+                        component[w.getGraphNodeId()] = nComponents;
+                    } while (w.getGraphNodeId() != v);
+                    ++nComponents;
+                }
+            }
+        }
+
+        // Tarjan finds sinks first, so reverse the component numbers
+        for (T v : vars) {
+            v.setOrderNumber(nComponents - 1 - component[v.getGraphNodeId()]);
+        }
+        return nComponents;
+    }
+
+    /**
+     * the variables defined by statements that read v
+     */
+    private static <T extends IVariable<?>> Iterator<T> successors(IFixedPointSystem<T> system, T v) {
+        List<T> result = new ArrayList<>();
+        for (Iterator<?> it = system.getStatementsThatUse(v); it.hasNext(); ) {
+            @SuppressWarnings("unchecked")
+            T lhs = (T) ((AbstractStatement<?, ?>) it.next()).getLHS();
+            if (lhs != null) {
+                result.add(lhs);
+            }
+        }
+        return result.iterator();
+    }
+
+}
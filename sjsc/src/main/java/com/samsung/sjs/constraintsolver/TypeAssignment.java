@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.mozilla.javascript.ast.AstNode;
@@ -44,11 +45,38 @@ public class TypeAssignment {
 
     // TODO: it's ugly to keep this guy around.
     // We should do a bit of refactoring to break this dependency.
-    private final TypeConstraintFixedPointSolver solver;
+    private final List<TypeConstraintFixedPointSolver> solvers;
+    private final Function<ITypeTerm, TypeConstraintFixedPointSolver> solverForTerm;
 
     public TypeAssignment(Map<ITypeTerm, Type> termTypeMap, TypeConstraintFixedPointSolver solver) {
+        this(termTypeMap, Collections.singletonList(solver), term -> solver);
+    }
+
+    private TypeAssignment(Map<ITypeTerm, Type> termTypeMap, List<TypeConstraintFixedPointSolver> solvers,
+            Function<ITypeTerm, TypeConstraintFixedPointSolver> solverForTerm) {
         this.termTypeMap = termTypeMap;
-        this.solver = solver;
+        this.solvers = solvers;
+        this.solverForTerm = solverForTerm;
+    }
+
+    /**
+     * Combine the solutions of independent groups of constraints. Each term
+     * keeps being looked up in the solver that produced its type.
+     */
+    static TypeAssignment merge(List<TypeAssignment> parts) {
+        Map<ITypeTerm, Type> termTypeMap = new LinkedHashMap<>();
+        Map<ITypeTerm, TypeAssignment> partOfTerm = new LinkedHashMap<>();
+        List<TypeConstraintFixedPointSolver> solvers = new ArrayList<>();
+        for (TypeAssignment part : parts) {
+            solvers.addAll(part.solvers);
+            for (Map.Entry<ITypeTerm, Type> e : part.termTypeMap.entrySet()) {
+                termTypeMap.putIfAbsent(e.getKey(), e.getValue());
+                partOfTerm.putIfAbsent(e.getKey(), part);
+            }
+        }
+        TypeAssignment first = parts.get(0);
+        return new TypeAssignment(termTypeMap, solvers,
+                term -> partOfTerm.getOrDefault(term, first).solverForTerm.apply(term));
     }
 
     public Type typeOfTerm(ITypeTerm term) {
@@ -61,13 +89,13 @@ public class TypeAssignment {
     private Type computeTypeOfTerm(ITypeTerm term) {
         // TODO: this doesn't work if term.getType() is a TypeVar.
         // We need a cleaner API here.
-        solver.substituteTypeVars(term.getType());
+        solverForTerm.apply(term).substituteTypeVars(term.getType());
         TypeConstraintFixedPointSolver.replaceNestedAny(term.getType());
         return term.getType();
     }
 
     public MROMRWVariable getMROMRWVarForTerm(ITypeTerm term) {
-        return solver.getMROMRWVarForTerm(term);
+        return solverForTerm.apply(term).getMROMRWVarForTerm(term);
     }
 
     public Map<AstNode, Type> nodeTypes() {
@@ -120,7 +148,10 @@ public class TypeAssignment {
     }
 
     public String mroMRWAsString() {
-        Map<AstNode, MROMRWVariable> externalMROMRW = solver.getExternalMROMRW();
+        Map<AstNode, MROMRWVariable> externalMROMRW = new LinkedHashMap<>();
+        for (TypeConstraintFixedPointSolver solver : solvers) {
+            solver.getExternalMROMRW().forEach(externalMROMRW::putIfAbsent);
+        }
         return externalMROMRW.keySet().stream()
                 .map(n -> n.toSource() + " (line " + n.getLineno() + ") --> " + externalMROMRW.get(n).sortedString())
                 .sorted()
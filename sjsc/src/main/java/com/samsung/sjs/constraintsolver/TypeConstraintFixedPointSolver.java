@@ -37,6 +37,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ibm.wala.fixedpoint.impl.DefaultFixedPointSolver;
+import com.ibm.wala.fixedpoint.impl.DefaultFixedPointSystem;
 import com.ibm.wala.fixpoint.AbstractStatement;
 import com.ibm.wala.fixpoint.UnaryStatement;
 import com.ibm.wala.util.CancelException;
@@ -128,6 +129,45 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
     private final Map<ITypeTerm, Cause> termExistence;
     private final Map<ITypeTerm, CheckArityConstraint> aritiesToCheck;
 
+    /**
+     * True to merge terms equated with type variable terms before creating
+     * statements. Off by default: the solver is order-sensitive, and the
+     * changed worklist order changes the inferred types or the reported error
+     * for some programs.
+     */
+    private boolean collapseEqualities = false;
+
+    /**
+     * True to process statements in topological order of the strongly
+     * connected components of the variable dependency graph, rather than
+     * in WALA's default order. See {@link SCCWorklistOrder}. Off by default,
+     * since a different order changes the inferred types or the reported
+     * error for some programs.
+     */
+    private boolean sccScheduling = false;
+
+    /**
+     * size of the fixed-point system when the components were last computed
+     */
+    private int sccOrderedSize = 0;
+
+    /**
+     * recompute the components once the system has grown by this factor,
+     * since statements added on the fly go to the back of the worklist
+     */
+    private static final double SCC_GROWTH_FACTOR = 1.1;
+
+    /**
+     * union-find parent links for terms merged by {@link #collapseEqualities()};
+     * terms that are not in the map are their own representative
+     */
+    private final Map<ITypeTerm, ITypeTerm> representatives = new LinkedHashMap<>();
+
+    /**
+     * for each term in {@link #representatives}, why it is equal to its parent
+     */
+    private final Map<ITypeTerm, Cause> linkCauses = new LinkedHashMap<>();
+
     public TypeConstraintFixedPointSolver(Set<ITypeConstraint> constraints, Map<ITypeConstraint, Cause> causes, Set<MROMRWConstraint> mroMRWConstraints, ConstraintFactory factory, Map<IConstraint, Set<Integer>> sourceMapping) {
         this.constraints = constraints;
         this.mroMRWConstraints = mroMRWConstraints;
@@ -161,8 +201,19 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
                 || term instanceof EnvironmentDeclarationTerm;
     }
 
+    public void setCollapseEqualities(boolean collapseEqualities) {
+        this.collapseEqualities = collapseEqualities;
+    }
+
+    public void setSCCScheduling(boolean sccScheduling) {
+        this.sccScheduling = sccScheduling;
+    }
+
     @Override
     protected void initializeVariables() {
+        if (collapseEqualities) {
+            collapseEqualities();
+        }
         for (ITypeConstraint c : constraints) {
 
             logger.debug("Examining constraint: {}", c);
@@ -187,8 +238,124 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
 //        }
     }
 
+    /**
+     * Union-find pre-pass over the equality constraints. A type variable
+     * term that is equated with some other term gets no bounds of its own;
+     * it shares the bound variables (and MRO/MRW variable) of its class
+     * representative, and the equality itself becomes no statements at all.
+     *
+     * <p>Only type variable terms are merged into another term. Other terms
+     * get special treatment from the operators attached to their bounds
+     * (property writes, type sources, null, ...), so a class contains at most
+     * one of them, which is then its representative. Statements created for
+     * a merged term carry the equalities that link it to its representative
+     * (see {@link #viaClass}), so explanations still include them, and only
+     * where that term is involved.
+     */
+    private void collapseEqualities() {
+        int merged = 0;
+        for (ITypeConstraint c : constraints) {
+            if (c instanceof TypeEqualityConstraint
+                    && canCollapse(c.getLeft()) && canCollapse(c.getRight())
+                    && union(c.getLeft(), c.getRight(), getCause(c))) {
+                ++merged;
+            }
+        }
+        logger.debug("collapsed {} equality constraints", merged);
+    }
+
+    private boolean canCollapse(ITypeTerm t) {
+        return t instanceof TypeVariableTerm
+                || !(isTypeSource(t)
+                        || t instanceof PropertyAccessTerm
+                        || t instanceof ProtoTerm
+                        || t instanceof ProtoParentTerm
+                        || ConstraintGenUtil.isNullUndefinedLitOrVoidOp(t)
+                        || ConstraintGenUtil.isNullConstant(t));
+    }
+
+    /**
+     * @return true if the two terms are now in the same class
+     */
+    private boolean union(ITypeTerm t1, ITypeTerm t2, Cause reason) {
+        ITypeTerm r1 = representative(t1);
+        ITypeTerm r2 = representative(t2);
+        if (r1 != r2) {
+            boolean anchored1 = !(r1 instanceof TypeVariableTerm);
+            boolean anchored2 = !(r2 instanceof TypeVariableTerm);
+            if (anchored1 && anchored2) {
+                return false;
+            }
+            if (anchored2) {
+                ITypeTerm tmp = r1;
+                r1 = r2;
+                r2 = tmp;
+            }
+            Cause link = Cause.derived(reason, pathCause(t1), pathCause(t2));
+            representatives.put(r2, r1);
+            linkCauses.put(r2, link);
+        }
+        return true;
+    }
+
+    private ITypeTerm representative(ITypeTerm t) {
+        if (representatives.isEmpty()) {
+            // no pre-pass: don't even hash the term, since the identity hash
+            // codes handed out determine iteration orders elsewhere
+            return t;
+        }
+        ITypeTerm parent = representatives.get(t);
+        if (parent == null) {
+            return t;
+        }
+        ITypeTerm root = representative(parent);
+        if (root != parent) {
+            // parent now links straight to root, and its cause covers the way there
+            linkCauses.put(t, Cause.derived(linkCauses.get(t), linkCauses.get(parent)));
+            representatives.put(t, root);
+        }
+        return root;
+    }
+
+    /**
+     * @return why t is equal to its representative
+     */
+    private Cause pathCause(ITypeTerm t) {
+        if (representative(t) == t) {
+            return Cause.noReason();
+        }
+        return linkCauses.get(t);
+    }
+
+    /**
+     * @return reason, extended with why the given terms are equal to their
+     * representatives, whose bounds they use
+     */
+    private Cause viaClass(Cause reason, ITypeTerm... ts) {
+        if (representatives.isEmpty()) {
+            return reason;
+        }
+        for (ITypeTerm t : ts) {
+            if (representative(t) != t) {
+                reason = Cause.derived(reason, linkCauses.get(t));
+            }
+        }
+        return reason;
+    }
+
     void initBounds(ITypeTerm t, Cause reason) {
         assert t != null : "null term!!";
+        ITypeTerm rep = representative(t);
+        if (rep != t) {
+            if (! terms.contains(t)) {
+                initBounds(rep, reason);
+                terms.add(t);
+                termExistence.put(t, viaClass(reason, t));
+                upperBounds.put(t, upperBounds.get(rep));
+                lowerBounds.put(t, lowerBounds.get(rep));
+            }
+            return;
+        }
         if (! terms.contains(t)) {
             terms.add(t);
             termExistence.put(t, reason);
@@ -230,6 +397,28 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
         logger.debug("solving constraints...");
     }
 
+    @Override
+    public void orderStatements() {
+        if (!sccScheduling) {
+            super.orderStatements();
+            return;
+        }
+        // DefaultFixedPointSolver always uses a DefaultFixedPointSystem
+        int size = ((DefaultFixedPointSystem<?>) getFixedPointSystem()).getNumberOfNodes();
+        if (sccOrderedSize > 0 && size <= sccOrderedSize * SCC_GROWTH_FACTOR) {
+            return;
+        }
+        int nComponents = SCCWorklistOrder.assignOrderNumbers(getFixedPointSystem());
+        logger.debug("ordered {} nodes into {} components", size, nComponents);
+        sccOrderedSize = size;
+        // the heap is keyed on the order numbers that just changed
+        List<AbstractStatement<?,?>> pending = new ArrayList<>();
+        while (!workList.isEmpty()) {
+            pending.add(workList.takeStatement());
+        }
+        pending.forEach(workList::insertStatement);
+    }
+
     /**
      * add statements to the solver for MRO/MRW constraints
      */
@@ -242,7 +431,8 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
                 TypeInfSolverVariable lowerVar = lowerBounds.get(possMethodTerm);
                 // NOTE the lhs var passed here doesn't matter, since the
                 // operator only generates new constraints
-                newStatement(lowerVar, new CheckForMethodOperator(this,containingObjectTerm, constraint.getReason()), lowerVar, false, false);
+                Cause reason = viaClass(constraint.getReason(), possMethodTerm, containingObjectTerm);
+                newStatement(lowerVar, new CheckForMethodOperator(this,containingObjectTerm, reason), lowerVar, false, false);
             } else {
                 throw new RuntimeException("need to handle MROMRWConstraint " + constraint);
             }
@@ -276,6 +466,10 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
          * something as a dummy.
          */
         for (ITypeTerm t: terms) {
+            if (representative(t) != t) {
+                // shares its bounds with the representative, which is handled on its own
+                continue;
+            }
             if (! isTypeSource(t)) {
                 MROMRWVariable mromrwVar = getMROMRWVarForTerm(t);
                 newStatement(lowerBounds.get(t), TypeInsideOperator.make(this, t, contrib(t)), lowerBounds.get(t), upperBounds.get(t), mromrwVar, false, false);
@@ -293,6 +487,7 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
             Cause cause = getCause(c);
             initBounds(ot.getLeft(), cause);
             initBounds(ot.getRight(), cause);
+            cause = viaClass(cause, ot.getLeft(), ot.getRight(), ot);
             TypeConstraintSolverVariable[] a = {
                     lowerBounds.get(ot.getLeft()),
                     lowerBounds.get(ot.getRight()),
@@ -312,6 +507,7 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
             Cause cause = getCause(c);
             UnaryOperatorTerm uot = (UnaryOperatorTerm) c.getRight();
             initBounds(uot.getOperand(), cause);
+            cause = viaClass(cause, uot.getOperand(), uot);
             TypeConstraintSolverVariable[] a = { lowerBounds.get(uot.getOperand()), upperBounds.get(uot.getOperand()) };
             int lineNumber = this.sourceMapping.get(c).iterator().next();
             newStatement(lowerBounds.get(uot), new UnaryOpOperator(this, uot.getOperator(), uot.isPrefix(), lineNumber, cause), a, false, false);
@@ -334,17 +530,20 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
                 ITypeTerm right = c.getRight();
 
                 /* simulate equating by 2 directional constraints */
+                /* (nothing to do if the pre-pass already merged the terms) */
                 equateTypes(left, right, false, getCause(c));
             } else if (c instanceof ProtoConstraint) {
                 ProtoTerm protoTerm = (ProtoTerm) c.getLeft();
                 ITypeTerm baseTerm = protoTerm.getTerm();
                 initBounds(baseTerm, cause);
+                cause = viaClass(cause, baseTerm);
                 newStatement(lowerBounds.get(baseTerm), new TypeProtoOperator(this,protoTerm, cause), lowerBounds.get(baseTerm), false, false);
             } else if (c instanceof InheritPropsConstraint) {
                 ProtoParentTerm protoParentTerm = (ProtoParentTerm) c.getLeft();
                 ITypeTerm baseTerm = protoParentTerm.getTerm();
                 initBounds(protoParentTerm, cause);
                 initBounds(baseTerm, cause);
+                cause = viaClass(cause, baseTerm);
                 // lower bound of base term is LHS, and lower bound of parent term is RHS
                 newStatement(lowerBounds.get(baseTerm),
                         new InheritPropsOperator(this, cause),
@@ -397,6 +596,7 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
         // we init the bounds here, in case we haven't seen the terms before
         initBounds(left, reason);
         initBounds(right, reason);
+        reason = viaClass(reason, left, right);
         if (! isTypeSource(left)) {
             /* left.hi <- left.hi \/ right.hi */
             newStatement(upperBounds.get(left), new TypeMeetOperator(this, left, reason), upperBounds.get(right), toWorklist, false);
@@ -569,15 +769,7 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
     }
 
 
-    /* TODO: Revisit this.
-     * PropertyAccessTerm's set type actually sets the type of its baseType
-     * causing confusion.
-     *
-     * OTOH, a getType on a PropertyAccessTerm will consult its base type
-     * so we do not really need to worry about assigning its 'type' here.
-     */
-    private boolean findFinalSolutions() {
-        boolean flag = setTermTypes();
+    private void checkArities() {
         for (ITypeTerm t : terms) {
             try {
                 if (t instanceof FunctionReturnTerm && aritiesToCheck.containsKey(t)) {
@@ -593,10 +785,6 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
                 throw new CoreException(e.getMessage(), cause);
             }
         }
-        substituteAllTypeVars();
-        checkObjectTypeUpperLower();
-        checkConcrete();
-        return flag;
     }
 
     private void substituteAllTypeVars() {
@@ -775,6 +963,13 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
 //		}
     }
 
+    /* TODO: Revisit this.
+     * PropertyAccessTerm's set type actually sets the type of its baseType
+     * causing confusion.
+     *
+     * OTOH, a getType on a PropertyAccessTerm will consult its base type
+     * so we do not really need to worry about assigning its 'type' here.
+     */
     private boolean setTermTypes() {
         boolean flag = true;
         for (ITypeTerm t: terms) {
@@ -927,15 +1122,55 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
 
 
     public TypeAssignment solve() throws CancelException {
-        logger.info("Type Solve ...");
-        super.solve(null);
-        if (logger.isDebugEnabled()) {
-            dumpBounds();
+        for (Phase phase : Phase.values()) {
+            solve(phase);
         }
-        boolean typedAllVariables = findFinalSolutions();
-        if (!typedAllVariables) {
-            logger.debug("Cannot find types for all variables");
+        return solution();
+    }
+
+    /**
+     * The steps of {@link #solve()}, each of which can fail. Solving
+     * several components in parallel runs them one step at a time, so that
+     * an error found in an earlier step takes precedence, as it would if
+     * they were solved together.
+     */
+    enum Phase {
+        FIXED_POINT, TERM_TYPES, ARITIES, TYPE_VARIABLES, OBJECT_TYPES, CONCRETE
+    }
+
+    void solve(Phase phase) throws CancelException {
+        switch (phase) {
+        case FIXED_POINT:
+            logger.info("Type Solve ...");
+            super.solve(null);
+            if (logger.isDebugEnabled()) {
+                dumpBounds();
+            }
+            break;
+        case TERM_TYPES:
+            if (!setTermTypes()) {
+                logger.debug("Cannot find types for all variables");
+            }
+            break;
+        case ARITIES:
+            checkArities();
+            break;
+        case TYPE_VARIABLES:
+            substituteAllTypeVars();
+            break;
+        case OBJECT_TYPES:
+            checkObjectTypeUpperLower();
+            break;
+        case CONCRETE:
+            checkConcrete();
+            break;
         }
+    }
+
+    /**
+     * @return the solution, once every {@link Phase} has run
+     */
+    TypeAssignment solution() {
         if (logger.isDebugEnabled()) {
             dumpFinalSolution();
         }
@@ -982,6 +1217,11 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
     boolean equateTypes(ITypeTerm lty, ITypeTerm rty, boolean toWorklist, Cause reason) {
         initBounds(lty, reason);
         initBounds(rty, reason);
+        if (lty != rty && representative(lty) == representative(rty)) {
+            // merged by the pre-pass, so they already share their bounds
+            return false;
+        }
+        reason = viaClass(reason, lty, rty);
         TypeConstraintSolverVariable leftLo = lowerBounds.get(lty);
         TypeConstraintSolverVariable leftHi = upperBounds.get(lty);
         TypeConstraintSolverVariable rightLo = lowerBounds.get(rty);
@@ -1088,7 +1328,12 @@ public class TypeConstraintFixedPointSolver extends DefaultFixedPointSolver<Type
     protected MROMRWVariable getMROMRWVarForTerm(ITypeTerm term) {
         MROMRWVariable result = term2MROMRW.get(term);
         if (result == null) {
-            result = new MROMRWVariable(term);
+            ITypeTerm rep = representative(term);
+            if (rep != term) {
+                result = getMROMRWVarForTerm(rep);
+            } else {
+                result = new MROMRWVariable(term);
+            }
             term2MROMRW.put(term,result);
         }
         return result;
@@ -27,7 +27,7 @@ public interface FixingSetFinder<T> {
     default boolean isOptimal() { return false; }
 
     static List<String> strategyNames() {
-        return Arrays.asList("sat", "maxsat", "greedy");
+        return Arrays.asList("sat", "maxsat", "incmaxsat", "greedy");
     }
 
     static String defaultStrategy() {
@@ -41,6 +41,7 @@ public interface FixingSetFinder<T> {
         switch (name) {
             case "sat":    return new SatFixingSetFinder<>(new Sat4J());
             case "maxsat": return new MaxSatFixingSetFinder<>();
+            case "incmaxsat": return new IncrementalMaxSatFixingSetFinder<>();
             case "greedy": return new GreedyFixingSetFinder<>();
         }
         throw new IllegalArgumentException();
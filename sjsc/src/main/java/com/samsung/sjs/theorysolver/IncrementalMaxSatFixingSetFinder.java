@@ -0,0 +1,232 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.theorysolver;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optimal fixing set finder using core-guided MaxSAT (the OLL algorithm, as
+ * used by RC2) on top of a single incremental SAT solver.
+ *
+ * <p>Each constraint c gets a variable x<sub>c</sub> which is true if c is kept.
+ * Every core from the theory becomes a hard clause saying that at least one of
+ * its constraints is broken, and every x<sub>c</sub> is a soft unit clause.
+ * Soft literals are passed to the SAT solver as assumptions. When some of the
+ * assumptions are jointly unsatisfiable, the lower bound on the cost goes up by
+ * one and those assumptions are replaced by a totalizer over them which allows
+ * exactly one more of them to be violated.
+ *
+ * <p>Unlike {@link MaxSatFixingSetFinder}, nothing is rebuilt between rounds.
+ * New cores only add hard clauses, so the learned clauses, the totalizers and
+ * the relaxed assumptions all remain valid for the next call to
+ * {@link #currentFixingSet(Collection, FixingSetListener)}.
+ *
+ * @param <T>     the type of constraints
+ */
+public class IncrementalMaxSatFixingSetFinder<T> implements FixingSetFinder<T> {
+
+    /**
+     * Output literals of a totalizer: outputs[i] is implied whenever at least
+     * i+1 of the inputs are true.
+     */
+    private static final class Totalizer {
+        final int[] outputs;
+        Totalizer(int[] outputs) {
+            this.outputs = outputs;
+        }
+    }
+
+    private ISolver solver;
+    private Map<T, Integer> varsByConstraint;
+    private Map<Integer, T> constraintsByVar;
+    private List<Collection<T>> cores;
+
+    /** literals we would like to be true; handed to the solver as assumptions */
+    private Set<Integer> assumptions;
+
+    /** for assumptions of the form -outputs[k], the totalizer they belong to and k */
+    private Map<Integer, Totalizer> totalizerByAssumption;
+    private Map<Integer, Integer> boundByAssumption;
+
+    private int lowerBound;
+
+    @Override
+    public boolean isOptimal() {
+        return true;
+    }
+
+    @Override
+    public void setup(Collection<T> allConstraints) {
+        solver = SolverFactory.newDefault();
+        solver.setTimeout(100000);
+        varsByConstraint = new LinkedHashMap<>();
+        constraintsByVar = new LinkedHashMap<>();
+        cores = new ArrayList<>();
+        assumptions = new LinkedHashSet<>();
+        totalizerByAssumption = new LinkedHashMap<>();
+        boundByAssumption = new LinkedHashMap<>();
+        lowerBound = 0;
+    }
+
+    @Override
+    public void addCore(Collection<T> core) {
+        int[] clause = new int[core.size()];
+        int i = 0;
+        for (T c : core) {
+            Integer var = varsByConstraint.get(c);
+            if (var == null) {
+                var = solver.nextFreeVarId(true);
+                varsByConstraint.put(c, var);
+                constraintsByVar.put(var, c);
+                assumptions.add(var);
+            }
+            clause[i++] = -var;
+        }
+        cores.add(new ArrayList<>(core));
+        addHardClause(clause);
+    }
+
+    @Override
+    public FixingSetListener.Action currentFixingSet(Collection<T> out, FixingSetListener<T, ?> listener) {
+        try {
+            while (!solver.isSatisfiable(toVec(assumptions))) {
+                IVecInt explanation = solver.unsatExplanation();
+                if (explanation == null || explanation.isEmpty()) {
+                    throw new RuntimeException("Hard clauses are unsat!");
+                }
+                relax(explanation);
+                if (listener.onWeakening(lowerBound) == FixingSetListener.Action.STOP) {
+                    return FixingSetListener.Action.STOP;
+                }
+            }
+        } catch (TimeoutException e) {
+            throw new RuntimeException("timeout", e);
+        }
+
+        for (Map.Entry<Integer, T> e : constraintsByVar.entrySet()) {
+            if (!solver.model(e.getKey())) {
+                out.add(e.getValue());
+            }
+        }
+        if (!cores.stream().allMatch(c -> c.stream().anyMatch(out::contains))) {
+            throw new RuntimeException("bug!");
+        }
+
+        return FixingSetListener.Action.CONTINUE;
+    }
+
+    /**
+     * Handle an unsatisfiable subset of the assumptions: at least one of them
+     * has to be violated, so the cost goes up by one and the subset is replaced
+     * by a cardinality constraint allowing one violation among its members.
+     */
+    private void relax(IVecInt explanation) {
+        ++lowerBound;
+        List<Integer> violations = new ArrayList<>(explanation.size());
+        for (int i = 0; i < explanation.size(); ++i) {
+            int lit = explanation.get(i);
+            if (!assumptions.contains(lit)) {
+                // be robust to solvers that report negated assumptions
+                lit = -lit;
+            }
+            assert assumptions.contains(lit) : "core literal " + lit + " is not an assumption";
+            assumptions.remove(lit);
+            violations.add(-lit);
+
+            // a totalizer bound that took part in the core is loosened by one
+            Totalizer t = totalizerByAssumption.remove(lit);
+            if (t != null) {
+                int k = boundByAssumption.remove(lit) + 1;
+                if (k < t.outputs.length) {
+                    addBound(t, k);
+                }
+            }
+        }
+        if (violations.size() > 1) {
+            Totalizer t = new Totalizer(buildTotalizer(violations));
+            addBound(t, 1);
+        }
+    }
+
+    /** Assume that fewer than k+1 of the totalizer's inputs are true. */
+    private void addBound(Totalizer t, int k) {
+        int lit = -t.outputs[k];
+        assumptions.add(lit);
+        totalizerByAssumption.put(lit, t);
+        boundByAssumption.put(lit, k);
+    }
+
+    /**
+     * Totalizer encoding (Bailleux &amp; Boufkhad): returns output variables o
+     * such that o[i] is forced true whenever at least i+1 inputs are true.
+     */
+    private int[] buildTotalizer(List<Integer> inputs) {
+        if (inputs.size() == 1) {
+            return new int[] { inputs.get(0) };
+        }
+        int mid = inputs.size() / 2;
+        int[] left = buildTotalizer(inputs.subList(0, mid));
+        int[] right = buildTotalizer(inputs.subList(mid, inputs.size()));
+        int[] outputs = new int[left.length + right.length];
+        for (int i = 0; i < outputs.length; ++i) {
+            outputs[i] = solver.nextFreeVarId(true);
+        }
+        for (int i = 0; i <= left.length; ++i) {
+            for (int j = 0; j <= right.length; ++j) {
+                if (i + j == 0) {
+                    continue;
+                }
+                // (at least i on the left) and (at least j on the right) => at least i+j
+                List<Integer> clause = new ArrayList<>(3);
+                if (i > 0) {
+                    clause.add(-left[i - 1]);
+                }
+                if (j > 0) {
+                    clause.add(-right[j - 1]);
+                }
+                clause.add(outputs[i + j - 1]);
+                addHardClause(clause.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        return outputs;
+    }
+
+    private void addHardClause(int[] literals) {
+        try {
+            solver.addClause(new VecInt(literals));
+        } catch (ContradictionException e) {
+            throw new RuntimeException("Hard clauses are unsat!", e);
+        }
+    }
+
+    private static IVecInt toVec(Collection<Integer> literals) {
+        return new VecInt(literals.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+}
@@ -51,38 +51,87 @@ import java.util.stream.Collectors;
  * Solver class for SJS types.
  *
  * <p>Note that there is a lot of weirdness here. This is a Theory over
- * integers, not {@link ITypeConstraint}s! Since the constraint solving
- * API exposed by {@link DirectionalConstraintSolver} is stateful, we
- * need to regenerate the constraints from source every time the solver
- * is invoked. We can't keep the constraints around! Instead, the
- * integers represent indexes into the list of constraints generated
- * from the source tree. Mercifully, this list has a consistent order.
- * Someday, someone should clean all that up.
+ * integers, not {@link ITypeConstraint}s! The integers represent indexes
+ * into the list of constraints generated from the source tree, which has
+ * a consistent order.
+ *
+ * <p>The constraint solving API exposed by {@link DirectionalConstraintSolver}
+ * is stateful: solving mutates the terms and types of the constraints. In
+ * incremental mode (the default) the constraints are generated once, and
+ * a {@link ConstraintFactory.Snapshot} is used to undo the effects of each
+ * solve before the next one. Otherwise the constraints are regenerated from
+ * source on every check. Either way, the model returned by {@link #check}
+ * reads the live term state, so it is only valid until the next call.
  */
 public class SJSTypeTheory implements Theory<Integer, TypeAssignment> {
 
     private static final boolean DUMP_DOT = false;
 
     private final List<ITypeConstraint> constraints;
+    /** position of each constraint in {@link #constraints}, for mapping cores back to integers */
+    private final Map<ITypeConstraint, Integer> constraintIndex;
     private final JSEnvironment env;
     private final AstRoot root;
+    private final boolean incremental;
     private ConstraintFactory factory;
     private ConstraintGenerator generator;
+    private ConstraintFactory.Snapshot snapshot;
     private ModuleSystem modsys;
+    private boolean collapseEqualities;
+    private boolean sccScheduling;
+    private int solverThreads = 1;
 
     public SJSTypeTheory(JSEnvironment env, ModuleSystem modsys, AstRoot root) {
+        this(env, modsys, root, true);
+    }
+
+    public SJSTypeTheory(JSEnvironment env, ModuleSystem modsys, AstRoot root, boolean incremental) {
         constraints = new ArrayList<>();
+        constraintIndex = new HashMap<>();
         this.env = env;
         this.root = root;
         this.modsys = modsys;
+        this.incremental = incremental;
+    }
+
+    /**
+     * @see DirectionalConstraintSolver#setCollapseEqualities(boolean)
+     */
+    public void setCollapseEqualities(boolean collapseEqualities) {
+        this.collapseEqualities = collapseEqualities;
+    }
+
+    /**
+     * @see DirectionalConstraintSolver#setSCCScheduling(boolean)
+     */
+    public void setSCCScheduling(boolean sccScheduling) {
+        this.sccScheduling = sccScheduling;
+    }
+
+    /**
+     * @see DirectionalConstraintSolver#setSolverThreads(int)
+     */
+    public void setSolverThreads(int solverThreads) {
+        this.solverThreads = solverThreads;
     }
 
     public List<ITypeConstraint> getConstraints() {
+        if (snapshot != null) {
+            return new ArrayList<>(constraints);
+        }
         constraints.clear();
+        constraintIndex.clear();
         factory = new ConstraintFactory();
         generator = new ConstraintGenerator(factory, env, modsys);
         generator.generateConstraints(root);
         constraints.addAll(generator.getTypeConstraints());
+        for (int i = 0; i < constraints.size(); ++i) {
+            // first occurrence wins, like List.indexOf
+            constraintIndex.putIfAbsent(constraints.get(i), i);
+        }
+        if (incremental) {
+            snapshot = factory.snapshot(constraints);
+        }
         return new ArrayList<>(constraints);
     }
 
@@ -103,8 +152,12 @@ public class SJSTypeTheory implements Theory<Integer, TypeAssignment> {
 
     @Override
     public Either<TypeAssignment, Collection<Integer>> check(Collection<Integer> pos) {
-        // Grumble grumble stateful APIs... we need to reconstruct all of this...
-        getConstraints();
+        // Grumble grumble stateful APIs... we need to reset or reconstruct all of this...
+        if (snapshot != null) {
+            snapshot.restore();
+        } else {
+            getConstraints();
+        }
 
         Set<ITypeConstraint> cs = pos.stream()
             .sorted()
@@ -112,14 +165,17 @@ public class SJSTypeTheory implements Theory<Integer, TypeAssignment> {
             .collect(Collectors.toCollection(LinkedHashSet::new));
 
         DirectionalConstraintSolver solver = new DirectionalConstraintSolver(cs, factory, generator);
+        solver.setCollapseEqualities(collapseEqualities);
+        solver.setSCCScheduling(sccScheduling);
+        solver.setSolverThreads(solverThreads);
         TypeAssignment solution;
         try {
             solution = solver.solve();
         } catch (CoreException e) {
             Collection<Integer> core = new HashSet<>();
             for (ITypeConstraint c : e.cause.core()) {
-                int idx = constraints.indexOf(c);
-                assert idx >= 0 : "constraint not found!";
+                Integer idx = constraintIndex.get(c);
+                assert idx != null : "constraint not found!";
                 core.add(idx);
             }
             if (DUMP_DOT) {
@@ -19,8 +19,14 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -68,6 +74,7 @@ public class TheorySolver {
         Collection<Constraint> constraints = new ArrayList<>();
         Collection<Constraint> core        = new ArrayList<>();
         Collection<Constraint> fixingSet   = new LinkedHashSet<>();
+        Set<Constraint> softSet = new HashSet<>(softConstraints);
         for (;;) {
 
             if (fixingSetFinder.currentFixingSet(fixingSet, listener) == FixingSetListener.Action.STOP) {
@@ -82,10 +89,10 @@ public class TheorySolver {
                     return;
                 }
                 fixingSetFinder.addCore(constraints.stream()
-                        .filter(softConstraints::contains)
+                        .filter(softSet::contains)
                         .collect(Collectors.toList()));
             } else {
-                result.right.stream().filter(softConstraints::contains).forEach(core::add);
+                result.right.stream().filter(softSet::contains).forEach(core::add);
                 if (listener.onCore(core) == FixingSetListener.Action.STOP) {
                     return;
                 }
@@ -133,6 +140,10 @@ public class TheorySolver {
 
         fixingSetFinder.setup(softConstraints);
 
+        // Used to split cores into hard and soft parts without a linear scan
+        // of the hard constraint list per core element.
+        Set<Constraint> hardSet = new HashSet<>(hardConstraints);
+
         // These two are complements of each other:
         //    - fixingSet is the constraints we are going to remove
         //    - positive  is the constraints we are going to keep
@@ -169,7 +180,7 @@ public class TheorySolver {
 
                 // The fixing set finder shouldn't care about hard constraints
                 Collection<Constraint> softCore = result.right.stream()
-                    .filter(c -> !hardConstraints.contains(c))
+                    .filter(c -> !hardSet.contains(c))
                     .collect(Collectors.toList());
 
                 if (softCore.isEmpty()) {
@@ -204,6 +215,8 @@ public class TheorySolver {
         int iter = 0;
         Collection<Constraint> positive = new LinkedHashSet<>();
         boolean changed;
+        // true once the theory has been checked again after producing `model`
+        boolean stale = false;
         do {
 
             ++iter;
@@ -212,6 +225,7 @@ public class TheorySolver {
             changed = false;
             for (Constraint c : fixingSet) {
                 Collection<Constraint> candidate = without(fixingSet, c);
+                positive.clear();
                 positive.addAll(hardConstraints);
                 positive.addAll(softConstraints);
                 positive.removeAll(candidate);
@@ -220,18 +234,147 @@ public class TheorySolver {
                 if (result.left != null) {
                     // it's still a fixing set!
                     changed = true;
+                    stale = false;
                     fixingSet = candidate;
                     model = result.left;
                     break;
                 }
+                stale = true;
             }
 
         } while (changed);
 
+        if (stale) {
+            // Theories may be stateful (see SJSTypeTheory), in which case
+            // the failed checks above clobbered the model. Recompute it.
+            positive.clear();
+            positive.addAll(hardConstraints);
+            positive.addAll(softConstraints);
+            positive.removeAll(fixingSet);
+            model = theorySolver.check(positive).left;
+            assert model != null;
+        }
+
         System.out.println("FINISHED MINIMIZING [final size=" + fixingSet.size() + ']');
         return Pair.of(model, fixingSet);
     }
 
+    /**
+     * Like {@link #minimizeFixingSet(Theory, List, List, Object, Collection)}, but
+     * uses a binary deletion filter whose candidate checks run concurrently.
+     *
+     * <p>The fixing set is cut into chunks, starting with two halves. In every
+     * round, each pending chunk is tested in parallel to see if the fixing set
+     * minus that chunk is still a fixing set. The first chunk that passes is
+     * dropped; the other chunks that passed are tested again in the next round,
+     * because the fixing set has changed. Chunks that fail are split in half,
+     * or kept for good if they are single constraints. This is sound because
+     * theories are monotone: if a fixing set minus a chunk does not work, then
+     * neither does any smaller fixing set minus that chunk. The result is
+     * 1-minimal, just like the sequential version.
+     *
+     * <p>Theories are stateful, so each worker thread checks constraints with
+     * its own theory instance obtained from <code>theories</code>. All of them
+     * must number constraints the same way as <code>theorySolver</code>, which
+     * is used (on the calling thread) to compute the final model.
+     *
+     * @param threads the number of worker threads to use
+     */
+    public static <Constraint, Model> Pair<Model, Collection<Constraint>> minimizeFixingSetParallel(
+        Theory<Constraint, Model> theorySolver,
+        Supplier<? extends Theory<Constraint, Model>> theories,
+        List<Constraint> hardConstraints,
+        List<Constraint> softConstraints,
+        Model model,
+        Collection<Constraint> fixingSet,
+        int threads) {
+
+        System.out.println("MINIMIZING FIXING SET [initial size=" + fixingSet.size() + ", threads=" + threads + ']');
+
+        ThreadLocal<Theory<Constraint, Model>> localTheory = ThreadLocal.withInitial(theories);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Constraint> current = new ArrayList<>(fixingSet);
+            List<List<Constraint>> pending = new ArrayList<>();
+            split(current, pending);
+            boolean changed = false;
+            int round = 0;
+            while (!pending.isEmpty()) {
+
+                ++round;
+                System.out.println("  --> round " + round + " [size=" + current.size() + ", chunks=" + pending.size() + "]...");
+
+                List<Callable<Boolean>> tasks = new ArrayList<>(pending.size());
+                for (List<Constraint> chunk : pending) {
+                    Set<Constraint> candidate = new LinkedHashSet<>(current);
+                    candidate.removeAll(chunk);
+                    tasks.add(() -> isFixingSet(localTheory.get(), hardConstraints, softConstraints, candidate));
+                }
+                List<Future<Boolean>> results = pool.invokeAll(tasks);
+
+                List<List<Constraint>> next = new ArrayList<>();
+                boolean removed = false;
+                for (int i = 0; i < pending.size(); ++i) {
+                    List<Constraint> chunk = pending.get(i);
+                    if (results.get(i).get()) {
+                        if (removed) {
+                            next.add(chunk);
+                        } else {
+                            current.removeAll(chunk);
+                            removed = true;
+                            changed = true;
+                        }
+                    } else if (chunk.size() > 1) {
+                        split(chunk, next);
+                    }
+                }
+                pending = next;
+
+            }
+
+            if (changed) {
+                fixingSet = current;
+                Collection<Constraint> positive = new LinkedHashSet<>();
+                positive.addAll(hardConstraints);
+                positive.addAll(softConstraints);
+                positive.removeAll(fixingSet);
+                Either<Model, Collection<Constraint>> result = theorySolver.check(positive);
+                assert result.right == null;
+                model = result.left;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("thread was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        System.out.println("FINISHED MINIMIZING [final size=" + fixingSet.size() + ']');
+        return Pair.of(model, fixingSet);
+    }
+
+    private static <Constraint, Model> boolean isFixingSet(
+        Theory<Constraint, Model> theorySolver,
+        List<Constraint> hardConstraints,
+        List<Constraint> softConstraints,
+        Set<Constraint> fixingSet) {
+        Collection<Constraint> positive = new ArrayList<>(hardConstraints);
+        softConstraints.stream().filter(c -> !fixingSet.contains(c)).forEach(positive::add);
+        return theorySolver.check(positive).right == null;
+    }
+
+    private static <T> void split(List<T> list, List<List<T>> out) {
+        int mid = list.size() / 2;
+        if (mid > 0) {
+            out.add(new ArrayList<>(list.subList(0, mid)));
+        }
+        if (mid < list.size()) {
+            out.add(new ArrayList<>(list.subList(mid, list.size())));
+        }
+    }
+
     private static <Constraint, Model> FixingSetListener<Constraint, Model> loggingListener() {
         return new FixingSetListener<Constraint, Model>() {
             @Override
@@ -31,7 +31,7 @@ public class ArrayLiteralTerm extends ATerm {
 
 	public ArrayLiteralTerm(ArrayLiteral n){
 		super(n);
-		this.type = new ArrayType(new AnyType());
+		this.type = new ArrayType(AnyType.SINGLETON);
 	}
 
 	@Override
@@ -49,6 +49,11 @@ public class ArrayLiteralTerm extends ATerm {
 		this.type = type;
 	}
 
+	@Override
+	public boolean hasOwnType() {
+		return true;
+	}
+
 	private Type type;
 
 }
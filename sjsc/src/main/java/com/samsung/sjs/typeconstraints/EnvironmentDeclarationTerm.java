@@ -112,7 +112,7 @@ public class EnvironmentDeclarationTerm extends ATerm {
 	@Override
 	public Type getType() {
 		if (type == null){
-			type = subst(env.get(name.getIdentifier()), new AnyType());
+			type = subst(env.get(name.getIdentifier()), AnyType.SINGLETON);
 		}
 		return type;
 	}
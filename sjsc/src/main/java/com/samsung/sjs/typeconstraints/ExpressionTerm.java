@@ -30,7 +30,7 @@ public class ExpressionTerm extends ATerm {
 
 	public ExpressionTerm(AstNode n){
 		super(n);
-		this.type = new AnyType();
+		this.type = AnyType.SINGLETON;
 	}
 
 	@Override
@@ -48,5 +48,10 @@ public class ExpressionTerm extends ATerm {
 		this.type = type;
 	}
 
+	@Override
+	public boolean hasOwnType() {
+		return true;
+	}
+
 	private Type type;
 }
@@ -24,7 +24,7 @@ public class FunctionCallTerm extends ATerm {
 
 	public FunctionCallTerm(FunctionCall n){
 		super(n);
-		this.type = new AnyType();
+		this.type = AnyType.SINGLETON;
 	}
 
 	public void setTarget(ITypeTerm target){
@@ -55,6 +55,11 @@ public class FunctionCallTerm extends ATerm {
 		this.type = type;
 	}
 
+	@Override
+	public boolean hasOwnType() {
+		return true;
+	}
+
 	private Type type;
 	private ITypeTerm target;
 	public ITypeTerm receiverTerm;
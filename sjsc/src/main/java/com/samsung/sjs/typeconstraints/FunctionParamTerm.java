@@ -58,7 +58,7 @@ public final class FunctionParamTerm extends ATerm implements ITypeTerm {
 	}
 
 	private static Type softGet(List<Type> l, int i) {
-		return i < l.size() ? l.get(i) : new AnyType();
+		return i < l.size() ? l.get(i) : AnyType.SINGLETON;
 	}
 
 	private static <T> void softSet(List<T> l, int i, T t) {
@@ -96,7 +96,7 @@ public final class FunctionParamTerm extends ATerm implements ITypeTerm {
 			ConstructorType ctorType = (ConstructorType)type;
 			return softGet(ctorType.paramTypes(), getParam());
 		}
-		return new AnyType();
+		return AnyType.SINGLETON;
 	}
 
 	@Override
@@ -92,7 +92,7 @@ public final class FunctionReturnTerm extends ATerm implements ITypeTerm {
 			ConstructorType ctorType = (ConstructorType)type;
 			return ctorType.returnType();
 		}
-		return new AnyType();
+		return AnyType.SINGLETON;
 	}
 
 	@Override
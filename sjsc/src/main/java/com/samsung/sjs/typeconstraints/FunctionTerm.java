@@ -53,19 +53,19 @@ public class FunctionTerm extends ATerm {
 	private void init(){
         switch (this.funType){
 		case Function:
-			Type returnType = new AnyType();
+			Type returnType = AnyType.SINGLETON;
 			List<Type> paramTypes = new ArrayList<Type>();
 			for (int i=0; i < getFunction().getParamCount(); i++){
-				paramTypes.add(new AnyType());
+				paramTypes.add(AnyType.SINGLETON);
 			}
 			this.type = new FunctionType(paramTypes, null, returnType);
             break;
 		case Method:
-			Type receiverType = new AnyType();
-			returnType = new AnyType();
+			Type receiverType = AnyType.SINGLETON;
+			returnType = AnyType.SINGLETON;
 			paramTypes = new ArrayList<Type>();
 			for (int i=0; i < getFunction().getParamCount(); i++){
-				paramTypes.add(new AnyType());
+				paramTypes.add(AnyType.SINGLETON);
 			}
 			this.type = new UnattachedMethodType(paramTypes, null, returnType, receiverType);
 			break;
@@ -73,12 +73,12 @@ public class FunctionTerm extends ATerm {
 			Type protoType = null;
             List<Property> writtenProperties = ConstraintGenUtil
                     .getWrittenProperties(getFunction()).stream()
-                    .map((s) -> new Property(s, new AnyType(), false))
+                    .map((s) -> new Property(s, AnyType.SINGLETON, false))
                     .collect(Collectors.toList());
 			ObjectType ctorType = new ObjectType(writtenProperties);
 			paramTypes = new ArrayList<Type>();
 			for (int i=0; i < getFunction().getParamCount(); i++){
-				paramTypes.add(new AnyType());
+				paramTypes.add(AnyType.SINGLETON);
 			}
 			this.type = new ConstructorType(paramTypes, null, ctorType, protoType);
             break;
@@ -134,6 +134,11 @@ public class FunctionTerm extends ATerm {
 		this.type = type;
 	}
 
+	@Override
+	public boolean hasOwnType() {
+		return true;
+	}
+
 	private List<NameDeclarationTerm> paramVars;
 	private FunctionReturnTerm returnVar;
 	private FunctionKind funType;
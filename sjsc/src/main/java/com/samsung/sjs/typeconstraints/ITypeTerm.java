@@ -48,4 +48,12 @@ public interface ITypeTerm {
 	 */
 	void setType(Type type);
 
+	/**
+	 * true if setType() stores the type in this term itself, false if the
+	 * type is derived from (and written through to) the type of another term
+	 */
+	default boolean hasOwnType() {
+		return false;
+	}
+
 }
@@ -68,7 +68,7 @@ public class IndexedTerm extends ATerm {
 			}
 			throw new Error("unsupported case in IndexedTerm.getType()");
 		} else {
-			return new AnyType();
+			return AnyType.SINGLETON;
 		}
 	}
 
@@ -64,7 +64,7 @@ public class KeyTerm extends ATerm {
 			}
 			throw new Error("unsupported case in KeyTerm.getType()");
 		} else {
-			return new AnyType();
+			return AnyType.SINGLETON;
 		}
 	}
 
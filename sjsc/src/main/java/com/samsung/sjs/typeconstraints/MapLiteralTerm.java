@@ -39,7 +39,7 @@ public class MapLiteralTerm extends ATerm {
 
 	public MapLiteralTerm(ObjectLiteral n){
 		super(n);
-		this.type = new MapType(new AnyType());
+		this.type = new MapType(AnyType.SINGLETON);
 	}
 
 	public List<String> getPropertyNames(){
@@ -75,5 +75,10 @@ public class MapLiteralTerm extends ATerm {
 		this.type = type;
 	}
 
+	@Override
+	public boolean hasOwnType() {
+		return true;
+	}
+
 	private Type type;
 }
@@ -62,7 +62,7 @@ public final class MethodReceiverTerm extends ATerm implements ITypeTerm {
 			UnattachedMethodType methType = (UnattachedMethodType)type;
 			return methType.receiverType();
 		}
-		return new AnyType();
+		return AnyType.SINGLETON;
 	}
 
 	@Override
@@ -26,7 +26,7 @@ public class NameDeclarationTerm extends ATerm {
 	public NameDeclarationTerm(Name name) {
 		super(name);
 		this.identifier = name.getIdentifier();
-		this.type = new AnyType();
+		this.type = AnyType.SINGLETON;
  	}
 
 	public String getIdentifier(){
@@ -48,5 +48,10 @@ public class NameDeclarationTerm extends ATerm {
 		this.type = type;
 	}
 
+	@Override
+	public boolean hasOwnType() {
+		return true;
+	}
+
 	private Type type;
 }
\ No newline at end of file
@@ -42,7 +42,7 @@ public class ObjectLiteralTerm extends ATerm {
 	public ObjectLiteralTerm(ObjectLiteral n){
 		super(n);
         ObjectType oType = new ObjectType(this.getPropertyNames().stream()
-                .map((s) -> new Property(s, new AnyType(), false))
+                .map((s) -> new Property(s, AnyType.SINGLETON, false))
                 .collect(Collectors.toList()));
 		this.type = oType;
 	}
@@ -75,6 +75,11 @@ public class ObjectLiteralTerm extends ATerm {
 		this.type = type;
 	}
 
+	@Override
+	public boolean hasOwnType() {
+		return true;
+	}
+
 	@Override
 	public String stringRepresentation(){
         return "|" + getNode().toSource() + "|";
@@ -27,7 +27,7 @@ public class OperatorTerm extends ATerm  {
 		this.left = left;
 		this.right = right;
 		this.operator = operator;
-		this.type = new AnyType();
+		this.type = AnyType.SINGLETON;
 	}
 
 	@Override
@@ -57,6 +57,11 @@ public class OperatorTerm extends ATerm  {
 		this.type=type;
 	}
 
+	@Override
+	public boolean hasOwnType() {
+		return true;
+	}
+
 	private ITypeTerm left;
 	private ITypeTerm right;
 	private String operator;
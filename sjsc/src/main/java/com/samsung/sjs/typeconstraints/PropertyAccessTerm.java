@@ -77,7 +77,7 @@ public class PropertyAccessTerm extends ATerm {
 			}
 			throw new Error("unsupported case in PropertyAccessTerm.getType()");
 		}
-		return new AnyType();
+		return AnyType.SINGLETON;
 	}
 
 	@Override
@@ -32,7 +32,7 @@ public class ProtoParentTerm extends ATerm {
 		this.term = term;
  	}
 
-	private Type type = new AnyType();
+	private Type type = AnyType.SINGLETON;
 
 	@Override
 	public Type getType() {
@@ -44,6 +44,11 @@ public class ProtoParentTerm extends ATerm {
 	    this.type = type;
 	}
 
+	@Override
+	public boolean hasOwnType() {
+		return true;
+	}
+
 	@Override
 	public String stringRepresentation() {
 		return "__proto__(" + term.stringRepresentation() + ")";
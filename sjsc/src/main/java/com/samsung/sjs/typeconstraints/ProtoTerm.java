@@ -37,12 +37,12 @@ public class ProtoTerm extends ATerm {
 		if (term.getType().isConstructor()){
 			ConstructorType cType = (ConstructorType)term.getType();
 			if (cType.getPrototype() == null){
-				return new AnyType();
+				return AnyType.SINGLETON;
 			} else {
 				return cType.getPrototype();
 			}
 		}
-		return new AnyType();
+		return AnyType.SINGLETON;
 	}
 
 	@Override
@@ -30,7 +30,7 @@ public class ThisTerm extends ATerm {
 
 	public ThisTerm(AstNode n){
 		super(n);
-		this.type = new AnyType();
+		this.type = AnyType.SINGLETON;
 	}
 
 	@Override
@@ -48,6 +48,11 @@ public class ThisTerm extends ATerm {
 		this.type = type;
 	}
 
+	@Override
+	public boolean hasOwnType() {
+		return true;
+	}
+
 
 	private Type type;
 }
@@ -35,7 +35,7 @@ public class TypeParamTerm extends ATerm {
 	public TypeParamTerm(AstNode name){
 		super(null);
 		this.name = name;
-		this.type = new AnyType();
+		this.type = AnyType.SINGLETON;
 	}
 
 	@Override
@@ -54,6 +54,11 @@ public class TypeParamTerm extends ATerm {
 		this.type = type;
 	}
 
+	@Override
+	public boolean hasOwnType() {
+		return true;
+	}
+
 
 	private AstNode name;
 	private Type type;
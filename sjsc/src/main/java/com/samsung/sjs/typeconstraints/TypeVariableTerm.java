@@ -30,7 +30,7 @@ public class TypeVariableTerm extends ATerm implements ITypeTerm {
     public TypeVariableTerm(TypeVar tyVar){
         super(null);
         this.tyVar = tyVar;
-        this.ty = new AnyType();
+        this.ty = AnyType.SINGLETON;
     }
 
     @Override
@@ -43,6 +43,11 @@ public class TypeVariableTerm extends ATerm implements ITypeTerm {
         this.ty = ty;
     }
 
+    @Override
+    public boolean hasOwnType() {
+        return true;
+    }
+
     @Override
     public AstNode getNode() {
         return null;
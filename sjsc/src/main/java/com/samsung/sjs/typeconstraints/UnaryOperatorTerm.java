@@ -24,7 +24,7 @@ public class UnaryOperatorTerm extends ATerm  {
 		super(null);
 		this.operand = operand;
 		this.operator = operator;
-		this.type = new AnyType();
+		this.type = AnyType.SINGLETON;
 		this.isPrefix = isPrefix;
 	}
 
@@ -51,6 +51,11 @@ public class UnaryOperatorTerm extends ATerm  {
 		this.type=type;
 	}
 
+	@Override
+	public boolean hasOwnType() {
+		return true;
+	}
+
 
 	public boolean isPrefix(){
 		return isPrefix;
@@ -23,7 +23,9 @@ package com.samsung.sjs.types;
  */
 
 public final class AnyType implements Type  {
-	
+
+	/** AnyType has no state, so this one instance can be shared everywhere */
+	public static final AnyType SINGLETON = new AnyType();
 	
 	@Override
 	public boolean equals(Object o){
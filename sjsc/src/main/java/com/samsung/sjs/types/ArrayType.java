@@ -182,13 +182,9 @@ public class ArrayType extends PropertyContainer implements IndexableType {
     @Override
     public RepresentationSort rep() { return RepresentationSort.OBJECT; }
 
-    private String tagstr = null;
     @Override
     public String generateTag(TypeTagSerializer tts) {
-        if (tagstr == null) {
-            tagstr = tts.memoizeArray(this);
-        }
-        return tagstr;
+        return tts.memoizeArray(this);
     }
 
     @Override
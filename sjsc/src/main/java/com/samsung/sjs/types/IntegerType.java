@@ -40,14 +40,14 @@ public class IntegerType implements PrimitiveType {
 
 			String toFixed = "toFixed";
 			List<Type> paramTypes = new ArrayList<Type>(); // integer.toFixed has type (integer)->string
-			paramTypes.add(new IntegerType());
+			paramTypes.add(integerType);
 			Property property = new Property(toFixed, new AttachedMethodType(paramTypes, null, StringType.make()), true);
 			properties.put(toFixed, property);
 
 		    String toString = "toString";
 		    AttachedMethodType t1 = new AttachedMethodType(new ArrayList<Type>(), null, StringType.make()); // () -> string
 			paramTypes = new ArrayList<Type>();
-			paramTypes.add(new IntegerType());
+			paramTypes.add(integerType);
 			AttachedMethodType t2 = new AttachedMethodType(paramTypes,null, StringType.make()); // (int) -> string
 			IntersectionType iType = new IntersectionType(t1, t2);
 
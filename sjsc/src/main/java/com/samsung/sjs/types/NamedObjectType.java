@@ -54,6 +54,13 @@ public class NamedObjectType extends ObjectType {
         }
     }
 
+    /**
+     * The underlying object type, or null if this name has not been resolved yet.
+     */
+    ObjectType resolvedType() {
+        return resolved;
+    }
+
     public void setProperty(String propertyName, Type type) {
         resolve();
         resolved.setProperty(propertyName, type);
@@ -29,6 +29,7 @@ package com.samsung.sjs.types;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Stack;
@@ -138,13 +139,14 @@ public class ObjectType extends PropertyContainer implements Type {
 	}
 
 	/**
-	 * get the currently-known inherited properties for this.
+	 * get the currently-known inherited properties for this, in the order
+	 * they were added (not hash order, which varies from run to run).
 	 * @return
 	 */
 	public Set<Property> inheritedProperties() {
         return properties().stream().filter((p) -> {
             return p.isRO();
-        }).collect(Collectors.toSet());
+        }).collect(Collectors.toCollection(LinkedHashSet::new));
 	}
 
 	public Set<Property> getROProperties() {
@@ -172,10 +174,13 @@ public class ObjectType extends PropertyContainer implements Type {
 	}
 
 
-    protected static Stack<ObjectType> objects_being_serialized = new Stack<>();
+    // per-thread, since explanations may be computed on several threads at once
+    protected static final ThreadLocal<Stack<ObjectType>> objects_being_serialized =
+        ThreadLocal.withInitial(Stack::new);
 
 	@Override
 	public String toString(){
+            Stack<ObjectType> objects_being_serialized = ObjectType.objects_being_serialized.get();
             if (objects_being_serialized.search(this) != -1) {
                 return "<<recursive>>";
             }
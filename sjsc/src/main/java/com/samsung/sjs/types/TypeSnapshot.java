@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.types;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the mutable state of every type reachable from some roots, so that
+ * it can be put back exactly as it was later on.
+ *
+ * <p>The constraint solver updates types in place (property sets, parameter
+ * and return types, element types, ...). Restoring in place, rather than
+ * copying the type graph, keeps object identity intact, so any map keyed on
+ * types or terms remains valid across a {@link #restore()}.
+ */
+public final class TypeSnapshot {
+
+    private final Set<Type> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final List<Runnable> restorers = new ArrayList<>();
+
+    /**
+     * Record the current state of t and everything reachable from it.
+     * Types that were already recorded are skipped, so the snapshot always
+     * reflects the state at the time a type was first seen.
+     */
+    public void record(Type t) {
+        if (t == null || !visited.add(t)) {
+            return;
+        }
+        if (t instanceof PropertyContainer) {
+            PropertyContainer pc = (PropertyContainer) t;
+            Map<String,Property> saved = new LinkedHashMap<>(pc.properties);
+            restorers.add(() -> {
+                pc.properties.clear();
+                pc.properties.putAll(saved);
+            });
+            for (Property p : saved.values()) {
+                record(p.getType());
+            }
+        }
+        if (t instanceof NamedObjectType) {
+            record(((NamedObjectType) t).resolvedType());
+        }
+        if (t instanceof ObjectType) {
+            record(((ObjectType) t).getPrototypeParent());
+        }
+        if (t instanceof CodeType) {
+            CodeType ct = (CodeType) t;
+            List<Type> params = new ArrayList<>(ct.paramTypes());
+            Type ret = ct.returnType();
+            restorers.add(() -> {
+                for (int i = 0; i < params.size(); i++) {
+                    // parameter lists are sometimes immutable; only write what changed
+                    if (ct.paramTypes().get(i) != params.get(i)) {
+                        ct.setParamType(params.get(i), i);
+                    }
+                }
+                ct.setReturnType(ret);
+            });
+            params.forEach(this::record);
+            record(ret);
+        }
+        if (t instanceof ConstructorType) {
+            ConstructorType ct = (ConstructorType) t;
+            Type proto = ct.getPrototype();
+            restorers.add(() -> ct.setPrototype(proto));
+            record(proto);
+        }
+        if (t instanceof UnattachedMethodType) {
+            UnattachedMethodType ut = (UnattachedMethodType) t;
+            Type recv = ut.receiverType();
+            restorers.add(() -> ut.setReceiverType(recv));
+            record(recv);
+        }
+        if (t instanceof ArrayType) {
+            ArrayType at = (ArrayType) t;
+            Type elem = at.elemType();
+            restorers.add(() -> at.setElemType(elem));
+            record(elem);
+        }
+        if (t instanceof MapType) {
+            MapType mt = (MapType) t;
+            Type elem = mt.elemType();
+            restorers.add(() -> mt.setElemType(elem));
+            record(elem);
+        }
+        if (t instanceof IntersectionType) {
+            List<Type> types = ((IntersectionType) t).getTypes();
+            List<Type> saved = new ArrayList<>(types);
+            restorers.add(() -> {
+                if (!sameElements(types, saved)) {
+                    types.clear();
+                    types.addAll(saved);
+                }
+            });
+            saved.forEach(this::record);
+        }
+        if (t instanceof ObjectUnionType) {
+            ((ObjectUnionType) t).getObjTypes().forEach(this::record);
+        }
+    }
+
+    private static boolean sameElements(List<Type> l1, List<Type> l2) {
+        if (l1.size() != l2.size()) {
+            return false;
+        }
+        for (int i = 0; i < l1.size(); i++) {
+            if (l1.get(i) != l2.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Put every recorded type back into the state it had when it was recorded.
+     */
+    public void restore() {
+        restorers.forEach(Runnable::run);
+    }
+
+}
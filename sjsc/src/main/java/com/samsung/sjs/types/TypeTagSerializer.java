@@ -24,12 +24,14 @@ package com.samsung.sjs.types;
 import java.util.List;
 import java.util.LinkedList;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 // TODO: Hoist this structure out of the backend and/or have the classes in the types package depend
 // on an interface to the type tag serializer, and move this implementation to the backend package
 import com.samsung.sjs.backend.IRFieldCollector;
+import com.samsung.sjs.backend.PhysicalLayout;
 
 // This class has embedded knowledge about the structure of type tags; see
 // src/main/resources/backend/runtime.h
@@ -45,6 +47,7 @@ public final class TypeTagSerializer {
     private List<String> argarray_decls;
 
     private IRFieldCollector.FieldMapping field_codes;
+    private PhysicalLayout layout;
 
     private int next_code;
     private int next_tag;
@@ -54,6 +57,13 @@ public final class TypeTagSerializer {
     // TODO: Accept an FFI linkage, and generate tags for FFI objects
     // TODO: Memoize code and type tags to reduce memory
     public TypeTagSerializer(IRFieldCollector.FieldMapping codes) {
+        this(codes, PhysicalLayout.sequential(codes));
+    }
+
+    /**
+     * Order object tags according to layout, which must be the one the vtable pass used
+     */
+    public TypeTagSerializer(IRFieldCollector.FieldMapping codes, PhysicalLayout layout) {
         fwd_decls = new LinkedList<>();
         tag_decls = new LinkedList<>();
         code_decls = new LinkedList<>();
@@ -62,6 +72,7 @@ public final class TypeTagSerializer {
         argarray_decls = new LinkedList<>();
 
         field_codes = codes;
+        this.layout = layout;
 
         // Set up primitives
         fwd_decls.add("extern type_tag_t __int_tag;");
@@ -107,20 +118,17 @@ public final class TypeTagSerializer {
         List<String> props = new ArrayList<>();
         List<String> ftypes = new ArrayList<>();
 
-        /* After reading the following allocation and loop, you may be wondering why we're doing
-         * this weird iteration and reordering of properties, instead of simply iterating over
-         * t.properties().  Great question!  The answer is that this code is currently duplicating
-         * logic from IRVTablePass.generateIndirectionMap(PropertyContainer).  The order of
-         * properties in the tag is taken as indicative of physical layout, so we must match the
-         * code here to generate the tag against the vtable layout pass, which generates all vtables
-         * statically (and therefore forms the basis for field access optimization).  If this order
+        /* The order of properties in the tag is taken as indicative of physical layout: coercing
+         * a dynamic object to this type places its fields in tag order.  So we must list them in
+         * the order of the map the vtable pass generates for this type (see
+         * IRVTablePass.generateIndirectionMap(PropertyContainer)), which generates all vtables
+         * statically and therefore forms the basis for field access optimization.  If this order
          * and the one generated by IRVTablePass differ, field accesses will be mis-optimized.
          */
-        List<Property> layout = new ArrayList<>(t.inheritedProperties());
-        for (Property p : t.ownProperties()) {
-            layout.add(p);
-        }
-        for (Property p : layout) {
+        int[] map = layout.map(t);
+        List<Property> props_by_offset = new ArrayList<>(t.properties());
+        props_by_offset.sort(Comparator.comparingInt((Property p) -> map[field_codes.indexOf(p.getName())]));
+        for (Property p : props_by_offset) {
             props.add(field_codes.indexOf(p.getName())+" /*"+p.getName()+"*/");
             ftypes.add(p.getType().generateTag(this));
         }
@@ -33,20 +33,35 @@ public class Types {
 	 * Some of the subtypes of Type are mutable so equals() and hashCode()
 	 * methods cannot be written in a reliable way on these types. This
 	 * method should be used for comparing types.
+	 *
+	 * <p>Only leaf types take a shortcut here. Object, function, array and
+	 * map types are not hash-consed: the solver updates them in place, so
+	 * two types that are equal now may not be later, and neither can share
+	 * one instance or cache its structural hash code.
 	 */
 	public static boolean isEqual(Type type1, Type type2){
+		if (type1 == type2) {
+			return true;
+		}
+		if (!isStructured(type1) || !isStructured(type2)) {
+			// no need for the cycle-detection set
+			return isLeafEqual(type1, type2);
+		}
 		return isEqualHelper(type1, type2, HashSetFactory.make());
 	}
 
-    private static boolean isEqualHelper(Type type1, Type type2, Set<Pair<Type, Type>> queried) {
-        Pair<Type,Type> pair = Pair.make(type1, type2);
-        if (queried.contains(pair)) {
-            // optimistically assume types are equal
-            return true;
-        } else {
-            queried.add(pair);
-        }
-        if (type1 == type2){
+	/**
+	 * True for the types which {@link #isEqual(Type, Type)} compares by
+	 * walking their components. All other types have no components, and are
+	 * either singletons or compared by kind.
+	 */
+	private static boolean isStructured(Type type) {
+		return type instanceof ArrayType || type instanceof MapType || type instanceof CodeType
+				|| type instanceof ObjectType || type instanceof IntersectionType;
+	}
+
+	private static boolean isLeafEqual(Type type1, Type type2) {
+		if (type1 == type2){
 			return true;
 		} else if (type1 instanceof IntegerType && type2 instanceof IntegerType){
 			return true;
@@ -60,7 +75,27 @@ public class Types {
 			return true;
 		} else if (type1 instanceof AnyType && type2 instanceof AnyType){
 			return true;
-		} else if (type1 instanceof ArrayType && type2 instanceof ArrayType){
+		} else if (type1 instanceof TypeVar && type2 instanceof TypeVar) {
+		    return type1.toString().equals(type2.toString());
+		}
+		return false;
+	}
+
+    private static boolean isEqualHelper(Type type1, Type type2, Set<Pair<Type, Type>> queried) {
+        if (type1 == type2) {
+            return true;
+        }
+        if (!isStructured(type1) || !isStructured(type2)) {
+            return isLeafEqual(type1, type2);
+        }
+        Pair<Type,Type> pair = Pair.make(type1, type2);
+        if (queried.contains(pair)) {
+            // optimistically assume types are equal
+            return true;
+        } else {
+            queried.add(pair);
+        }
+        if (type1 instanceof ArrayType && type2 instanceof ArrayType){
 			ArrayType aType1 = (ArrayType)type1;
 			ArrayType aType2 = (ArrayType)type2;
 			return isEqualHelper(aType1.elemType(), aType2.elemType(), queried);
@@ -137,8 +172,6 @@ public class Types {
 			List<Type> types1 = iType1.getTypes();
 			List<Type> types2 = iType2.getTypes();
 			return isContainedIn(types1, types2) && isContainedIn(types2, types1);
-		} else if (type1 instanceof TypeVar && type2 instanceof TypeVar) {
-		    return type1.toString().equals(type2.toString());
 		}
 		return false;
     }
@@ -237,7 +270,7 @@ public class Types {
     }
 
     public static Type mkAny() {
-        return new AnyType();
+        return AnyType.SINGLETON;
     }
 
     public static Type mkVoid() {
@@ -253,7 +253,7 @@ Value OP_GETPROP(Value x, Value y) {
     if (offset > -1) {
         object_t* curr = o;
         while (curr != NULL) {
-            int phys_off = curr->vtbl != NULL ? curr->vtbl[offset] : -1;
+            int phys_off = curr->vtbl != NULL ? vtable_lookup(curr->vtbl, offset) : -1;
             if (phys_off != -1) {
                 return curr->fields[phys_off];
             } else if (curr->__propbag != NULL) {
@@ -286,9 +286,10 @@ Value OP_SETPROP(Value x, Value y, Value z) {
     assert(pname != NULL); // TODO: null and undefined coerce to property names...
     //fwprintf(stderr, L"Storing to property [%ls]\n", pname);
     int offset = __prop_indirection_lookup(pname);
-    if (offset > -1 && o->vtbl != NULL && o->vtbl[offset] > -1) {
+    int phys_off = offset > -1 && o->vtbl != NULL ? vtable_lookup(o->vtbl, offset) : -1;
+    if (phys_off > -1) {
         // TODO: Verify type preservation
-        return (o->fields[o->vtbl[offset]] = z);
+        return (o->fields[phys_off] = z);
     } else {
         if (wcscmp(L"__proto__", pname) == 0) {
             assert (val_is_object(z) || val_is_undef(z));
@@ -322,7 +323,7 @@ Value OP_DELPROP(Value x, Value y) {
     wchar_t* pname = (wchar_t*)val_as_pointer(y);
     assert(pname != NULL); // TODO: null and undefined coerce to property names...
     int offset = __prop_indirection_lookup(pname);
-    if (offset > -1 && o->vtbl[offset] > -1) {
+    if (offset > -1 && vtable_lookup(o->vtbl, offset) > -1) {
         assert(false && "Unsupported: removing fixed-layout property");
     } else {
         __map_delete((map_t*)o, pname);
@@ -339,7 +340,7 @@ Value OP_field_inc(Value v, int findex, bool postfix) {
     Value pre, post;
     assert(val_is_object(v));
     object_t *obj = v.obj;
-    int phys = obj->vtbl[findex];
+    int phys = vtable_lookup(obj->vtbl, findex);
     if (phys >= 0) {
         pre = obj->fields[phys];
         post = OP_ADD(pre, int_as_val(1));
@@ -354,7 +355,7 @@ Value OP_field_dec(Value v, int findex, bool postfix) {
     Value pre, post;
     assert(val_is_object(v));
     object_t *obj = v.obj;
-    int phys = obj->vtbl[findex];
+    int phys = vtable_lookup(obj->vtbl, findex);
     if (phys >= 0) {
         pre = obj->fields[phys];
         post = OP_SUB(obj->fields[phys], int_as_val(1));
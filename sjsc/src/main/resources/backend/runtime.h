@@ -234,9 +234,11 @@ STATIC_ASSERT(offsetof(value_t, tags.tag) == 4, tag_word_offset);
  */
 //#define BOX_MASK 0xFFFF000000000001LL // bit-and of a pointer with this == 1 --> box pointer
 #define PTR_TAG_MASK 0xFFFF000000000007LL // bit-and of a pointer with this == X_TAG --> is X
-#define FIELD_READ(o, f_index) ((o->fields[o->vtbl[(f_index)]].box & PTR_TAG_MASK) == BOX_TAG ? \
-                                 *((value_t*)(o->fields[o->vtbl[(f_index)]].box & MAX_PTR)) : \
-                                 o->fields[o->vtbl[(f_index)]] )
+// The slot of a property that o's map is known to have (see object_map for the encodings)
+#define VTABLE_SLOT(o, f_index) (o->vtbl[(f_index)])
+#define FIELD_READ(o, f_index) ((o->fields[VTABLE_SLOT(o, f_index)].box & PTR_TAG_MASK) == BOX_TAG ? \
+                                 *((value_t*)(o->fields[VTABLE_SLOT(o, f_index)].box & MAX_PTR)) : \
+                                 o->fields[VTABLE_SLOT(o, f_index)] )
 #define FIELD_ACCESS(o, off) ((o->fields[off].box & PTR_TAG_MASK) == BOX_TAG ? \
                                  *((value_t*)(o->fields[off].box & MAX_PTR)) : \
                                  o->fields[off] )
@@ -246,19 +248,19 @@ STATIC_ASSERT(offsetof(value_t, tags.tag) == 4, tag_word_offset);
 // This macro sets up field f of rcv to inherit from field f of proto, compressing prototype paths
 // for constant access
 #define INHERIT_FIELD_COMPRESSED(rcv, proto, f) \
-    if ((proto->fields[proto->vtbl[f]].box & PTR_TAG_MASK) == BOX_TAG) { \
-        rcv->fields[rcv->vtbl[f]].box = proto->fields[proto->vtbl[f]].box; \
+    if ((proto->fields[VTABLE_SLOT(proto, f)].box & PTR_TAG_MASK) == BOX_TAG) { \
+        rcv->fields[VTABLE_SLOT(rcv, f)].box = proto->fields[VTABLE_SLOT(proto, f)].box; \
     } else { \
-        rcv->fields[rcv->vtbl[f]].box = ((uint64_t)&proto->fields[proto->vtbl[f]]) | BOX_TAG; \
+        rcv->fields[VTABLE_SLOT(rcv, f)].box = ((uint64_t)&proto->fields[VTABLE_SLOT(proto, f)]) | BOX_TAG; \
     }
 
-#define IS_CPP_WRAPPER(o) (o->vtbl[___js______cpp_receiver] != -1)
+#define IS_CPP_WRAPPER(o) (vtable_lookup(o->vtbl, ___js______cpp_receiver) != -1)
 #define WRAPPED_CPP_OBJ(o) ((object_t*)o->fields[0].ptr) // Note that ^^cpp_receiver is always at offset 0!
 
-#define IS_INHERITABLE_NATIVE(o) (o != NULL && IS_CPP_WRAPPER(o) && (o->vtbl[___js______gen_cpp_proxy] != -1))
+#define IS_INHERITABLE_NATIVE(o) (o != NULL && IS_CPP_WRAPPER(o) && (vtable_lookup(o->vtbl, ___js______gen_cpp_proxy) != -1))
 #define GEN_CPP_PROXY(o) \
     assert(o->__proto__ != NULL); \
-    assert(o->__proto__->vtbl[___js______gen_cpp_proxy] != -1); \
+    assert(vtable_lookup(o->__proto__->vtbl, ___js______gen_cpp_proxy) != -1); \
     o->fields[0].ptr = ((void* (*)(object_t*))o->__proto__->fields[1].ptr)(o); \
     o->fields[1] = o->__proto__->fields[1]
 
@@ -274,12 +276,12 @@ STATIC_ASSERT(offsetof(value_t, tags.tag) == 4, tag_word_offset);
  * TODO: Revisit this once we start interop work
  */
 #define FIELD_WRITE_boxed(o, f_index, proj, op, v) \
-    ((o->fields[o->vtbl[(f_index)]].box & PTR_TAG_MASK) == BOX_TAG ? \
-     ((((value_t*)(o->fields[o->vtbl[(f_index)]].box & MAX_PTR))->proj) op (v)) : \
-     ((o->fields[o->vtbl[(f_index)]]).proj op (v) ))
-#define FIELD_WRITE(o, f_index, proj, op, v) ((o->fields[o->vtbl[(f_index)]]).proj op (v) )
+    ((o->fields[VTABLE_SLOT(o, f_index)].box & PTR_TAG_MASK) == BOX_TAG ? \
+     ((((value_t*)(o->fields[VTABLE_SLOT(o, f_index)].box & MAX_PTR))->proj) op (v)) : \
+     ((o->fields[VTABLE_SLOT(o, f_index)]).proj op (v) ))
+#define FIELD_WRITE(o, f_index, proj, op, v) ((o->fields[VTABLE_SLOT(o, f_index)]).proj op (v) )
 
-#define FIELD_READ_WRITABLE(o, f_index) (o->fields[o->vtbl[(f_index)]])
+#define FIELD_READ_WRITABLE(o, f_index) (o->fields[VTABLE_SLOT(o, f_index)])
 
 // TODO: Ultimately, we need to be able to distinguish at least between string, object, closure, and
 // box pointers.  4 options --> 2 bits, which is fine since everything we allocate will be (at
@@ -425,6 +427,33 @@ struct object* ctor_alloc_prim(void* env, type_tag_t *tag, void* code, void* pro
 typedef int const* object_map; // int[]
 typedef int* pre_object_map;
 
+/*
+ * An object map takes a property id (___js_<name>) to the property's slot in the object, or to -1
+ * if the object has no such property.  By default every map is an array of ___propname_count ids.
+ *
+ * With SJS_COMPRESSED_VTABLES (sjsc --Xcompressed-vtables), the compiler instead packs the maps of
+ * the program into ___vtables by row displacement: each map points at its own base offset in the
+ * shared array, so the ids it has index their slots exactly as before (VTABLE_SLOT), but the entry
+ * for an id it lacks may belong to another map.  Lookups that can miss go through vtable_lookup,
+ * which checks the entry against the check row in the second half of ___vtables, holding the id
+ * each entry was placed for.  Maps built at runtime, or exported to the runtime by name, are never
+ * packed.
+ */
+#ifdef SJS_COMPRESSED_VTABLES
+extern int ___vtables[];
+extern const int ___vtables_length; // entries; the check row follows them
+static inline int vtable_lookup(object_map m, int f) {
+    if (m >= ___vtables && m < ___vtables + ___vtables_length) {
+        return m[___vtables_length + f] == f ? m[f] : -1;
+    }
+    return m[f];
+}
+#else
+static inline int vtable_lookup(object_map m, int f) {
+    return m[f];
+}
+#endif
+
 // Note there are no consts here --- dirty bits live in the vtbl pointer, and mutable fields are inline
 struct object {
     object_map vtbl;
@@ -459,6 +488,76 @@ static inline object_t* blank_obj_vtable(int n, object_map m) {
     return o;
 }
 
+/*
+ * A monomorphic inline cache for one field access site (sjsc --Xinline-caches): the map of the
+ * last object accessed there, and the field's slot in it.  Caches start zeroed; an object built by
+ * blank_obj has a NULL map until it gets one, so a NULL cache never hits.  With SJS_IC_PROFILE (sjsc --Xinline-cache-stats), each site also counts its hits and
+ * misses, reported on exit.
+ */
+typedef struct field_cache {
+    object_map map;
+    int slot;
+#ifdef SJS_IC_PROFILE
+    uint64_t hits;
+    uint64_t misses;
+#endif
+} field_cache_t;
+
+static inline int cached_slot(object_t* o, int f_index, field_cache_t* c) {
+    if (__builtin_expect(o->vtbl == c->map && c->map != NULL, 1)) {
+#ifdef SJS_IC_PROFILE
+        c->hits++;
+#endif
+        return c->slot;
+    }
+#ifdef SJS_IC_PROFILE
+    c->misses++;
+#endif
+    c->map = o->vtbl;
+    c->slot = VTABLE_SLOT(o, f_index);
+    return c->slot;
+}
+static inline value_t cached_field_read(object_t* o, int f_index, field_cache_t* c) {
+    int slot = cached_slot(o, f_index, c);
+    return FIELD_ACCESS(o, slot);
+}
+#define CACHED_FIELD_READ(o, f_index, c) cached_field_read(o, f_index, c)
+#define CACHED_FIELD_READ_WRITABLE(o, f_index, c) (o->fields[cached_slot(o, f_index, c)])
+
+#ifdef SJS_IC_PROFILE
+static inline void report_field_caches(field_cache_t* caches, const char** sites, int n) {
+    fprintf(stderr, "site\thits\tmisses\n");
+    for (int i = 0; i < n; i++) {
+        if (caches[i].hits + caches[i].misses > 0) {
+            fprintf(stderr, "%s\t%llu\t%llu\n", sites[i],
+                    (unsigned long long)caches[i].hits, (unsigned long long)caches[i].misses);
+        }
+    }
+}
+#endif
+
+#ifdef SJS_PROFILE_INSTRUMENT
+/*
+ * For sjsc --instrument: append the count of each site that ran to $SJS_PROFILE, else sjs.profile,
+ * one "<site>\t<count>" line each, which sjsc --profile-use reads.  Appending lets the counts of
+ * several runs add up.
+ */
+static inline void dump_site_counts(const char** sites, uint64_t* counts, int n) {
+    const char* path = getenv("SJS_PROFILE");
+    FILE* out = fopen(path != NULL ? path : "sjs.profile", "a");
+    if (out == NULL) {
+        perror("cannot write profile");
+        return;
+    }
+    for (int i = 0; i < n; i++) {
+        if (counts[i] > 0) {
+            fprintf(out, "%s\t%llu\n", sites[i], (unsigned long long)counts[i]);
+        }
+    }
+    fclose(out);
+}
+#endif
+
 typedef struct old_closure {
     env_t env;
     void* func;
@@ -653,7 +752,7 @@ static inline void store_pointer(value_t* v, void* p) {
 
 static inline value_t find_field(object_t* o, int ioff) {
     // TODO: top of prototype chain... fail
-    int phys = o->vtbl[ioff];
+    int phys = vtable_lookup(o->vtbl, ioff);
     if (phys >= 0) {
         return o->fields[phys];
     } else {
@@ -309,9 +309,9 @@ value_t __coerce(value_t val, type_tag_t* type) {
                             // Property must be inherited.  If it's in the immediate parent, install
                             // a forwarding pointer and update the vtable.
                             object_t *curproto = o->__proto__;
-                            if (curproto->vtbl[off] != -1) {
+                            if (vtable_lookup(curproto->vtbl, off) != -1) {
                                 // Inherited from immediate parent - install fwd pointer
-                                int proto_off = curproto->vtbl[off];
+                                int proto_off = vtable_lookup(curproto->vtbl, off);
                                 if (nextslot >= _FIXED_LAYOUT_CONVERSION_SLOTS_)
                                     _____type_violation(); // Can't coerce!
                                 o->fields[nextslot].box = ((uintptr_t)&curproto->fields[proto_off]) | 0x1;
@@ -319,7 +319,7 @@ value_t __coerce(value_t val, type_tag_t* type) {
                             } else {
                                 // Better be somewhere up the prototype chain...
                                 while (curproto != NULL) {
-                                    if (curproto->vtbl[off] != -1)
+                                    if (vtable_lookup(curproto->vtbl, off) != -1)
                                         break;
                                     curproto = curproto->__proto__;
                                 }
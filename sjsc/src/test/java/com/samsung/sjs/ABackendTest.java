@@ -23,6 +23,7 @@ import java.io.*;
 import java.nio.charset.*;
 import java.nio.file.*;
 import org.apache.commons.io.IOUtils;
+import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -75,6 +76,8 @@ public abstract class ABackendTest extends SJSTest {
 
     protected boolean doInterop() { return false; }
     protected boolean bootInterop() { return false; }
+    protected boolean physicalLayout() { return false; }
+    protected boolean compressedVTables() { return false; }
 
     /**
      * Prefix the specified JS file with some of the testing primitives we assume,
@@ -138,10 +141,62 @@ public abstract class ABackendTest extends SJSTest {
     // Override in a subclass to test value encoding
     public boolean shouldEncodeValues() { return false; }
 
+    /**
+     * When set, compilerTest adds the test to this list instead of running it, so that
+     * {@link ParallelEndToEndRunner} can run a suite's tests concurrently.
+     */
+    List<ParallelEndToEndRunner.Job> planned = null;
+
+    /**
+     * Options for compiling scriptfile to cfile and execfile.
+     */
+    CompilerOptions testOptions(File scriptfile, File cfile, File execfile, boolean verbose) {
+        CompilerOptions opts =
+                new CompilerOptions(CompilerOptions.Platform.Native,
+                                    scriptfile.getAbsolutePath(),
+                                    verbose, // -debugcompiler
+                                    cfile.getAbsolutePath(),
+                                    true /* use GC */,
+                                    "clang",
+                                    "emcc",
+                                    execfile.getAbsolutePath(),
+                                    baseDirectory(),
+                                    false /* don't dump C compiler spew into JUnit console */,
+                                    true /* apply field optimizations */,
+                                    verbose /* emit type inference constraints to console */,
+                                    verbose /* dump constraint solution to console */,
+                                    null /* find runtime src for linking locally (not running from jar) */,
+                                    shouldEncodeValues(),
+                                    false /* TODO: x86Test passes explicit -m32 flag, rather than setting this */,
+                                    false /* we don't care about error explanations */,
+                                    null /* we don't care about error explanations */,
+                                    false /* generate efl environment code */,
+                                    3 /* pass C compiler -O3 */);
+        if (doInterop()) {
+            opts.enableInteropMode();
+        }
+        if (bootInterop()) {
+            opts.startInInteropMode();
+        }
+        opts.setPhysicalLayout(physicalLayout());
+        opts.setCompressedVTables(compressedVTables());
+        // set by gradle; the library is built there on first use unless `gradle runtimeLibrary` has
+        String runtimeLib = System.getProperty("sjs.runtimeLibDir");
+        if (runtimeLib != null) {
+            opts.setRuntimeLibraryDirectory(Paths.get(runtimeLib));
+        }
+        return opts;
+    }
+
     public void compilerTest(BiFunction<CompilerOptions,String[],Process> compiler,
                              Function<String,Process> evaluator,
                              boolean execute_code, boolean verbose,
                              String... extra) {
+        if (planned != null) {
+            planned.add(new ParallelEndToEndRunner.Job(this, new File(getInputScriptPath()),
+                                                       compiler, evaluator, execute_code, extra));
+            return;
+        }
         try {
             String script = getInputScriptPath();
             System.out.println("Looking for test script: "+script);
@@ -153,33 +208,7 @@ public abstract class ABackendTest extends SJSTest {
             File cfile = File.createTempFile("___", ccode, tmpdir.toFile());
             String exec = ccode.replaceFirst(".c$", "");
             File execfile = File.createTempFile("___", exec, tmpdir.toFile());
-            CompilerOptions opts =
-                    new CompilerOptions(CompilerOptions.Platform.Native,
-                                        scriptfile.getAbsolutePath(),
-                                        verbose, // -debugcompiler
-                                        cfile.getAbsolutePath(),
-                                        true /* use GC */,
-                                        "clang",
-                                        "emcc",
-                                        execfile.getAbsolutePath(),
-                                        baseDirectory(),
-                                        false /* don't dump C compiler spew into JUnit console */,
-                                        true /* apply field optimizations */,
-                                        verbose /* emit type inference constraints to console */,
-                                        verbose /* dump constraint solution to console */,
-                                        null /* find runtime src for linking locally (not running from jar) */,
-                                        shouldEncodeValues(),
-                                        false /* TODO: x86Test passes explicit -m32 flag, rather than setting this */,
-                                        false /* we don't care about error explanations */,
-                                        null /* we don't care about error explanations */,
-                                        false /* generate efl environment code */,
-                                        3 /* pass C compiler -O3 */);
-            if (doInterop()) {
-                opts.enableInteropMode();
-            }
-            if (bootInterop()) {
-                opts.startInInteropMode();
-            }
+            CompilerOptions opts = testOptions(scriptfile, cfile, execfile, verbose);
             Compiler.compile(opts);
             Process clang = compiler.apply(opts, extra);
             clang.waitFor();
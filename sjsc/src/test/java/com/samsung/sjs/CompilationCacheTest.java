@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+public class CompilationCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path tmp;
+
+    @Before
+    public void createDirectory() throws IOException {
+        tmp = folder.getRoot().toPath();
+    }
+
+    private CompilerOptions options(String js, String c) {
+        CompilerOptions opts = new CompilerOptions(CompilerOptions.Platform.Native,
+                                                   tmp.resolve(js).toString(), false,
+                                                   tmp.resolve(c).toString(), true, "clang", "emcc",
+                                                   tmp.resolve("a.out").toString(), ".", false, true,
+                                                   false, false, null, false, false, false, null,
+                                                   false, 3);
+        opts.setCacheDirectory(tmp.resolve("cache"));
+        return opts;
+    }
+
+    private void write(String file, String contents) throws IOException {
+        Files.write(tmp.resolve(file), contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(String file) throws IOException {
+        return new String(Files.readAllBytes(tmp.resolve(file)), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSourceKey() throws IOException {
+        write("a.js", "var x = 1;");
+        CompilerOptions opts = options("a.js", "a.c");
+        Assert.assertTrue(CompilationCache.applies(opts));
+        String key = CompilationCache.sourceKey(opts, false, true);
+        Assert.assertEquals(key, CompilationCache.sourceKey(options("a.js", "b.c"), false, true));
+        Assert.assertNotEquals(key, CompilationCache.sourceKey(opts, true, true));
+        CompilerOptions sccOpts = options("a.js", "a.c");
+        sccOpts.setSCCScheduling(true);
+        Assert.assertNotEquals(key, CompilationCache.sourceKey(sccOpts, false, true));
+        CompilerOptions layoutOpts = options("a.js", "a.c");
+        layoutOpts.setPhysicalLayout(true);
+        Assert.assertNotEquals(key, CompilationCache.sourceKey(layoutOpts, false, true));
+        CompilerOptions icOpts = options("a.js", "a.c");
+        icOpts.setInlineCaches(true);
+        Assert.assertNotEquals(key, CompilationCache.sourceKey(icOpts, false, true));
+        CompilerOptions pgoOpts = options("a.js", "a.c");
+        pgoOpts.setInstrument(true);
+        Assert.assertNotEquals(key, CompilationCache.sourceKey(pgoOpts, false, true));
+        write("a.profile", "read\t1\tx\t10\n");
+        pgoOpts = options("a.js", "a.c");
+        pgoOpts.setProfileUse(tmp.resolve("a.profile"));
+        String pgoKey = CompilationCache.sourceKey(pgoOpts, false, true);
+        Assert.assertNotEquals(key, pgoKey);
+        write("a.profile", "read\t1\tx\t20\n");
+        Assert.assertNotEquals(pgoKey, CompilationCache.sourceKey(pgoOpts, false, true));
+        write("a.js", "var x = 2;");
+        Assert.assertNotEquals(key, CompilationCache.sourceKey(opts, false, true));
+    }
+
+    @Test
+    public void testSources() throws IOException {
+        write("a.js", "var x = 1;");
+        write("a.c", "int x;");
+        write("a.h", "extern int x;");
+        write("mod.json", "{}");
+        CompilationCache cache = new CompilationCache(tmp.resolve("cache"));
+        String key = CompilationCache.sourceKey(options("a.js", "a.c"), false, true);
+        Assert.assertFalse(cache.restoreSources(key, options("a.js", "b.c"), false));
+        cache.storeSources(key, options("a.js", "a.c"), false, Collections.singletonList(tmp.resolve("mod.json").toFile()));
+
+        Assert.assertTrue(cache.restoreSources(key, options("a.js", "b.c"), false));
+        Assert.assertEquals("int x;", read("b.c"));
+        Assert.assertEquals("extern int x;", read("b.h"));
+
+        // a module's declarations changed since
+        write("mod.json", "{ \"exports\": \"int\" }");
+        Assert.assertFalse(cache.restoreSources(key, options("a.js", "c.c"), false));
+        Assert.assertFalse(Files.exists(tmp.resolve("c.c")));
+    }
+
+    @Test
+    public void testOutput() throws IOException {
+        write("a.c", "int x;");
+        write("a.out", "binary");
+        String[] args = { "clang", "-o", tmp.resolve("a.out").toString(), tmp.resolve("a.c").toString() };
+        String key = CompilationCache.commandKey(args);
+        CompilationCache cache = new CompilationCache(tmp.resolve("cache"));
+        Assert.assertFalse(cache.restoreOutput(key, tmp.resolve("b.out")));
+        cache.storeOutput(key, tmp.resolve("a.out"));
+
+        // the output itself is not part of the key
+        write("a.out", "stale");
+        Assert.assertEquals(key, CompilationCache.commandKey(args));
+        Assert.assertTrue(cache.restoreOutput(key, tmp.resolve("b.out")));
+        Assert.assertEquals("binary", read("b.out"));
+
+        write("a.c", "int y;");
+        Assert.assertNotEquals(key, CompilationCache.commandKey(args));
+    }
+
+    @Test
+    public void testIncludeDirectories() throws IOException {
+        Files.createDirectories(tmp.resolve("include/sub"));
+        write("a.c", "#include \"sub/a.h\"");
+        write("include/sub/a.h", "int x;");
+        write("include/notes.txt", "");
+        String[] args = { "clang", "-I", tmp.resolve("include").toString(), "-o", tmp.resolve("a.out").toString(),
+                          tmp.resolve("a.c").toString() };
+        String[] joined = { "clang", "-I" + tmp.resolve("include"), "-o", tmp.resolve("a.out").toString(),
+                            tmp.resolve("a.c").toString() };
+        String key = CompilationCache.commandKey(args), joinedKey = CompilationCache.commandKey(joined);
+
+        // only headers count
+        write("include/notes.txt", "changed");
+        Assert.assertEquals(key, CompilationCache.commandKey(args));
+
+        write("include/sub/a.h", "int y;");
+        Assert.assertNotEquals(key, CompilationCache.commandKey(args));
+        Assert.assertNotEquals(joinedKey, CompilationCache.commandKey(joined));
+    }
+
+}
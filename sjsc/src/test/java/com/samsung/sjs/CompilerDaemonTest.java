@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class CompilerDaemonTest {
+
+    @Test
+    public void testSplitArguments() {
+        Assert.assertArrayEquals(new String[] { "--only-c", "a b.js" },
+                CompilerDaemon.splitArguments("  --only-c \"a b.js\" "));
+        Assert.assertArrayEquals(new String[] { "" }, CompilerDaemon.splitArguments("\"\""));
+        Assert.assertArrayEquals(new String[0], CompilerDaemon.splitArguments(""));
+    }
+
+    @Test
+    public void testSession() throws Exception {
+        String js = "src/test/resources/testinput/endtoend/ackermann.js";
+        String requests = "--typecheck-only " + js + "\n"
+                + "--typecheck-only nosuch.js\n"
+                + "\n"
+                + "--typecheck-only " + js + "\n"
+                + CompilerDaemon.QUIT + "\n"
+                + "--typecheck-only " + js + "\n";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        boolean quit = CompilerDaemon.serve(new String[0], new BufferedReader(new StringReader(requests)), new PrintStream(bytes, true));
+        Assert.assertTrue(quit);
+        List<String> statuses = Arrays.stream(bytes.toString().split("\n"))
+                .filter(l -> l.startsWith(CompilerDaemon.STATUS_PREFIX))
+                .collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList(CompilerDaemon.STATUS_PREFIX + 0,
+                                          CompilerDaemon.STATUS_PREFIX + 1,
+                                          CompilerDaemon.STATUS_PREFIX + 0), statuses);
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class CompilerStatisticsTest {
+
+    @Test
+    public void testPhases() {
+        CompilerStatistics stats = new CompilerStatistics(true, "a.js");
+        stats.begin("parse");
+        stats.count("ast_nodes", 3);
+        stats.begin("solver");
+        stats.count("constraints", 2);
+        stats.end();
+        stats.count("causes", 5);
+        stats.end();
+
+        JsonObject json = stats.toJson();
+        Assert.assertEquals(CompilerStatistics.VERSION, json.get("version").getAsInt());
+        Assert.assertEquals("a.js", json.get("input").getAsString());
+        JsonArray phases = json.getAsJsonArray("phases");
+        Assert.assertEquals(2, phases.size());
+        JsonObject solver = phases.get(1).getAsJsonObject();
+        Assert.assertEquals("solver", solver.get("name").getAsString());
+        Assert.assertTrue(solver.get("wall_ns").getAsLong() >= 0);
+        Assert.assertEquals(2, solver.getAsJsonObject("counts").get("constraints").getAsLong());
+        Assert.assertEquals(5, solver.getAsJsonObject("counts").get("causes").getAsLong());
+        Assert.assertEquals(3, phases.get(0).getAsJsonObject().getAsJsonObject("counts").get("ast_nodes").getAsLong());
+    }
+
+    @Test
+    public void testDisabled() {
+        CompilerStatistics stats = new CompilerStatistics(false, "a.js");
+        stats.begin("parse");
+        stats.count("ast_nodes", 3);
+        stats.end();
+        Assert.assertTrue(stats.phases().isEmpty());
+    }
+
+    @Test
+    public void testCompile() throws Exception {
+        Path json = Files.createTempFile("sjsc-stats", ".json");
+        json.toFile().deleteOnExit();
+        int status = Compiler.run(new String[] { "--typecheck-only", "--stats-json", json.toString(),
+                                                 "src/test/resources/testinput/endtoend/ackermann.js" });
+        Assert.assertEquals(0, status);
+        JsonObject stats = new JsonParser().parse(new String(Files.readAllBytes(json), StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonArray phases = stats.getAsJsonArray("phases");
+        JsonObject last = phases.get(phases.size() - 1).getAsJsonObject();
+        Assert.assertEquals("solver", last.get("name").getAsString());
+        Assert.assertTrue(last.getAsJsonObject("counts").get("typed_nodes").getAsLong() > 0);
+    }
+
+}
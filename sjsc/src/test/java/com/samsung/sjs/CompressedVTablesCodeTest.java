@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * The C generated with --Xcompressed-vtables: the object maps are packed into ___vtables, each
+ * map's id a #define for its row, and looking up any field in a packed row must give the same
+ * slot, or -1, as the map generated without the flag.
+ */
+public class CompressedVTablesCodeTest {
+
+    private static final Pattern MAP = Pattern.compile("int __vtable_id_(\\d+)\\[\\] = \\{([^}]*)\\}");
+    private static final Pattern PACKED = Pattern.compile("int ___vtables\\[\\] = \\{([^}]*)\\}");
+    private static final Pattern LENGTH = Pattern.compile("const int ___vtables_length = (\\d+)");
+    private static final Pattern ROW = Pattern.compile("#define __vtable_id_(\\d+)\t\\(___vtables \\+ (\\d+)\\)");
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private String compile(String script, String... flags) throws Exception {
+        File c = new File(tmp.getRoot(), script + ".c");
+        String[] args = new String[flags.length + 4];
+        args[0] = "--only-c";
+        System.arraycopy(flags, 0, args, 1, flags.length);
+        args[flags.length + 1] = "--output-file";
+        args[flags.length + 2] = c.toString();
+        args[flags.length + 3] = "src/test/resources/testinput/endtoend/" + script + ".js";
+        Assert.assertEquals(0, Compiler.run(args));
+        return new String(Files.readAllBytes(c.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static int[] ints(String list) {
+        String[] entries = list.trim().split("\\s*,\\s*");
+        int[] result = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            result[i] = Integer.parseInt(entries[i]);
+        }
+        return result;
+    }
+
+    private void checkPacking(String script) throws Exception {
+        Map<Integer, int[]> maps = new HashMap<>();
+        Matcher m = MAP.matcher(compile(script));
+        while (m.find()) {
+            maps.put(Integer.parseInt(m.group(1)), ints(m.group(2)));
+        }
+        Assert.assertFalse(script + " allocates objects", maps.isEmpty());
+
+        String c = compile(script, "--Xcompressed-vtables");
+        Assert.assertFalse(MAP.matcher(c).find());
+        Matcher packed = PACKED.matcher(c);
+        Assert.assertTrue(packed.find());
+        int[] vtables = ints(packed.group(1));
+        Matcher length = LENGTH.matcher(c);
+        Assert.assertTrue(length.find());
+        int n = Integer.parseInt(length.group(1));
+        Assert.assertEquals("entries, then their check row", 2 * n, vtables.length);
+
+        Map<Integer, Integer> rows = new HashMap<>();
+        Matcher row = ROW.matcher(c);
+        while (row.find()) {
+            rows.put(Integer.parseInt(row.group(1)), Integer.parseInt(row.group(2)));
+        }
+        Assert.assertEquals(maps.keySet(), rows.keySet());
+        for (Map.Entry<Integer, int[]> e : maps.entrySet()) {
+            int base = rows.get(e.getKey());
+            int[] map = e.getValue();
+            Assert.assertTrue(base + map.length <= n);
+            for (int field = 0; field < map.length; field++) {
+                // vtable_lookup in runtime.h
+                int slot = vtables[n + base + field] == field ? vtables[base + field] : -1;
+                Assert.assertEquals(script + ": map " + e.getKey() + ", field " + field, map[field], slot);
+            }
+        }
+    }
+
+    @Test
+    public void testObjectLiterals() throws Exception {
+        checkPacking("objlit5");
+    }
+
+    @Test
+    public void testPrototypes() throws Exception {
+        checkPacking("proto");
+    }
+
+    @Test
+    public void testConstructors() throws Exception {
+        checkPacking("nbody");
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        String c = compile("objlit5");
+        Assert.assertFalse(c.contains("___vtables"));
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import com.samsung.sjs.constraintsolver.OperatorModel;
+import com.samsung.sjs.types.CodeType;
+import com.samsung.sjs.types.ConstructorType;
+import com.samsung.sjs.types.FloatType;
+import com.samsung.sjs.types.IndexableType;
+import com.samsung.sjs.types.IntegerType;
+import com.samsung.sjs.types.IntersectionType;
+import com.samsung.sjs.types.Property;
+import com.samsung.sjs.types.PropertyContainer;
+import com.samsung.sjs.types.Type;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Checks that the snapshot gives back what the JSON files it is made from do.
+ */
+public class EnvironmentSnapshotTest {
+
+    private static byte[] environmentJson, operatorsJson, linkageJson;
+
+    private static EnvironmentSnapshot snapshot;
+
+    @BeforeClass
+    public static void writeSnapshot() throws IOException {
+        environmentJson = IOUtils.toByteArray(EnvironmentSnapshotTest.class.getResourceAsStream("/environment.json"));
+        operatorsJson = IOUtils.toByteArray(EnvironmentSnapshotTest.class.getResourceAsStream("/operators.json"));
+        linkageJson = IOUtils.toByteArray(EnvironmentSnapshotTest.class.getResourceAsStream("/linkage.json"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EnvironmentSnapshot.write(environmentJson, operatorsJson, linkageJson, out);
+        snapshot = EnvironmentSnapshot.read(out.toByteArray());
+    }
+
+    private static Map<String, String> describe(Map<String, ? extends Type> types) {
+        Map<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, ? extends Type> e : types.entrySet()) {
+            result.put(e.getKey(), e.getValue().getClass().getSimpleName() + " " + e.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * The parameter names of the code types reachable from t, by the path they are reached at;
+     * toString leaves them out.
+     */
+    private static void paramNames(String path, Type t, Set<Type> seen, Map<String, String> out) {
+        if (t == null || !seen.add(t)) {
+            return;
+        }
+        if (t instanceof CodeType) {
+            CodeType c = (CodeType) t;
+            out.put(path, String.valueOf(c.paramNames()));
+            for (int i = 0; i < c.paramTypes().size(); i++) {
+                paramNames(path + "(" + i + ")", c.paramTypes().get(i), seen, out);
+            }
+            paramNames(path + "()", c.returnType(), seen, out);
+        }
+        if (t instanceof ConstructorType) {
+            paramNames(path + ".prototype", ((ConstructorType) t).getPrototype(), seen, out);
+        }
+        if (t instanceof PropertyContainer) {
+            for (Property p : ((PropertyContainer) t).properties()) {
+                paramNames(path + "." + p.getName(), p.getType(), seen, out);
+            }
+        }
+        if (t instanceof IntersectionType) {
+            List<Type> types = ((IntersectionType) t).getTypes();
+            for (int i = 0; i < types.size(); i++) {
+                paramNames(path + "&" + i, types.get(i), seen, out);
+            }
+        }
+        if (t instanceof IndexableType) {
+            paramNames(path + "[]", ((IndexableType) t).elemType(), seen, out);
+        }
+    }
+
+    private static Map<String, String> paramNames(Map<String, ? extends Type> types) {
+        Map<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, ? extends Type> e : new TreeMap<>(types).entrySet()) {
+            paramNames(e.getKey(), e.getValue(), Collections.newSetFromMap(new IdentityHashMap<>()), result);
+        }
+        return result;
+    }
+
+    /**
+     * The compiler loads the bundled snapshot without comparing it to the JSON files, so the
+     * build must not ship a stale one.
+     */
+    @Test
+    public void testBundledIsCurrent() throws IOException {
+        EnvironmentSnapshot bundled = EnvironmentSnapshot.bundled();
+        Assume.assumeNotNull(bundled);
+        Assert.assertTrue(bundled.isCurrent());
+        Assert.assertTrue(snapshot.isCurrent());
+    }
+
+    @Test
+    public void testEnvironment() {
+        JSEnvironment fromJson = new JSEnvironment();
+        fromJson.includeFile(new ByteArrayInputStream(environmentJson));
+        JSEnvironment fromSnapshot = new JSEnvironment();
+        snapshot.includeInto(fromSnapshot);
+
+        Assert.assertFalse(fromJson.isEmpty());
+        Assert.assertEquals(describe(fromJson), describe(fromSnapshot));
+        Assert.assertEquals(describe(fromJson.namedTypes), describe(fromSnapshot.namedTypes));
+        Map<String, String> names = paramNames(fromJson);
+        Assert.assertEquals("[x]", names.get("Math.abs"));
+        Assert.assertEquals(names, paramNames(fromSnapshot));
+        Assert.assertEquals(paramNames(fromJson.namedTypes), paramNames(fromSnapshot.namedTypes));
+        Assert.assertEquals(fromJson.getIntrinsicProperties(IntegerType.make()).toString(),
+                            fromSnapshot.getIntrinsicProperties(IntegerType.make()).toString());
+        Assert.assertEquals(fromJson.getIntrinsicProperties(FloatType.make()).toString(),
+                            fromSnapshot.getIntrinsicProperties(FloatType.make()).toString());
+
+        // every compilation gets its own types
+        JSEnvironment again = new JSEnvironment();
+        snapshot.includeInto(again);
+        Assert.assertNotSame(fromSnapshot.get("console"), again.get("console"));
+    }
+
+    private static final class CaseList implements OperatorModel.CaseSink {
+        final List<String> cases = new ArrayList<>();
+
+        @Override
+        public void unary(String operatorName, String operandType, String resultType, boolean isPrefix) {
+            cases.add(operatorName + " " + operandType + " : " + resultType + (isPrefix ? " prefix" : " postfix"));
+        }
+
+        @Override
+        public void infix(String operatorName, String leftType, String rightType, String resultType) {
+            cases.add(leftType + " " + operatorName + " " + rightType + " : " + resultType);
+        }
+    }
+
+    @Test
+    public void testOperatorCases() {
+        CaseList fromJson = new CaseList(), fromSnapshot = new CaseList();
+        OperatorModel.readCases(new InputStreamReader(new ByteArrayInputStream(operatorsJson)), fromJson);
+        snapshot.readOperatorCases(fromSnapshot);
+        Assert.assertFalse(fromJson.cases.isEmpty());
+        Assert.assertEquals(fromJson.cases, fromSnapshot.cases);
+    }
+
+    private static Map<String, String> describe(FFILinkage ffi) {
+        Map<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, FFILinkage.LinkEntry> e : ffi.entrySet()) {
+            FFILinkage.LinkEntry l = e.getValue();
+            result.put(e.getKey(), l.name + " " + l.boxed + " " + l.untyped_import + " " + l.rewrite);
+        }
+        for (Map.Entry<String, List<String>> e : ffi.getTablesToGenerate()) {
+            result.put("table " + e.getKey(), e.getValue().toString());
+        }
+        return result;
+    }
+
+    @Test
+    public void testLinkage() {
+        FFILinkage fromJson = new FFILinkage();
+        fromJson.includeFile(new ByteArrayInputStream(linkageJson));
+        FFILinkage fromSnapshot = new FFILinkage();
+        snapshot.includeLinkageInto(fromSnapshot);
+        Assert.assertFalse(fromJson.isEmpty());
+        Assert.assertEquals(describe(fromJson), describe(fromSnapshot));
+    }
+
+    /**
+     * The bundled linkage has no rewrites or untyped imports, so check them on one that does.
+     */
+    @Test
+    public void testLinkageRewrite() throws IOException {
+        byte[] linkage = ("{ \"globals\": [ { \"name\": \"f\", \"boxed\": true, \"rewrite\": \"g\" },"
+                          + " { \"name\": \"h\", \"boxed\": false, \"untyped\": true } ],"
+                          + " \"indirections\": [ { \"name\": \"T\", \"fields\": [ \"p\", \"q\" ] } ] }")
+                          .getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EnvironmentSnapshot.write(environmentJson, operatorsJson, linkage, out);
+        FFILinkage fromJson = new FFILinkage();
+        fromJson.includeFile(new ByteArrayInputStream(linkage));
+        FFILinkage fromSnapshot = new FFILinkage();
+        EnvironmentSnapshot.read(out.toByteArray()).includeLinkageInto(fromSnapshot);
+        Assert.assertEquals("g", fromJson.get("f").rewrite);
+        Assert.assertEquals(describe(fromJson), describe(fromSnapshot));
+    }
+
+}
@@ -0,0 +1,529 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Benchmarks the code the compiler generates: each script of the benchmark suites is compiled
+ * and linked as by the end-to-end tests, then the binary and the script under node (and
+ * optionally SpiderMonkey) are each run a number of times after some warmup runs.  Every run is
+ * measured by <code>profiling/monitorRSS</code>, for its peak RSS; the harness records the
+ * median wall clock time, CPU time and peak RSS of each, and the size of the binary.
+ *
+ * <p>Results are appended to a CSV history, one row per benchmark and engine.  The SJS rows are
+ * compared against the latest earlier passing row for the same benchmark (or the latest one with
+ * a given label), and the run fails if the binary got slower, bigger or hungrier than the
+ * thresholds allow, or if its output differs from node's.  So a change to the compiler or the
+ * runtime can be gated on not slowing down the generated code.
+ *
+ * <p>Suites are named as for {@link ParallelEndToEndRunner}; tests that only compile are skipped.
+ *
+ * <p>Usage: <code>GeneratedCodeBenchmark [--runs n] [--warmup n] [--engines node,spidermonkey]
+ * [--history file] [--label name] [--baseline label] [--max-slowdown percent]
+ * [--max-rss-growth percent] [--max-size-growth percent] [--work-dir dir] [suite...]</code>
+ */
+public class GeneratedCodeBenchmark {
+
+    private static final String[] DEFAULT_SUITES = { "PerfTest", "OctaneTest" };
+
+    private static final String HEADER =
+        "date,label,benchmark,engine,runs,median_ms,min_ms,cpu_ms,rss_bytes,binary_bytes,status";
+
+    /**
+     * The last line monitorRSS prints, after the output of the command.
+     */
+    private static final Pattern RUSAGE = Pattern.compile("(-?\\d+)\\t(\\d+)\\.(\\d{6})\\t(\\d+)\\.(\\d{6})\\s*\\z");
+
+    /**
+     * The SpiderMonkey shell has print but no console, the converse of node.
+     */
+    private static final String SPIDERMONKEY_PRELUDE =
+        "function assert(cond) { if (!cond) { throw Error(); } }\n\n" +
+        "function printInt(s) { print(s); }\n\n" +
+        "function printString(s) { print(s); }\n\n" +
+        "function printFloat(s) { print(s); }\n\n" +
+        "function printFloat10(s) { print(s.toFixed(10)); }\n\n" +
+        "function itofp(s) { return s; }\n\n" +
+        "function string_of_int(x) { return x.toString(); }\n\n" +
+        "var console = { log: print };\n\n" +
+        "var TyHint = {};\n\n";
+
+    /**
+     * One run of a program under monitorRSS.
+     */
+    static final class Run {
+        final int exit;
+        final String stdout;
+        final long wallNanos, cpuMicros, rssBytes;
+
+        Run(int exit, String output, long wallNanos) {
+            this.exit = exit;
+            this.wallNanos = wallNanos;
+            Matcher m = RUSAGE.matcher(output);
+            if (!m.find()) {
+                throw new IllegalStateException("No resource usage from monitorRSS in: "+output);
+            }
+            stdout = output.substring(0, m.start()).trim();
+            rssBytes = Long.parseLong(m.group(1));
+            cpuMicros = Long.parseLong(m.group(2)) * 1000000 + Long.parseLong(m.group(3))
+                      + Long.parseLong(m.group(4)) * 1000000 + Long.parseLong(m.group(5));
+        }
+    }
+
+    /**
+     * The measured runs of one benchmark under one engine, as a row of the history.
+     */
+    static final class Row {
+        final String date, label, benchmark, engine;
+        int runs;
+        double medianMillis, minMillis, cpuMillis;
+        long rssBytes, binaryBytes;
+        String status = "ok";
+
+        Row(String date, String label, String benchmark, String engine) {
+            this.date = date;
+            this.label = label;
+            this.benchmark = benchmark;
+            this.engine = engine;
+        }
+
+        Row measured(List<Run> measured) {
+            runs = measured.size();
+            long[] wall = new long[runs], cpu = new long[runs], rss = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                Run r = measured.get(i);
+                wall[i] = r.wallNanos;
+                cpu[i] = r.cpuMicros;
+                rss[i] = r.rssBytes;
+            }
+            medianMillis = median(wall) / 1e6;
+            minMillis = Arrays.stream(wall).min().getAsLong() / 1e6;
+            cpuMillis = median(cpu) / 1e3;
+            rssBytes = (long) median(rss);
+            return this;
+        }
+
+        boolean passed() {
+            return status.equals("ok");
+        }
+
+        static Row parse(String line) {
+            String[] f = line.split(",", -1);
+            if (f.length != 11) {
+                throw new IllegalArgumentException("Malformed history row: "+line);
+            }
+            Row r = new Row(f[0], f[1], f[2], f[3]);
+            r.runs = Integer.parseInt(f[4]);
+            r.medianMillis = Double.parseDouble(f[5]);
+            r.minMillis = Double.parseDouble(f[6]);
+            r.cpuMillis = Double.parseDouble(f[7]);
+            r.rssBytes = Long.parseLong(f[8]);
+            r.binaryBytes = Long.parseLong(f[9]);
+            r.status = f[10];
+            return r;
+        }
+
+        String csv() {
+            return String.join(",", date, label, benchmark, engine, Integer.toString(runs),
+                               String.format(Locale.ROOT, "%.3f", medianMillis), String.format(Locale.ROOT, "%.3f", minMillis),
+                               String.format(Locale.ROOT, "%.3f", cpuMillis), Long.toString(rssBytes),
+                               Long.toString(binaryBytes), status);
+        }
+    }
+
+    static double median(long[] xs) {
+        long[] sorted = xs.clone();
+        Arrays.sort(sorted);
+        int n = sorted.length;
+        return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2.0;
+    }
+
+    /**
+     * How much worse the SJS rows may get than their baseline, as fractions.
+     */
+    static final class Thresholds {
+        double slowdown = 0.10, rssGrowth = 0.10, sizeGrowth = 0.05;
+
+        /**
+         * The ways current regressed from baseline, if any.
+         */
+        List<String> regressions(Row baseline, Row current) {
+            List<String> r = new ArrayList<>();
+            if (current.medianMillis > baseline.medianMillis * (1 + slowdown)) {
+                r.add(String.format("time %.1f ms -> %.1f ms", baseline.medianMillis, current.medianMillis));
+            }
+            if (current.rssBytes > baseline.rssBytes * (1 + rssGrowth)) {
+                r.add(String.format("peak RSS %d KB -> %d KB", baseline.rssBytes / 1024, current.rssBytes / 1024));
+            }
+            if (current.binaryBytes > baseline.binaryBytes * (1 + sizeGrowth)) {
+                r.add(String.format("binary %d KB -> %d KB", baseline.binaryBytes / 1024, current.binaryBytes / 1024));
+            }
+            return r;
+        }
+
+        /**
+         * The ways current regressed from its baseline in baselines, if it passed and has one.
+         * A row that regressed is marked so, which keeps it out of the baselines of later runs.
+         */
+        List<String> gate(Map<String,Row> baselines, Row current) {
+            Row baseline = baselines.get(current.benchmark);
+            if (!current.passed() || baseline == null) {
+                return new ArrayList<>();
+            }
+            List<String> r = regressions(baseline, current);
+            if (!r.isEmpty()) {
+                current.status = "regressed";
+            }
+            return r;
+        }
+    }
+
+    private final Path monitor;
+    private final int warmup, runs;
+    private final List<String> engines;
+
+    GeneratedCodeBenchmark(Path monitor, int warmup, int runs, List<String> engines) {
+        this.monitor = monitor;
+        this.warmup = warmup;
+        this.runs = runs;
+        this.engines = engines;
+    }
+
+    /**
+     * Builds profiling/monitorRSS.c into dir.
+     */
+    static Path buildMonitor(String basedir, Path dir) throws IOException, InterruptedException {
+        Path exe = dir.resolve("monitorRSS");
+        Process cc = new ProcessBuilder("cc", "-O2", "-o", exe.toString(), basedir + "/profiling/monitorRSS.c")
+            .redirectErrorStream(true).start();
+        String out = IOUtils.toString(cc.getInputStream(), Charset.defaultCharset());
+        if (cc.waitFor() != 0) {
+            throw new IllegalStateException("Could not build monitorRSS:\n"+out);
+        }
+        return exe;
+    }
+
+    /**
+     * Runs cmd under monitorRSS, warmup times and then runs times, in dir.
+     */
+    List<Run> measure(Path dir, String... cmd) throws IOException, InterruptedException {
+        List<String> args = new ArrayList<>();
+        args.add(monitor.toString());
+        args.addAll(Arrays.asList(cmd));
+        File out = dir.resolve("stdout").toFile();
+        List<Run> measured = new ArrayList<>();
+        for (int i = 0; i < warmup + runs; i++) {
+            ProcessBuilder pb = new ProcessBuilder(args).directory(dir.toFile())
+                .redirectOutput(out).redirectError(ProcessBuilder.Redirect.INHERIT);
+            long start = System.nanoTime();
+            Process p = pb.start();
+            int exit = p.waitFor();
+            long wall = System.nanoTime() - start;
+            Run r = new Run(exit, FileUtils.readFileToString(out, Charset.defaultCharset()), wall);
+            if (i >= warmup) {
+                measured.add(r);
+            }
+        }
+        return measured;
+    }
+
+    /**
+     * Compiles, links and runs the script of job, and runs it under each baseline engine.
+     *
+     * @return the SJS row, followed by one row per engine
+     */
+    List<Row> run(ParallelEndToEndRunner.Job job, String date, String label, Path dir) throws Exception {
+        String name = job.name();
+        ABackendTest test = job.test;
+        Row sjs = new Row(date, label, name, "sjs");
+        List<Row> rows = new ArrayList<>();
+        rows.add(sjs);
+
+        String ccode = job.script.getName().replaceFirst(".js$", ".c");
+        File cfile = dir.resolve(ccode).toFile();
+        File execfile = dir.resolve(ccode.replaceFirst(".c$", "")).toFile();
+        CompilerOptions opts = test.testOptions(job.script, cfile, execfile, false);
+        try {
+            Compiler.compile(opts);
+        } catch (Exception e) {
+            e.printStackTrace();
+            sjs.status = "compile-error";
+            return rows;
+        }
+        try {
+            Process clang = job.compiler.apply(opts, job.extra);
+            String ccout = IOUtils.toString(clang.getErrorStream(), Charset.defaultCharset());
+            if (clang.waitFor() != 0) {
+                System.err.println(name+": C compiler exited with value "+clang.exitValue()+"\n"+ccout);
+                sjs.status = "link-error";
+                return rows;
+            }
+        } catch (Exception | AssertionError e) {
+            // the test helpers assert that the C compiler could be started
+            e.printStackTrace();
+            sjs.status = "link-error";
+            return rows;
+        }
+        sjs.binaryBytes = execfile.length();
+
+        List<Run> native_runs = measure(dir, execfile.getAbsolutePath());
+        sjs.measured(native_runs);
+        Run expected = null;
+        for (String engine : engines) {
+            Row row = new Row(date, label, name, engine);
+            List<Run> engine_runs;
+            if (engine.equals("node")) {
+                File js = test.prefixJS(dir, job.script);
+                engine_runs = measure(dir, test.nodebin, js.getAbsolutePath());
+            } else {
+                File js = dir.resolve("spidermonkey.js").toFile();
+                try (OutputStream out = new FileOutputStream(js)) {
+                    IOUtils.write(SPIDERMONKEY_PRELUDE, out, StandardCharsets.UTF_8);
+                    Files.copy(job.script.toPath(), out);
+                }
+                engine_runs = measure(dir, spiderMonkey(test.baseDirectory()), js.getAbsolutePath());
+            }
+            row.measured(engine_runs);
+            if (engine_runs.get(0).exit != 0) {
+                row.status = "error";
+            } else if (expected == null) {
+                expected = engine_runs.get(0);
+            }
+            rows.add(row);
+        }
+
+        // as in SJSTest.assertSameProcessOutput, but without stderr, which is GC chatter at best
+        Run actual = native_runs.get(0);
+        if (actual.exit != 0) {
+            sjs.status = "error";
+        } else if (expected != null && !expected.stdout.equals(actual.stdout)) {
+            System.err.println(name+": output differs from "+engines.get(0)+"\nexpected: ["+expected.stdout+"]\nactual: ["+actual.stdout+"]");
+            sjs.status = "wrong-output";
+        }
+        return rows;
+    }
+
+    static String spiderMonkey(String basedir) {
+        return basedir + "/external/spidermonkey/js";
+    }
+
+    /**
+     * The history so far, oldest first.
+     */
+    static List<Row> readHistory(Path history) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        if (!Files.exists(history)) {
+            return rows;
+        }
+        List<String> lines = Files.readAllLines(history, StandardCharsets.UTF_8);
+        for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+            if (!line.isEmpty()) {
+                rows.add(Row.parse(line));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * The latest passing SJS row for each benchmark, restricted to those labelled label unless
+     * it is null.
+     */
+    static Map<String,Row> baselines(List<Row> history, String label) {
+        Map<String,Row> latest = new LinkedHashMap<>();
+        for (Row r : history) {
+            if (r.engine.equals("sjs") && r.passed() && (label == null || label.equals(r.label))) {
+                latest.put(r.benchmark, r);
+            }
+        }
+        return latest;
+    }
+
+    static void appendHistory(Path history, List<Row> rows) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (!Files.exists(history)) {
+            lines.add(HEADER);
+        }
+        for (Row r : rows) {
+            lines.add(r.csv());
+        }
+        Files.write(history, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * The abbreviated commit being benchmarked, or "unknown" outside of a git checkout.
+     */
+    static String gitLabel() {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").start();
+            String rev = IOUtils.toString(git.getInputStream(), Charset.defaultCharset()).trim();
+            return git.waitFor() == 0 && !rev.isEmpty() ? rev : "unknown";
+        } catch (IOException | InterruptedException e) {
+            return "unknown";
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = 5, warmup = 1;
+        List<String> engines = Collections.singletonList("node");
+        Path history = Paths.get("benchmark-history.csv");
+        Path workdir = null;
+        String label = null, baseline = null;
+        Thresholds thresholds = new Thresholds();
+        List<String> suites = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--engines":
+                    engines = Arrays.asList(args[++i].split(","));
+                    for (String engine : engines) {
+                        if (!engine.equals("node") && !engine.equals("spidermonkey")) {
+                            throw new IllegalArgumentException("Unknown engine "+engine+", expected node or spidermonkey");
+                        }
+                    }
+                    break;
+                case "--history":
+                    history = Paths.get(args[++i]);
+                    break;
+                case "--label":
+                    label = args[++i];
+                    break;
+                case "--baseline":
+                    baseline = args[++i];
+                    break;
+                case "--max-slowdown":
+                    thresholds.slowdown = Double.parseDouble(args[++i]) / 100;
+                    break;
+                case "--max-rss-growth":
+                    thresholds.rssGrowth = Double.parseDouble(args[++i]) / 100;
+                    break;
+                case "--max-size-growth":
+                    thresholds.sizeGrowth = Double.parseDouble(args[++i]) / 100;
+                    break;
+                case "--work-dir":
+                    workdir = Paths.get(args[++i]);
+                    break;
+                default:
+                    suites.add(args[i]);
+            }
+        }
+        if (runs < 1) {
+            throw new IllegalArgumentException("Need at least one measured run");
+        }
+        if (suites.isEmpty()) {
+            suites.addAll(Arrays.asList(DEFAULT_SUITES));
+        }
+        if (label == null) {
+            label = gitLabel();
+        }
+        workdir = workdir == null ? Files.createTempDirectory("sjs-bench") : Files.createDirectories(workdir);
+
+        List<ParallelEndToEndRunner.Job> jobs = new ArrayList<>();
+        for (String suite : suites) {
+            for (ParallelEndToEndRunner.Job job : ParallelEndToEndRunner.plan(suite)) {
+                if (job.execute) {
+                    jobs.add(job);
+                }
+            }
+        }
+        String basedir = jobs.isEmpty() ? "." : jobs.get(0).test.baseDirectory();
+        if (engines.contains("spidermonkey") && !new File(spiderMonkey(basedir)).canExecute()) {
+            throw new IllegalArgumentException("No SpiderMonkey shell at "+spiderMonkey(basedir));
+        }
+
+        PrintStream out = System.out;
+        PrintStream log = new PrintStream(new FileOutputStream(workdir.resolve("benchmark.log").toFile()), true);
+        System.setOut(log);
+        System.setErr(log);
+
+        Map<String,Row> baselines = baselines(readHistory(history), baseline);
+        GeneratedCodeBenchmark bench =
+            new GeneratedCodeBenchmark(buildMonitor(basedir, workdir), warmup, runs, engines);
+        String date = Instant.now().toString();
+        out.println("Benchmarking "+jobs.size()+" programs ("+warmup+" warmup, "+runs+" measured runs) as "+label
+                    +"; log in "+workdir.resolve("benchmark.log"));
+        out.println(String.format("%-14s %-40s %10s %10s %10s %10s %8s", "status", "benchmark", "median ms", "cpu ms",
+                                  "RSS KB", "binary KB", "vs " + engines.get(0)));
+
+        List<Row> results = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        for (ParallelEndToEndRunner.Job job : jobs) {
+            Path dir = Files.createTempDirectory(workdir, "bench");
+            List<Row> rows;
+            try {
+                rows = bench.run(job, date, label, dir);
+            } finally {
+                FileUtils.deleteDirectory(dir.toFile());
+            }
+            results.addAll(rows);
+            Row sjs = rows.get(0);
+            if (!sjs.passed()) {
+                failures.add(sjs.benchmark+": "+sjs.status);
+            } else {
+                List<String> regressions = thresholds.gate(baselines, sjs);
+                if (!regressions.isEmpty()) {
+                    failures.add(sjs.benchmark+": "+String.join(", ", regressions)
+                                 +" (since "+baselines.get(sjs.benchmark).label+")");
+                }
+            }
+            for (Row r : rows) {
+                if (r != sjs && r.runs == 0) {
+                    continue;
+                }
+                String ratio = r == sjs && rows.size() > 1 && rows.get(1).runs > 0
+                    ? String.format("%.2fx", sjs.medianMillis / rows.get(1).medianMillis) : "";
+                out.println(String.format("%-14s %-40s %10.1f %10.1f %10d %10s %8s", r == sjs ? r.status : "",
+                                          r == sjs ? r.benchmark : "  " + r.engine, r.medianMillis, r.cpuMillis,
+                                          r.rssBytes / 1024, r == sjs ? Long.toString(r.binaryBytes / 1024) : "", ratio));
+            }
+        }
+        appendHistory(history, results);
+        out.println(results.size()+" rows appended to "+history);
+        for (String f : failures) {
+            out.println("FAILED: "+f);
+        }
+        log.close();
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.samsung.sjs.GeneratedCodeBenchmark.Row;
+import com.samsung.sjs.GeneratedCodeBenchmark.Thresholds;
+
+public class GeneratedCodeBenchmarkTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static Row row(String label, String benchmark, String engine, double millis, String status) {
+        Row r = new Row("2016-01-01T00:00:00Z", label, benchmark, engine);
+        r.runs = 3;
+        r.medianMillis = r.minMillis = r.cpuMillis = millis;
+        r.rssBytes = 1 << 20;
+        r.binaryBytes = 1 << 16;
+        r.status = status;
+        return r;
+    }
+
+    @Test
+    public void testBaselines() {
+        List<Row> history = Arrays.asList(
+            row("a", "richards.js", "sjs", 100, "ok"),
+            row("a", "richards.js", "node", 50, "ok"),
+            row("b", "richards.js", "sjs", 90, "ok"),
+            row("c", "richards.js", "sjs", 10, "wrong-output"),
+            row("c", "deltablue.js", "sjs", 200, "ok"));
+        Map<String,Row> latest = GeneratedCodeBenchmark.baselines(history, null);
+        Assert.assertEquals(2, latest.size());
+        Assert.assertEquals("b", latest.get("richards.js").label);
+        Assert.assertEquals(200, latest.get("deltablue.js").medianMillis, 0);
+        Map<String,Row> labelled = GeneratedCodeBenchmark.baselines(history, "a");
+        Assert.assertEquals(100, labelled.get("richards.js").medianMillis, 0);
+        Assert.assertFalse(labelled.containsKey("deltablue.js"));
+    }
+
+    @Test
+    public void testRegressions() {
+        Thresholds t = new Thresholds();
+        Row baseline = row("a", "richards.js", "sjs", 100, "ok");
+        Assert.assertTrue(t.regressions(baseline, row("b", "richards.js", "sjs", 109, "ok")).isEmpty());
+        Assert.assertEquals(1, t.regressions(baseline, row("b", "richards.js", "sjs", 111, "ok")).size());
+        Row bigger = row("b", "richards.js", "sjs", 100, "ok");
+        bigger.binaryBytes = baseline.binaryBytes * 2;
+        bigger.rssBytes = baseline.rssBytes * 2;
+        Assert.assertEquals(2, t.regressions(baseline, bigger).size());
+    }
+
+    /**
+     * A regressed row is recorded as such, so running the benchmark again compares against the
+     * same baseline and fails again, rather than accepting the regression.
+     */
+    @Test
+    public void testRegressedRowIsNoBaseline() throws IOException {
+        Path history = tmp.getRoot().toPath().resolve("history.csv");
+        Thresholds t = new Thresholds();
+        GeneratedCodeBenchmark.appendHistory(history, Arrays.asList(row("a", "richards.js", "sjs", 100, "ok")));
+        for (String label : Arrays.asList("b", "c")) {
+            Map<String,Row> baselines = GeneratedCodeBenchmark.baselines(GeneratedCodeBenchmark.readHistory(history), null);
+            Row slow = row(label, "richards.js", "sjs", 150, "ok");
+            Assert.assertFalse(t.gate(baselines, slow).isEmpty());
+            Assert.assertFalse(slow.passed());
+            GeneratedCodeBenchmark.appendHistory(history, Arrays.asList(slow));
+        }
+        List<Row> rows = GeneratedCodeBenchmark.readHistory(history);
+        Assert.assertEquals(3, rows.size());
+        Assert.assertEquals("regressed", rows.get(2).status);
+        Assert.assertEquals("a", GeneratedCodeBenchmark.baselines(rows, null).get("richards.js").label);
+
+        // no baseline, or a failed run: nothing to compare
+        Assert.assertTrue(t.gate(GeneratedCodeBenchmark.baselines(rows, null), row("d", "crypto.js", "sjs", 1, "ok")).isEmpty());
+        Row failed = row("d", "richards.js", "sjs", 500, "compile-error");
+        Assert.assertTrue(t.gate(GeneratedCodeBenchmark.baselines(rows, null), failed).isEmpty());
+        Assert.assertEquals("compile-error", failed.status);
+    }
+}
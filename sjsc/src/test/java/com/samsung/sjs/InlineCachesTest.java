@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * The C generated with --Xinline-caches: field accesses the compiler can't resolve (here, on the
+ * untyped console import) go through a cache of their own.
+ */
+public class InlineCachesTest {
+
+    private static final String PROGRAM = "console.log(\"hello\");\nconsole.log(\"again\");\n";
+
+    private static final Pattern CACHED_READ =
+        Pattern.compile("CACHED_FIELD_READ\\([^;]*/\\* log \\*/, &___field_caches\\[(\\d+)\\]\\)");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path tmp;
+
+    @Before
+    public void createDirectory() throws IOException {
+        tmp = folder.getRoot().toPath();
+        Files.write(tmp.resolve("a.js"), PROGRAM.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String compile(String... flags) throws Exception {
+        List<String> args = new ArrayList<>();
+        args.add("--only-c");
+        for (String f : flags) {
+            args.add(f);
+        }
+        args.add("--output-file");
+        args.add(tmp.resolve("a.c").toString());
+        args.add(tmp.resolve("a.js").toString());
+        Assert.assertEquals(0, Compiler.run(args.toArray(new String[0])));
+        return new String(Files.readAllBytes(tmp.resolve("a.c")), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testCachedAccesses() throws Exception {
+        String c = compile("--Xinline-caches");
+        Assert.assertTrue(c.contains("field_cache_t ___field_caches[2]"));
+        Matcher m = CACHED_READ.matcher(c);
+        List<String> caches = new ArrayList<>();
+        while (m.find()) {
+            caches.add(m.group(1));
+        }
+        Assert.assertEquals("one cache per site", Arrays.asList("0", "1"), caches);
+        Assert.assertFalse(c.contains("___field_cache_sites"));
+    }
+
+    @Test
+    public void testCacheStats() throws Exception {
+        String c = compile("--Xinline-cache-stats");
+        Assert.assertTrue(c.contains("field_cache_t ___field_caches[2]"));
+        Assert.assertTrue(c.contains("___field_cache_sites[]"));
+        Assert.assertTrue(c.contains("\"log in "));
+        Assert.assertTrue(c.contains("report_field_caches(___field_caches, ___field_cache_sites, 2)"));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        String c = compile();
+        Assert.assertFalse(c.contains("CACHED_"));
+        Assert.assertFalse(c.contains("___field_caches"));
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import junit.framework.AssertionFailedError;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Runs the end-to-end suites (compile, link with clang, compare against node) on a pool of
+ * worker threads, reporting how long each step of each test took.
+ *
+ * <p>Suites are {@link ABackendTest} subclasses, whose <code>test_</code> methods are run with
+ * the same options and expectations as under JUnit, or directories of <code>testinput</code>,
+ * whose scripts are all run with the default options.  The tests are numbered in a fixed order,
+ * so that <code>--shard i/n</code> runs the same share of them on every machine.
+ *
+ * <p>The C compiler, the compiled program and node run concurrently, each worker in its own
+ * temporary directory.  The SJS compiler itself keeps per-compilation state in static fields,
+ * so only one test is compiled to C at a time; the report shows how long workers waited for it.
+ * Compiler and test output goes to <code>runner.log</code> in the work directory.
+ *
+ * <p>Usage: <code>ParallelEndToEndRunner [--threads n] [--shard i/n] [--csv file]
+ * [--work-dir dir] [suite...]</code>
+ */
+public class ParallelEndToEndRunner {
+
+    private static final String[] DEFAULT_SUITES = { "EndToEndTest", "OctaneTest", "PerfTest", "sun-min-hacks" };
+
+    /**
+     * Guards {@link Compiler#compile(CompilerOptions)}.
+     */
+    private static final Object COMPILER = new Object();
+
+    /**
+     * One compilerTest call: what to compile, how to link and run it, and what to expect.
+     */
+    static final class Job {
+        final ABackendTest test;
+        final File script;
+        final BiFunction<CompilerOptions,String[],Process> compiler;
+        final Function<String,Process> evaluator;
+        final boolean execute;
+        final String[] extra;
+
+        Job(ABackendTest test, File script,
+            BiFunction<CompilerOptions,String[],Process> compiler,
+            Function<String,Process> evaluator,
+            boolean execute, String[] extra) {
+            this.test = test;
+            this.script = script;
+            this.compiler = compiler;
+            this.evaluator = evaluator;
+            this.execute = execute;
+            this.extra = extra;
+        }
+
+        String name() {
+            String suite = test instanceof DirectorySuite ? ((DirectorySuite) test).dir : test.getClass().getSimpleName();
+            return suite + "." + script.getName().replaceFirst(".js$", "");
+        }
+
+        Result run(Path tmpdir) {
+            Result r = new Result(name());
+            long start = System.nanoTime();
+            Process node = null;
+            try {
+                String ccode = script.getName().replaceFirst(".js$", ".c");
+                File cfile = File.createTempFile("___", ccode, tmpdir.toFile());
+                File execfile = File.createTempFile("___", ccode.replaceFirst(".c$", ""), tmpdir.toFile());
+                CompilerOptions opts = test.testOptions(script, cfile, execfile, false);
+                if (execute) {
+                    // the reference output does not depend on the compiler, so start it first
+                    node = test.runNode(test.prefixJS(tmpdir, script));
+                }
+
+                long waiting = System.nanoTime();
+                synchronized (COMPILER) {
+                    long compiling = System.nanoTime();
+                    r.lockNanos = compiling - waiting;
+                    Compiler.compile(opts);
+                    r.compileNanos = System.nanoTime() - compiling;
+                }
+
+                long linking = System.nanoTime();
+                Process clang = compiler.apply(opts, extra);
+                String ccout = IOUtils.toString(clang.getErrorStream(), Charset.defaultCharset());
+                clang.waitFor();
+                r.linkNanos = System.nanoTime() - linking;
+                if (clang.exitValue() != 0) {
+                    System.err.println(r.name+": C compiler exited with value "+clang.exitValue()+"\n"+ccout);
+                    return r.fail("C compiler exited with value "+clang.exitValue());
+                }
+
+                if (execute) {
+                    long running = System.nanoTime();
+                    Process program = evaluator.apply(execfile.getAbsolutePath());
+                    program.waitFor();
+                    r.runNanos = System.nanoTime() - running;
+                    try {
+                        test.assertSameProcessOutput(node, program);
+                    } catch (AssertionFailedError e) {
+                        return r.fail("output differs from node");
+                    }
+                }
+                return r;
+            } catch (Exception | AssertionError e) {
+                StringWriter trace = new StringWriter();
+                e.printStackTrace(new PrintWriter(trace));
+                System.err.println(r.name+": "+trace);
+                return r.fail(e.toString());
+            } finally {
+                if (node != null && node.isAlive()) {
+                    node.destroy();
+                }
+                r.totalNanos = System.nanoTime() - start;
+            }
+        }
+    }
+
+    static final class Result {
+        final String name;
+        String failure;
+        long lockNanos, compileNanos, linkNanos, runNanos, totalNanos;
+
+        Result(String name) {
+            this.name = name;
+        }
+
+        Result fail(String why) {
+            failure = why;
+            return this;
+        }
+
+        boolean passed() {
+            return failure == null;
+        }
+
+        String row() {
+            return String.format("%-4s %-44s %9d %9d %9d %9d%s", passed() ? "ok" : "FAIL", name,
+                                 compileNanos / 1000000, linkNanos / 1000000, runNanos / 1000000,
+                                 totalNanos / 1000000, passed() ? "" : "  " + failure);
+        }
+
+        String csv() {
+            return String.join(",", name, passed() ? "pass" : "fail",
+                               Long.toString(lockNanos / 1000000), Long.toString(compileNanos / 1000000),
+                               Long.toString(linkNanos / 1000000), Long.toString(runNanos / 1000000),
+                               Long.toString(totalNanos / 1000000));
+        }
+    }
+
+    /**
+     * A directory of testinput without a JUnit suite; every script is a test with the default
+     * options.
+     */
+    private static final class DirectorySuite extends ABackendTest {
+        private final String dir;
+
+        DirectorySuite(String dir) throws IOException {
+            super("test_" + dir);
+            this.dir = dir;
+        }
+
+        @Override
+        protected String getTestDir() {
+            return dir + "/";
+        }
+    }
+
+    /**
+     * The tests of a suite, in a fixed order.
+     */
+    static List<Job> plan(String suite) throws Exception {
+        List<Job> jobs = new ArrayList<>();
+        Class<?> c = null;
+        try {
+            c = Class.forName(suite.contains(".") ? suite : ParallelEndToEndRunner.class.getPackage().getName() + "." + suite);
+        } catch (ClassNotFoundException e) {
+            // a directory
+        }
+        if (c != null) {
+            if (!ABackendTest.class.isAssignableFrom(c) || Modifier.isAbstract(c.getModifiers())) {
+                throw new IllegalArgumentException(suite + " is not an end-to-end test suite");
+            }
+            Constructor<?> ctor = c.getConstructor(String.class);
+            List<Method> tests = new ArrayList<>();
+            for (Method m : c.getMethods()) {
+                if (m.getName().startsWith("test") && m.getParameterCount() == 0 && m.getReturnType() == void.class) {
+                    tests.add(m);
+                }
+            }
+            tests.sort(Comparator.comparing(Method::getName));
+            for (Method m : tests) {
+                ABackendTest test = (ABackendTest) ctor.newInstance(m.getName());
+                test.planned = jobs;
+                m.invoke(test);
+                test.planned = null;
+            }
+            return jobs;
+        }
+        URL url = ParallelEndToEndRunner.class.getResource("/testinput/" + suite);
+        if (url == null) {
+            throw new IllegalArgumentException("No test suite or testinput directory named " + suite);
+        }
+        DirectorySuite test = new DirectorySuite(suite);
+        File[] scripts = new File(url.getPath()).listFiles((d, name) -> name.endsWith(".js"));
+        Arrays.sort(scripts);
+        for (File script : scripts) {
+            jobs.add(new Job(test, script, test::runClang, SJSTest::simple_exec, true, new String[0]));
+        }
+        return jobs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int shard = 0, shards = 1;
+        Path csv = null;
+        Path workdir = null;
+        List<String> suites = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--shard":
+                    String[] s = args[++i].split("/");
+                    shard = Integer.parseInt(s[0]);
+                    shards = Integer.parseInt(s[1]);
+                    if (shard < 0 || shard >= shards) {
+                        throw new IllegalArgumentException("Bad shard "+args[i]+", expected i/n with 0 <= i < n");
+                    }
+                    break;
+                case "--csv":
+                    csv = Paths.get(args[++i]);
+                    break;
+                case "--work-dir":
+                    workdir = Paths.get(args[++i]);
+                    break;
+                default:
+                    suites.add(args[i]);
+            }
+        }
+        if (suites.isEmpty()) {
+            suites.addAll(Arrays.asList(DEFAULT_SUITES));
+        }
+        workdir = workdir == null ? Files.createTempDirectory("sjs-e2e") : Files.createDirectories(workdir);
+
+        PrintStream out = System.out;
+        PrintStream log = new PrintStream(new FileOutputStream(workdir.resolve("runner.log").toFile()), true);
+        System.setOut(log);
+        System.setErr(log);
+
+        List<Job> jobs = new ArrayList<>();
+        for (String suite : suites) {
+            jobs.addAll(plan(suite));
+        }
+        List<Job> mine = new ArrayList<>();
+        for (int i = shard; i < jobs.size(); i += shards) {
+            mine.add(jobs.get(i));
+        }
+        out.println("Running "+mine.size()+" of "+jobs.size()+" tests on "+threads+" threads; log in "+workdir.resolve("runner.log"));
+        out.println(String.format("%-4s %-44s %9s %9s %9s %9s", "", "test", "sjsc ms", "clang ms", "run ms", "total ms"));
+
+        // each worker compiles and links in its own directory, emptied between tests
+        final Path root = workdir;
+        ThreadLocal<Path> tmpdirs = ThreadLocal.withInitial(() -> {
+            try {
+                return Files.createTempDirectory(root, "worker");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> futures = new ArrayList<>();
+        for (Job job : mine) {
+            futures.add(pool.submit(() -> {
+                Path tmpdir = tmpdirs.get();
+                try {
+                    Result r = job.run(tmpdir);
+                    synchronized (out) {
+                        out.println(r.row());
+                    }
+                    return r;
+                } finally {
+                    FileUtils.cleanDirectory(tmpdir.toFile());
+                }
+            }));
+        }
+        List<Result> results = new ArrayList<>();
+        for (Future<Result> f : futures) {
+            results.add(f.get());
+        }
+        pool.shutdown();
+        long wall = System.nanoTime() - start;
+
+        long serial = 0, locked = 0;
+        List<Result> failed = new ArrayList<>();
+        for (Result r : results) {
+            serial += r.totalNanos;
+            locked += r.lockNanos;
+            if (!r.passed()) {
+                failed.add(r);
+            }
+        }
+        out.println(String.format("%d passed, %d failed in %.1f s (%.1f s of test time; %.1f s waiting to compile)",
+                                  results.size() - failed.size(), failed.size(),
+                                  wall / 1e9, serial / 1e9, locked / 1e9));
+        for (Result r : failed) {
+            out.println("FAILED: "+r.name+": "+r.failure);
+        }
+        if (csv != null) {
+            List<String> lines = new ArrayList<>();
+            lines.add("test,status,wait_ms,sjsc_ms,clang_ms,run_ms,total_ms");
+            for (Result r : results) {
+                lines.add(r.csv());
+            }
+            Files.write(csv, lines, StandardCharsets.UTF_8);
+        }
+        log.close();
+        System.exit(failed.isEmpty() ? 0 : 1);
+    }
+}
@@ -0,0 +1,36 @@
+/* 
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * The end-to-end tests with the solved physical layout (--Xphysical-layout), which permutes the
+ * object maps that the field access optimizations, type tags and runtime coercions all read
+ */
+package com.samsung.sjs;
+
+import java.io.IOException;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class PhysicalLayoutEndToEndTest extends EndToEndTest {
+    public PhysicalLayoutEndToEndTest(String testName) throws IOException
+    {
+        super(testName);
+    }
+    public static Test suite() {
+        return new TestSuite(PhysicalLayoutEndToEndTest.class);
+    }
+    @Override
+    protected boolean physicalLayout() { return true; }
+}
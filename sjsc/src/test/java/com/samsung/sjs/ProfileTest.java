@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * The C generated with --instrument, and profiles fed back to a second build with --profile-use:
+ * sites are recorded by IR node id, which must be the same in every build of the same program.
+ */
+public class ProfileTest {
+
+    private static final String SCRIPT = "src/test/resources/testinput/endtoend/objlit5.js";
+
+    private static final Pattern SITE = Pattern.compile("\"(alloc|read|write)\\\\t(\\d+)\\\\t([^\"]*)\"");
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private String compile(String... flags) throws Exception {
+        File c = new File(tmp.getRoot(), "a.c");
+        List<String> args = new ArrayList<>();
+        args.add("--only-c");
+        for (String f : flags) {
+            args.add(f);
+        }
+        args.add("--output-file");
+        args.add(c.toString());
+        args.add(SCRIPT);
+        Assert.assertEquals(0, Compiler.run(args.toArray(new String[0])));
+        return new String(Files.readAllBytes(c.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /** The sites of ___profile_sites, as their profile lines without a count */
+    private static List<String> sites(String c) {
+        int start = c.indexOf("const char* ___profile_sites[] = {");
+        Assert.assertTrue(start >= 0);
+        Matcher m = SITE.matcher(c.substring(start, c.indexOf("}", start)));
+        List<String> sites = new ArrayList<>();
+        while (m.find()) {
+            sites.add(m.group(1) + "\t" + m.group(2) + "\t" + m.group(3));
+        }
+        return sites;
+    }
+
+    /** The counts of the layout phase of a build with --profile-use */
+    private JsonObject profileUse(List<String> lines) throws Exception {
+        Path profile = tmp.newFile().toPath();
+        Files.write(profile, lines, StandardCharsets.UTF_8);
+        Path json = tmp.newFile().toPath();
+        compile("--Xphysical-layout", "--profile-use", profile.toString(), "--stats-json", json.toString());
+        JsonArray phases = new JsonParser().parse(new String(Files.readAllBytes(json), StandardCharsets.UTF_8))
+                                           .getAsJsonObject().getAsJsonArray("phases");
+        for (JsonElement p : phases) {
+            if (p.getAsJsonObject().get("name").getAsString().equals("PhysicalLayoutConstraintGathering")) {
+                return p.getAsJsonObject().getAsJsonObject("counts");
+            }
+        }
+        throw new AssertionError("no layout phase");
+    }
+
+    @Test
+    public void testInstrumentedCode() throws Exception {
+        String c = compile("--instrument");
+        Assert.assertTrue(c.contains("#define SJS_PROFILE_INSTRUMENT"));
+        List<String> sites = sites(c);
+        Assert.assertEquals(4, sites.size());
+        Assert.assertTrue(sites.get(0).startsWith("alloc\t"));
+        Assert.assertTrue(sites.get(0).endsWith("\tb"));
+        Assert.assertTrue(sites.get(2).endsWith("\ta,z,b"));
+        Assert.assertTrue(sites.get(1).startsWith("read\t"));
+        Assert.assertTrue(c.contains("uint64_t ___site_counts[4]"));
+        for (int i = 0; i < sites.size(); i++) {
+            Assert.assertTrue("site " + i + " is counted", c.contains("___site_counts[" + i + "]++ , "));
+        }
+        Assert.assertTrue(c.contains("__attribute__((destructor)) static void ___dump_site_counts(void) {\n"
+                                     + "\tdump_site_counts(___profile_sites, ___site_counts, 4);\n}"));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        String c = compile();
+        Assert.assertFalse(c.contains("SJS_PROFILE_INSTRUMENT"));
+        Assert.assertFalse(c.contains("___site_counts"));
+    }
+
+    @Test
+    public void testProfileUse() throws Exception {
+        List<String> sites = sites(compile("--instrument"));
+        List<String> profile = new ArrayList<>();
+        for (String s : sites) {
+            profile.add(s + "\t10");
+        }
+        JsonObject counts = profileUse(profile);
+        Assert.assertEquals(sites.size(), counts.get("profiled_sites").getAsInt());
+        Assert.assertEquals(0, counts.get("stale_profile_sites").getAsInt());
+    }
+
+    @Test
+    public void testStaleProfile() throws Exception {
+        // the same node ids under other names, as if recorded from another version of the program
+        List<String> profile = new ArrayList<>();
+        for (String s : sites(compile("--instrument"))) {
+            profile.add(s + "x\t10");
+        }
+        JsonObject counts = profileUse(profile);
+        Assert.assertEquals(profile.size(), counts.get("stale_profile_sites").getAsInt());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the runtime library with a stand-in for clang that records its arguments and writes
+ * an empty object file.
+ */
+public class RuntimeLibraryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path tmp, log;
+
+    private CompilerOptions opts;
+
+    @Before
+    public void setUp() throws IOException {
+        tmp = folder.getRoot().toPath();
+        FileUtils.copyDirectory(new File("src/main/resources/backend"), tmp.resolve("backend").toFile());
+        log = tmp.resolve("clang.log");
+        Path clang = tmp.resolve("clang");
+        Files.write(clang, Arrays.asList("#!/bin/sh",
+                                         "echo \"$@\" >> " + log,
+                                         "while [ $# -gt 0 ]; do",
+                                         "  if [ \"$1\" = -o ]; then : > \"$2\"; fi",
+                                         "  shift",
+                                         "done"), StandardCharsets.UTF_8);
+        clang.toFile().setExecutable(true);
+        opts = new CompilerOptions(CompilerOptions.Platform.Native, "a.js", false, tmp.resolve("a.c").toString(),
+                                   true, clang.toString(), "emcc", tmp.resolve("a.out").toString(), ".", false,
+                                   true, false, false, tmp.resolve("backend").toString(), false, false, false,
+                                   null, false, 3);
+        opts.setRuntimeLibraryDirectory(tmp.resolve("lib"));
+    }
+
+    private int compilations() throws IOException {
+        return Files.exists(log) ? Files.readAllLines(log).size() : 0;
+    }
+
+    @Test
+    public void testBuildOnce() throws IOException {
+        Path lib = RuntimeLibrary.ensure(opts, false);
+        Assert.assertTrue(Files.isRegularFile(lib));
+        Assert.assertEquals(RuntimeLibrary.NAME, lib.getFileName().toString());
+        Assert.assertEquals(RuntimeLibrary.sources(opts).length, compilations());
+
+        Assert.assertEquals(lib, RuntimeLibrary.ensure(opts, false));
+        Assert.assertEquals(RuntimeLibrary.sources(opts).length, compilations());
+
+        // other configurations get their own library
+        Path m32 = RuntimeLibrary.ensure(opts, true);
+        Assert.assertNotEquals(lib, m32);
+        Assert.assertTrue(Files.readAllLines(log).get(compilations() - 1).contains("-m32"));
+    }
+
+    @Test
+    public void testRebuildOnChange() throws IOException {
+        Path lib = RuntimeLibrary.ensure(opts, false);
+        Files.write(tmp.resolve("backend/runtime.h"), "\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Path rebuilt = RuntimeLibrary.ensure(opts, false);
+        Assert.assertNotEquals(lib, rebuilt);
+        Assert.assertEquals(2 * RuntimeLibrary.sources(opts).length, compilations());
+    }
+
+    @Test
+    public void testLinkArguments() throws IOException {
+        List<String> args = Arrays.asList(Compiler.clangArgs(opts, new String[0], new String[0]));
+        Assert.assertTrue(args.contains(RuntimeLibrary.ensure(opts, false).toString()));
+        for (String src : RuntimeLibrary.sources(opts)) {
+            Assert.assertFalse(args.contains(src));
+        }
+
+        // objects that call into the runtime must come before the archive
+        args = Arrays.asList(Compiler.clangArgs(opts, new String[] { "helper.o" }, new String[0]));
+        int helper = args.indexOf(new File(".").getCanonicalPath() + "/helper.o");
+        Assert.assertTrue(helper >= 0);
+        Assert.assertTrue(helper < args.indexOf(RuntimeLibrary.ensure(opts, false).toString()));
+
+        opts.setRuntimeLibraryDirectory(null);
+        args = Arrays.asList(Compiler.clangArgs(opts, new String[0], new String[0]));
+        Assert.assertTrue(args.containsAll(Arrays.asList(RuntimeLibrary.sources(opts))));
+    }
+
+}
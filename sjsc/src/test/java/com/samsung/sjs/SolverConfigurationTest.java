@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs;
+
+import com.samsung.sjs.constraintgenerator.ConstraintFactory;
+import com.samsung.sjs.constraintgenerator.ConstraintGenerator;
+import com.samsung.sjs.constraintsolver.DirectionalConstraintSolver;
+import com.samsung.sjs.constraintsolver.SolverException;
+import com.samsung.sjs.constraintsolver.TypeAssignment;
+import com.samsung.sjs.types.Type;
+import com.samsung.sjs.types.Types;
+import com.samsung.sjs.types.UnattachedMethodType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mozilla.javascript.ast.AstNode;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Compares the optional solver strategies with the default configuration:
+ * <ul>
+ * <li>merging equated type variables before solving
+ * ({@link DirectionalConstraintSolver#setCollapseEqualities(boolean)})</li>
+ * <li>processing the worklist one strongly connected component at a time
+ * ({@link DirectionalConstraintSolver#setSCCScheduling(boolean)})</li>
+ * <li>solving independent groups of constraints on several threads
+ * ({@link DirectionalConstraintSolver#setSolverThreads(int)})</li>
+ * </ul>
+ *
+ * <p>The solutions are compared structurally rather than against the
+ * expected output files, since the order in which properties are discovered
+ * (and hence printed) depends on the worklist order.
+ *
+ * <p>The solver is order-sensitive, so none of these strategies is
+ * equivalent to the default one on every program. The corpus tests run
+ * each strategy over all of testinput/constraints, and require the same
+ * types, or the same error, for every input except the ones listed as
+ * known to differ.
+ */
+public class SolverConfigurationTest {
+
+    private static JSEnvironment environment() throws IOException {
+        JSEnvironment env = new JSEnvironment();
+        URL url = Compiler.class.getResource("/environment.json");
+        env.includeFile(Paths.get(url.getPath()));
+        return env;
+    }
+
+    /**
+     * {@link Types#isEqual(Type, Type)}, extended to the unattached method
+     * types inferred for constructors and methods
+     */
+    private static boolean sameType(Type t1, Type t2) {
+        if (t1 instanceof UnattachedMethodType && t2 instanceof UnattachedMethodType) {
+            UnattachedMethodType m1 = (UnattachedMethodType) t1;
+            UnattachedMethodType m2 = (UnattachedMethodType) t2;
+            if (m1.nrParams() != m2.nrParams()
+                    || !Types.isEqual(m1.receiverType(), m2.receiverType())
+                    || !Types.isEqual(m1.returnType(), m2.returnType())) {
+                return false;
+            }
+            for (int i = 0; i < m1.nrParams(); i++) {
+                if (!Types.isEqual(m1.paramTypes().get(i), m2.paramTypes().get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return Types.isEqual(t1, t2);
+    }
+
+    /**
+     * The outcome of solving a script: the types of its nodes, or the error
+     * the solver reported.
+     */
+    private static Object outcome(String script, Consumer<DirectionalConstraintSolver> configuration) throws IOException {
+        ConstraintFactory factory = new ConstraintFactory();
+        ConstraintGenerator generator = new ConstraintGenerator(factory, environment(), null);
+        try {
+            generator.generateConstraints(script);
+        } catch (RuntimeException e) {
+            return "constraint generation failed: " + e;
+        }
+        DirectionalConstraintSolver solver = new DirectionalConstraintSolver(generator.getTypeConstraints(), factory, generator);
+        configuration.accept(solver);
+        TypeAssignment solution;
+        try {
+            solution = solver.solve();
+        } catch (SolverException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        Map<String, Type> result = new TreeMap<>();
+        for (Map.Entry<AstNode, Type> e : solution.nodeTypes().entrySet()) {
+            AstNode n = e.getKey();
+            result.put(n.getAbsolutePosition() + ":" + n.getClass().getSimpleName() + ":" + n.toSource(), e.getValue());
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean sameOutcome(Object expected, Object actual) {
+        if (!(expected instanceof Map && actual instanceof Map)) {
+            return expected.equals(actual);
+        }
+        Map<String, Type> m1 = (Map<String, Type>) expected;
+        Map<String, Type> m2 = (Map<String, Type>) actual;
+        if (!m1.keySet().equals(m2.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, Type> e : m1.entrySet()) {
+            if (!sameType(e.getValue(), m2.get(e.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<Path, Object> defaultOutcomes;
+
+    private static synchronized Map<Path, Object> defaultOutcomes() throws IOException {
+        if (defaultOutcomes == null) {
+            Path dir = Paths.get(SolverConfigurationTest.class.getResource("/testinput/constraints").getPath());
+            defaultOutcomes = new TreeMap<>();
+            try (DirectoryStream<Path> inputs = Files.newDirectoryStream(dir, "*.js")) {
+                for (Path input : inputs) {
+                    defaultOutcomes.put(input, null);
+                }
+            }
+            for (Path input : defaultOutcomes.keySet()) {
+                defaultOutcomes.put(input, outcome(new String(Files.readAllBytes(input)), solver -> { }));
+            }
+        }
+        return defaultOutcomes;
+    }
+
+    /**
+     * Solve every constraints test input with the given configuration, and
+     * check that only the inputs in knownDifferences come out differently
+     * than with the default one.
+     */
+    private static void checkCorpus(Consumer<DirectionalConstraintSolver> configuration, String... knownDifferences) throws IOException {
+        Set<String> known = new HashSet<>(Arrays.asList(knownDifferences));
+        List<String> unexpected = new ArrayList<>();
+        for (Map.Entry<Path, Object> e : defaultOutcomes().entrySet()) {
+            String name = e.getKey().getFileName().toString();
+            Object actual = outcome(new String(Files.readAllBytes(e.getKey())), configuration);
+            if (!known.contains(name) && !sameOutcome(e.getValue(), actual)) {
+                unexpected.add(name);
+            }
+        }
+        Assert.assertTrue("different outcome for " + unexpected, unexpected.isEmpty());
+    }
+
+    @Test
+    public void testCollapsedCorpus() throws IOException {
+        checkCorpus(solver -> solver.setCollapseEqualities(true),
+                "badlub3.js", "badlub4.js", "badoperands.js", "external2.js",
+                "intfloat6.js", "meet_error_1.js", "rectype_reject.js", "return.js");
+    }
+
+    @Test
+    public void testSCCCorpus() throws IOException {
+        checkCorpus(solver -> solver.setSCCScheduling(true),
+                "2darray.js", "assignments2.js", "badlub3.js", "badlub4.js", "external2.js",
+                "intfloat6.js", "join_error_1.js", "join_error_5.js", "return.js");
+    }
+
+    @Test
+    public void testParallelCorpus() throws IOException {
+        checkCorpus(solver -> solver.setSolverThreads(4),
+                "external2.js", "overloading2.js");
+    }
+
+}
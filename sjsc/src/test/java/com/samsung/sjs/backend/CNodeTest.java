@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.backend;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.samsung.sjs.backend.asts.c.CNode;
+
+public class CNodeTest {
+
+    private static String emitted(CNode n) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        n.emit(1, sb);
+        return sb.toString();
+    }
+
+    @Test
+    public void testToSourceOnly() throws IOException {
+        CNode n = new CNode() {
+            @Override
+            public String toSource(int indentLevel) {
+                return "x";
+            }
+        };
+        Assert.assertEquals("x", emitted(n));
+    }
+
+    @Test
+    public void testEmitOnly() throws IOException {
+        CNode n = new CNode() {
+            @Override
+            public void emit(int indentLevel, Appendable out) throws IOException {
+                indent(indentLevel, out);
+                out.append("x");
+            }
+        };
+        Assert.assertEquals("  x", n.toSource(1));
+        Assert.assertEquals("  x", emitted(n));
+    }
+
+    /**
+     * A node overriding neither method fails with an error naming its class rather than
+     * overflowing the stack.
+     */
+    @Test
+    public void testOverridesNeither() throws IOException {
+        CNode n = new CNode() { };
+        try {
+            n.toSource(0);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(n.getClass().getName()));
+        }
+        try {
+            emitted(n);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(n.getClass().getName()));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.backend;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompressedVTablesTest {
+
+    private static int[] map(int width, int... ids) {
+        int[] m = new int[width];
+        Arrays.fill(m, -1);
+        for (int i = 0; i < ids.length; i++) {
+            m[ids[i]] = i;
+        }
+        return m;
+    }
+
+    private static void assertSameLookups(int[][] maps, CompressedVTables packed) {
+        Set<Integer> bases = new HashSet<>();
+        for (int i = 0; i < maps.length; i++) {
+            Assert.assertTrue("bases must be distinct", bases.add(packed.base(i)));
+            for (int id = 0; id < maps[i].length; id++) {
+                Assert.assertEquals("map "+i+", id "+id, maps[i][id], packed.lookup(i, id));
+            }
+            Assert.assertTrue(packed.base(i) + maps[i].length <= packed.length());
+        }
+    }
+
+    /**
+     * Maps with disjoint ids share entries, so the table is smaller than the maps.
+     */
+    @Test
+    public void testDisjointMapsOverlap() {
+        int[][] maps = { map(8, 0, 1), map(8, 2, 3), map(8, 4, 5), map(8, 6, 7) };
+        CompressedVTables packed = new CompressedVTables(maps, 8);
+        assertSameLookups(maps, packed);
+        Assert.assertTrue(packed.length() < 4 * 8);
+    }
+
+    /**
+     * Identical layouts (as the vtable memo never produces) and empty maps still get bases of
+     * their own.
+     */
+    @Test
+    public void testEmptyAndRepeatedMaps() {
+        int[][] maps = { map(4), map(4, 1), map(4), map(4, 0, 1, 2, 3) };
+        assertSameLookups(maps, new CompressedVTables(maps, 4));
+        assertSameLookups(new int[0][], new CompressedVTables(new int[0][], 4));
+    }
+
+    @Test
+    public void testRandomMaps() {
+        Random r = new Random(42);
+        int width = 200;
+        int[][] maps = new int[300][];
+        for (int i = 0; i < maps.length; i++) {
+            maps[i] = new int[width];
+            Arrays.fill(maps[i], -1);
+            int slot = 0;
+            for (int id = 0; id < width; id++) {
+                if (r.nextInt(20) == 0) {
+                    maps[i][id] = slot++;
+                }
+            }
+        }
+        CompressedVTables packed = new CompressedVTables(maps, width);
+        assertSameLookups(maps, packed);
+        Assert.assertTrue(2 * packed.length() < maps.length * width / 2);
+    }
+}
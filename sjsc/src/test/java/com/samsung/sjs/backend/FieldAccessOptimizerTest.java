@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.backend;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.samsung.sjs.CompilerOptions;
+import com.samsung.sjs.backend.asts.ir.Script;
+import com.samsung.sjs.types.IntegerType;
+import com.samsung.sjs.types.ObjectType;
+
+/**
+ * Offset prediction from the vtables with each field, as IRVTablePass would collect them.
+ */
+public class FieldAccessOptimizerTest {
+
+    // property ids: a = 0, b = 1, x = 2, y = 3
+    private static final IRFieldCollector.FieldMapping FIELDS =
+        new IRFieldCollector.FieldMapping(new TreeSet<>(Arrays.asList("a", "b", "x", "y")));
+
+    private static final int[] AX = { 0, -1, 1, -1 };
+    private static final int[] ABX = { 1, 0, 2, -1 };
+    private static final int[] XY = { -1, -1, 1, 0 };
+
+    private static Map<String, Set<int[]>> vtablesByField(int[]... vtables) {
+        Map<String, Set<int[]>> by_field = new HashMap<>();
+        for (int[] vt : vtables) {
+            for (int f = 0; f < vt.length; f++) {
+                if (vt[f] != -1) {
+                    by_field.computeIfAbsent(FIELDS.nameOf(f), k -> new HashSet<>()).add(vt);
+                }
+            }
+        }
+        return by_field;
+    }
+
+    private static FieldAccessOptimizer optimizer(Map<String, Set<int[]>> vtables_by_field) {
+        CompilerOptions opts = new CompilerOptions(CompilerOptions.Platform.Native, "a.js", false, "a.c", true,
+                                                   "clang", "emcc", "a.out", ".", false, true, false, false,
+                                                   null, false, false, false, null, false, 3);
+        return new FieldAccessOptimizer(new Script(null, null), opts, FIELDS, vtables_by_field);
+    }
+
+    private static ObjectType receiver(String... props) {
+        ObjectType t = new ObjectType();
+        for (String p : props) {
+            t.setProperty(p, IntegerType.make());
+        }
+        return t;
+    }
+
+    @Test
+    public void testUniqueOffset() {
+        FieldAccessOptimizer fao = optimizer(vtablesByField(AX, ABX, XY));
+        Assert.assertEquals(0, fao.predict_box_ptr_offset(receiver("x", "y"), "y"));
+        Assert.assertEquals(0, fao.predict_box_ptr_offset(receiver("b", "x"), "b"));
+    }
+
+    @Test
+    public void testResolvedByReceiver() {
+        FieldAccessOptimizer fao = optimizer(vtablesByField(AX, ABX, XY));
+        // only ABX has b, only XY has y, whichever comes first
+        Assert.assertEquals(2, fao.predict_box_ptr_offset(receiver("b", "x"), "x"));
+        Assert.assertEquals(2, fao.predict_box_ptr_offset(receiver("x", "a", "b"), "x"));
+        Assert.assertEquals(1, fao.predict_box_ptr_offset(receiver("x", "y"), "x"));
+        Assert.assertEquals(1, fao.predict_box_ptr_offset(receiver("y", "x"), "x"));
+    }
+
+    @Test
+    public void testStillAmbiguous() {
+        FieldAccessOptimizer fao = optimizer(vtablesByField(AX, ABX, XY));
+        // AX and ABX both have a, with x at different offsets
+        Assert.assertEquals(-1, fao.predict_box_ptr_offset(receiver("a", "x"), "x"));
+        Assert.assertEquals(-1, fao.predict_box_ptr_offset(receiver("x"), "x"));
+    }
+
+    @Test
+    public void testNoCandidate() {
+        FieldAccessOptimizer fao = optimizer(vtablesByField(AX, ABX, XY));
+        // no vtable has both b and y; no offset from the vtables examined on the way may leak out
+        Assert.assertEquals(-1, fao.predict_box_ptr_offset(receiver("x", "b", "y"), "x"));
+        Assert.assertEquals(-1, fao.predict_box_ptr_offset(receiver("y", "x", "b"), "x"));
+        Assert.assertEquals(-1, fao.predict_box_ptr_offset(receiver("x"), "z"));
+    }
+
+    @Test
+    public void testCachedByPropertySet() {
+        Map<String, Set<int[]>> vtables_by_field = vtablesByField(AX, ABX, XY);
+        FieldAccessOptimizer fao = optimizer(vtables_by_field);
+        Assert.assertEquals(2, fao.predict_box_ptr_offset(receiver("b", "x"), "x"));
+        // a vtable the pass never looks at again for receivers with the same properties
+        int[] bxy = { -1, 0, 3, 1 };
+        vtables_by_field.get("x").add(bxy);
+        Assert.assertEquals(2, fao.predict_box_ptr_offset(receiver("x", "b"), "x"));
+        Assert.assertEquals(3, fao.predict_box_ptr_offset(receiver("x", "b", "y"), "x"));
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.backend;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.gson.JsonParser;
+import com.samsung.sjs.FFILinkage;
+
+public class PhysicalLayoutTest {
+
+    private static IRFieldCollector.FieldMapping fields(String... names) {
+        return new IRFieldCollector.FieldMapping(new TreeSet<>(Arrays.asList(names)));
+    }
+
+    private static void assertPermutation(int[] offsets) {
+        int[] sorted = offsets.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            Assert.assertEquals(i, sorted[i]);
+        }
+    }
+
+    @Test
+    public void testSequentialKeepsDefaultOrder() {
+        IRFieldCollector.FieldMapping m = fields("a", "b", "c");
+        Assert.assertArrayEquals(new int[] { 0, 1, 2 },
+                                 PhysicalLayout.sequential(m).offsets(Arrays.asList("c", "a", "b"), 0));
+    }
+
+    /**
+     * A property shared by all layouts lands at the same offset in each, even when it comes last
+     * in their default order.
+     */
+    @Test
+    public void testSharedPropertyAligned() {
+        IRFieldCollector.FieldMapping m = fields("a", "b", "c", "x");
+        PhysicalLayoutConstraintGathering plcg = new PhysicalLayoutConstraintGathering(null, m, new FFILinkage());
+        plcg.processLayout(Arrays.asList("a", "b", "x"), 0);
+        plcg.processLayout(Arrays.asList("c", "x"), 0);
+        plcg.processLayout(Arrays.asList("x"), 0);
+        PhysicalLayout layout = plcg.getLayout();
+        int x = m.indexOf("x");
+        Assert.assertEquals(0, layout.map(Arrays.asList("a", "b", "x"), 0)[x]);
+        Assert.assertEquals(0, layout.map(Arrays.asList("c", "x"), 0)[x]);
+        Assert.assertEquals(0, layout.map(Arrays.asList("x"), 0)[x]);
+    }
+
+    /**
+     * Offsets fixed by an FFI table carry over to the layouts the compiler controls, and the runtime
+     * fixed prefix of a layout stays put.
+     */
+    @Test
+    public void testFixedOffsetsHonored() {
+        IRFieldCollector.FieldMapping m = fields("p", "q", "r", "_____cpp_receiver");
+        FFILinkage ffi = new FFILinkage();
+        ffi.parseTable(new JsonParser().parse("{ \"name\": \"T\", \"fields\": [ \"p\", \"q\" ] }").getAsJsonObject());
+        PhysicalLayoutConstraintGathering plcg = new PhysicalLayoutConstraintGathering(null, m, ffi);
+        plcg.processLayout(Arrays.asList("q", "r"), 0);
+        plcg.processLayout(Arrays.asList("_____cpp_receiver", "r", "q"), 1);
+        PhysicalLayout layout = plcg.getLayout();
+        Assert.assertEquals(1, layout.preferredOffset("q"));
+        Assert.assertArrayEquals(new int[] { 1, 0 }, layout.offsets(Arrays.asList("q", "r"), 0));
+        int[] with_receiver = layout.offsets(Arrays.asList("_____cpp_receiver", "r", "q"), 1);
+        Assert.assertEquals(0, with_receiver[0]);
+        Assert.assertEquals(1, with_receiver[2]);
+    }
+
+    /**
+     * Whatever the constraints, every layout is a permutation of its own slots, so object sizes
+     * don't change.
+     */
+    @Test
+    public void testLayoutsArePermutations() {
+        String[] names = new String[12];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "f"+i;
+        }
+        IRFieldCollector.FieldMapping m = fields(names);
+        Random r = new Random(7);
+        List<List<String>> layouts = new ArrayList<>();
+        PhysicalLayoutConstraintGathering plcg = new PhysicalLayoutConstraintGathering(null, m, new FFILinkage());
+        for (int i = 0; i < 40; i++) {
+            List<String> props = new ArrayList<>();
+            for (String f : names) {
+                if (r.nextInt(3) == 0) {
+                    props.add(f);
+                }
+            }
+            layouts.add(props);
+            plcg.processLayout(props, 0);
+        }
+        PhysicalLayout layout = plcg.getLayout();
+        for (List<String> props : layouts) {
+            assertPermutation(layout.offsets(props, 0));
+        }
+        // A layout the solver never saw still gets one
+        assertPermutation(layout.offsets(Arrays.asList(names), 0));
+    }
+
+    private static AccessProfile profile(String contents) throws IOException {
+        Path p = Files.createTempFile("sjsc-profile", ".tsv");
+        p.toFile().deleteOnExit();
+        Files.write(p, contents.getBytes(StandardCharsets.UTF_8));
+        return AccessProfile.read(p);
+    }
+
+    @Test
+    public void testProfileCountsAddUp() throws IOException {
+        AccessProfile p = profile("# two runs\nread\t4\ty\t10\nwrite\t5\ty\t1\nalloc\t2\tx,y\t3\n\nread\t4\ty\t10\n");
+        Assert.assertEquals(21, p.fieldCount("y"));
+        Assert.assertEquals(0, p.fieldCount("x"));
+        Assert.assertEquals(20, p.siteCount(4));
+        Assert.assertEquals(3, p.siteCount(2));
+        Assert.assertTrue(p.matches(4, "y"));
+        Assert.assertFalse(p.matches(4, "x"));
+        Assert.assertTrue(p.matches(7, "x"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedProfile() throws IOException {
+        profile("read\t4\ty\n");
+    }
+
+    /**
+     * When two properties compete for the only offset they could share, the one the profile
+     * counted more accesses to gets it.
+     */
+    @Test
+    public void testProfileAlignsHotPropertyFirst() throws IOException {
+        IRFieldCollector.FieldMapping m = fields("x", "y");
+        PhysicalLayoutConstraintGathering plcg = new PhysicalLayoutConstraintGathering(null, m, new FFILinkage());
+        plcg.processLayout(Arrays.asList("x", "y"), 0);
+        plcg.processLayout(Arrays.asList("x"), 0);
+        plcg.processLayout(Arrays.asList("y"), 0);
+        Assert.assertEquals(0, plcg.getLayout().preferredOffset("x"));
+
+        plcg = new PhysicalLayoutConstraintGathering(null, m, new FFILinkage());
+        plcg.setProfile(profile("read\t1\ty\t100\nread\t2\tx\t1\n"));
+        plcg.processLayout(Arrays.asList("x", "y"), 0);
+        plcg.processLayout(Arrays.asList("x"), 0);
+        plcg.processLayout(Arrays.asList("y"), 0);
+        PhysicalLayout layout = plcg.getLayout();
+        Assert.assertEquals(0, layout.preferredOffset("y"));
+        Assert.assertEquals(-1, layout.preferredOffset("x"));
+        Assert.assertArrayEquals(new int[] { 1, 0 }, layout.offsets(Arrays.asList("x", "y"), 0));
+    }
+
+    @Test
+    public void testRankOrdersFreeSlots() {
+        IRFieldCollector.FieldMapping m = fields("p", "q", "r");
+        int[] none = { -1, -1, -1 };
+        int[] rank = new int[3];
+        rank[m.indexOf("p")] = 2;
+        rank[m.indexOf("q")] = 0;
+        rank[m.indexOf("r")] = 1;
+        PhysicalLayout layout = new PhysicalLayout(m, none, rank);
+        Assert.assertArrayEquals(new int[] { 2, 0, 1 }, layout.offsets(Arrays.asList("p", "q", "r"), 0));
+        // the fixed prefix stays put regardless
+        Assert.assertArrayEquals(new int[] { 0, 2, 1 }, layout.offsets(Arrays.asList("q", "p", "r"), 1));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014-2016 Samsung Research America, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsung.sjs.constraintsolver;
+
+import com.samsung.sjs.JSEnvironment;
+import com.samsung.sjs.constraintgenerator.ConstraintFactory;
+import com.samsung.sjs.constraintgenerator.ConstraintGenerator;
+import com.samsung.sjs.typeconstraints.ConcreteConstraint;
+import com.samsung.sjs.typeconstraints.ITypeConstraint;
+import com.samsung.sjs.typeconstraints.TypeVariableTerm;
+import com.samsung.sjs.types.TypeVar;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class CauseTest {
+
+    private static ITypeConstraint constraint(String name) {
+        return new ConcreteConstraint(new TypeVariableTerm(new TypeVar(name)));
+    }
+
+    @Before
+    public void freshGraph() {
+        CauseGraph.begin();
+    }
+
+    @Test
+    public void testCore() {
+        ITypeConstraint c1 = constraint("a"), c2 = constraint("b"), c3 = constraint("c");
+        Cause s1 = Cause.src(c1), s2 = Cause.src(c2), s3 = Cause.src(c3);
+        Assert.assertSame(c1, s1.asSingleton());
+        Cause d = Cause.derived(Cause.derived(s1, s2), Cause.derived(s2, s3));
+        Assert.assertNull(d.asSingleton());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(c1, c2, c3)), d.core());
+        Assert.assertTrue(Cause.derived(Cause.noReason(), Cause.noReason()).core().isEmpty());
+    }
+
+    @Test
+    public void testInterning() {
+        Cause s1 = Cause.src(constraint("a")), s2 = Cause.src(constraint("b"));
+        Cause d = Cause.derived(s1, s2);
+        Assert.assertSame(d, Cause.derived(s2, s1));
+        Assert.assertSame(d, Cause.derived(s1, s2, s1, Cause.noReason()));
+        // re-deriving from something already accounted for adds nothing
+        Assert.assertSame(d, Cause.derived(d, s1));
+        Assert.assertSame(s1, Cause.derived(s1));
+        Assert.assertSame(s1, Cause.derived(Cause.noReason(), s1));
+    }
+
+    @Test
+    public void testForeignCauses() {
+        ITypeConstraint c1 = constraint("a"), c2 = constraint("b");
+        Cause old = Cause.derived(Cause.src(c1), Cause.noReason());
+        CauseGraph.begin();
+        Cause d = Cause.derived(old, Cause.src(c2));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(c1, c2)), d.core());
+        Assert.assertTrue(Arrays.asList(d.predecessors()).contains(old));
+    }
+
+    @Test
+    public void testForeignCausesInterned() {
+        Cause old = Cause.src(constraint("a"));
+        CauseGraph.begin();
+        Cause s = Cause.src(constraint("b"));
+        Cause d = Cause.derived(old, s);
+        long recorded = Cause.recorded();
+        Assert.assertSame(d, Cause.derived(s, old));
+        Assert.assertSame(old, Cause.derived(old, Cause.noReason()));
+        Assert.assertEquals(recorded, Cause.recorded());
+    }
+
+    /**
+     * The causes recorded solving a script, with the given number of solver threads
+     */
+    private static long recordedSolving(String name, int threads) throws IOException {
+        String script = new String(Files.readAllBytes(Paths.get(
+                CauseTest.class.getResource("/testinput/constraints/" + name + ".js").getPath())));
+        JSEnvironment env = new JSEnvironment();
+        env.includeFile(Paths.get(CauseTest.class.getResource("/environment.json").getPath()));
+        ConstraintFactory factory = new ConstraintFactory();
+        ConstraintGenerator generator = new ConstraintGenerator(factory, env, null);
+        generator.generateConstraints(script);
+        DirectionalConstraintSolver solver = new DirectionalConstraintSolver(generator.getTypeConstraints(), factory, generator);
+        solver.setSolverThreads(threads);
+        long before = Cause.recorded();
+        solver.solve();
+        return Cause.recorded() - before;
+    }
+
+    /**
+     * Each component of the parallel solver records its causes in a graph of
+     * its own, in which the causes of the constraints are foreign; they must
+     * be interned there too, or the graphs grow with the number of threads.
+     */
+    @Test
+    public void testParallelSolveDoesNotGrowGraph() throws IOException {
+        for (String name : Arrays.asList("navier_stokes", "pidigits")) {
+            long sequential = recordedSolving(name, 1);
+            long parallel = recordedSolving(name, 4);
+            Assert.assertTrue(name + ": " + parallel + " causes with 4 threads, " + sequential + " with 1",
+                    parallel <= sequential);
+        }
+    }
+
+}
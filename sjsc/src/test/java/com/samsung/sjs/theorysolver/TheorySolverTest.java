@@ -19,6 +19,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -73,4 +74,91 @@ public class TheorySolverTest {
 
     }
 
+    /**
+     * Feeds the same random cores to {@link MaxSatFixingSetFinder}, which re-solves
+     * from scratch every round, and to {@link IncrementalMaxSatFixingSetFinder}. Both
+     * are optimal, so the fixing sets must have the same size after every core.
+     */
+    @Test
+    public void testIncrementalMaxSat() {
+
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < 30; ++i) {
+            all.add(i);
+        }
+
+        for (int i = 0; i < 50; ++i) {
+            Random r = new Random(SEED + i);
+            FixingSetFinder<Integer> reference = new MaxSatFixingSetFinder<>();
+            FixingSetFinder<Integer> incremental = new IncrementalMaxSatFixingSetFinder<>();
+            reference.setup(all);
+            incremental.setup(all);
+
+            for (int round = 0; round < 15; ++round) {
+                Collection<Integer> core = all.stream()
+                        .filter(x -> r.nextInt(6) == 0)
+                        .collect(Collectors.toList());
+                if (core.isEmpty()) {
+                    core = Collections.singletonList(all.get(r.nextInt(all.size())));
+                }
+                reference.addCore(core);
+                incremental.addCore(core);
+
+                Collection<Integer> expected = new HashSet<>();
+                Collection<Integer> actual = new HashSet<>();
+                reference.currentFixingSet(expected, FixingSetListener.dummyListener());
+                incremental.currentFixingSet(actual, FixingSetListener.dummyListener());
+                Assert.assertEquals(expected.size(), actual.size());
+            }
+        }
+
+    }
+
+    /**
+     * Minimizes the trivial fixing set (everything) against a theory with a fixed
+     * random set of cores, using {@link TheorySolver#minimizeFixingSetParallel}.
+     * The result must still hit every core, and removing any one constraint from
+     * it must leave some core unhit.
+     */
+    @Test
+    public void testParallelMinimization() {
+
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < 40; ++i) {
+            all.add(i);
+        }
+
+        for (int i = 0; i < 20; ++i) {
+            Random r = new Random(SEED + i);
+            List<Collection<Integer>> cores = new ArrayList<>();
+            for (int k = 0; k < 8; ++k) {
+                cores.add(all.stream().filter(x -> r.nextInt(8) == 0).collect(Collectors.toSet()));
+            }
+            cores.removeIf(Collection::isEmpty);
+
+            Theory<Integer, Void> theory = positive -> {
+                Collection<Integer> kept = new HashSet<>(positive);
+                for (Collection<Integer> core : cores) {
+                    if (kept.containsAll(core)) {
+                        return Either.right(core);
+                    }
+                }
+                return Either.left(null);
+            };
+
+            Collection<Integer> fixingSet = TheorySolver.minimizeFixingSetParallel(
+                theory, () -> theory,
+                Collections.emptyList(), all,
+                null, all, 4).getRight();
+
+            Assert.assertTrue(cores.stream().allMatch(c -> c.stream().anyMatch(fixingSet::contains)));
+            for (Integer x : fixingSet) {
+                Collection<Integer> smaller = new HashSet<>(fixingSet);
+                smaller.remove(x);
+                Assert.assertFalse(cores.stream().allMatch(c -> c.stream().anyMatch(smaller::contains)));
+            }
+        }
+
+    }
+
 }
@@ -43,6 +43,30 @@ public class TypesTest {
         Assert.assertFalse(Types.isSubtype(f, i));
     }
 
+    @Test
+    public void testLeafEquality() {
+        Assert.assertSame(Types.mkAny(), AnyType.SINGLETON);
+        Assert.assertTrue(Types.isEqual(new VoidType(), Types.mkVoid()));
+        Assert.assertTrue(Types.isEqual(DefaultType.SINGLETON, IntegerType.make()));
+        Assert.assertTrue(Types.isEqual(new TypeVar("a"), new TypeVar("a")));
+        Assert.assertFalse(Types.isEqual(new TypeVar("a"), new TypeVar("b")));
+        Assert.assertFalse(Types.isEqual(Types.mkAny(), Types.mkArray(Types.mkAny())));
+        Assert.assertFalse(Types.isEqual(Types.mkArray(Types.mkInt()), null));
+        Assert.assertTrue(Types.isEqual(Types.mkArray(Types.mkInt()), Types.mkArray(Types.mkInt())));
+        Assert.assertFalse(Types.isEqual(Types.mkArray(Types.mkInt()), Types.mkMap(Types.mkInt())));
+    }
+
+    @Test
+    public void testStructuredTypesAreNotShared() {
+        ArrayType a1 = (ArrayType) Types.mkArray(Types.mkAny());
+        ArrayType a2 = (ArrayType) Types.mkArray(Types.mkAny());
+        Assert.assertNotSame(a1, a2);
+        Assert.assertTrue(Types.isEqual(a1, a2));
+        a1.setElemType(Types.mkInt());
+        Assert.assertFalse(Types.isEqual(a1, a2));
+        Assert.assertSame(Types.mkAny(), a2.elemType());
+    }
+
     @Test
     public void testRecursiveEquality() {
         ObjectType o1 = new ObjectType();